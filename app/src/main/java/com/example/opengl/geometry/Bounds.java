@@ -0,0 +1,152 @@
+package com.example.opengl.geometry;
+
+/**
+ * 模型空间中的包围盒（AABB）和包围球，由顶点坐标计算一次后保存。
+ * 包围球以包围盒的中心为球心，半径是到最远顶点的距离，比包围盒的外接球更紧。
+ * <p>
+ * 视锥剔除时先用包围球做最便宜的测试，再用包围盒做精确一些的测试，
+ * 变换到世界空间后的包围盒用 {@link #transform(float[], int, float[], int)} 计算。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class Bounds {
+
+    /**
+     * 世界空间包围盒在数组中占用的 float 个数：minX, minY, minZ, maxX, maxY, maxZ
+     */
+    public static final int AABB_SIZE = 6;
+
+    private final float mMinX;
+    private final float mMinY;
+    private final float mMinZ;
+    private final float mMaxX;
+    private final float mMaxY;
+    private final float mMaxZ;
+    private final float mRadius;
+
+    public Bounds(float minX, float minY, float minZ, float maxX, float maxY, float maxZ, float radius) {
+        mMinX = minX;
+        mMinY = minY;
+        mMinZ = minZ;
+        mMaxX = maxX;
+        mMaxY = maxY;
+        mMaxZ = maxZ;
+        mRadius = radius;
+    }
+
+    /**
+     * 计算顶点的包围盒和包围球
+     *
+     * @param positions 顶点坐标
+     * @param size      每个顶点的分量个数，2 时 z 按 0 计算
+     */
+    public static Bounds fromPositions(float[] positions, int size) {
+        if (size < 2 || size > 4) {
+            throw new IllegalArgumentException("size must be 2~4: " + size);
+        }
+        int count = positions.length / size;
+        if (count == 0) {
+            return new Bounds(0, 0, 0, 0, 0, 0, 0);
+        }
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, minZ = Float.MAX_VALUE;
+        float maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE, maxZ = -Float.MAX_VALUE;
+        for (int i = 0, p = 0; i < count; i++, p += size) {
+            float x = positions[p];
+            float y = positions[p + 1];
+            float z = size > 2 ? positions[p + 2] : 0f;
+            minX = Math.min(minX, x);
+            minY = Math.min(minY, y);
+            minZ = Math.min(minZ, z);
+            maxX = Math.max(maxX, x);
+            maxY = Math.max(maxY, y);
+            maxZ = Math.max(maxZ, z);
+        }
+        //第二遍求到包围盒中心的最大距离
+        float cx = (minX + maxX) * 0.5f;
+        float cy = (minY + maxY) * 0.5f;
+        float cz = (minZ + maxZ) * 0.5f;
+        float maxSquared = 0f;
+        for (int i = 0, p = 0; i < count; i++, p += size) {
+            float dx = positions[p] - cx;
+            float dy = positions[p + 1] - cy;
+            float dz = (size > 2 ? positions[p + 2] : 0f) - cz;
+            maxSquared = Math.max(maxSquared, dx * dx + dy * dy + dz * dz);
+        }
+        return new Bounds(minX, minY, minZ, maxX, maxY, maxZ, (float) Math.sqrt(maxSquared));
+    }
+
+    public float getMinX() {
+        return mMinX;
+    }
+
+    public float getMinY() {
+        return mMinY;
+    }
+
+    public float getMinZ() {
+        return mMinZ;
+    }
+
+    public float getMaxX() {
+        return mMaxX;
+    }
+
+    public float getMaxY() {
+        return mMaxY;
+    }
+
+    public float getMaxZ() {
+        return mMaxZ;
+    }
+
+    public float getCenterX() {
+        return (mMinX + mMaxX) * 0.5f;
+    }
+
+    public float getCenterY() {
+        return (mMinY + mMaxY) * 0.5f;
+    }
+
+    public float getCenterZ() {
+        return (mMinZ + mMaxZ) * 0.5f;
+    }
+
+    /**
+     * 以包围盒中心为球心的包围球半径
+     */
+    public float getRadius() {
+        return mRadius;
+    }
+
+    /**
+     * 用仿射矩阵变换包围盒，结果是包住变换后的盒子的世界空间包围盒，
+     * 按 minX, minY, minZ, maxX, maxY, maxZ 写入 result
+     *
+     * @param m 列主序的模型矩阵
+     */
+    public void transform(float[] m, int offset, float[] result, int resultOffset) {
+        float cx = getCenterX();
+        float cy = getCenterY();
+        float cz = getCenterZ();
+        float ex = (mMaxX - mMinX) * 0.5f;
+        float ey = (mMaxY - mMinY) * 0.5f;
+        float ez = (mMaxZ - mMinZ) * 0.5f;
+        for (int row = 0; row < 3; row++) {
+            float m0 = m[offset + row];
+            float m1 = m[offset + 4 + row];
+            float m2 = m[offset + 8 + row];
+            //中心直接变换，半边长取每一行系数的绝对值加权
+            float center = m0 * cx + m1 * cy + m2 * cz + m[offset + 12 + row];
+            float extent = Math.abs(m0) * ex + Math.abs(m1) * ey + Math.abs(m2) * ez;
+            result[resultOffset + row] = center - extent;
+            result[resultOffset + 3 + row] = center + extent;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "Bounds[(" + mMinX + ", " + mMinY + ", " + mMinZ + ") - (" + mMaxX + ", " + mMaxY + ", " + mMaxZ
+                + "), r=" + mRadius + "]";
+    }
+}
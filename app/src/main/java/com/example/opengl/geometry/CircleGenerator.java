@@ -0,0 +1,161 @@
+package com.example.opengl.geometry;
+
+import com.example.opengl.utils.ParallelRange;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 生成圆形扇面的顶点：圆心加上 segments+1 个圆周上的点（最后一个和第一个重合），
+ * 可以用 GL_TRIANGLE_FAN 画成圆或者圆锥。顶点个数在生成前就能算出来，
+ * 直接写入预先分配的数组或缓冲区，角度从 {@link SinCosTable} 查表。
+ * <p>
+ * 静态方法在当前线程生成；分段数非常大时可以用实例方法把圆周拆分到多个线程生成，
+ * 这时每个线程直接计算自己那一段的 sin/cos，不经过 {@link SinCosTable}，
+ * 最耗时的三角函数也分到了各个线程上，也不会让这么大的表挤掉缓存中的其他表。
+ * 实例本身不是线程安全的。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class CircleGenerator {
+
+    /**
+     * 每个顶点的分量个数
+     */
+    public static final int COORDS_PER_VERTEX = 3;
+    /**
+     * 超过这个分段数才走并行，分段少时线程切换的开销比计算还大
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    private final ParallelRange mParallel;
+    private final int mParallelThreshold;
+
+    public CircleGenerator() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism       并行生成使用的线程数，1表示始终串行
+     * @param parallelThreshold 分段数达到这个值才并行生成
+     */
+    public CircleGenerator(int parallelism, int parallelThreshold) {
+        mParallel = new ParallelRange(parallelism, "CircleGenerator");
+        mParallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * 扇面的顶点个数：圆心 + segments+1 个圆周点
+     */
+    public static int fanVertexCount(int segments) {
+        return segments + 2;
+    }
+
+    /**
+     * 圆周上相邻两点连成的弦和圆弧的最大距离不超过 maxError 需要的最少分段数，
+     * 半径和误差单位相同，通常是像素
+     */
+    public static int segmentsForError(float radius, float maxError) {
+        if (maxError >= radius) {
+            return 3;
+        }
+        double angle = Math.acos(1 - maxError / radius);
+        return Math.max(3, (int) Math.ceil(Math.PI / angle));
+    }
+
+    /**
+     * 分配一个大小正好的数组并生成扇面
+     *
+     * @param centerZ 圆心的 z 坐标，不为0时是圆锥
+     */
+    public static float[] createFan(int segments, float radius, float centerZ) {
+        float[] out = new float[fanVertexCount(segments) * COORDS_PER_VERTEX];
+        fan(out, 0, segments, radius, centerZ);
+        return out;
+    }
+
+    /**
+     * 在当前线程生成扇面，从 offset 开始写入 fanVertexCount(segments)*3 个 float
+     */
+    public static void fan(float[] out, int offset, int segments, float radius, float centerZ) {
+        out[offset] = 0f;
+        out[offset + 1] = 0f;
+        out[offset + 2] = centerZ;
+        ring(out, offset + COORDS_PER_VERTEX, SinCosTable.get(segments), 0, segments + 1, radius, 0f);
+    }
+
+    /**
+     * 生成扇面写入缓冲区的当前位置，写完后 position 前进 fanVertexCount(segments)*3
+     */
+    public static void fan(FloatBuffer out, int segments, float radius, float centerZ) {
+        SinCosTable table = SinCosTable.get(segments);
+        int p = out.position();
+        out.put(p, 0f).put(p + 1, 0f).put(p + 2, centerZ);
+        p += COORDS_PER_VERTEX;
+        for (int i = 0; i <= segments; i++, p += COORDS_PER_VERTEX) {
+            out.put(p, radius * table.sin(i));
+            out.put(p + 1, radius * table.cos(i));
+            out.put(p + 2, 0f);
+        }
+        out.position(p);
+    }
+
+    /**
+     * 写入圆周上第 [from, to) 个点，x = r*sin，y = r*cos
+     */
+    public static void ring(float[] out, int offset, SinCosTable table, int from, int to, float radius, float z) {
+        int p = offset;
+        for (int i = from; i < to; i++, p += COORDS_PER_VERTEX) {
+            out[p] = radius * table.sin(i);
+            out[p + 1] = radius * table.cos(i);
+            out[p + 2] = z;
+        }
+    }
+
+    /**
+     * 和 {@link #fan(float[], int, int, float, float)} 相同，分段数超过阈值时圆周分段在多个线程生成，
+     * 返回时所有顶点都已经写完
+     */
+    public void generateFan(final float[] out, final int offset, final int segments, final float radius,
+                            float centerZ) {
+        if (mParallel.getParallelism() == 1 || segments < mParallelThreshold) {
+            fan(out, offset, segments, radius, centerZ);
+            return;
+        }
+        if (segments < 1) {
+            throw new IllegalArgumentException("invalid segments: " + segments);
+        }
+        out[offset] = 0f;
+        out[offset + 1] = 0f;
+        out[offset + 2] = centerZ;
+        final int ringOffset = offset + COORDS_PER_VERTEX;
+        mParallel.run(segments + 1, new ParallelRange.Body() {
+            @Override
+            public void run(int from, int to) {
+                ring(out, ringOffset + from * COORDS_PER_VERTEX, segments, from, to, radius, 0f);
+            }
+        });
+    }
+
+    /**
+     * 写入圆周上第 [from, to) 个点，直接计算 sin/cos，和 {@link SinCosTable} 的算法相同，结果逐位一致
+     */
+    private static void ring(float[] out, int offset, int segments, int from, int to, float radius, float z) {
+        double step = 2 * Math.PI / segments;
+        int p = offset;
+        for (int i = from; i < to; i++, p += COORDS_PER_VERTEX) {
+            //最后一个点和第一个完全重合
+            int k = i == segments ? 0 : i;
+            out[p] = radius * (float) Math.sin(k * step);
+            out[p + 1] = radius * (float) Math.cos(k * step);
+            out[p + 2] = z;
+        }
+    }
+
+    /**
+     * 释放并行生成的线程
+     */
+    public void release() {
+        mParallel.release();
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.opengl.geometry;
+
+/**
+ * 生成好的带索引的三角形网格：每个顶点3个坐标，每3个索引一个三角形。
+ * 索引用 short 存储，顶点个数不能超过 65536。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class IndexedGeometry {
+
+    /**
+     * short 索引能引用的最大顶点个数
+     */
+    public static final int MAX_VERTICES = 1 << 16;
+
+    private final float[] mPositions;
+    private final short[] mIndices;
+
+    public IndexedGeometry(float[] positions, short[] indices) {
+        if (positions.length / 3 > MAX_VERTICES) {
+            throw new IllegalArgumentException("too many vertices for short indices: " + positions.length / 3);
+        }
+        mPositions = positions;
+        mIndices = indices;
+    }
+
+    public float[] getPositions() {
+        return mPositions;
+    }
+
+    public short[] getIndices() {
+        return mIndices;
+    }
+
+    public int getVertexCount() {
+        return mPositions.length / 3;
+    }
+
+    public int getTriangleCount() {
+        return mIndices.length / 3;
+    }
+}
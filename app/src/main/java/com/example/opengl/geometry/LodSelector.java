@@ -0,0 +1,103 @@
+package com.example.opengl.geometry;
+
+/**
+ * 按物体在屏幕上的投影半径选择细节级别，级别越大细节越多。
+ * 每一级有一个开始需要它的投影半径，半径在阈值附近来回变化时，
+ * 升级要超过阈值的 (1+hysteresis) 倍，降级要低于 (1-hysteresis) 倍，避免每帧切换造成闪烁。
+ * <p>
+ * 选择结果依赖上一次的级别，每个绘制的物体使用一个实例。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class LodSelector {
+
+    /**
+     * 默认的滞后比例
+     */
+    public static final float DEFAULT_HYSTERESIS = 0.15f;
+
+    private final float[] mThresholds;
+    private final float mHysteresis;
+    private int mLevel = -1;
+
+    /**
+     * @param thresholds 每一级开始需要的投影半径（像素），递增，第0项不使用
+     * @param hysteresis 滞后比例，0表示不滞后
+     */
+    public LodSelector(float[] thresholds, float hysteresis) {
+        for (int i = 2; i < thresholds.length; i++) {
+            if (thresholds[i] < thresholds[i - 1]) {
+                throw new IllegalArgumentException("thresholds must be ascending");
+            }
+        }
+        mThresholds = thresholds.clone();
+        mHysteresis = hysteresis;
+    }
+
+    public LodSelector(float[] thresholds) {
+        this(thresholds, DEFAULT_HYSTERESIS);
+    }
+
+    /**
+     * 按投影半径选择级别，第一次选择时不滞后
+     */
+    public int select(float radiusPixels) {
+        int level = mLevel;
+        if (level < 0) {
+            level = 0;
+            while (level + 1 < mThresholds.length && radiusPixels >= mThresholds[level + 1]) {
+                level++;
+            }
+        } else {
+            while (level + 1 < mThresholds.length && radiusPixels >= mThresholds[level + 1] * (1 + mHysteresis)) {
+                level++;
+            }
+            while (level > 0 && radiusPixels < mThresholds[level] * (1 - mHysteresis)) {
+                level--;
+            }
+        }
+        mLevel = level;
+        return level;
+    }
+
+    /**
+     * 上一次选择的级别，还没有选择过时为 -1
+     */
+    public int getLevel() {
+        return mLevel;
+    }
+
+    public int getLevelCount() {
+        return mThresholds.length;
+    }
+
+    /**
+     * 忘记上一次的级别，下一次选择不滞后
+     */
+    public void reset() {
+        mLevel = -1;
+    }
+
+    /**
+     * 模型空间中的球经过 mvp 变换后在屏幕上的大致半径（像素）。
+     * 用球心的裁剪坐标 w 做透视除法，用 mvp 第二行的长度作为 y 方向的缩放；
+     * 球心在相机后面或者离相机太近时返回 {@link Float#MAX_VALUE}，应使用最高级别
+     *
+     * @param mvp            列主序的模型视图投影矩阵
+     * @param viewportHeight 视口高度（像素）
+     */
+    public static float projectedRadius(float[] mvp, int offset, float x, float y, float z,
+                                        float radius, int viewportHeight) {
+        float w = mvp[offset + 3] * x + mvp[offset + 7] * y + mvp[offset + 11] * z + mvp[offset + 15];
+        if (w <= radius) {
+            return Float.MAX_VALUE;
+        }
+        float r1 = mvp[offset + 1];
+        float r5 = mvp[offset + 5];
+        float r9 = mvp[offset + 9];
+        float scale = (float) Math.sqrt(r1 * r1 + r5 * r5 + r9 * r9);
+        //NDC 的高度是2，对应 viewportHeight 个像素
+        return radius * scale / w * viewportHeight * 0.5f;
+    }
+}
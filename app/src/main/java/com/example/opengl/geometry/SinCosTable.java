@@ -0,0 +1,76 @@
+package com.example.opengl.geometry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把一圈等分成 segments 份的 sin/cos 表，第 segments 项和第0项完全相同，保证首尾闭合。
+ * 同样的分段数只计算一次，生成网格时直接查表，不再每个顶点调用 Math.sin/Math.cos。
+ * 表创建后只读，可以在多个线程共用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class SinCosTable {
+
+    /**
+     * 缓存的表最多占用的 float 个数，超出后清空重新缓存
+     */
+    private static final int MAX_CACHED_VALUES = 1 << 20;
+
+    private static final Map<Integer, SinCosTable> sCache = new HashMap<>();
+    private static int sCachedValues;
+
+    private final int mSegments;
+    private final float[] mSin;
+    private final float[] mCos;
+
+    private SinCosTable(int segments) {
+        mSegments = segments;
+        mSin = new float[segments + 1];
+        mCos = new float[segments + 1];
+        //用整数下标计算角度，不会像浮点累加那样产生误差
+        double step = 2 * Math.PI / segments;
+        for (int i = 0; i < segments; i++) {
+            mSin[i] = (float) Math.sin(i * step);
+            mCos[i] = (float) Math.cos(i * step);
+        }
+        mSin[segments] = mSin[0];
+        mCos[segments] = mCos[0];
+    }
+
+    /**
+     * 获取 segments 等分的表，第一次使用时计算
+     */
+    public static synchronized SinCosTable get(int segments) {
+        if (segments < 1) {
+            throw new IllegalArgumentException("invalid segments: " + segments);
+        }
+        SinCosTable table = sCache.get(segments);
+        if (table == null) {
+            table = new SinCosTable(segments);
+            if (sCachedValues + 2 * (segments + 1) > MAX_CACHED_VALUES) {
+                sCache.clear();
+                sCachedValues = 0;
+            }
+            sCache.put(segments, table);
+            sCachedValues += 2 * (segments + 1);
+        }
+        return table;
+    }
+
+    public int getSegments() {
+        return mSegments;
+    }
+
+    /**
+     * 第 i 个等分点的 sin，i 的范围是 [0, segments]
+     */
+    public float sin(int i) {
+        return mSin[i];
+    }
+
+    public float cos(int i) {
+        return mCos[i];
+    }
+}
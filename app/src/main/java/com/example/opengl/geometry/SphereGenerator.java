@@ -0,0 +1,207 @@
+package com.example.opengl.geometry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 生成带索引的球面，球心在原点，三角形从外面看是逆时针。
+ * <p>
+ * 经纬球（UV sphere）按纬线和经线划分，两极的三角形又小又密，适合需要纹理坐标的情况；
+ * 二十面体细分球（icosphere）每次细分把一个三角形分成4个，三角形大小均匀，同样的三角形数看起来更圆。
+ * 用 {@link #icosphereLods} 可以一次生成多个细节级别，配合 {@link LodSelector} 按屏幕上的大小选择。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class SphereGenerator {
+
+    /**
+     * 细分次数上限，7次细分的顶点个数超过 short 索引的范围
+     */
+    public static final int MAX_ICOSPHERE_LEVEL = 6;
+
+    /**
+     * 单位二十面体的边长和外接球半径的比值
+     */
+    private static final float ICOSAHEDRON_EDGE = 1.0515f;
+
+    private static final int[] ICOSAHEDRON_FACES = {
+            0, 11, 5, 0, 5, 1, 0, 1, 7, 0, 7, 10, 0, 10, 11,
+            1, 5, 9, 5, 11, 4, 11, 10, 2, 10, 7, 6, 7, 1, 8,
+            3, 9, 4, 3, 4, 2, 3, 2, 6, 3, 6, 8, 3, 8, 9,
+            4, 9, 5, 2, 4, 11, 6, 2, 10, 8, 6, 7, 9, 8, 1,
+    };
+
+    private SphereGenerator() {
+    }
+
+    /**
+     * 经纬球
+     *
+     * @param rings    纬线方向的分段数，从北极到南极
+     * @param segments 经线方向的分段数，绕一圈
+     */
+    public static IndexedGeometry uvSphere(int rings, int segments, float radius) {
+        if (rings < 2 || segments < 3) {
+            throw new IllegalArgumentException("rings >= 2 and segments >= 3: " + rings + ", " + segments);
+        }
+        //经线方向首尾各一列重合的顶点，方便以后加纹理坐标
+        int columns = segments + 1;
+        float[] positions = new float[(rings + 1) * columns * 3];
+        //2*rings 等分一圈的表，前 rings+1 项正好是从0到π的半圈
+        SinCosTable polar = SinCosTable.get(2 * rings);
+        SinCosTable azimuth = SinCosTable.get(segments);
+        int p = 0;
+        for (int r = 0; r <= rings; r++) {
+            float y = radius * polar.cos(r);
+            float ringRadius = radius * polar.sin(r);
+            for (int s = 0; s <= segments; s++) {
+                positions[p++] = ringRadius * azimuth.sin(s);
+                positions[p++] = y;
+                positions[p++] = ringRadius * azimuth.cos(s);
+            }
+        }
+        //两极的一圈退化三角形不生成，每个极点只有 segments 个三角形
+        short[] indices = new short[(rings - 1) * segments * 6];
+        int i = 0;
+        for (int r = 0; r < rings; r++) {
+            for (int s = 0; s < segments; s++) {
+                int a = r * columns + s;
+                int b = a + columns;
+                if (r != 0) {
+                    indices[i++] = (short) a;
+                    indices[i++] = (short) b;
+                    indices[i++] = (short) (a + 1);
+                }
+                if (r != rings - 1) {
+                    indices[i++] = (short) (a + 1);
+                    indices[i++] = (short) b;
+                    indices[i++] = (short) (b + 1);
+                }
+            }
+        }
+        return new IndexedGeometry(positions, indices);
+    }
+
+    /**
+     * 二十面体细分 level 次的球，顶点个数 10*4^level+2，三角形个数 20*4^level
+     */
+    public static IndexedGeometry icosphere(int level, float radius) {
+        return icosphereLods(level, radius)[level];
+    }
+
+    /**
+     * 细分 0~maxLevel 次的所有球，下标就是细分次数，每一级在上一级的基础上细分
+     */
+    public static IndexedGeometry[] icosphereLods(int maxLevel, float radius) {
+        if (maxLevel < 0 || maxLevel > MAX_ICOSPHERE_LEVEL) {
+            throw new IllegalArgumentException("level must be 0~" + MAX_ICOSPHERE_LEVEL + ": " + maxLevel);
+        }
+        IndexedGeometry[] lods = new IndexedGeometry[maxLevel + 1];
+        //先在单位球上细分，最后再缩放到半径
+        float[] positions = new float[(10 * (1 << 2 * maxLevel) + 2) * 3];
+        int vertexCount = icosahedron(positions);
+        int[] triangles = ICOSAHEDRON_FACES.clone();
+        lods[0] = scale(positions, vertexCount, triangles, radius);
+        for (int level = 1; level <= maxLevel; level++) {
+            Map<Long, Integer> midpoints = new HashMap<>();
+            int[] next = new int[triangles.length * 4];
+            int n = 0;
+            for (int t = 0; t < triangles.length; t += 3) {
+                int a = triangles[t];
+                int b = triangles[t + 1];
+                int c = triangles[t + 2];
+                int ab = midpoint(positions, vertexCount, midpoints, a, b);
+                if (ab == vertexCount) {
+                    vertexCount++;
+                }
+                int bc = midpoint(positions, vertexCount, midpoints, b, c);
+                if (bc == vertexCount) {
+                    vertexCount++;
+                }
+                int ca = midpoint(positions, vertexCount, midpoints, c, a);
+                if (ca == vertexCount) {
+                    vertexCount++;
+                }
+                n = triangle(next, n, a, ab, ca);
+                n = triangle(next, n, b, bc, ab);
+                n = triangle(next, n, c, ca, bc);
+                n = triangle(next, n, ab, bc, ca);
+            }
+            triangles = next;
+            lods[level] = scale(positions, vertexCount, triangles, radius);
+        }
+        return lods;
+    }
+
+    /**
+     * 每一级二十面体细分球开始需要的投影半径（像素），使三角形的边长在屏幕上不超过 maxEdgePixels
+     */
+    public static float[] icosphereThresholds(int maxLevel, float maxEdgePixels) {
+        float[] thresholds = new float[maxLevel + 1];
+        for (int level = 1; level <= maxLevel; level++) {
+            //二十面体的边长约为外接球半径的1.05倍，每次细分边长减半
+            thresholds[level] = maxEdgePixels * (1 << (level - 1)) / ICOSAHEDRON_EDGE;
+        }
+        return thresholds;
+    }
+
+    /**
+     * 单位二十面体的12个顶点，由3个互相垂直的黄金矩形组成
+     */
+    private static int icosahedron(float[] positions) {
+        float t = (float) ((1 + Math.sqrt(5)) / 2);
+        float[] corners = {
+                -1, t, 0, 1, t, 0, -1, -t, 0, 1, -t, 0,
+                0, -1, t, 0, 1, t, 0, -1, -t, 0, 1, -t,
+                t, 0, -1, t, 0, 1, -t, 0, -1, -t, 0, 1,
+        };
+        float length = (float) Math.sqrt(1 + t * t);
+        for (int i = 0; i < corners.length; i++) {
+            positions[i] = corners[i] / length;
+        }
+        return 12;
+    }
+
+    /**
+     * 边 ab 的中点投影到单位球上，两个三角形共用的边只生成一次
+     *
+     * @return 中点的下标，新生成的中点下标等于 vertexCount
+     */
+    private static int midpoint(float[] positions, int vertexCount, Map<Long, Integer> midpoints, int a, int b) {
+        long key = a < b ? ((long) a << 32) | b : ((long) b << 32) | a;
+        Integer index = midpoints.get(key);
+        if (index != null) {
+            return index;
+        }
+        float x = positions[a * 3] + positions[b * 3];
+        float y = positions[a * 3 + 1] + positions[b * 3 + 1];
+        float z = positions[a * 3 + 2] + positions[b * 3 + 2];
+        float length = (float) Math.sqrt(x * x + y * y + z * z);
+        int p = vertexCount * 3;
+        positions[p] = x / length;
+        positions[p + 1] = y / length;
+        positions[p + 2] = z / length;
+        midpoints.put(key, vertexCount);
+        return vertexCount;
+    }
+
+    private static int triangle(int[] out, int n, int a, int b, int c) {
+        out[n] = a;
+        out[n + 1] = b;
+        out[n + 2] = c;
+        return n + 3;
+    }
+
+    private static IndexedGeometry scale(float[] unit, int vertexCount, int[] triangles, float radius) {
+        float[] positions = new float[vertexCount * 3];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = unit[i] * radius;
+        }
+        short[] indices = new short[triangles.length];
+        for (int i = 0; i < indices.length; i++) {
+            indices[i] = (short) triangles[i];
+        }
+        return new IndexedGeometry(positions, indices);
+    }
+}
@@ -3,10 +3,23 @@ package com.example.opengl.gl;
 import android.content.Context;
 import android.opengl.GLSurfaceView;
 import android.util.AttributeSet;
+import android.util.Log;
 import android.view.MotionEvent;
 
+import com.example.gles.AndroidGL;
+import com.example.gles.FrameRenderer;
+import com.example.gles.StateTrackingGL;
+import com.example.opengl.input.TouchInput;
 import com.example.opengl.render.BitmapRender;
 import com.example.opengl.render.CubeRender;
+import com.example.opengl.utils.GLES30ProgramBinaryGL;
+import com.example.opengl.utils.ProgramBinaryCache;
+import com.example.opengl.utils.ProgramCache;
+
+import java.io.File;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
 
 /**
  * @author majun
@@ -14,7 +27,10 @@ import com.example.opengl.render.CubeRender;
  */
 public class MyGLSurfaceView extends GLSurfaceView {
 
+    private static final String TAG = "MyGLSurfaceView";
+
     private CubeRender renderer;
+    private final TouchInput mTouchInput = new TouchInput();
 
     public MyGLSurfaceView(Context context) {
         this(context, null);
@@ -30,50 +46,50 @@ public class MyGLSurfaceView extends GLSurfaceView {
         // Create an OpenGL ES 2.0 context
         setEGLContextClientVersion(2);
 
-        renderer = new CubeRender();
+        //GL调用经过状态跟踪层，重复设置相同状态的调用不会下发给驱动
+        StateTrackingGL gl = new StateTrackingGL(AndroidGL.getInstance());
+
+        //着色器程序二进制缓存在应用私有目录，下次启动不用重新编译
+        File binaryDir = new File(getContext().getCacheDir(), "program_binaries");
+        ProgramCache.getInstance().setBinaryCache(new ProgramBinaryCache(binaryDir, new GLES30ProgramBinaryGL(gl)));
+
+        renderer = new CubeRender(gl);
+        //触摸状态合并后交给GL线程，已经有一帧在等待时不再重复请求渲染
+        mTouchInput.setRenderRequester(new TouchInput.RenderRequester() {
+            @Override
+            public void requestRender() {
+                MyGLSurfaceView.this.requestRender();
+            }
+        });
+        renderer.setTouchInput(mTouchInput);
 
         // Set the Renderer for drawing on the GLSurfaceView
-        setRenderer(renderer);
+        setRenderer(new FrameRenderer(gl, renderer) {
+            @Override
+            public void onSurfaceCreated(GL10 unused, EGLConfig config) {
+                super.onSurfaceCreated(unused, config);
+                //程序都在 onSurfaceCreated 里创建，这时的统计就是启动时编译或加载程序的耗时
+                Log.i(TAG, ProgramCache.getInstance().getStartupReport());
+            }
+        });
         //本来onDrawFrame会每一帧都调用，通过设置这个值，会在数据源变化的时候调用
         // Render the view only when there is a change in the drawing data
         setRenderMode(GLSurfaceView.RENDERMODE_WHEN_DIRTY);
     }
 
-    private final float TOUCH_SCALE_FACTOR = 180.0f / 320;
-    private float previousX;
-    private float previousY;
+    @Override
+    protected void onDetachedFromWindow() {
+        //父类会等GL线程退出，之后才能在这里关闭渲染器的工作线程
+        super.onDetachedFromWindow();
+        renderer.release();
+    }
 
     @Override
     public boolean onTouchEvent(MotionEvent e) {
         // MotionEvent reports input details from the touch screen
-        // and other input controls. In this case, you are only
-        // interested in events where the touch position changed.
-
-        float x = e.getX();
-        float y = e.getY();
-
-        switch (e.getAction()) {
-            case MotionEvent.ACTION_MOVE:
-
-                float dx = x - previousX;
-                float dy = y - previousY;
-
-                // reverse direction of rotation above the mid-line
-                if (y > getHeight() / 2) {
-                    dx = dx * -1;
-                }
-
-                // reverse direction of rotation to left of the mid-line
-                if (x < getWidth() / 2) {
-                    dy = dy * -1;
-                }
-
-//                renderer.setAngle(renderer.getAngle() + ((dx + dy) * TOUCH_SCALE_FACTOR));
-                requestRender();
-        }
-
-        previousX = x;
-        previousY = y;
+        // and other input controls. A move event carries the samples batched
+        // since the last one, they are all folded into a single snapshot.
+        mTouchInput.onTouchEvent(e, getWidth(), getHeight());
         return true;
     }
 
@@ -0,0 +1,297 @@
+package com.example.opengl.input;
+
+import android.view.MotionEvent;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 触摸输入到GL线程的通道。输入线程把一个 {@link MotionEvent} 里批量的历史采样和当前采样合并成一份
+ * {@link TouchSnapshot}，通过 {@link TripleBuffer} 无锁地交给GL线程；GL线程每帧只取最新的一份，
+ * 一帧之内来了多个事件时中间的快照直接被合并掉。状态是累积的旋转角度，合并不会丢失输入。
+ * <p>
+ * 渲染请求用一个标志限制：已经请求过、GL线程还没开始画的时候不再请求，每帧最多请求一次。
+ * GL线程在取快照之前清掉标志，之后到达的输入会再请求下一帧，不会漏掉最后一次移动。
+ * <p>
+ * 延迟从还没画出来的最早一个采样的事件时间算到GL线程提交这一帧，交换缓冲区和合成的时间不在里面。
+ * {@link #onTouchEvent}、{@link #down}、{@link #move}、{@link #publish} 只能在输入线程调用，
+ * {@link #acquire()}、{@link #getSnapshot()}、{@link #onFrameSubmitted(long)} 只能在GL线程调用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class TouchInput {
+
+    /**
+     * 请求画一帧，一般是 GLSurfaceView#requestRender()
+     */
+    public interface RenderRequester {
+        void requestRender();
+    }
+
+    /**
+     * 每移动一个像素旋转的角度
+     */
+    public static final float DEFAULT_DEGREES_PER_PIXEL = 180.0f / 320;
+
+    private final float mDegreesPerPixel;
+    private final TripleBuffer<TouchSnapshot> mBuffer =
+            new TripleBuffer<>(new TouchSnapshot(), new TouchSnapshot(), new TouchSnapshot());
+    private final AtomicBoolean mRenderPending = new AtomicBoolean();
+    private volatile RenderRequester mRequester;
+
+    //以下字段只在输入线程访问
+    private final TouchSnapshot mState = new TouchSnapshot();
+    private float mPreviousX;
+    private float mPreviousY;
+    private int mBatchSamples;
+    private long mBatchOldest;
+    private long mBatchNewest;
+
+    //输入线程写、其他线程只读的统计，只有一个线程写，不需要原子操作
+    private volatile int mEventCount;
+    private volatile int mSampleCount;
+    private volatile int mHistoricalCount;
+    private volatile int mPublishCount;
+    private volatile int mMergedCount;
+    private volatile int mRequestCount;
+    private volatile int mSuppressedCount;
+
+    //以下字段只在GL线程访问
+    private long mRenderedSequence;
+    private int mRenderedCount;
+    private long mLastLatency;
+    private long mLastNewestLatency;
+    private long mMaxLatency;
+    private long mTotalLatency;
+
+    public TouchInput() {
+        this(DEFAULT_DEGREES_PER_PIXEL);
+    }
+
+    public TouchInput(float degreesPerPixel) {
+        mDegreesPerPixel = degreesPerPixel;
+    }
+
+    public void setRenderRequester(RenderRequester requester) {
+        mRequester = requester;
+    }
+
+    /**
+     * 输入线程：处理一个触摸事件，移动事件里批量的历史采样逐个累积，整个事件只发布一次
+     *
+     * @param width  视图宽度，用于判断旋转方向
+     * @param height 视图高度
+     */
+    public void onTouchEvent(MotionEvent e, int width, int height) {
+        mEventCount++;
+        switch (e.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                down(e.getX(), e.getY());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                int history = e.getHistorySize();
+                for (int h = 0; h < history; h++) {
+                    move(e.getHistoricalX(h), e.getHistoricalY(h), e.getHistoricalEventTime(h), width, height);
+                }
+                move(e.getX(), e.getY(), e.getEventTime(), width, height);
+                mHistoricalCount += history;
+                publish();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 输入线程：手指按下，之后的移动从这里算起
+     */
+    public void down(float x, float y) {
+        mPreviousX = x;
+        mPreviousY = y;
+    }
+
+    /**
+     * 输入线程：累积一个采样点，调用 {@link #publish()} 后GL线程才能看到
+     *
+     * @param eventTime 采样的时间，和 SystemClock.uptimeMillis() 同一时间基准
+     */
+    public void move(float x, float y, long eventTime, int width, int height) {
+        float dx = x - mPreviousX;
+        float dy = y - mPreviousY;
+
+        // reverse direction of rotation above the mid-line
+        if (y > height / 2) {
+            dx = dx * -1;
+        }
+
+        // reverse direction of rotation to left of the mid-line
+        if (x < width / 2) {
+            dy = dy * -1;
+        }
+
+        mState.mAngle += (dx + dy) * mDegreesPerPixel;
+        mPreviousX = x;
+        mPreviousY = y;
+        if (mBatchSamples == 0) {
+            mBatchOldest = eventTime;
+        }
+        mBatchNewest = eventTime;
+        mBatchSamples++;
+        mSampleCount++;
+    }
+
+    /**
+     * 输入线程：把累积的状态发布给GL线程，必要时请求渲染。没有新的采样时什么都不做
+     */
+    public void publish() {
+        if (mBatchSamples == 0) {
+            return;
+        }
+        TouchSnapshot state = mState;
+        if (mBuffer.isPending()) {
+            //上一份还没被取走，会被这一份覆盖，它的采样也算在这一份里。
+            //GL线程恰好在这之后取走上一份时最早时间会偏早，延迟只会偏大
+            state.mSampleCount += mBatchSamples;
+        } else {
+            state.mSampleCount = mBatchSamples;
+            state.mOldestEventTime = mBatchOldest;
+        }
+        state.mNewestEventTime = mBatchNewest;
+        state.mSequence++;
+        mBuffer.getBack().copyFrom(state);
+        if (mBuffer.publish()) {
+            mMergedCount++;
+        }
+        mPublishCount++;
+        mBatchSamples = 0;
+
+        if (mRenderPending.compareAndSet(false, true)) {
+            mRequestCount++;
+            RenderRequester requester = mRequester;
+            if (requester != null) {
+                requester.requestRender();
+            }
+        } else {
+            mSuppressedCount++;
+        }
+    }
+
+    /**
+     * GL线程：每帧开始时调用，取出最新发布的快照
+     *
+     * @return 快照是否比上一帧新
+     */
+    public boolean acquire() {
+        //先清掉标志再取：之后发布的输入会再请求一帧，不会停在旧状态上
+        mRenderPending.set(false);
+        return mBuffer.update();
+    }
+
+    /**
+     * GL线程：最近一次 {@link #acquire()} 取到的快照，下一次 acquire 之前不会改变
+     */
+    public TouchSnapshot getSnapshot() {
+        return mBuffer.getFront();
+    }
+
+    /**
+     * GL线程：包含当前快照的一帧已经提交，记录输入到画面的延迟。同一份快照只记录一次
+     *
+     * @param nowMillis 当前时间，SystemClock.uptimeMillis()
+     */
+    public void onFrameSubmitted(long nowMillis) {
+        TouchSnapshot snapshot = mBuffer.getFront();
+        if (snapshot.mSequence == mRenderedSequence) {
+            return;
+        }
+        mRenderedSequence = snapshot.mSequence;
+        mRenderedCount++;
+        mLastLatency = nowMillis - snapshot.mOldestEventTime;
+        mLastNewestLatency = nowMillis - snapshot.mNewestEventTime;
+        mMaxLatency = Math.max(mMaxLatency, mLastLatency);
+        mTotalLatency += mLastLatency;
+    }
+
+    /**
+     * 收到的触摸事件个数
+     */
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    /**
+     * 累积的采样点个数，包括历史采样
+     */
+    public int getSampleCount() {
+        return mSampleCount;
+    }
+
+    /**
+     * 其中批量在移动事件里的历史采样个数
+     */
+    public int getHistoricalSampleCount() {
+        return mHistoricalCount;
+    }
+
+    public int getPublishCount() {
+        return mPublishCount;
+    }
+
+    /**
+     * 发布后还没被GL线程取走就被下一份覆盖的快照个数
+     */
+    public int getMergedCount() {
+        return mMergedCount;
+    }
+
+    public int getRenderRequestCount() {
+        return mRequestCount;
+    }
+
+    /**
+     * 因为已经有一帧在等待而省掉的渲染请求
+     */
+    public int getSuppressedRequestCount() {
+        return mSuppressedCount;
+    }
+
+    /**
+     * GL线程：画出来的快照个数
+     */
+    public int getRenderedCount() {
+        return mRenderedCount;
+    }
+
+    /**
+     * GL线程：最近一帧里最早的采样到提交的时间
+     */
+    public long getLastLatencyMillis() {
+        return mLastLatency;
+    }
+
+    /**
+     * GL线程：最近一帧里最新的采样到提交的时间
+     */
+    public long getLastNewestLatencyMillis() {
+        return mLastNewestLatency;
+    }
+
+    public long getMaxLatencyMillis() {
+        return mMaxLatency;
+    }
+
+    public float getAverageLatencyMillis() {
+        return mRenderedCount > 0 ? mTotalLatency / (float) mRenderedCount : 0f;
+    }
+
+    /**
+     * GL线程调用，输入线程的计数可能比GL线程的统计稍新
+     */
+    public String getReport() {
+        return String.format("%d events, %d samples (%d historical), %d snapshots -> %d rendered, %d merged, "
+                        + "%d render requests (%d suppressed), latency %d ms (newest %d ms, avg %.1f ms, max %d ms)",
+                mEventCount, mSampleCount, mHistoricalCount, mPublishCount, mRenderedCount, mMergedCount,
+                mRequestCount, mSuppressedCount, mLastLatency, mLastNewestLatency, getAverageLatencyMillis(),
+                mMaxLatency);
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.opengl.input;
+
+/**
+ * 某一时刻的触摸状态，由 {@link TouchInput} 在输入线程写好后整份交给GL线程，
+ * 几个值总是一起变化，不会读到一半新一半旧的状态。
+ * 状态是累积的，中间的快照被合并掉也不会丢失旋转量。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class TouchSnapshot {
+
+    float mAngle;
+    long mSequence;
+    int mSampleCount;
+    long mOldestEventTime;
+    long mNewestEventTime;
+
+    /**
+     * 累积的旋转角度（度）
+     */
+    public float getAngle() {
+        return mAngle;
+    }
+
+    /**
+     * 发布的序号，从1开始，0表示还没有任何输入
+     */
+    public long getSequence() {
+        return mSequence;
+    }
+
+    /**
+     * 和上一次被GL线程取走的快照相比，新合并进来的采样点个数
+     */
+    public int getSampleCount() {
+        return mSampleCount;
+    }
+
+    /**
+     * 还没被绘制的采样点中最早的事件时间，和 SystemClock.uptimeMillis() 同一时间基准
+     */
+    public long getOldestEventTime() {
+        return mOldestEventTime;
+    }
+
+    /**
+     * 最新一个采样点的事件时间
+     */
+    public long getNewestEventTime() {
+        return mNewestEventTime;
+    }
+
+    /**
+     * 复制另一份快照，用于把GL线程拿到的状态再交给其他线程
+     */
+    public void copyFrom(TouchSnapshot other) {
+        mAngle = other.mAngle;
+        mSequence = other.mSequence;
+        mSampleCount = other.mSampleCount;
+        mOldestEventTime = other.mOldestEventTime;
+        mNewestEventTime = other.mNewestEventTime;
+    }
+}
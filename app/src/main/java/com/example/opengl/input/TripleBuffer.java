@@ -0,0 +1,84 @@
+package com.example.opengl.input;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单写单读的无锁三缓冲：写线程写后缓冲，读线程读前缓冲，中间缓冲用于交换。
+ * {@link #publish()} 把写好的后缓冲和中间缓冲交换，{@link #update()} 把有新数据的中间缓冲和前缓冲交换，
+ * 交换都是一次原子操作，双方都不会等待，读线程总是拿到最新发布的一份完整数据，中间被覆盖的发布直接合并掉。
+ * <p>
+ * 写线程只能访问 {@link #getBack()}，读线程只能访问 {@link #getFront()}，
+ * 两边各自只能有一个线程（或者有先后关系的多个线程）。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 3;
+    /**
+     * 中间缓冲有读线程还没取走的数据
+     */
+    private static final int DIRTY = 4;
+
+    private final Object[] mBuffers;
+    private final AtomicInteger mMiddle = new AtomicInteger(1);
+    private int mBack = 0;
+    private int mFront = 2;
+
+    /**
+     * 三个缓冲区对象，初始时前缓冲是 front
+     */
+    public TripleBuffer(T back, T middle, T front) {
+        mBuffers = new Object[]{back, middle, front};
+    }
+
+    /**
+     * 写线程：当前的后缓冲，写完后调用 {@link #publish()}
+     */
+    @SuppressWarnings("unchecked")
+    public T getBack() {
+        return (T) mBuffers[mBack];
+    }
+
+    /**
+     * 写线程：发布后缓冲，之后 {@link #getBack()} 换成另一个缓冲区
+     *
+     * @return 上一次发布的数据还没被读线程取走、被这次覆盖时返回 true
+     */
+    public boolean publish() {
+        int old = mMiddle.getAndSet(mBack | DIRTY);
+        mBack = old & INDEX_MASK;
+        return (old & DIRTY) != 0;
+    }
+
+    /**
+     * 是否有发布了还没被读线程取走的数据，两个线程都可以调用，结果只是调用时的状态
+     */
+    public boolean isPending() {
+        return (mMiddle.get() & DIRTY) != 0;
+    }
+
+    /**
+     * 读线程：有新发布的数据时换到前缓冲
+     *
+     * @return 前缓冲是否换成了新数据
+     */
+    public boolean update() {
+        if ((mMiddle.get() & DIRTY) == 0) {
+            return false;
+        }
+        //只有读线程会清掉 DIRTY，这里交换时一定还是有新数据的状态
+        int old = mMiddle.getAndSet(mFront);
+        mFront = old & INDEX_MASK;
+        return true;
+    }
+
+    /**
+     * 读线程：最近一次 {@link #update()} 拿到的数据
+     */
+    @SuppressWarnings("unchecked")
+    public T getFront() {
+        return (T) mBuffers[mFront];
+    }
+}
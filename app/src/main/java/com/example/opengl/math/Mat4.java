@@ -0,0 +1,445 @@
+package com.example.opengl.math;
+
+/**
+ * 纯Java实现的4x4矩阵运算，接口和 android.opengl.Matrix 保持一致（列主序，数组+偏移量）。
+ * 所有方法都没有共享的可变状态，可以在任意线程同时调用，也可以直接在JVM单元测试中运行。
+ * 乘法都先把输入读到局部变量里再写结果，所以结果数组和输入数组重叠也是安全的。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class Mat4 {
+
+    private Mat4() {
+    }
+
+    public static void setIdentityM(float[] m, int offset) {
+        m[offset] = 1;
+        m[offset + 1] = 0;
+        m[offset + 2] = 0;
+        m[offset + 3] = 0;
+        m[offset + 4] = 0;
+        m[offset + 5] = 1;
+        m[offset + 6] = 0;
+        m[offset + 7] = 0;
+        m[offset + 8] = 0;
+        m[offset + 9] = 0;
+        m[offset + 10] = 1;
+        m[offset + 11] = 0;
+        m[offset + 12] = 0;
+        m[offset + 13] = 0;
+        m[offset + 14] = 0;
+        m[offset + 15] = 1;
+    }
+
+    /**
+     * result = lhs * rhs，展开后的通用4x4乘法
+     */
+    public static void multiplyMM(float[] result, int resultOffset,
+                                  float[] lhs, int lhsOffset, float[] rhs, int rhsOffset) {
+        float l00 = lhs[lhsOffset], l10 = lhs[lhsOffset + 1], l20 = lhs[lhsOffset + 2], l30 = lhs[lhsOffset + 3];
+        float l01 = lhs[lhsOffset + 4], l11 = lhs[lhsOffset + 5], l21 = lhs[lhsOffset + 6], l31 = lhs[lhsOffset + 7];
+        float l02 = lhs[lhsOffset + 8], l12 = lhs[lhsOffset + 9], l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+
+        for (int j = 0; j < 4; j++) {
+            int r = rhsOffset + j * 4;
+            float r0 = rhs[r], r1 = rhs[r + 1], r2 = rhs[r + 2], r3 = rhs[r + 3];
+            int o = resultOffset + j * 4;
+            result[o] = l00 * r0 + l01 * r1 + l02 * r2 + l03 * r3;
+            result[o + 1] = l10 * r0 + l11 * r1 + l12 * r2 + l13 * r3;
+            result[o + 2] = l20 * r0 + l21 * r1 + l22 * r2 + l23 * r3;
+            result[o + 3] = l30 * r0 + l31 * r1 + l32 * r2 + l33 * r3;
+        }
+    }
+
+    /**
+     * result = lhs * rhs，要求 rhs 是仿射矩阵（最后一行是 0,0,0,1），省掉最后一行的乘法。
+     * 模型矩阵都满足这个条件，lhs 可以是带投影的任意矩阵。
+     */
+    public static void multiplyMMAffine(float[] result, int resultOffset,
+                                        float[] lhs, int lhsOffset, float[] rhs, int rhsOffset) {
+        float l00 = lhs[lhsOffset], l10 = lhs[lhsOffset + 1], l20 = lhs[lhsOffset + 2], l30 = lhs[lhsOffset + 3];
+        float l01 = lhs[lhsOffset + 4], l11 = lhs[lhsOffset + 5], l21 = lhs[lhsOffset + 6], l31 = lhs[lhsOffset + 7];
+        float l02 = lhs[lhsOffset + 8], l12 = lhs[lhsOffset + 9], l22 = lhs[lhsOffset + 10], l32 = lhs[lhsOffset + 11];
+        float l03 = lhs[lhsOffset + 12], l13 = lhs[lhsOffset + 13], l23 = lhs[lhsOffset + 14], l33 = lhs[lhsOffset + 15];
+
+        for (int j = 0; j < 3; j++) {
+            int r = rhsOffset + j * 4;
+            float r0 = rhs[r], r1 = rhs[r + 1], r2 = rhs[r + 2];
+            int o = resultOffset + j * 4;
+            result[o] = l00 * r0 + l01 * r1 + l02 * r2;
+            result[o + 1] = l10 * r0 + l11 * r1 + l12 * r2;
+            result[o + 2] = l20 * r0 + l21 * r1 + l22 * r2;
+            result[o + 3] = l30 * r0 + l31 * r1 + l32 * r2;
+        }
+        float r0 = rhs[rhsOffset + 12], r1 = rhs[rhsOffset + 13], r2 = rhs[rhsOffset + 14];
+        result[resultOffset + 12] = l00 * r0 + l01 * r1 + l02 * r2 + l03;
+        result[resultOffset + 13] = l10 * r0 + l11 * r1 + l12 * r2 + l13;
+        result[resultOffset + 14] = l20 * r0 + l21 * r1 + l22 * r2 + l23;
+        result[resultOffset + 15] = l30 * r0 + l31 * r1 + l32 * r2 + l33;
+    }
+
+    /**
+     * resultVec = lhs * rhsVec
+     */
+    public static void multiplyMV(float[] resultVec, int resultOffset,
+                                  float[] lhs, int lhsOffset, float[] rhsVec, int rhsOffset) {
+        float x = rhsVec[rhsOffset], y = rhsVec[rhsOffset + 1], z = rhsVec[rhsOffset + 2], w = rhsVec[rhsOffset + 3];
+        resultVec[resultOffset] = lhs[lhsOffset] * x + lhs[lhsOffset + 4] * y + lhs[lhsOffset + 8] * z + lhs[lhsOffset + 12] * w;
+        resultVec[resultOffset + 1] = lhs[lhsOffset + 1] * x + lhs[lhsOffset + 5] * y + lhs[lhsOffset + 9] * z + lhs[lhsOffset + 13] * w;
+        resultVec[resultOffset + 2] = lhs[lhsOffset + 2] * x + lhs[lhsOffset + 6] * y + lhs[lhsOffset + 10] * z + lhs[lhsOffset + 14] * w;
+        resultVec[resultOffset + 3] = lhs[lhsOffset + 3] * x + lhs[lhsOffset + 7] * y + lhs[lhsOffset + 11] * z + lhs[lhsOffset + 15] * w;
+    }
+
+    /**
+     * 通用求逆
+     *
+     * @return 矩阵不可逆时返回 false，结果数组不变
+     */
+    public static boolean invertM(float[] inv, int invOffset, float[] m, int mOffset) {
+        float m0 = m[mOffset], m1 = m[mOffset + 1], m2 = m[mOffset + 2], m3 = m[mOffset + 3];
+        float m4 = m[mOffset + 4], m5 = m[mOffset + 5], m6 = m[mOffset + 6], m7 = m[mOffset + 7];
+        float m8 = m[mOffset + 8], m9 = m[mOffset + 9], m10 = m[mOffset + 10], m11 = m[mOffset + 11];
+        float m12 = m[mOffset + 12], m13 = m[mOffset + 13], m14 = m[mOffset + 14], m15 = m[mOffset + 15];
+
+        float a0 = m0 * m5 - m1 * m4;
+        float a1 = m0 * m6 - m2 * m4;
+        float a2 = m0 * m7 - m3 * m4;
+        float a3 = m1 * m6 - m2 * m5;
+        float a4 = m1 * m7 - m3 * m5;
+        float a5 = m2 * m7 - m3 * m6;
+        float b0 = m8 * m13 - m9 * m12;
+        float b1 = m8 * m14 - m10 * m12;
+        float b2 = m8 * m15 - m11 * m12;
+        float b3 = m9 * m14 - m10 * m13;
+        float b4 = m9 * m15 - m11 * m13;
+        float b5 = m10 * m15 - m11 * m14;
+
+        float det = a0 * b5 - a1 * b4 + a2 * b3 + a3 * b2 - a4 * b1 + a5 * b0;
+        if (det == 0.0f) {
+            return false;
+        }
+        float invDet = 1.0f / det;
+
+        inv[invOffset] = (m5 * b5 - m6 * b4 + m7 * b3) * invDet;
+        inv[invOffset + 1] = (-m1 * b5 + m2 * b4 - m3 * b3) * invDet;
+        inv[invOffset + 2] = (m13 * a5 - m14 * a4 + m15 * a3) * invDet;
+        inv[invOffset + 3] = (-m9 * a5 + m10 * a4 - m11 * a3) * invDet;
+        inv[invOffset + 4] = (-m4 * b5 + m6 * b2 - m7 * b1) * invDet;
+        inv[invOffset + 5] = (m0 * b5 - m2 * b2 + m3 * b1) * invDet;
+        inv[invOffset + 6] = (-m12 * a5 + m14 * a2 - m15 * a1) * invDet;
+        inv[invOffset + 7] = (m8 * a5 - m10 * a2 + m11 * a1) * invDet;
+        inv[invOffset + 8] = (m4 * b4 - m5 * b2 + m7 * b0) * invDet;
+        inv[invOffset + 9] = (-m0 * b4 + m1 * b2 - m3 * b0) * invDet;
+        inv[invOffset + 10] = (m12 * a4 - m13 * a2 + m15 * a0) * invDet;
+        inv[invOffset + 11] = (-m8 * a4 + m9 * a2 - m11 * a0) * invDet;
+        inv[invOffset + 12] = (-m4 * b3 + m5 * b1 - m6 * b0) * invDet;
+        inv[invOffset + 13] = (m0 * b3 - m1 * b1 + m2 * b0) * invDet;
+        inv[invOffset + 14] = (-m12 * a3 + m13 * a1 - m14 * a0) * invDet;
+        inv[invOffset + 15] = (m8 * a3 - m9 * a1 + m10 * a0) * invDet;
+        return true;
+    }
+
+    /**
+     * 仿射矩阵求逆：只对左上角3x3求逆，平移部分直接变换
+     *
+     * @return 矩阵不可逆时返回 false，结果数组不变
+     */
+    public static boolean invertAffineM(float[] inv, int invOffset, float[] m, int mOffset) {
+        float m00 = m[mOffset], m10 = m[mOffset + 1], m20 = m[mOffset + 2];
+        float m01 = m[mOffset + 4], m11 = m[mOffset + 5], m21 = m[mOffset + 6];
+        float m02 = m[mOffset + 8], m12 = m[mOffset + 9], m22 = m[mOffset + 10];
+        float tx = m[mOffset + 12], ty = m[mOffset + 13], tz = m[mOffset + 14];
+
+        float c00 = m11 * m22 - m12 * m21;
+        float c01 = m02 * m21 - m01 * m22;
+        float c02 = m01 * m12 - m02 * m11;
+        float det = m00 * c00 + m10 * c01 + m20 * c02;
+        if (det == 0.0f) {
+            return false;
+        }
+        float invDet = 1.0f / det;
+
+        float i00 = c00 * invDet;
+        float i01 = c01 * invDet;
+        float i02 = c02 * invDet;
+        float i10 = (m12 * m20 - m10 * m22) * invDet;
+        float i11 = (m00 * m22 - m02 * m20) * invDet;
+        float i12 = (m02 * m10 - m00 * m12) * invDet;
+        float i20 = (m10 * m21 - m11 * m20) * invDet;
+        float i21 = (m01 * m20 - m00 * m21) * invDet;
+        float i22 = (m00 * m11 - m01 * m10) * invDet;
+
+        inv[invOffset] = i00;
+        inv[invOffset + 1] = i10;
+        inv[invOffset + 2] = i20;
+        inv[invOffset + 3] = 0;
+        inv[invOffset + 4] = i01;
+        inv[invOffset + 5] = i11;
+        inv[invOffset + 6] = i21;
+        inv[invOffset + 7] = 0;
+        inv[invOffset + 8] = i02;
+        inv[invOffset + 9] = i12;
+        inv[invOffset + 10] = i22;
+        inv[invOffset + 11] = 0;
+        inv[invOffset + 12] = -(i00 * tx + i01 * ty + i02 * tz);
+        inv[invOffset + 13] = -(i10 * tx + i11 * ty + i12 * tz);
+        inv[invOffset + 14] = -(i20 * tx + i21 * ty + i22 * tz);
+        inv[invOffset + 15] = 1;
+        return true;
+    }
+
+    public static void transposeM(float[] mTrans, int mTransOffset, float[] m, int mOffset) {
+        for (int i = 0; i < 4; i++) {
+            int mBase = i * 4 + mOffset;
+            float a = m[mBase], b = m[mBase + 1], c = m[mBase + 2], d = m[mBase + 3];
+            mTrans[i + mTransOffset] = a;
+            mTrans[i + 4 + mTransOffset] = b;
+            mTrans[i + 8 + mTransOffset] = c;
+            mTrans[i + 12 + mTransOffset] = d;
+        }
+    }
+
+    /**
+     * m = m * T(x, y, z)
+     */
+    public static void translateM(float[] m, int offset, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            int mi = offset + i;
+            m[12 + mi] += m[mi] * x + m[4 + mi] * y + m[8 + mi] * z;
+        }
+    }
+
+    /**
+     * m = m * S(x, y, z)
+     */
+    public static void scaleM(float[] m, int offset, float x, float y, float z) {
+        for (int i = 0; i < 4; i++) {
+            int mi = offset + i;
+            m[mi] *= x;
+            m[4 + mi] *= y;
+            m[8 + mi] *= z;
+        }
+    }
+
+    /**
+     * m = m * R(a, x, y, z)，原地旋转，不需要临时矩阵
+     *
+     * @param a 角度，单位是度
+     */
+    public static void rotateM(float[] m, int offset, float a, float x, float y, float z) {
+        float len = Vec3.length(x, y, z);
+        if (len != 1.0f) {
+            float recipLen = 1.0f / len;
+            x *= recipLen;
+            y *= recipLen;
+            z *= recipLen;
+        }
+        double rad = Math.toRadians(a);
+        float s = (float) Math.sin(rad);
+        float c = (float) Math.cos(rad);
+        float nc = 1.0f - c;
+        float xy = x * y, yz = y * z, zx = z * x;
+        float xs = x * s, ys = y * s, zs = z * s;
+
+        //旋转矩阵左上角3x3，r[行][列]
+        float r00 = x * x * nc + c, r01 = xy * nc - zs, r02 = zx * nc + ys;
+        float r10 = xy * nc + zs, r11 = y * y * nc + c, r12 = yz * nc - xs;
+        float r20 = zx * nc - ys, r21 = yz * nc + xs, r22 = z * z * nc + c;
+
+        for (int i = 0; i < 4; i++) {
+            int mi = offset + i;
+            float c0 = m[mi], c1 = m[4 + mi], c2 = m[8 + mi];
+            m[mi] = c0 * r00 + c1 * r10 + c2 * r20;
+            m[4 + mi] = c0 * r01 + c1 * r11 + c2 * r21;
+            m[8 + mi] = c0 * r02 + c1 * r12 + c2 * r22;
+        }
+    }
+
+    /**
+     * rm = R(a, x, y, z)
+     *
+     * @param a 角度，单位是度
+     */
+    public static void setRotateM(float[] rm, int offset, float a, float x, float y, float z) {
+        rm[offset + 3] = 0;
+        rm[offset + 7] = 0;
+        rm[offset + 11] = 0;
+        rm[offset + 12] = 0;
+        rm[offset + 13] = 0;
+        rm[offset + 14] = 0;
+        rm[offset + 15] = 1;
+        double rad = Math.toRadians(a);
+        float s = (float) Math.sin(rad);
+        float c = (float) Math.cos(rad);
+        if (1.0f == x && 0.0f == y && 0.0f == z) {
+            rm[offset + 5] = c;
+            rm[offset + 10] = c;
+            rm[offset + 6] = s;
+            rm[offset + 9] = -s;
+            rm[offset + 1] = 0;
+            rm[offset + 2] = 0;
+            rm[offset + 4] = 0;
+            rm[offset + 8] = 0;
+            rm[offset] = 1;
+        } else if (0.0f == x && 1.0f == y && 0.0f == z) {
+            rm[offset] = c;
+            rm[offset + 10] = c;
+            rm[offset + 8] = s;
+            rm[offset + 2] = -s;
+            rm[offset + 1] = 0;
+            rm[offset + 4] = 0;
+            rm[offset + 6] = 0;
+            rm[offset + 9] = 0;
+            rm[offset + 5] = 1;
+        } else if (0.0f == x && 0.0f == y && 1.0f == z) {
+            rm[offset] = c;
+            rm[offset + 5] = c;
+            rm[offset + 1] = s;
+            rm[offset + 4] = -s;
+            rm[offset + 2] = 0;
+            rm[offset + 6] = 0;
+            rm[offset + 8] = 0;
+            rm[offset + 9] = 0;
+            rm[offset + 10] = 1;
+        } else {
+            float len = Vec3.length(x, y, z);
+            if (len != 1.0f) {
+                float recipLen = 1.0f / len;
+                x *= recipLen;
+                y *= recipLen;
+                z *= recipLen;
+            }
+            float nc = 1.0f - c;
+            float xy = x * y, yz = y * z, zx = z * x;
+            float xs = x * s, ys = y * s, zs = z * s;
+            rm[offset] = x * x * nc + c;
+            rm[offset + 4] = xy * nc - zs;
+            rm[offset + 8] = zx * nc + ys;
+            rm[offset + 1] = xy * nc + zs;
+            rm[offset + 5] = y * y * nc + c;
+            rm[offset + 9] = yz * nc - xs;
+            rm[offset + 2] = zx * nc - ys;
+            rm[offset + 6] = yz * nc + xs;
+            rm[offset + 10] = z * z * nc + c;
+        }
+    }
+
+    public static void setLookAtM(float[] rm, int offset,
+                                  float eyeX, float eyeY, float eyeZ,
+                                  float centerX, float centerY, float centerZ,
+                                  float upX, float upY, float upZ) {
+        float fx = centerX - eyeX;
+        float fy = centerY - eyeY;
+        float fz = centerZ - eyeZ;
+
+        float rlf = 1.0f / Vec3.length(fx, fy, fz);
+        fx *= rlf;
+        fy *= rlf;
+        fz *= rlf;
+
+        // s = f x up
+        float sx = fy * upZ - fz * upY;
+        float sy = fz * upX - fx * upZ;
+        float sz = fx * upY - fy * upX;
+
+        float rls = 1.0f / Vec3.length(sx, sy, sz);
+        sx *= rls;
+        sy *= rls;
+        sz *= rls;
+
+        // u = s x f
+        float ux = sy * fz - sz * fy;
+        float uy = sz * fx - sx * fz;
+        float uz = sx * fy - sy * fx;
+
+        rm[offset] = sx;
+        rm[offset + 1] = ux;
+        rm[offset + 2] = -fx;
+        rm[offset + 3] = 0.0f;
+
+        rm[offset + 4] = sy;
+        rm[offset + 5] = uy;
+        rm[offset + 6] = -fy;
+        rm[offset + 7] = 0.0f;
+
+        rm[offset + 8] = sz;
+        rm[offset + 9] = uz;
+        rm[offset + 10] = -fz;
+        rm[offset + 11] = 0.0f;
+
+        rm[offset + 12] = 0.0f;
+        rm[offset + 13] = 0.0f;
+        rm[offset + 14] = 0.0f;
+        rm[offset + 15] = 1.0f;
+
+        translateM(rm, offset, -eyeX, -eyeY, -eyeZ);
+    }
+
+    public static void frustumM(float[] m, int offset,
+                                float left, float right, float bottom, float top,
+                                float near, float far) {
+        if (left == right || top == bottom || near == far || near <= 0.0f || far <= 0.0f) {
+            throw new IllegalArgumentException("invalid frustum");
+        }
+        float rWidth = 1.0f / (right - left);
+        float rHeight = 1.0f / (top - bottom);
+        float rDepth = 1.0f / (near - far);
+        float x = 2.0f * (near * rWidth);
+        float y = 2.0f * (near * rHeight);
+        float a = (right + left) * rWidth;
+        float b = (top + bottom) * rHeight;
+        float c = (far + near) * rDepth;
+        float d = 2.0f * (far * near * rDepth);
+        m[offset] = x;
+        m[offset + 5] = y;
+        m[offset + 8] = a;
+        m[offset + 9] = b;
+        m[offset + 10] = c;
+        m[offset + 14] = d;
+        m[offset + 11] = -1.0f;
+        m[offset + 1] = 0.0f;
+        m[offset + 2] = 0.0f;
+        m[offset + 3] = 0.0f;
+        m[offset + 4] = 0.0f;
+        m[offset + 6] = 0.0f;
+        m[offset + 7] = 0.0f;
+        m[offset + 12] = 0.0f;
+        m[offset + 13] = 0.0f;
+        m[offset + 15] = 0.0f;
+    }
+
+    public static void orthoM(float[] m, int offset,
+                              float left, float right, float bottom, float top,
+                              float near, float far) {
+        if (left == right || bottom == top || near == far) {
+            throw new IllegalArgumentException("invalid ortho");
+        }
+        float rWidth = 1.0f / (right - left);
+        float rHeight = 1.0f / (top - bottom);
+        float rDepth = 1.0f / (far - near);
+        float x = 2.0f * rWidth;
+        float y = 2.0f * rHeight;
+        float z = -2.0f * rDepth;
+        float tx = -(right + left) * rWidth;
+        float ty = -(top + bottom) * rHeight;
+        float tz = -(far + near) * rDepth;
+        m[offset] = x;
+        m[offset + 5] = y;
+        m[offset + 10] = z;
+        m[offset + 12] = tx;
+        m[offset + 13] = ty;
+        m[offset + 14] = tz;
+        m[offset + 15] = 1.0f;
+        m[offset + 1] = 0.0f;
+        m[offset + 2] = 0.0f;
+        m[offset + 3] = 0.0f;
+        m[offset + 4] = 0.0f;
+        m[offset + 6] = 0.0f;
+        m[offset + 7] = 0.0f;
+        m[offset + 8] = 0.0f;
+        m[offset + 9] = 0.0f;
+        m[offset + 11] = 0.0f;
+    }
+}
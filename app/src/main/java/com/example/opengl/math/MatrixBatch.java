@@ -0,0 +1,133 @@
+package com.example.opengl.math;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import com.example.opengl.utils.ParallelRange;
+
+import java.nio.FloatBuffer;
+
+/**
+ * 批量计算 MVP 矩阵：一个公共的 view-projection 矩阵乘以 N 个连续存放的模型矩阵，
+ * 结果同样连续存放（每16个float一个矩阵），可以直接作为实例数据上传。
+ * 数量超过阈值时把任务拆分到多个线程并行计算。
+ * <p>
+ * 实例本身不是线程安全的，一个渲染线程使用一个实例。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class MatrixBatch {
+
+    /**
+     * 超过这个数量才走并行，数量少时线程切换的开销比计算还大
+     */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    private final ParallelRange mParallel;
+    private final int mParallelThreshold;
+
+    /**
+     * 直接缓冲区的中转数组，按需扩容
+     */
+    private float[] mModelScratch = new float[0];
+    private float[] mResultScratch = new float[0];
+
+    public MatrixBatch() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * @param parallelism       并行计算使用的线程数，1表示始终串行
+     * @param parallelThreshold 矩阵数量达到这个值才并行计算，小于1时按1处理
+     */
+    public MatrixBatch(int parallelism, int parallelThreshold) {
+        mParallel = new ParallelRange(parallelism, "MatrixBatch");
+        mParallelThreshold = Math.max(1, parallelThreshold);
+    }
+
+    /**
+     * 分配一个可以直接作为实例数据上传的缓冲区
+     *
+     * @param count 矩阵个数
+     */
+    public static FloatBuffer allocateInstanceBuffer(int count) {
+        return ByteBuffer.allocateDirect(count * 16 * 4)
+                .order(ByteOrder.nativeOrder())
+                .asFloatBuffer();
+    }
+
+    /**
+     * result[i] = vp * models[i]，串行版本，要求模型矩阵都是仿射矩阵
+     */
+    public static void multiplyAffine(float[] vp, int vpOffset,
+                                      float[] models, int modelsOffset,
+                                      float[] result, int resultOffset, int count) {
+        //view-projection 只读一次，放在局部变量里
+        float l00 = vp[vpOffset], l10 = vp[vpOffset + 1], l20 = vp[vpOffset + 2], l30 = vp[vpOffset + 3];
+        float l01 = vp[vpOffset + 4], l11 = vp[vpOffset + 5], l21 = vp[vpOffset + 6], l31 = vp[vpOffset + 7];
+        float l02 = vp[vpOffset + 8], l12 = vp[vpOffset + 9], l22 = vp[vpOffset + 10], l32 = vp[vpOffset + 11];
+        float l03 = vp[vpOffset + 12], l13 = vp[vpOffset + 13], l23 = vp[vpOffset + 14], l33 = vp[vpOffset + 15];
+
+        int m = modelsOffset;
+        int o = resultOffset;
+        for (int i = 0; i < count; i++, m += 16, o += 16) {
+            for (int j = 0; j < 12; j += 4) {
+                float r0 = models[m + j], r1 = models[m + j + 1], r2 = models[m + j + 2];
+                result[o + j] = l00 * r0 + l01 * r1 + l02 * r2;
+                result[o + j + 1] = l10 * r0 + l11 * r1 + l12 * r2;
+                result[o + j + 2] = l20 * r0 + l21 * r1 + l22 * r2;
+                result[o + j + 3] = l30 * r0 + l31 * r1 + l32 * r2;
+            }
+            float r0 = models[m + 12], r1 = models[m + 13], r2 = models[m + 14];
+            result[o + 12] = l00 * r0 + l01 * r1 + l02 * r2 + l03;
+            result[o + 13] = l10 * r0 + l11 * r1 + l12 * r2 + l13;
+            result[o + 14] = l20 * r0 + l21 * r1 + l22 * r2 + l23;
+            result[o + 15] = l30 * r0 + l31 * r1 + l32 * r2 + l33;
+        }
+    }
+
+    /**
+     * result[i] = vp * models[i]，数量超过阈值时并行计算，返回时所有矩阵都已经算完
+     */
+    public void multiply(final float[] vp, final int vpOffset,
+                         final float[] models, final int modelsOffset,
+                         final float[] result, final int resultOffset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        if (mParallel.getParallelism() == 1 || count < mParallelThreshold) {
+            multiplyAffine(vp, vpOffset, models, modelsOffset, result, resultOffset, count);
+            return;
+        }
+        mParallel.run(count, new ParallelRange.Body() {
+            @Override
+            public void run(int from, int to) {
+                multiplyAffine(vp, vpOffset, models, modelsOffset + from * 16,
+                        result, resultOffset + from * 16, to - from);
+            }
+        });
+    }
+
+    /**
+     * 缓冲区版本，从 models 当前位置读取 count 个矩阵，写入 result 的当前位置，
+     * 两个缓冲区的 position 都会前进 count*16
+     */
+    public void multiply(float[] vp, int vpOffset, FloatBuffer models, FloatBuffer result, int count) {
+        int length = count * 16;
+        if (mModelScratch.length < length) {
+            mModelScratch = new float[length];
+            mResultScratch = new float[length];
+        }
+        //直接缓冲区整块拷贝到数组里计算，比逐个get/put快得多
+        models.get(mModelScratch, 0, length);
+        multiply(vp, vpOffset, mModelScratch, 0, mResultScratch, 0, count);
+        result.put(mResultScratch, 0, length);
+    }
+
+    /**
+     * 释放并行计算的线程
+     */
+    public void release() {
+        mParallel.release();
+    }
+}
@@ -0,0 +1,132 @@
+package com.example.opengl.math;
+
+/**
+ * 四元数运算，存放顺序为 x, y, z, w
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class Quat {
+
+    private Quat() {
+    }
+
+    public static void setIdentity(float[] q, int offset) {
+        q[offset] = 0;
+        q[offset + 1] = 0;
+        q[offset + 2] = 0;
+        q[offset + 3] = 1;
+    }
+
+    /**
+     * 绕轴(x, y, z)旋转 a 度
+     */
+    public static void setAxisAngle(float[] q, int offset, float a, float x, float y, float z) {
+        float len = Vec3.length(x, y, z);
+        double half = Math.toRadians(a) * 0.5;
+        float s = len == 0.0f ? 0.0f : (float) Math.sin(half) / len;
+        q[offset] = x * s;
+        q[offset + 1] = y * s;
+        q[offset + 2] = z * s;
+        q[offset + 3] = (float) Math.cos(half);
+    }
+
+    /**
+     * result = a * b，先做 b 的旋转再做 a 的旋转，结果和输入重叠也是安全的
+     */
+    public static void multiply(float[] result, int resultOffset, float[] a, int aOffset, float[] b, int bOffset) {
+        float ax = a[aOffset], ay = a[aOffset + 1], az = a[aOffset + 2], aw = a[aOffset + 3];
+        float bx = b[bOffset], by = b[bOffset + 1], bz = b[bOffset + 2], bw = b[bOffset + 3];
+        result[resultOffset] = aw * bx + ax * bw + ay * bz - az * by;
+        result[resultOffset + 1] = aw * by - ax * bz + ay * bw + az * bx;
+        result[resultOffset + 2] = aw * bz + ax * by - ay * bx + az * bw;
+        result[resultOffset + 3] = aw * bw - ax * bx - ay * by - az * bz;
+    }
+
+    public static void normalize(float[] q, int offset) {
+        float x = q[offset], y = q[offset + 1], z = q[offset + 2], w = q[offset + 3];
+        float len = (float) Math.sqrt(x * x + y * y + z * z + w * w);
+        if (len != 0.0f) {
+            float recipLen = 1.0f / len;
+            q[offset] = x * recipLen;
+            q[offset + 1] = y * recipLen;
+            q[offset + 2] = z * recipLen;
+            q[offset + 3] = w * recipLen;
+        }
+    }
+
+    /**
+     * 球面线性插值
+     */
+    public static void slerp(float[] result, int resultOffset, float[] a, int aOffset, float[] b, int bOffset, float t) {
+        float ax = a[aOffset], ay = a[aOffset + 1], az = a[aOffset + 2], aw = a[aOffset + 3];
+        float bx = b[bOffset], by = b[bOffset + 1], bz = b[bOffset + 2], bw = b[bOffset + 3];
+        float cos = ax * bx + ay * by + az * bz + aw * bw;
+        //走较短的那条弧
+        if (cos < 0.0f) {
+            cos = -cos;
+            bx = -bx;
+            by = -by;
+            bz = -bz;
+            bw = -bw;
+        }
+        float wa, wb;
+        if (cos > 0.9995f) {
+            //夹角很小时退化为线性插值
+            wa = 1.0f - t;
+            wb = t;
+        } else {
+            double theta = Math.acos(cos);
+            double sin = Math.sin(theta);
+            wa = (float) (Math.sin((1.0f - t) * theta) / sin);
+            wb = (float) (Math.sin(t * theta) / sin);
+        }
+        result[resultOffset] = wa * ax + wb * bx;
+        result[resultOffset + 1] = wa * ay + wb * by;
+        result[resultOffset + 2] = wa * az + wb * bz;
+        result[resultOffset + 3] = wa * aw + wb * bw;
+        normalize(result, resultOffset);
+    }
+
+    /**
+     * 把单位四元数转换成旋转矩阵，写入 m 的全部16个元素
+     */
+    public static void toMatrix(float[] m, int mOffset, float[] q, int qOffset) {
+        float x = q[qOffset], y = q[qOffset + 1], z = q[qOffset + 2], w = q[qOffset + 3];
+        float xx = x * x, yy = y * y, zz = z * z;
+        float xy = x * y, xz = x * z, yz = y * z;
+        float wx = w * x, wy = w * y, wz = w * z;
+        m[mOffset] = 1 - 2 * (yy + zz);
+        m[mOffset + 1] = 2 * (xy + wz);
+        m[mOffset + 2] = 2 * (xz - wy);
+        m[mOffset + 3] = 0;
+        m[mOffset + 4] = 2 * (xy - wz);
+        m[mOffset + 5] = 1 - 2 * (xx + zz);
+        m[mOffset + 6] = 2 * (yz + wx);
+        m[mOffset + 7] = 0;
+        m[mOffset + 8] = 2 * (xz + wy);
+        m[mOffset + 9] = 2 * (yz - wx);
+        m[mOffset + 10] = 1 - 2 * (xx + yy);
+        m[mOffset + 11] = 0;
+        m[mOffset + 12] = 0;
+        m[mOffset + 13] = 0;
+        m[mOffset + 14] = 0;
+        m[mOffset + 15] = 1;
+    }
+
+    /**
+     * 用单位四元数旋转向量 v，结果写入 result
+     */
+    public static void rotateVec3(float[] result, int resultOffset, float[] q, int qOffset, float[] v, int vOffset) {
+        float qx = q[qOffset], qy = q[qOffset + 1], qz = q[qOffset + 2], qw = q[qOffset + 3];
+        float vx = v[vOffset], vy = v[vOffset + 1], vz = v[vOffset + 2];
+        // t = 2 * (q.xyz x v)
+        float tx = 2 * (qy * vz - qz * vy);
+        float ty = 2 * (qz * vx - qx * vz);
+        float tz = 2 * (qx * vy - qy * vx);
+        // v' = v + w * t + q.xyz x t
+        result[resultOffset] = vx + qw * tx + (qy * tz - qz * ty);
+        result[resultOffset + 1] = vy + qw * ty + (qz * tx - qx * tz);
+        result[resultOffset + 2] = vz + qw * tz + (qx * ty - qy * tx);
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.opengl.math;
+
+/**
+ * 三维向量运算，向量存放在 float 数组中（x, y, z 连续），和 {@link Mat4} 一样使用数组+偏移量
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class Vec3 {
+
+    private Vec3() {
+    }
+
+    public static float length(float x, float y, float z) {
+        return (float) Math.sqrt(x * x + y * y + z * z);
+    }
+
+    public static float length(float[] v, int offset) {
+        return length(v[offset], v[offset + 1], v[offset + 2]);
+    }
+
+    public static void set(float[] v, int offset, float x, float y, float z) {
+        v[offset] = x;
+        v[offset + 1] = y;
+        v[offset + 2] = z;
+    }
+
+    public static float dot(float[] a, int aOffset, float[] b, int bOffset) {
+        return a[aOffset] * b[bOffset] + a[aOffset + 1] * b[bOffset + 1] + a[aOffset + 2] * b[bOffset + 2];
+    }
+
+    /**
+     * result = a x b，结果和输入重叠也是安全的
+     */
+    public static void cross(float[] result, int resultOffset, float[] a, int aOffset, float[] b, int bOffset) {
+        float ax = a[aOffset], ay = a[aOffset + 1], az = a[aOffset + 2];
+        float bx = b[bOffset], by = b[bOffset + 1], bz = b[bOffset + 2];
+        result[resultOffset] = ay * bz - az * by;
+        result[resultOffset + 1] = az * bx - ax * bz;
+        result[resultOffset + 2] = ax * by - ay * bx;
+    }
+
+    public static void add(float[] result, int resultOffset, float[] a, int aOffset, float[] b, int bOffset) {
+        result[resultOffset] = a[aOffset] + b[bOffset];
+        result[resultOffset + 1] = a[aOffset + 1] + b[bOffset + 1];
+        result[resultOffset + 2] = a[aOffset + 2] + b[bOffset + 2];
+    }
+
+    public static void sub(float[] result, int resultOffset, float[] a, int aOffset, float[] b, int bOffset) {
+        result[resultOffset] = a[aOffset] - b[bOffset];
+        result[resultOffset + 1] = a[aOffset + 1] - b[bOffset + 1];
+        result[resultOffset + 2] = a[aOffset + 2] - b[bOffset + 2];
+    }
+
+    public static void scale(float[] v, int offset, float s) {
+        v[offset] *= s;
+        v[offset + 1] *= s;
+        v[offset + 2] *= s;
+    }
+
+    /**
+     * 归一化，长度为0时保持不变
+     */
+    public static void normalize(float[] v, int offset) {
+        float len = length(v, offset);
+        if (len != 0.0f) {
+            scale(v, offset, 1.0f / len);
+        }
+    }
+
+    /**
+     * result = m * (v, 1)，m 为仿射矩阵，用于变换点
+     */
+    public static void transformPoint(float[] result, int resultOffset, float[] m, int mOffset, float[] v, int vOffset) {
+        float x = v[vOffset], y = v[vOffset + 1], z = v[vOffset + 2];
+        result[resultOffset] = m[mOffset] * x + m[mOffset + 4] * y + m[mOffset + 8] * z + m[mOffset + 12];
+        result[resultOffset + 1] = m[mOffset + 1] * x + m[mOffset + 5] * y + m[mOffset + 9] * z + m[mOffset + 13];
+        result[resultOffset + 2] = m[mOffset + 2] * x + m[mOffset + 6] * y + m[mOffset + 10] * z + m[mOffset + 14];
+    }
+
+    /**
+     * result = m * (v, 0)，用于变换方向，不受平移影响
+     */
+    public static void transformDirection(float[] result, int resultOffset, float[] m, int mOffset, float[] v, int vOffset) {
+        float x = v[vOffset], y = v[vOffset + 1], z = v[vOffset + 2];
+        result[resultOffset] = m[mOffset] * x + m[mOffset + 4] * y + m[mOffset + 8] * z;
+        result[resultOffset + 1] = m[mOffset + 1] * x + m[mOffset + 5] * y + m[mOffset + 9] * z;
+        result[resultOffset + 2] = m[mOffset + 2] * x + m[mOffset + 6] * y + m[mOffset + 10] * z;
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.opengl.mesh;
+
+/**
+ * 可以交给 {@link DynamicBatcher} 合并绘制的小网格，顶点和索引保存在 Java 内存中，
+ * 合并时在CPU上变换到世界坐标。每个顶点一个位置 (x, y, z) 和一个颜色，三角形列表。
+ * 颜色在创建时打包成 RGBA 字节，合并时直接拷贝。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class BatchGeometry {
+
+    private final float[] mPositions;
+    private final int[] mColors;
+    private final short[] mIndices;
+
+    /**
+     * @param positions 每个顶点3个坐标
+     * @param colors    每个顶点4个分量 (r, g, b, a)，范围 [0,1]
+     * @param indices   三角形列表的索引，为 null 时每3个顶点一个三角形；按无符号数解释，必须小于顶点个数
+     */
+    public BatchGeometry(float[] positions, float[] colors, short[] indices) {
+        if (positions.length % 3 != 0) {
+            throw new IllegalArgumentException("positions length " + positions.length + " is not a multiple of 3");
+        }
+        int vertexCount = positions.length / 3;
+        if (colors.length != vertexCount * 4) {
+            throw new IllegalArgumentException("expected " + vertexCount * 4 + " color values, got " + colors.length);
+        }
+        mPositions = positions;
+        mColors = new int[vertexCount];
+        for (int v = 0; v < vertexCount; v++) {
+            mColors[v] = DynamicBatcher.packColor(colors[v * 4], colors[v * 4 + 1], colors[v * 4 + 2], colors[v * 4 + 3]);
+        }
+        if (indices == null) {
+            indices = new short[vertexCount];
+            for (int i = 0; i < vertexCount; i++) {
+                indices[i] = (short) i;
+            }
+        } else {
+            //合并时索引加上这一批已有的顶点数，越界的索引会指到别的网格甚至缓冲区外面
+            for (int i = 0; i < indices.length; i++) {
+                if ((indices[i] & 0xffff) >= vertexCount) {
+                    throw new IllegalArgumentException("index " + (indices[i] & 0xffff) + " at " + i
+                            + " out of range, " + vertexCount + " vertices");
+                }
+            }
+        }
+        mIndices = indices;
+    }
+
+    /**
+     * 把 GL_TRIANGLE_FAN 的顶点转换成三角形列表，所有顶点同一个颜色
+     */
+    public static BatchGeometry fromFan(float[] positions, float[] color) {
+        int vertexCount = positions.length / 3;
+        float[] colors = new float[vertexCount * 4];
+        for (int v = 0; v < vertexCount; v++) {
+            System.arraycopy(color, 0, colors, v * 4, 4);
+        }
+        short[] indices = new short[Math.max(0, vertexCount - 2) * 3];
+        for (int t = 0; t < vertexCount - 2; t++) {
+            indices[t * 3] = 0;
+            indices[t * 3 + 1] = (short) (t + 1);
+            indices[t * 3 + 2] = (short) (t + 2);
+        }
+        return new BatchGeometry(positions, colors, indices);
+    }
+
+    public float[] getPositions() {
+        return mPositions;
+    }
+
+    int[] getPackedColors() {
+        return mColors;
+    }
+
+    public short[] getIndices() {
+        return mIndices;
+    }
+
+    public int getVertexCount() {
+        return mColors.length;
+    }
+
+    public int getIndexCount() {
+        return mIndices.length;
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 把使用同一个着色器程序和材质的小网格合并成一次绘制：每个网格的顶点在CPU上用模型矩阵变换后
+ * 追加到一个动态顶点缓冲区，程序或材质变化、缓冲区写满、或者 {@link #end()} 时才真正绘制。
+ * 适合顶点很少、数量很多的图形，每个网格单独绘制时瓶颈在绘制调用而不是顶点处理。
+ * <p>
+ * 程序需要有 aPosition（vec4）和 aColor（vec4）两个属性和 uViewProjection（mat4）uniform，
+ * 可以直接使用 {@link #VERTEX_SHADER} 和 {@link #FRAGMENT_SHADER}。
+ * 只能在GL线程创建和使用，不再使用时调用 {@link #release()}。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class DynamicBatcher {
+
+    public static final String VERTEX_SHADER =
+            "uniform mat4 uViewProjection;" +
+                    "attribute vec4 aPosition;" +
+                    "attribute vec4 aColor;" +
+                    "varying vec4 vColor;" +
+                    "void main(){" +
+                    "    gl_Position=uViewProjection*aPosition;" +
+                    "    vColor=aColor;" +
+                    "}";
+
+    public static final String FRAGMENT_SHADER =
+            "precision mediump float;" +
+                    "varying vec4 vColor;" +
+                    "void main(){" +
+                    "    gl_FragColor=vColor;" +
+                    "}";
+
+    /**
+     * 绘制一批之前设置材质相关的状态，例如纹理和混合方式
+     */
+    public interface Material {
+        void apply(GL gl);
+    }
+
+    /**
+     * 每个顶点：3个 float 的位置和4个字节的颜色
+     */
+    private static final int VERTEX_INTS = 4;
+    private static final int STRIDE = VERTEX_INTS * 4;
+
+    private final GL mGL;
+    private final int mMaxVertices;
+    private final int mMaxIndices;
+    private final int[] mVertices;
+    private final short[] mIndices;
+    private final IntBuffer mVertexBuffer;
+    private final ShortBuffer mIndexBuffer;
+    private final int[] mNames = new int[2];
+    private final Object mContext;
+    private final Map<GLProgram, Handles> mHandles = new HashMap<>();
+
+    private float[] mViewProjection;
+    private GLProgram mProgram;
+    private Handles mProgramHandles;
+    private Material mMaterial;
+    private int mVertexCount;
+    private int mIndexCount;
+    private boolean mDrawing;
+
+    private final Stats mCurrent = new Stats();
+    private final Stats mLastFrame = new Stats();
+
+    /**
+     * @param maxVertices 一批最多的顶点个数，不超过65536
+     * @param maxIndices  一批最多的索引个数
+     */
+    public DynamicBatcher(GL gl, int maxVertices, int maxIndices) {
+        if (maxVertices < 3 || maxVertices > 1 << 16 || maxIndices < 3) {
+            throw new IllegalArgumentException("invalid capacity: " + maxVertices + ", " + maxIndices);
+        }
+        mGL = gl;
+        mMaxVertices = maxVertices;
+        mMaxIndices = maxIndices;
+        mVertices = new int[maxVertices * VERTEX_INTS];
+        mIndices = new short[maxIndices];
+        mVertexBuffer = ByteBuffer.allocateDirect(maxVertices * STRIDE).order(ByteOrder.nativeOrder()).asIntBuffer();
+        mIndexBuffer = ByteBuffer.allocateDirect(maxIndices * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        mContext = gl.getCurrentContext();
+        gl.glGenBuffers(2, mNames, 0);
+    }
+
+    public DynamicBatcher(GL gl) {
+        this(gl, 1 << 14, 1 << 15);
+    }
+
+    /**
+     * 从缓存获取默认的着色器程序
+     */
+    public static GLProgram getDefaultProgram(GL gl) {
+        return ProgramCache.getInstance().getProgram(gl, VERTEX_SHADER, FRAGMENT_SHADER);
+    }
+
+    /**
+     * @param viewProjection 世界坐标到裁剪坐标的变换，end 之前不要修改
+     */
+    public void begin(float[] viewProjection) {
+        if (mDrawing) {
+            throw new IllegalStateException("begin() called twice");
+        }
+        mDrawing = true;
+        mViewProjection = viewProjection;
+    }
+
+    /**
+     * 添加一个网格，程序或材质和当前这一批不同时先画完当前这一批
+     *
+     * @param material 为 null 表示不需要额外的状态，按引用比较
+     * @param model    模型矩阵，为 null 时顶点已经是世界坐标
+     */
+    public void draw(GLProgram program, Material material, BatchGeometry geometry, float[] model, int modelOffset) {
+        if (!mDrawing) {
+            throw new IllegalStateException("begin() must be called first");
+        }
+        int vertexCount = geometry.getVertexCount();
+        int indexCount = geometry.getIndexCount();
+        if (vertexCount > mMaxVertices || indexCount > mMaxIndices) {
+            throw new IllegalArgumentException("geometry larger than batch: " + vertexCount + " vertices, "
+                    + indexCount + " indices");
+        }
+        if (mVertexCount > 0 && (program != mProgram || material != mMaterial)) {
+            mCurrent.stateFlushes++;
+            flush();
+        } else if (mVertexCount + vertexCount > mMaxVertices || mIndexCount + indexCount > mMaxIndices) {
+            mCurrent.capacityFlushes++;
+            flush();
+        }
+        if (program != mProgram) {
+            mProgram = program;
+            mProgramHandles = handles(program);
+        }
+        mMaterial = material;
+        append(geometry, model, modelOffset);
+        mCurrent.meshes++;
+    }
+
+    public void draw(GLProgram program, Material material, BatchGeometry geometry, float[] model) {
+        draw(program, material, geometry, model, 0);
+    }
+
+    /**
+     * 画完剩下的网格
+     */
+    public void end() {
+        if (!mDrawing) {
+            throw new IllegalStateException("end() without begin()");
+        }
+        flush();
+        mDrawing = false;
+        mViewProjection = null;
+        mProgram = null;
+        mProgramHandles = null;
+        mMaterial = null;
+    }
+
+    /**
+     * 每个程序的 uniform 句柄和属性位置只按名字查一次
+     */
+    private Handles handles(GLProgram program) {
+        Handles handles = mHandles.get(program);
+        if (handles == null) {
+            handles = new Handles(program);
+            mHandles.put(program, handles);
+        }
+        return handles;
+    }
+
+    private void append(BatchGeometry geometry, float[] m, int o) {
+        float[] positions = geometry.getPositions();
+        int[] colors = geometry.getPackedColors();
+        int[] out = mVertices;
+        int p = mVertexCount * VERTEX_INTS;
+        int count = geometry.getVertexCount();
+        for (int v = 0; v < count; v++, p += VERTEX_INTS) {
+            float x = positions[v * 3];
+            float y = positions[v * 3 + 1];
+            float z = positions[v * 3 + 2];
+            if (m != null) {
+                float tx = m[o] * x + m[o + 4] * y + m[o + 8] * z + m[o + 12];
+                float ty = m[o + 1] * x + m[o + 5] * y + m[o + 9] * z + m[o + 13];
+                float tz = m[o + 2] * x + m[o + 6] * y + m[o + 10] * z + m[o + 14];
+                x = tx;
+                y = ty;
+                z = tz;
+            }
+            out[p] = Float.floatToRawIntBits(x);
+            out[p + 1] = Float.floatToRawIntBits(y);
+            out[p + 2] = Float.floatToRawIntBits(z);
+            out[p + 3] = colors[v];
+        }
+        short[] indices = geometry.getIndices();
+        int base = mVertexCount;
+        for (int i = 0; i < indices.length; i++) {
+            mIndices[mIndexCount + i] = (short) ((indices[i] & 0xffff) + base);
+        }
+        mVertexCount += count;
+        mIndexCount += indices.length;
+    }
+
+    private void flush() {
+        if (mVertexCount == 0) {
+            return;
+        }
+        mVertexBuffer.clear();
+        mVertexBuffer.put(mVertices, 0, mVertexCount * VERTEX_INTS);
+        mVertexBuffer.position(0);
+        mIndexBuffer.clear();
+        mIndexBuffer.put(mIndices, 0, mIndexCount);
+        mIndexBuffer.position(0);
+
+        mProgram.use();
+        Handles handles = mProgramHandles;
+        handles.viewProjection.setMatrix4fv(mViewProjection, 0);
+        if (mMaterial != null) {
+            mMaterial.apply(mGL);
+        }
+        //每次重新指定整个缓冲区的数据，驱动可以分配新的存储，不用等GPU读完上一批
+        mGL.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mNames[0]);
+        mGL.glBufferData(GLES20.GL_ARRAY_BUFFER, mVertexCount * STRIDE, mVertexBuffer, GLES20.GL_STREAM_DRAW);
+        mGL.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mNames[1]);
+        mGL.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexCount * 2, mIndexBuffer, GLES20.GL_STREAM_DRAW);
+        int position = handles.position;
+        int color = handles.color;
+        if (position >= 0) {
+            mGL.glEnableVertexAttribArray(position);
+            mGL.glVertexAttribPointer(position, 3, GLES20.GL_FLOAT, false, STRIDE, 0);
+        }
+        if (color >= 0) {
+            mGL.glEnableVertexAttribArray(color);
+            mGL.glVertexAttribPointer(color, 4, GLES20.GL_UNSIGNED_BYTE, true, STRIDE, 12);
+        }
+        mGL.glDrawElements(GLES20.GL_TRIANGLES, mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0);
+        if (position >= 0) {
+            mGL.glDisableVertexAttribArray(position);
+        }
+        if (color >= 0) {
+            mGL.glDisableVertexAttribArray(color);
+        }
+        mCurrent.batches++;
+        mCurrent.vertices += mVertexCount;
+        mVertexCount = 0;
+        mIndexCount = 0;
+    }
+
+    /**
+     * 把 [0,1] 的颜色打包成内存中依次为 R、G、B、A 四个字节的 int
+     */
+    static int packColor(float r, float g, float b, float a) {
+        int ri = Math.round(Math.max(0f, Math.min(1f, r)) * 255);
+        int gi = Math.round(Math.max(0f, Math.min(1f, g)) * 255);
+        int bi = Math.round(Math.max(0f, Math.min(1f, b)) * 255);
+        int ai = Math.round(Math.max(0f, Math.min(1f, a)) * 255);
+        if (ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN) {
+            return (ai << 24) | (bi << 16) | (gi << 8) | ri;
+        }
+        return (ri << 24) | (gi << 16) | (bi << 8) | ai;
+    }
+
+    public void beginFrame() {
+        mLastFrame.set(mCurrent);
+        mCurrent.reset();
+    }
+
+    /**
+     * 上一帧实际的绘制调用次数
+     */
+    public int getLastFrameBatchCount() {
+        return mLastFrame.batches;
+    }
+
+    /**
+     * 上一帧添加的网格个数，不合并时就是绘制调用次数
+     */
+    public int getLastFrameMeshCount() {
+        return mLastFrame.meshes;
+    }
+
+    /**
+     * 上一帧因为程序或材质变化提前画的批数
+     */
+    public int getLastFrameStateFlushCount() {
+        return mLastFrame.stateFlushes;
+    }
+
+    /**
+     * 上一帧因为缓冲区写满提前画的批数
+     */
+    public int getLastFrameCapacityFlushCount() {
+        return mLastFrame.capacityFlushes;
+    }
+
+    public String getReport() {
+        return mLastFrame.meshes + " meshes in " + mLastFrame.batches + " batches (" + mLastFrame.stateFlushes
+                + " state flushes, " + mLastFrame.capacityFlushes + " capacity flushes), "
+                + mLastFrame.vertices + " vertices";
+    }
+
+    /**
+     * 删除缓冲区。上下文已经重建时旧的缓冲区已经随上下文销毁，只清空记录
+     */
+    public void release() {
+        if (mGL.getCurrentContext() == mContext) {
+            mGL.glDeleteBuffers(2, mNames, 0);
+        }
+        mNames[0] = 0;
+        mNames[1] = 0;
+        mHandles.clear();
+    }
+
+    private static class Handles {
+        final GLProgram.Uniform viewProjection;
+        final int position;
+        final int color;
+
+        Handles(GLProgram program) {
+            viewProjection = program.uniform("uViewProjection");
+            position = program.attribute("aPosition");
+            color = program.attribute("aColor");
+        }
+    }
+
+    private static class Stats {
+        int meshes;
+        int batches;
+        int stateFlushes;
+        int capacityFlushes;
+        long vertices;
+
+        void set(Stats other) {
+            meshes = other.meshes;
+            batches = other.batches;
+            stateFlushes = other.stateFlushes;
+            capacityFlushes = other.capacityFlushes;
+            vertices = other.vertices;
+        }
+
+        void reset() {
+            meshes = 0;
+            batches = 0;
+            stateFlushes = 0;
+            capacityFlushes = 0;
+            vertices = 0;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+import android.os.Build;
+
+import com.example.gles.GL;
+
+/**
+ * 基于 ES 3.0 的实例化绘制，调用经过传入的 {@link GL}，状态跟踪层能看到实例化绘制并在绘制前同步顶点属性开关。
+ * EXT_instanced_arrays/ANGLE_instanced_arrays 在 Java 层没有绑定，GLES2 上下文下直接视为不支持，
+ * 由 {@link InstancedMesh} 回退到 uniform 数组。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class GLES30InstancingGL implements InstancingGL {
+
+    private final GL mGL;
+    private Boolean mSupported;
+
+    /**
+     * @param gl 用来查询上下文的版本，实例化的调用也通过它下发
+     */
+    public GLES30InstancingGL(GL gl) {
+        mGL = gl;
+    }
+
+    @Override
+    public boolean isInstancingSupported() {
+        if (mSupported == null) {
+            mSupported = querySupported();
+        }
+        return mSupported;
+    }
+
+    private boolean querySupported() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return false;
+        }
+        String version = mGL.glGetString(GLES20.GL_VERSION);
+        return version != null && version.startsWith("OpenGL ES 3");
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        mGL.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        mGL.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+}
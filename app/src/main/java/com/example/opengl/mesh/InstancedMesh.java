@@ -0,0 +1,286 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.geometry.Bounds;
+import com.example.opengl.geometry.IndexedGeometry;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+
+/**
+ * 用一次绘制调用画同一个网格的多个实例，每个实例一个变换矩阵。
+ * <p>
+ * 支持实例化绘制时（ES 3.0），矩阵逐实例写入一个缓冲区，作为 divisor 为1的 mat4 属性，
+ * 用 glDrawElementsInstanced 一次画完；不支持时把网格复制 N 份放在一个缓冲区里，
+ * 每份顶点带一个实例编号属性，矩阵放在 uniform 数组里按编号取，一次 glDrawElements 画 N 个实例。
+ * N 由 GL_MAX_VERTEX_UNIFORM_VECTORS 和 short 索引的范围决定。
+ * <p>
+ * 顶点着色器用 GLSL ES 1.00 编写，调用 {@code instanceMatrix()} 取得当前实例的矩阵，
+ * 这个函数和需要的 attribute/uniform 声明在编译前按选择的方式加到着色器前面。
+ * 只能在GL线程创建和绘制，不再使用时调用 {@link #release()}。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class InstancedMesh {
+
+    /**
+     * uniform 数组方式一次最多画的实例个数，实例编号用 GL_UNSIGNED_BYTE 存储，不能超过256
+     */
+    public static final int MAX_UNIFORM_INSTANCES = 64;
+    /**
+     * 留给着色器中其他 uniform 的向量个数
+     */
+    private static final int RESERVED_UNIFORM_VECTORS = 16;
+
+    private static final String INSTANCED_HEADER =
+            "attribute mat4 aInstanceMatrix;\n" +
+                    "mat4 instanceMatrix(){return aInstanceMatrix;}\n";
+
+    private static final String UNIFORM_HEADER =
+            "uniform mat4 uInstanceMatrices[%d];\n" +
+                    "attribute float aInstanceId;\n" +
+                    "mat4 instanceMatrix(){return uInstanceMatrices[int(aInstanceId+0.5)];}\n";
+
+    private final GL mGL;
+    private final InstancingGL mInstancing;
+    private final boolean mHardware;
+    private final GLProgram mProgram;
+    private final Mesh mMesh;
+    private final int mIndexCount;
+    /**
+     * uniform 数组方式一次绘制的实例个数，实例化绘制时不限制
+     */
+    private final int mBatchSize;
+
+    private int mMatrixLocation = -1;
+    private GLProgram.Uniform mMatrices;
+    private final int[] mName = new int[1];
+    private final Object mContext;
+    private FloatBuffer mInstanceData;
+    private float[] mScratch = new float[0];
+
+    private int mInstanceCount;
+    private int mDrawCallCount;
+    private int mLastFrameInstanceCount;
+    private int mLastFrameDrawCallCount;
+
+    /**
+     * @param instancing   实例化绘制的接口，为 null 或者不支持时用 uniform 数组
+     * @param mode         绘制方式，如 GL_TRIANGLES
+     * @param vertexShader 调用 instanceMatrix() 的顶点着色器
+     * @param attributes   每个属性一个数组，顺序和 layout 中的属性一致
+     */
+    public InstancedMesh(GL gl, InstancingGL instancing, int mode, String vertexShader, String fragmentShader,
+                         VertexLayout layout, float[][] attributes, short[] indices) {
+        mGL = gl;
+        mInstancing = instancing;
+        mContext = gl.getCurrentContext();
+        mHardware = instancing != null && instancing.isInstancingSupported();
+        mIndexCount = indices.length;
+        int vertexCount = VertexPacker.vertexCount(layout, attributes);
+        if (mHardware) {
+            mBatchSize = Integer.MAX_VALUE;
+            mProgram = ProgramCache.getInstance().getProgram(gl, INSTANCED_HEADER + vertexShader, fragmentShader);
+            mMatrixLocation = mProgram.attribute("aInstanceMatrix");
+            mMesh = new Mesh(gl, mode).addVertices(mProgram, layout, attributes).setIndices(indices);
+            gl.glGenBuffers(1, mName, 0);
+        } else {
+            mBatchSize = uniformBatchSize(gl, vertexCount);
+            String header = String.format(UNIFORM_HEADER, mBatchSize);
+            mProgram = ProgramCache.getInstance().getProgram(gl, header + vertexShader, fragmentShader);
+            mMatrices = mProgram.uniform("uInstanceMatrices");
+            mMesh = replicate(gl, mode, mProgram, layout, attributes, vertexCount, indices, mBatchSize);
+        }
+    }
+
+    /**
+     * uniform 数组方式一次能画的实例个数
+     */
+    static int uniformBatchSize(GL gl, int vertexCount) {
+        int[] value = new int[1];
+        gl.glGetIntegerv(GLES20.GL_MAX_VERTEX_UNIFORM_VECTORS, value, 0);
+        //ES 2.0 保证至少128个，查询不到时按最小值算
+        int vectors = value[0] > 0 ? value[0] : 128;
+        int size = Math.min(MAX_UNIFORM_INSTANCES, (vectors - RESERVED_UNIFORM_VECTORS) / 4);
+        size = Math.min(size, IndexedGeometry.MAX_VERTICES / vertexCount);
+        return Math.max(1, size);
+    }
+
+    /**
+     * 把网格复制 copies 份，每份的顶点带上实例编号，索引按份偏移
+     */
+    private static Mesh replicate(GL gl, int mode, GLProgram program, VertexLayout layout, float[][] attributes,
+                                  int vertexCount, short[] indices, int copies) {
+        VertexLayout replicated = new VertexLayout();
+        for (int a = 0; a < layout.getAttributeCount(); a++) {
+            replicated.add(layout.getName(a), layout.getSize(a), layout.getType(a), layout.isNormalized(a));
+        }
+        replicated.add("aInstanceId", 1, GLES20.GL_UNSIGNED_BYTE, false);
+        float[][] data = new float[attributes.length + 1][];
+        for (int a = 0; a < attributes.length; a++) {
+            float[] source = attributes[a];
+            data[a] = new float[source.length * copies];
+            for (int c = 0; c < copies; c++) {
+                System.arraycopy(source, 0, data[a], c * source.length, source.length);
+            }
+        }
+        float[] ids = new float[vertexCount * copies];
+        short[] replicatedIndices = new short[indices.length * copies];
+        for (int c = 0; c < copies; c++) {
+            for (int v = 0; v < vertexCount; v++) {
+                ids[c * vertexCount + v] = c;
+            }
+            for (int i = 0; i < indices.length; i++) {
+                replicatedIndices[c * indices.length + i] = (short) (indices[i] + c * vertexCount);
+            }
+        }
+        data[attributes.length] = ids;
+        return new Mesh(gl, mode).addVertices(program, replicated, data).setIndices(replicatedIndices);
+    }
+
+    /**
+     * 绘制时使用的程序，需要设置其他 uniform 时用它获取句柄
+     */
+    public GLProgram getProgram() {
+        return mProgram;
+    }
+
+    /**
+     * 一个实例在模型空间的包围体，所有实例共用
+     */
+    public Bounds getBounds() {
+        return mMesh.getBounds();
+    }
+
+    /**
+     * 每个实例一个矩阵，每个矩阵16个 float
+     */
+    public void draw(List<float[]> matrices) {
+        int count = matrices.size();
+        if (mScratch.length < count * 16) {
+            mScratch = new float[count * 16];
+        }
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(matrices.get(i), 0, mScratch, i * 16, 16);
+        }
+        draw(mScratch, count);
+    }
+
+    /**
+     * @param matrices 连续存放的 count 个矩阵
+     */
+    public void draw(float[] matrices, int count) {
+        draw(matrices, 0, count);
+    }
+
+    /**
+     * @param matrices 从 offset 开始连续存放的 count 个矩阵
+     */
+    public void draw(float[] matrices, int offset, int count) {
+        if (count <= 0) {
+            return;
+        }
+        mProgram.use();
+        if (mHardware) {
+            drawInstanced(matrices, offset, count);
+        } else {
+            for (int first = 0; first < count; first += mBatchSize) {
+                int n = Math.min(mBatchSize, count - first);
+                mMatrices.setMatrix4fv(matrices, offset + first * 16, n);
+                mMesh.draw(0, n * mIndexCount);
+                mDrawCallCount++;
+            }
+        }
+        mInstanceCount += count;
+    }
+
+    private void drawInstanced(float[] matrices, int offset, int count) {
+        if (mInstanceData == null || mInstanceData.capacity() < count * 16) {
+            mInstanceData = ByteBuffer.allocateDirect(count * 16 * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        }
+        mInstanceData.clear();
+        mInstanceData.put(matrices, offset, count * 16);
+        mInstanceData.position(0);
+
+        mMesh.bind();
+        mGL.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mName[0]);
+        mGL.glBufferData(GLES20.GL_ARRAY_BUFFER, count * 16 * 4, mInstanceData, GLES20.GL_STREAM_DRAW);
+        //mat4 属性占4个连续的位置，每个位置一列
+        if (mMatrixLocation >= 0) {
+            for (int column = 0; column < 4; column++) {
+                int location = mMatrixLocation + column;
+                mGL.glEnableVertexAttribArray(location);
+                mGL.glVertexAttribPointer(location, 4, GLES20.GL_FLOAT, false, 16 * 4, column * 4 * 4);
+                mInstancing.glVertexAttribDivisor(location, 1);
+            }
+        }
+        mInstancing.glDrawElementsInstanced(mMesh.getMode(), mIndexCount, GLES20.GL_UNSIGNED_SHORT, 0, count);
+        if (mMatrixLocation >= 0) {
+            //divisor 是属性位置的状态，不恢复会影响之后使用这些位置的绘制
+            for (int column = 0; column < 4; column++) {
+                mInstancing.glVertexAttribDivisor(mMatrixLocation + column, 0);
+                mGL.glDisableVertexAttribArray(mMatrixLocation + column);
+            }
+        }
+        mMesh.unbindAttributes();
+        mDrawCallCount++;
+    }
+
+    public void beginFrame() {
+        mLastFrameInstanceCount = mInstanceCount;
+        mLastFrameDrawCallCount = mDrawCallCount;
+        mInstanceCount = 0;
+        mDrawCallCount = 0;
+    }
+
+    /**
+     * 是否使用 glDrawElementsInstanced
+     */
+    public boolean isHardwareInstancing() {
+        return mHardware;
+    }
+
+    /**
+     * uniform 数组方式一次绘制的实例个数，实例化绘制时为 Integer.MAX_VALUE
+     */
+    public int getBatchSize() {
+        return mBatchSize;
+    }
+
+    public int getLastFrameInstanceCount() {
+        return mLastFrameInstanceCount;
+    }
+
+    public int getLastFrameDrawCallCount() {
+        return mLastFrameDrawCallCount;
+    }
+
+    /**
+     * 上一帧和每个实例单独绘制相比少用的绘制调用
+     */
+    public int getLastFrameDrawCallsSaved() {
+        return mLastFrameInstanceCount - mLastFrameDrawCallCount;
+    }
+
+    public String getReport() {
+        return (mHardware ? "glDrawElementsInstanced" : "uniform array x" + mBatchSize) + ": "
+                + mLastFrameInstanceCount + " instances in " + mLastFrameDrawCallCount + " draw calls, saved "
+                + getLastFrameDrawCallsSaved();
+    }
+
+    public void release() {
+        mMesh.release();
+        //上下文已经重建时旧的缓冲区已经随上下文销毁
+        if (mName[0] != 0 && mGL.getCurrentContext() == mContext) {
+            mGL.glDeleteBuffers(1, mName, 0);
+        }
+        mName[0] = 0;
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.opengl.mesh;
+
+/**
+ * 实例化绘制需要用到的GL调用和能力查询。真机上的实现要把调用转发给渲染使用的 {@link com.example.gles.GL}，
+ * 否则会绕过状态跟踪；单独抽出来方便在单元测试中替换成假的实现
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public interface InstancingGL {
+
+    /**
+     * 当前上下文是否支持 glVertexAttribDivisor 和 glDrawElementsInstanced
+     */
+    boolean isInstancingSupported();
+
+    void glVertexAttribDivisor(int index, int divisor);
+
+    void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+}
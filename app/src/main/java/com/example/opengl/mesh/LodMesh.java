@@ -0,0 +1,132 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.geometry.IndexedGeometry;
+import com.example.opengl.geometry.LodSelector;
+import com.example.opengl.scene.Frustum;
+import com.example.opengl.utils.GLProgram;
+
+/**
+ * 同一个物体的多个细节级别，每一级是一个带索引的 {@link Mesh}，创建时全部上传。
+ * 绘制时先用包围球和视锥比较，在视锥外就不绘制；否则按包围球在屏幕上的投影半径选择级别，只提交需要的三角形。
+ * <p>
+ * 统计每帧提交的三角形个数，和始终绘制最高级别时比较；每帧开始时调用 {@link #beginFrame()}，
+ * 上一帧的统计通过 getLastFrame* 方法读取。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class LodMesh {
+
+    private final Mesh[] mLevels;
+    private final LodSelector mSelector;
+    private final float mBoundingRadius;
+    private final Frustum mFrustum = new Frustum();
+
+    private long mTriangles;
+    private long mBaselineTriangles;
+    private long mLastFrameTriangles;
+    private long mLastFrameBaselineTriangles;
+    private int mCulled;
+    private int mLastFrameCulled;
+
+    /**
+     * @param levels         从低到高的细节级别，顶点按 layout 的第一个属性打包
+     * @param selector       选择级别的阈值，级别个数和 levels 一致
+     * @param boundingRadius 模型空间中以原点为球心的包围球半径
+     */
+    public LodMesh(GL gl, GLProgram program, VertexLayout layout, IndexedGeometry[] levels,
+                   LodSelector selector, float boundingRadius) {
+        if (levels.length != selector.getLevelCount()) {
+            throw new IllegalArgumentException(levels.length + " levels, " + selector.getLevelCount() + " thresholds");
+        }
+        mLevels = new Mesh[levels.length];
+        for (int i = 0; i < levels.length; i++) {
+            mLevels[i] = new Mesh(gl, GLES20.GL_TRIANGLES)
+                    .addVertices(program, layout, levels[i].getPositions())
+                    .setIndices(levels[i].getIndices());
+        }
+        mSelector = selector;
+        mBoundingRadius = boundingRadius;
+    }
+
+    /**
+     * 按投影半径选择级别并绘制
+     *
+     * @param mvp            当前的模型视图投影矩阵
+     * @param viewportHeight 视口高度（像素）
+     * @return 绘制的级别，在视锥外没有绘制时返回 -1
+     */
+    public int draw(float[] mvp, int offset, int viewportHeight) {
+        mBaselineTriangles += mLevels[mLevels.length - 1].getIndexCount() / 3;
+        //用模型视图投影矩阵提取的平面在模型空间，包围球的球心就是原点
+        if (!mFrustum.set(mvp, offset).intersectsSphere(0f, 0f, 0f, mBoundingRadius)) {
+            mCulled++;
+            return -1;
+        }
+        float radius = LodSelector.projectedRadius(mvp, offset, 0f, 0f, 0f, mBoundingRadius, viewportHeight);
+        int level = mSelector.select(radius);
+        Mesh mesh = mLevels[level];
+        mesh.draw();
+        mTriangles += mesh.getIndexCount() / 3;
+        return level;
+    }
+
+    public void beginFrame() {
+        mLastFrameTriangles = mTriangles;
+        mLastFrameBaselineTriangles = mBaselineTriangles;
+        mLastFrameCulled = mCulled;
+        mTriangles = 0;
+        mBaselineTriangles = 0;
+        mCulled = 0;
+    }
+
+    /**
+     * 上一次绘制的级别
+     */
+    public int getLevel() {
+        return mSelector.getLevel();
+    }
+
+    public int getLevelCount() {
+        return mLevels.length;
+    }
+
+    public Mesh getMesh(int level) {
+        return mLevels[level];
+    }
+
+    public long getLastFrameTriangles() {
+        return mLastFrameTriangles;
+    }
+
+    /**
+     * 上一帧全部用最高级别绘制时的三角形个数
+     */
+    public long getLastFrameBaselineTriangles() {
+        return mLastFrameBaselineTriangles;
+    }
+
+    /**
+     * 上一帧在视锥外没有绘制的次数
+     */
+    public int getLastFrameCulledCount() {
+        return mLastFrameCulled;
+    }
+
+    public String getReport() {
+        long saved = mLastFrameBaselineTriangles - mLastFrameTriangles;
+        return "lod " + getLevel() + "/" + (mLevels.length - 1) + ", " + mLastFrameTriangles + " triangles per frame"
+                + " (max lod " + mLastFrameBaselineTriangles + ", saved "
+                + (mLastFrameBaselineTriangles > 0 ? saved * 100 / mLastFrameBaselineTriangles : 0) + "%)"
+                + ", " + mLastFrameCulled + " culled";
+    }
+
+    public void release() {
+        for (Mesh mesh : mLevels) {
+            mesh.release();
+        }
+    }
+}
@@ -0,0 +1,318 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.geometry.Bounds;
+import com.example.opengl.utils.GLProgram;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 静态网格，顶点和索引在创建时一次性上传到 GL_STATIC_DRAW 的缓冲区对象，
+ * 绘制时只绑定缓冲区、设置偏移，不再每次从 Java 内存拷贝顶点数据。
+ * <p>
+ * 顶点数据可以按 {@link VertexLayout} 交错存放在一个缓冲区里，属性位置从着色器程序中按名字获取；
+ * 也可以每个属性单独一个缓冲区，属性位置在添加时指定。
+ * 绘制后缓冲区保持绑定，连续绘制同一个网格时状态跟踪可以去掉重复的绑定；
+ * 之后如果还有使用客户端内存指针的绘制，需要先把 GL_ARRAY_BUFFER 绑定为0。
+ * <p>
+ * 创建时用第一个顶点属性（约定为位置）计算模型空间的 {@link Bounds}，用于视锥剔除；
+ * 上传已经打包好的数据时没有原始坐标，需要用 {@link #setBounds(Bounds)} 指定。
+ * <p>
+ * 缓冲区属于当前的GL上下文，只能在GL线程创建和绘制，不再使用时调用 {@link #release()}。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class Mesh {
+
+    private final GL mGL;
+    private final int mMode;
+    private final List<Attribute> mAttributes = new ArrayList<>();
+    private final int[] mName = new int[1];
+    private final Object mContext;
+
+    private int mVertexCount;
+    private int mIndexBuffer;
+    private int mIndexCount;
+    private long mByteCount;
+    private long mFloatVertexBytes;
+    /**
+     * 绘制一个顶点需要读取的字节数，所有顶点缓冲区的 stride 之和
+     */
+    private int mFetchStride;
+    private Bounds mBounds;
+
+    /**
+     * @param mode 绘制方式，如 GL_TRIANGLES
+     */
+    public Mesh(GL gl, int mode) {
+        mGL = gl;
+        mMode = mode;
+        mContext = gl.getCurrentContext();
+    }
+
+    /**
+     * 添加一个顶点属性并上传
+     *
+     * @param location 属性在着色器程序中的位置，小于0时只上传不绑定
+     * @param size     每个顶点的分量个数
+     * @param data     所有顶点的数据，长度决定顶点个数
+     */
+    public Mesh addAttribute(int location, int size, float[] data) {
+        ByteBuffer bb = ByteBuffer.allocateDirect(data.length * 4).order(ByteOrder.nativeOrder());
+        FloatBuffer buffer = bb.asFloatBuffer();
+        buffer.put(data);
+        buffer.position(0);
+        int id = upload(GLES20.GL_ARRAY_BUFFER, data.length * 4, buffer);
+        mAttributes.add(new Attribute(id, location, size, GLES20.GL_FLOAT, false, 0, 0));
+        mFloatVertexBytes += data.length * 4;
+        mFetchStride += size * 4;
+        if (mVertexCount == 0) {
+            mVertexCount = data.length / size;
+        }
+        if (mBounds == null && size >= 2) {
+            mBounds = Bounds.fromPositions(data, size);
+        }
+        return this;
+    }
+
+    /**
+     * 把各个属性的数组按 layout 交错打包后上传到一个缓冲区
+     *
+     * @param program    按 layout 中的名字获取属性位置，程序中没有的属性不绑定
+     * @param attributes 每个属性一个数组，顺序和 layout 中的属性一致
+     */
+    public Mesh addVertices(GLProgram program, VertexLayout layout, float[]... attributes) {
+        if (mBounds == null && layout.getSize(0) >= 2) {
+            mBounds = Bounds.fromPositions(attributes[0], layout.getSize(0));
+        }
+        return addVertices(program, layout, VertexPacker.pack(layout, attributes));
+    }
+
+    /**
+     * 上传已经按 layout 打包好的顶点数据
+     */
+    public Mesh addVertices(GLProgram program, VertexLayout layout, ByteBuffer vertices) {
+        int bytes = vertices.remaining();
+        int id = upload(GLES20.GL_ARRAY_BUFFER, bytes, vertices);
+        for (int i = 0; i < layout.getAttributeCount(); i++) {
+            mAttributes.add(new Attribute(id, program.attribute(layout.getName(i)), layout.getSize(i),
+                    layout.getType(i), layout.isNormalized(i), layout.getStride(), layout.getOffset(i)));
+        }
+        if (mVertexCount == 0) {
+            mVertexCount = bytes / layout.getStride();
+        }
+        mFloatVertexBytes += (long) bytes / layout.getStride() * layout.getFloatStride();
+        mFetchStride += layout.getStride();
+        return this;
+    }
+
+    /**
+     * 设置索引并上传，设置后用 glDrawElements 绘制
+     */
+    public Mesh setIndices(short[] indices) {
+        ByteBuffer bb = ByteBuffer.allocateDirect(indices.length * 2).order(ByteOrder.nativeOrder());
+        ShortBuffer buffer = bb.asShortBuffer();
+        buffer.put(indices);
+        buffer.position(0);
+        if (mIndexBuffer != 0) {
+            deleteBuffer(mIndexBuffer);
+            mByteCount -= mIndexCount * 2;
+        }
+        mIndexBuffer = upload(GLES20.GL_ELEMENT_ARRAY_BUFFER, indices.length * 2, buffer);
+        mIndexCount = indices.length;
+        return this;
+    }
+
+    /**
+     * 绑定缓冲区并绘制所有顶点或索引
+     */
+    public void draw() {
+        draw(0, mIndexBuffer != 0 ? mIndexCount : mVertexCount);
+    }
+
+    /**
+     * 绘制一部分顶点或索引
+     *
+     * @param first 第一个顶点或索引
+     * @param count 顶点或索引的个数
+     */
+    public void draw(int first, int count) {
+        bind();
+        if (mIndexBuffer != 0) {
+            mGL.glDrawElements(mMode, count, GLES20.GL_UNSIGNED_SHORT, first * 2);
+        } else {
+            mGL.glDrawArrays(mMode, first, count);
+        }
+        unbindAttributes();
+    }
+
+    /**
+     * 指定模型空间的包围体，用于只上传了打包数据的网格
+     */
+    public Mesh setBounds(Bounds bounds) {
+        mBounds = bounds;
+        return this;
+    }
+
+    /**
+     * 模型空间的包围体，没有位置数据时为 null
+     */
+    public Bounds getBounds() {
+        return mBounds;
+    }
+
+    int getMode() {
+        return mMode;
+    }
+
+    /**
+     * 绑定顶点属性和索引缓冲区，由需要自己发出绘制调用的类使用，画完后调用 {@link #unbindAttributes()}
+     */
+    void bind() {
+        bindAttributes();
+        if (mIndexBuffer != 0) {
+            mGL.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mIndexBuffer);
+        }
+    }
+
+    /**
+     * 删除缓冲区。上下文已经重建时旧的缓冲区已经随上下文销毁，只清空记录
+     */
+    public void release() {
+        if (mGL.getCurrentContext() == mContext) {
+            for (Attribute attribute : mAttributes) {
+                deleteBuffer(attribute.mBuffer);
+            }
+            deleteBuffer(mIndexBuffer);
+        }
+        mAttributes.clear();
+        mIndexBuffer = 0;
+        mVertexCount = 0;
+        mIndexCount = 0;
+        mByteCount = 0;
+        mFloatVertexBytes = 0;
+        mFetchStride = 0;
+    }
+
+    public int getVertexCount() {
+        return mVertexCount;
+    }
+
+    public int getIndexCount() {
+        return mIndexCount;
+    }
+
+    /**
+     * 顶点和索引占用的显存字节数
+     */
+    public long getByteCount() {
+        return mByteCount;
+    }
+
+    /**
+     * 顶点数据占用的显存字节数
+     */
+    public long getVertexBytes() {
+        return mByteCount - mIndexCount * 2L;
+    }
+
+    /**
+     * 所有属性都用 float 存储时顶点数据占用的字节数
+     */
+    public long getFloatVertexBytes() {
+        return mFloatVertexBytes;
+    }
+
+    /**
+     * 完整绘制一次需要读取的顶点和索引字节数，不计顶点缓存的命中
+     */
+    public long getFetchBytesPerDraw() {
+        if (mIndexBuffer != 0) {
+            return (long) mIndexCount * mFetchStride + mIndexCount * 2L;
+        }
+        return (long) mVertexCount * mFetchStride;
+    }
+
+    /**
+     * 显存占用和每次绘制的读取量，和全部使用 float 时比较
+     */
+    public String getReport() {
+        long vertexBytes = getVertexBytes();
+        long saved = mFloatVertexBytes - vertexBytes;
+        return mVertexCount + " vertices, " + mIndexCount + " indices, vertex data " + vertexBytes + "B"
+                + " (float " + mFloatVertexBytes + "B, saved "
+                + (mFloatVertexBytes > 0 ? saved * 100 / mFloatVertexBytes : 0) + "%)"
+                + ", index data " + mIndexCount * 2 + "B, fetch per draw " + getFetchBytesPerDraw() + "B";
+    }
+
+    private void bindAttributes() {
+        int bound = 0;
+        for (int i = 0; i < mAttributes.size(); i++) {
+            Attribute attribute = mAttributes.get(i);
+            if (attribute.mLocation < 0) {
+                continue;
+            }
+            //交错存放的属性共用一个缓冲区，只绑定一次
+            if (attribute.mBuffer != bound) {
+                mGL.glBindBuffer(GLES20.GL_ARRAY_BUFFER, attribute.mBuffer);
+                bound = attribute.mBuffer;
+            }
+            mGL.glEnableVertexAttribArray(attribute.mLocation);
+            mGL.glVertexAttribPointer(attribute.mLocation, attribute.mSize, attribute.mType,
+                    attribute.mNormalized, attribute.mStride, attribute.mOffset);
+        }
+    }
+
+    void unbindAttributes() {
+        for (int i = 0; i < mAttributes.size(); i++) {
+            Attribute attribute = mAttributes.get(i);
+            if (attribute.mLocation >= 0) {
+                mGL.glDisableVertexAttribArray(attribute.mLocation);
+            }
+        }
+    }
+
+    private int upload(int target, int size, Buffer data) {
+        mGL.glGenBuffers(1, mName, 0);
+        mGL.glBindBuffer(target, mName[0]);
+        mGL.glBufferData(target, size, data, GLES20.GL_STATIC_DRAW);
+        mByteCount += size;
+        return mName[0];
+    }
+
+    private void deleteBuffer(int buffer) {
+        if (buffer != 0) {
+            mName[0] = buffer;
+            mGL.glDeleteBuffers(1, mName, 0);
+        }
+    }
+
+    private static class Attribute {
+        final int mBuffer;
+        final int mLocation;
+        final int mSize;
+        final int mType;
+        final boolean mNormalized;
+        final int mStride;
+        final int mOffset;
+
+        Attribute(int buffer, int location, int size, int type, boolean normalized, int stride, int offset) {
+            mBuffer = buffer;
+            mLocation = location;
+            mSize = size;
+            mType = type;
+            mNormalized = normalized;
+            mStride = stride;
+            mOffset = offset;
+        }
+    }
+}
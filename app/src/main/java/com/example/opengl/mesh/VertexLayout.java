@@ -0,0 +1,203 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 交错顶点格式的描述：每个属性的名字、分量个数、数据类型和是否归一化。
+ * 属性按添加的顺序紧密排列在一个顶点里，每个属性的起始位置按4字节对齐，
+ * 绘制时按名字从着色器程序中找到位置，用同一个 stride 设置所有属性。
+ * <p>
+ * 除了 GL_FLOAT 还支持 GL_BYTE/GL_SHORT 及其无符号类型和半精度浮点，
+ * 数据由 {@link VertexPacker} 转换。半精度浮点在 ES 2.0 需要 GL_OES_vertex_half_float 扩展，
+ * 用 {@link #halfFloatType(GL)} 选择当前上下文可用的类型。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class VertexLayout {
+
+    /**
+     * GL_OES_vertex_half_float 扩展的半精度浮点类型
+     */
+    public static final int GL_HALF_FLOAT_OES = 0x8D61;
+    /**
+     * OpenGL ES 3.0 的半精度浮点类型
+     */
+    public static final int GL_HALF_FLOAT = 0x140B;
+
+    private final List<Attribute> mAttributes = new ArrayList<>();
+    private int mStride;
+
+    /**
+     * 添加一个 float 属性
+     */
+    public VertexLayout add(String name, int size) {
+        return add(name, size, GLES20.GL_FLOAT, false);
+    }
+
+    /**
+     * 添加一个属性
+     *
+     * @param name       着色器中的 attribute 名字
+     * @param size       分量个数，1~4
+     * @param type       数据类型，如 GL_FLOAT
+     * @param normalized 整数类型是否归一化到 [0,1] 或 [-1,1]
+     */
+    public VertexLayout add(String name, int size, int type, boolean normalized) {
+        if (size < 1 || size > 4) {
+            throw new IllegalArgumentException("size must be 1~4: " + size);
+        }
+        mAttributes.add(new Attribute(name, size, type, normalized, mStride));
+        mStride += align(size * bytesPerComponent(type));
+        return this;
+    }
+
+    /**
+     * 一个顶点占用的字节数
+     */
+    public int getStride() {
+        return mStride;
+    }
+
+    /**
+     * 所有属性都用 GL_FLOAT 存储时一个顶点占用的字节数，用于比较压缩效果
+     */
+    public int getFloatStride() {
+        int stride = 0;
+        for (Attribute attribute : mAttributes) {
+            stride += attribute.mSize * 4;
+        }
+        return stride;
+    }
+
+    /**
+     * 属性量化后的最大绝对误差（不计超出范围被截断的值）
+     *
+     * @param maxAbs 属性数据的最大绝对值，只影响浮点类型的误差
+     */
+    public float getErrorBound(int index, float maxAbs) {
+        Attribute attribute = mAttributes.get(index);
+        switch (attribute.mType) {
+            case GLES20.GL_FLOAT:
+                return maxAbs * 0x1p-24f;
+            case GL_HALF_FLOAT:
+            case GL_HALF_FLOAT_OES:
+                //10位尾数，就近舍入的相对误差为 2^-11，再加上非规格化数的最小间隔的一半
+                return maxAbs * 0x1p-11f + 0x1p-25f;
+            case GLES20.GL_FIXED:
+                return 0.5f / 65536;
+            default:
+                break;
+        }
+        if (!attribute.mNormalized) {
+            return 0.5f;
+        }
+        int bits = bytesPerComponent(attribute.mType) * 8;
+        if (attribute.mType == GLES20.GL_BYTE || attribute.mType == GLES20.GL_SHORT) {
+            //舍入误差半个单位；ES 2.0 有符号归一化按 (2c+1)/(2^b-1) 还原，和 ES 3.0 的 c/(2^(b-1)-1) 最多再差一个单位
+            return 1.5f / ((1 << (bits - 1)) - 1);
+        }
+        return 0.5f / ((1 << bits) - 1);
+    }
+
+    public int getAttributeCount() {
+        return mAttributes.size();
+    }
+
+    public String getName(int index) {
+        return mAttributes.get(index).mName;
+    }
+
+    public int getSize(int index) {
+        return mAttributes.get(index).mSize;
+    }
+
+    public int getType(int index) {
+        return mAttributes.get(index).mType;
+    }
+
+    public boolean isNormalized(int index) {
+        return mAttributes.get(index).mNormalized;
+    }
+
+    /**
+     * 属性在顶点中的字节偏移
+     */
+    public int getOffset(int index) {
+        return mAttributes.get(index).mOffset;
+    }
+
+    /**
+     * @return 属性的下标，不存在时返回 -1
+     */
+    public int indexOf(String name) {
+        for (int i = 0; i < mAttributes.size(); i++) {
+            if (mAttributes.get(i).mName.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public static int bytesPerComponent(int type) {
+        switch (type) {
+            case GLES20.GL_BYTE:
+            case GLES20.GL_UNSIGNED_BYTE:
+                return 1;
+            case GLES20.GL_SHORT:
+            case GLES20.GL_UNSIGNED_SHORT:
+            case GL_HALF_FLOAT:
+            case GL_HALF_FLOAT_OES:
+                return 2;
+            case GLES20.GL_FLOAT:
+            case GLES20.GL_FIXED:
+                return 4;
+            default:
+                throw new IllegalArgumentException("unsupported vertex type: 0x" + Integer.toHexString(type));
+        }
+    }
+
+    /**
+     * 当前上下文支持的半精度浮点顶点类型，ES 3.0 用 GL_HALF_FLOAT，
+     * ES 2.0 有 GL_OES_vertex_half_float 扩展时用 GL_HALF_FLOAT_OES，都不支持时返回 GL_FLOAT
+     */
+    public static int halfFloatType(GL gl) {
+        String version = gl.glGetString(GLES20.GL_VERSION);
+        if (version != null && version.startsWith("OpenGL ES 3")) {
+            return GL_HALF_FLOAT;
+        }
+        String extensions = gl.glGetString(GLES20.GL_EXTENSIONS);
+        if (extensions != null && extensions.contains("GL_OES_vertex_half_float")) {
+            return GL_HALF_FLOAT_OES;
+        }
+        return GLES20.GL_FLOAT;
+    }
+
+    /**
+     * 部分GPU读取不是4字节对齐的属性会变慢，每个属性按4字节对齐
+     */
+    private static int align(int bytes) {
+        return (bytes + 3) & ~3;
+    }
+
+    private static class Attribute {
+        final String mName;
+        final int mSize;
+        final int mType;
+        final boolean mNormalized;
+        final int mOffset;
+
+        Attribute(String name, int size, int type, boolean normalized, int offset) {
+            mName = name;
+            mSize = size;
+            mType = type;
+            mNormalized = normalized;
+            mOffset = offset;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 把按属性分开存放的顶点数组按 {@link VertexLayout} 交错打包到一个缓冲区，
+ * 每个顶点的所有属性连续存放，绘制时只需要读取一个数据流。
+ * <p>
+ * 属性可以压缩成较小的类型：颜色用归一化的 GL_UNSIGNED_BYTE，纹理坐标用归一化的 GL_UNSIGNED_SHORT，
+ * 位置用半精度浮点或归一化的 GL_SHORT。整数类型超出范围的值会被截断，
+ * 量化误差的上限见 {@link VertexLayout#getErrorBound(int, float)}，实际误差可以用 {@link #maxError} 计算。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class VertexPacker {
+
+    private VertexPacker() {
+    }
+
+    /**
+     * @param attributes 每个属性一个数组，顺序和 layout 中的属性一致，顶点个数由第一个数组决定
+     * @return 本机字节序的直接缓冲区，position 为0
+     */
+    public static ByteBuffer pack(VertexLayout layout, float[]... attributes) {
+        int vertexCount = vertexCount(layout, attributes);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(vertexCount * layout.getStride())
+                .order(ByteOrder.nativeOrder());
+        pack(layout, attributes, buffer, vertexCount);
+        return buffer;
+    }
+
+    /**
+     * 打包到已有的缓冲区，从缓冲区的 position 开始写入，写完后 position 不变
+     */
+    public static void pack(VertexLayout layout, float[][] attributes, ByteBuffer buffer, int vertexCount) {
+        int base = buffer.position();
+        int stride = layout.getStride();
+        for (int a = 0; a < layout.getAttributeCount(); a++) {
+            int size = layout.getSize(a);
+            int type = layout.getType(a);
+            boolean normalized = layout.isNormalized(a);
+            int componentBytes = VertexLayout.bytesPerComponent(type);
+            float[] data = attributes[a];
+            int offset = base + layout.getOffset(a);
+            for (int v = 0; v < vertexCount; v++) {
+                int position = offset + v * stride;
+                for (int c = 0; c < size; c++) {
+                    putComponent(buffer, position, type, normalized, data[v * size + c]);
+                    position += componentBytes;
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查每个属性数组的长度都和顶点个数一致
+     */
+    static int vertexCount(VertexLayout layout, float[][] attributes) {
+        if (attributes.length != layout.getAttributeCount()) {
+            throw new IllegalArgumentException("expected " + layout.getAttributeCount()
+                    + " attribute arrays, got " + attributes.length);
+        }
+        int vertexCount = attributes[0].length / layout.getSize(0);
+        for (int a = 0; a < attributes.length; a++) {
+            if (attributes[a].length != vertexCount * layout.getSize(a)) {
+                throw new IllegalArgumentException("attribute " + layout.getName(a) + " has "
+                        + attributes[a].length + " values, expected " + vertexCount * layout.getSize(a));
+            }
+        }
+        return vertexCount;
+    }
+
+    /**
+     * 计算每个属性打包后再按GL的规则还原时的最大绝对误差
+     */
+    public static float[] maxError(VertexLayout layout, float[]... attributes) {
+        vertexCount(layout, attributes);
+        float[] errors = new float[attributes.length];
+        for (int a = 0; a < attributes.length; a++) {
+            int type = layout.getType(a);
+            boolean normalized = layout.isNormalized(a);
+            for (float value : attributes[a]) {
+                float error = Math.abs(quantize(type, normalized, value) - value);
+                errors[a] = Math.max(errors[a], error);
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * 按指定类型存储后GPU读到的值
+     */
+    public static float quantize(int type, boolean normalized, float value) {
+        switch (type) {
+            case GLES20.GL_FLOAT:
+                return value;
+            case VertexLayout.GL_HALF_FLOAT:
+            case VertexLayout.GL_HALF_FLOAT_OES:
+                return halfToFloat(floatToHalf(value));
+            case GLES20.GL_FIXED:
+                return Math.round(value * 65536) / 65536f;
+            default:
+                return fromInteger(type, normalized, toInteger(type, normalized, value));
+        }
+    }
+
+    private static void putComponent(ByteBuffer buffer, int position, int type, boolean normalized, float value) {
+        switch (type) {
+            case GLES20.GL_FLOAT:
+                buffer.putFloat(position, value);
+                break;
+            case VertexLayout.GL_HALF_FLOAT:
+            case VertexLayout.GL_HALF_FLOAT_OES:
+                buffer.putShort(position, floatToHalf(value));
+                break;
+            case GLES20.GL_FIXED:
+                buffer.putInt(position, Math.round(value * 65536));
+                break;
+            case GLES20.GL_BYTE:
+            case GLES20.GL_UNSIGNED_BYTE:
+                buffer.put(position, (byte) toInteger(type, normalized, value));
+                break;
+            case GLES20.GL_SHORT:
+            case GLES20.GL_UNSIGNED_SHORT:
+                buffer.putShort(position, (short) toInteger(type, normalized, value));
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported vertex type: 0x" + Integer.toHexString(type));
+        }
+    }
+
+    /**
+     * 归一化时有符号类型按 c = round(f * (2^(b-1) - 1)) 编码，-1 和 1 都能精确表示，
+     * 无符号类型按 c = round(f * (2^b - 1)) 编码；不归一化时四舍五入取整。超出范围的值截断
+     */
+    private static int toInteger(int type, boolean normalized, float value) {
+        int min;
+        int max;
+        switch (type) {
+            case GLES20.GL_BYTE:
+                min = -128;
+                max = 127;
+                break;
+            case GLES20.GL_UNSIGNED_BYTE:
+                min = 0;
+                max = 255;
+                break;
+            case GLES20.GL_SHORT:
+                min = -32768;
+                max = 32767;
+                break;
+            case GLES20.GL_UNSIGNED_SHORT:
+                min = 0;
+                max = 65535;
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported vertex type: 0x" + Integer.toHexString(type));
+        }
+        float scaled = normalized ? value * max : value;
+        int code = Math.round(scaled);
+        if (normalized && min < 0) {
+            //-1 编码为 -max，不使用最小值，两种还原公式下都在误差范围内
+            min = -max;
+        }
+        return Math.max(min, Math.min(max, code));
+    }
+
+    private static float fromInteger(int type, boolean normalized, int code) {
+        if (!normalized) {
+            return code;
+        }
+        switch (type) {
+            case GLES20.GL_BYTE:
+                return Math.max(code / 127f, -1f);
+            case GLES20.GL_UNSIGNED_BYTE:
+                return code / 255f;
+            case GLES20.GL_SHORT:
+                return Math.max(code / 32767f, -1f);
+            default:
+                return code / 65535f;
+        }
+    }
+
+    /**
+     * float 转半精度浮点，就近舍入到偶数，超出范围变为无穷大，过小的值变为0
+     */
+    static short floatToHalf(float value) {
+        int bits = Float.floatToIntBits(value);
+        int sign = (bits >>> 16) & 0x8000;
+        int exponent = (bits >>> 23) & 0xff;
+        int mantissa = bits & 0x7fffff;
+        if (exponent == 0xff) {
+            //无穷大和NaN
+            return (short) (sign | 0x7c00 | (mantissa != 0 ? 0x200 : 0));
+        }
+        int e = exponent - 127 + 15;
+        if (e >= 0x1f) {
+            return (short) (sign | 0x7c00);
+        }
+        if (e <= 0) {
+            if (e < -10) {
+                return (short) sign;
+            }
+            //非规格化数，补上隐含的最高位后右移
+            mantissa |= 0x800000;
+            int shift = 14 - e;
+            int half = mantissa >> shift;
+            int rest = mantissa & ((1 << shift) - 1);
+            int halfway = 1 << (shift - 1);
+            if (rest > halfway || (rest == halfway && (half & 1) != 0)) {
+                half++;
+            }
+            return (short) (sign | half);
+        }
+        int half = (e << 10) | (mantissa >> 13);
+        int rest = mantissa & 0x1fff;
+        //进位可能进到指数位，结果仍然正确
+        if (rest > 0x1000 || (rest == 0x1000 && (half & 1) != 0)) {
+            half++;
+        }
+        return (short) (sign | half);
+    }
+
+    static float halfToFloat(short half) {
+        int h = half & 0xffff;
+        int sign = (h & 0x8000) << 16;
+        int exponent = (h >>> 10) & 0x1f;
+        int mantissa = h & 0x3ff;
+        if (exponent == 0) {
+            float value = mantissa / (float) (1 << 24);
+            return sign != 0 ? -value : value;
+        }
+        if (exponent == 0x1f) {
+            return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+        }
+        return Float.intBitsToFloat(sign | ((exponent - 15 + 127) << 23) | (mantissa << 13));
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.opengl.queue;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.utils.GLProgram;
+
+import java.util.Arrays;
+
+/**
+ * 录制好的一帧GL命令，存放在两个扁平的基本类型数组里：操作码和整数参数连续写在 int 数组里，
+ * 矩阵等浮点数据写在 float 数组里，命令里只记录偏移。录制不调用任何GL函数，可以在工作线程进行，
+ * 之后在GL线程用 {@link #execute(GL, Drawable[])} 顺序执行。
+ * <p>
+ * 需要GL对象（网格、纹理等）自己完成的绘制通过 {@link Drawable} 的编号引用，编号到对象的映射由执行方提供。
+ * 程序和 uniform 记录 {@link GLProgram} 和 {@link GLProgram.Uniform} 句柄，执行时通过句柄设置，
+ * 和直接使用句柄的代码共用同一份 uniform 值缓存，不会因为缓存过期而漏掉上传。
+ * {@link #reset()} 后数组保留，容量稳定后录制不分配内存。同一时间只能有一个线程使用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class CommandList {
+
+    /**
+     * 由GL线程持有的绘制对象，命令里只记录它的编号
+     */
+    public interface Drawable {
+        /**
+         * @param data   命令列表的浮点数据
+         * @param offset 这条命令的数据在 data 中的偏移
+         * @param count  这条命令的个数参数，含义由绘制对象决定，例如实例个数
+         */
+        void draw(GL gl, float[] data, int offset, int count);
+    }
+
+    static final int OP_CLEAR = 1;
+    static final int OP_USE_PROGRAM = 2;
+    static final int OP_BIND_TEXTURE = 3;
+    static final int OP_UNIFORM_MATRIX4 = 4;
+    static final int OP_DRAW_ARRAYS = 5;
+    static final int OP_DRAW_ELEMENTS = 6;
+    static final int OP_DRAW = 7;
+
+    private int[] mOps;
+    private float[] mFloats;
+    /**
+     * 程序和 uniform 句柄，命令里记录下标
+     */
+    private Object[] mObjects = new Object[8];
+    private int mObjectSize;
+    private int mOpSize;
+    private int mFloatSize;
+    private int mCommandCount;
+
+    public CommandList() {
+        this(256, 1024);
+    }
+
+    /**
+     * @param intCapacity   预先分配的操作码和整数参数个数
+     * @param floatCapacity 预先分配的浮点数据个数
+     */
+    public CommandList(int intCapacity, int floatCapacity) {
+        mOps = new int[Math.max(4, intCapacity)];
+        mFloats = new float[Math.max(16, floatCapacity)];
+    }
+
+    /**
+     * 清空命令，开始录制新的一帧
+     */
+    public void reset() {
+        mOpSize = 0;
+        mFloatSize = 0;
+        //不再引用上一帧的句柄
+        Arrays.fill(mObjects, 0, mObjectSize, null);
+        mObjectSize = 0;
+        mCommandCount = 0;
+    }
+
+    public void clear(int mask) {
+        put(OP_CLEAR, mask);
+    }
+
+    public void useProgram(GLProgram program) {
+        put(OP_USE_PROGRAM, putObject(program));
+    }
+
+    public void bindTexture(int target, int texture) {
+        put(OP_BIND_TEXTURE, target, texture);
+    }
+
+    /**
+     * 设置 mat4 uniform，矩阵复制到命令列表里，之后修改 matrices 不影响已经录制的命令。
+     * 执行时和 uniform 缓存的值相同时跳过上传
+     */
+    public void uniformMatrix4fv(GLProgram.Uniform uniform, int count, float[] matrices, int offset) {
+        int floatOffset = putFloats(matrices, offset, count * 16);
+        put(OP_UNIFORM_MATRIX4, putObject(uniform), count, floatOffset);
+    }
+
+    public void drawArrays(int mode, int first, int count) {
+        put(OP_DRAW_ARRAYS, mode, first, count);
+    }
+
+    /**
+     * 用当前绑定的 GL_UNSIGNED_SHORT 索引缓冲区绘制
+     *
+     * @param offset 索引缓冲区中的字节偏移
+     */
+    public void drawElements(int mode, int count, int offset) {
+        put(OP_DRAW_ELEMENTS, mode, count, offset);
+    }
+
+    /**
+     * 由编号为 drawable 的对象绘制
+     *
+     * @param floatOffset 用 {@link #allocFloats(int)} 或 {@link #putFloats(float[], int, int)} 得到的数据偏移
+     */
+    public void draw(int drawable, int floatOffset, int count) {
+        put(OP_DRAW, drawable, floatOffset, count);
+    }
+
+    /**
+     * 在浮点数据里预留 count 个位置，调用方直接写入 {@link #getFloats()} 的返回值，省掉一次复制
+     *
+     * @return 预留位置的偏移
+     */
+    public int allocFloats(int count) {
+        int offset = mFloatSize;
+        if (offset + count > mFloats.length) {
+            mFloats = Arrays.copyOf(mFloats, Math.max(offset + count, mFloats.length * 2));
+        }
+        mFloatSize += count;
+        return offset;
+    }
+
+    /**
+     * 复制浮点数据到命令列表里
+     *
+     * @return 数据的偏移
+     */
+    public int putFloats(float[] src, int offset, int count) {
+        int floatOffset = allocFloats(count);
+        System.arraycopy(src, offset, mFloats, floatOffset, count);
+        return floatOffset;
+    }
+
+    /**
+     * 浮点数据数组，{@link #allocFloats(int)} 扩容后会换成新的数组，需要重新获取
+     */
+    public float[] getFloats() {
+        return mFloats;
+    }
+
+    public int getCommandCount() {
+        return mCommandCount;
+    }
+
+    /**
+     * 录制的数据占用的字节数
+     */
+    public int getByteCount() {
+        return (mOpSize + mFloatSize) * 4;
+    }
+
+    /**
+     * 按录制顺序执行
+     *
+     * @param drawables {@link #draw(int, int, int)} 引用的绘制对象，按编号存放
+     */
+    public void execute(GL gl, Drawable[] drawables) {
+        int[] ops = mOps;
+        float[] floats = mFloats;
+        Object[] objects = mObjects;
+        int p = 0;
+        while (p < mOpSize) {
+            switch (ops[p]) {
+                case OP_CLEAR:
+                    gl.glClear(ops[p + 1]);
+                    p += 2;
+                    break;
+                case OP_USE_PROGRAM:
+                    ((GLProgram) objects[ops[p + 1]]).use();
+                    p += 2;
+                    break;
+                case OP_BIND_TEXTURE:
+                    gl.glBindTexture(ops[p + 1], ops[p + 2]);
+                    p += 3;
+                    break;
+                case OP_UNIFORM_MATRIX4:
+                    ((GLProgram.Uniform) objects[ops[p + 1]]).setMatrix4fv(floats, ops[p + 3], ops[p + 2]);
+                    p += 4;
+                    break;
+                case OP_DRAW_ARRAYS:
+                    gl.glDrawArrays(ops[p + 1], ops[p + 2], ops[p + 3]);
+                    p += 4;
+                    break;
+                case OP_DRAW_ELEMENTS:
+                    gl.glDrawElements(ops[p + 1], ops[p + 2], GLES20.GL_UNSIGNED_SHORT, ops[p + 3]);
+                    p += 4;
+                    break;
+                case OP_DRAW:
+                    drawables[ops[p + 1]].draw(gl, floats, ops[p + 2], ops[p + 3]);
+                    p += 4;
+                    break;
+                default:
+                    throw new IllegalStateException("bad command " + ops[p] + " at " + p);
+            }
+        }
+    }
+
+    private int putObject(Object object) {
+        if (mObjectSize == mObjects.length) {
+            mObjects = Arrays.copyOf(mObjects, mObjects.length * 2);
+        }
+        mObjects[mObjectSize] = object;
+        return mObjectSize++;
+    }
+
+    private void put(int op, int a) {
+        int p = reserve(2);
+        mOps[p] = op;
+        mOps[p + 1] = a;
+    }
+
+    private void put(int op, int a, int b) {
+        int p = reserve(3);
+        mOps[p] = op;
+        mOps[p + 1] = a;
+        mOps[p + 2] = b;
+    }
+
+    private void put(int op, int a, int b, int c) {
+        int p = reserve(4);
+        mOps[p] = op;
+        mOps[p + 1] = a;
+        mOps[p + 2] = b;
+        mOps[p + 3] = c;
+    }
+
+    private int reserve(int size) {
+        int p = mOpSize;
+        if (p + size > mOps.length) {
+            mOps = Arrays.copyOf(mOps, Math.max(p + size, mOps.length * 2));
+        }
+        mOpSize += size;
+        mCommandCount++;
+        return p;
+    }
+}
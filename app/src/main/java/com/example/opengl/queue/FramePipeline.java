@@ -0,0 +1,370 @@
+package com.example.opengl.queue;
+
+import com.example.gles.GL;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 把一帧的准备和提交分到不同的线程：工作线程更新场景并把下一帧录制成 {@link CommandList}，
+ * GL线程同时执行上一次录制好的命令，onDrawFrame 里只剩下GL调用。
+ * <p>
+ * 两份帧数据轮流使用：GL线程拿到录制好的一帧后，立刻让工作线程往另一份里录制下一帧，然后执行拿到的这一帧。
+ * 录制完成的帧通过 {@link AtomicReference} 交给GL线程，不使用锁；
+ * 一帧可以拆成几部分在多个工作线程上并行录制，最后完成的那部分负责交出整帧，执行时按部分的顺序执行。
+ * <p>
+ * 工作线程还没录制完时，默认GL线程等待；{@link #setDropLateFrames(boolean)} 后不等待，重新执行上一帧的命令。
+ * 所有方法只能在GL线程调用，{@link FrameBuilder} 的方法在工作线程调用，
+ * 同一时间只有一帧在录制，场景数据只由工作线程访问时不需要同步。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class FramePipeline {
+
+    /**
+     * 在工作线程上准备一帧
+     */
+    public interface FrameBuilder {
+        /**
+         * 更新场景，每帧调用一次，在这一帧所有的 {@link #record} 之前
+         */
+        void update(long frame);
+
+        /**
+         * 录制这一帧的第 part 部分，各部分在不同线程上同时调用
+         *
+         * @param list 已经清空的命令列表
+         */
+        void record(long frame, int part, int partCount, CommandList list);
+    }
+
+    private final FrameBuilder mBuilder;
+    private final int mPartCount;
+    private final Frame[] mFrames = new Frame[2];
+    private final AtomicReference<Frame> mReady = new AtomicReference<>();
+    private volatile Throwable mFailure;
+    private volatile Thread mGLThread;
+
+    private Executor mExecutor;
+    private ExecutorService mOwnExecutor;
+    private CommandList.Drawable[] mDrawables = new CommandList.Drawable[4];
+    private boolean mDropLateFrames;
+
+    private Frame mCurrent;
+    private boolean mRecording;
+    private long mFrameNumber;
+
+    private long mLastGLNanos;
+    private long mLastWaitNanos;
+    private long mLastWorkerNanos;
+    private long mLastWorkerWallNanos;
+    private int mLateFrames;
+    private int mInvalidateCount;
+    private int mFrameCount;
+
+    /**
+     * 使用自己创建的 partCount 个工作线程
+     */
+    public FramePipeline(FrameBuilder builder, int partCount) {
+        this(builder, partCount, null);
+    }
+
+    /**
+     * @param partCount 每帧拆成几部分录制
+     * @param executor  运行录制任务的线程池，为 null 时创建 partCount 个守护线程
+     */
+    public FramePipeline(FrameBuilder builder, int partCount, Executor executor) {
+        if (partCount < 1) {
+            throw new IllegalArgumentException("partCount must be positive: " + partCount);
+        }
+        mBuilder = builder;
+        mPartCount = partCount;
+        mExecutor = executor;
+        mFrames[0] = new Frame();
+        mFrames[1] = new Frame();
+    }
+
+    /**
+     * 设置编号为 handle 的绘制对象，命令列表里的 {@link CommandList#draw(int, int, int)} 引用它
+     */
+    public void setDrawable(int handle, CommandList.Drawable drawable) {
+        if (handle >= mDrawables.length) {
+            mDrawables = Arrays.copyOf(mDrawables, Math.max(handle + 1, mDrawables.length * 2));
+        }
+        mDrawables[handle] = drawable;
+    }
+
+    /**
+     * @param drop 为 true 时工作线程来不及就重新执行上一帧，不阻塞GL线程
+     */
+    public void setDropLateFrames(boolean drop) {
+        mDropLateFrames = drop;
+    }
+
+    /**
+     * 在 onDrawFrame 里调用：取出录制好的一帧，开始录制下一帧，然后执行取出的这一帧
+     */
+    public void drawFrame(GL gl) {
+        long start = System.nanoTime();
+        boolean mustWait = false;
+        if (!mRecording) {
+            //第一帧或者调用过 invalidate，没有可以用的录制，只能等这一帧录制完
+            startRecording(other(mCurrent));
+            mustWait = true;
+        }
+        Frame ready = mReady.getAndSet(null);
+        if (ready == null && (mustWait || mCurrent == null || !mDropLateFrames)) {
+            ready = await();
+        }
+        long waited = System.nanoTime() - start;
+        if (ready != null) {
+            mRecording = false;
+            mCurrent = ready;
+            mLastWorkerNanos = ready.mWorkerNanos.get();
+            mLastWorkerWallNanos = ready.mEndNanos - ready.mStartNanos;
+            //上一帧已经执行完，它的命令列表可以用来录制下一帧
+            startRecording(other(ready));
+        } else {
+            mLateFrames++;
+        }
+
+        long executeStart = System.nanoTime();
+        for (CommandList list : mCurrent.mLists) {
+            list.execute(gl, mDrawables);
+        }
+        mLastGLNanos = System.nanoTime() - executeStart;
+        mLastWaitNanos = waited;
+        mFrameCount++;
+    }
+
+    /**
+     * 丢掉已经开始录制的下一帧，下一次 {@link #drawFrame(GL)} 等待重新录制的一帧。
+     * GL线程拿到了要在这一帧画出来的新数据（例如触摸输入）时调用，这一帧录制和执行不再重叠。
+     * 返回后工作线程没有在录制，GL线程可以修改录制要读的数据
+     */
+    public void invalidate() {
+        if (!mRecording) {
+            return;
+        }
+        Frame discarded = mReady.getAndSet(null);
+        if (discarded == null) {
+            await();
+        }
+        mRecording = false;
+        mInvalidateCount++;
+    }
+
+    private Frame other(Frame frame) {
+        return frame == mFrames[0] ? mFrames[1] : mFrames[0];
+    }
+
+    private Frame await() {
+        mGLThread = Thread.currentThread();
+        Frame ready;
+        while ((ready = mReady.getAndSet(null)) == null) {
+            checkFailure();
+            //工作线程交出一帧后会唤醒GL线程，超时只是保险
+            LockSupport.parkNanos(this, 1000000L);
+        }
+        return ready;
+    }
+
+    private void checkFailure() {
+        Throwable failure = mFailure;
+        if (failure != null) {
+            throw new IllegalStateException("frame recording failed", failure);
+        }
+    }
+
+    private void startRecording(Frame frame) {
+        checkFailure();
+        frame.mNumber = ++mFrameNumber;
+        frame.mRemaining.set(mPartCount);
+        frame.mWorkerNanos.set(0);
+        mRecording = true;
+        frame.mExecutor = getExecutor();
+        frame.mExecutor.execute(frame.mUpdate);
+    }
+
+    /**
+     * 上一帧GL线程执行命令的时间，不含等待
+     */
+    public long getLastGLNanos() {
+        return mLastGLNanos;
+    }
+
+    /**
+     * 上一帧GL线程等待工作线程的时间
+     */
+    public long getLastWaitNanos() {
+        return mLastWaitNanos;
+    }
+
+    /**
+     * 最近一次拿到的帧在工作线程上花的时间，各部分相加
+     */
+    public long getLastWorkerNanos() {
+        return mLastWorkerNanos;
+    }
+
+    /**
+     * 最近一次拿到的帧从开始更新到最后一部分录制完的时间
+     */
+    public long getLastWorkerWallNanos() {
+        return mLastWorkerWallNanos;
+    }
+
+    /**
+     * 工作线程来不及、重新执行上一帧的次数
+     */
+    public int getLateFrameCount() {
+        return mLateFrames;
+    }
+
+    /**
+     * 调用 {@link #invalidate()} 丢掉录制的次数
+     */
+    public int getInvalidateCount() {
+        return mInvalidateCount;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * 最近一次执行的命令列表
+     */
+    public CommandList getCurrentList(int part) {
+        return mCurrent != null ? mCurrent.mLists[part] : null;
+    }
+
+    public String getReport() {
+        int commands = 0;
+        int bytes = 0;
+        if (mCurrent != null) {
+            for (CommandList list : mCurrent.mLists) {
+                commands += list.getCommandCount();
+                bytes += list.getByteCount();
+            }
+        }
+        return String.format("gl %.3f ms (wait %.3f ms), worker %.3f ms cpu / %.3f ms wall in %d parts, "
+                        + "%d commands %dB, %d late, %d invalidated of %d frames",
+                mLastGLNanos / 1e6, mLastWaitNanos / 1e6, mLastWorkerNanos / 1e6, mLastWorkerWallNanos / 1e6,
+                mPartCount, commands, bytes, mLateFrames, mInvalidateCount, mFrameCount);
+    }
+
+    /**
+     * 关闭自己创建的工作线程，已经开始的录制会继续完成
+     */
+    public void release() {
+        if (mOwnExecutor != null) {
+            mOwnExecutor.shutdown();
+            mOwnExecutor = null;
+            mExecutor = null;
+        }
+    }
+
+    private Executor getExecutor() {
+        if (mExecutor == null) {
+            mOwnExecutor = Executors.newFixedThreadPool(mPartCount, new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "FramePipeline-" + mCount++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            mExecutor = mOwnExecutor;
+        }
+        return mExecutor;
+    }
+
+    /**
+     * 一份帧数据：每部分一个命令列表，以及预先创建好的录制任务
+     */
+    private class Frame {
+        final CommandList[] mLists = new CommandList[mPartCount];
+        final Runnable[] mParts = new Runnable[mPartCount];
+        final Runnable mUpdate;
+        final AtomicInteger mRemaining = new AtomicInteger();
+        final AtomicLong mWorkerNanos = new AtomicLong();
+        /**
+         * 由开始录制前的 execute 和交出时的 AtomicReference 保证可见性
+         */
+        long mNumber;
+        Executor mExecutor;
+        long mStartNanos;
+        long mEndNanos;
+
+        Frame() {
+            for (int i = 0; i < mPartCount; i++) {
+                mLists[i] = new CommandList();
+                final int part = i;
+                mParts[i] = new Runnable() {
+                    @Override
+                    public void run() {
+                        record(part);
+                    }
+                };
+            }
+            mUpdate = new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    mStartNanos = start;
+                    try {
+                        mBuilder.update(mNumber);
+                    } catch (Throwable t) {
+                        mFailure = t;
+                        return;
+                    }
+                    mWorkerNanos.addAndGet(System.nanoTime() - start);
+                    //其他部分交给线程池，第0部分在当前线程录制
+                    for (int i = 1; i < mPartCount; i++) {
+                        try {
+                            mExecutor.execute(mParts[i]);
+                        } catch (RejectedExecutionException e) {
+                            //录制过程中线程池被关闭，剩下的部分在当前线程完成
+                            record(i);
+                        }
+                    }
+                    record(0);
+                }
+            };
+        }
+
+        void record(int part) {
+            long start = System.nanoTime();
+            CommandList list = mLists[part];
+            list.reset();
+            try {
+                mBuilder.record(mNumber, part, mPartCount, list);
+            } catch (Throwable t) {
+                mFailure = t;
+                return;
+            }
+            long end = System.nanoTime();
+            mWorkerNanos.addAndGet(end - start);
+            if (mRemaining.decrementAndGet() == 0) {
+                mEndNanos = end;
+                mReady.set(this);
+                Thread glThread = mGLThread;
+                if (glThread != null) {
+                    LockSupport.unpark(glThread);
+                }
+            }
+        }
+    }
+}
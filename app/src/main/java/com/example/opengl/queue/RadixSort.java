@@ -0,0 +1,102 @@
+package com.example.opengl.queue;
+
+import java.util.Arrays;
+
+/**
+ * 64位无符号键的LSD基数排序，每趟按一个字节分桶，最多8趟，排序是稳定的。
+ * 所有键在某个字节上都相同时跳过这一趟，排序键里没用到的位不花时间。
+ * <p>
+ * 临时数组保存在实例里，容量够用时排序不分配内存；不是线程安全的。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class RadixSort {
+
+    private static final int RADIX_BITS = 8;
+    private static final int BUCKETS = 1 << RADIX_BITS;
+    private static final int PASSES = 64 / RADIX_BITS;
+
+    private final int[] mCounts = new int[PASSES * BUCKETS];
+    private long[] mKeyScratch = new long[0];
+    private int[] mValueScratch = new int[0];
+    private int mLastPassCount;
+
+    public RadixSort() {
+    }
+
+    /**
+     * @param capacity 预先分配的元素个数
+     */
+    public RadixSort(int capacity) {
+        ensureCapacity(capacity);
+    }
+
+    public void ensureCapacity(int capacity) {
+        if (mKeyScratch.length < capacity) {
+            mKeyScratch = new long[capacity];
+            mValueScratch = new int[capacity];
+        }
+    }
+
+    /**
+     * 按键排序前 count 个元素，值跟着键一起移动，结果写回原数组
+     */
+    public void sort(long[] keys, int[] values, int count) {
+        ensureCapacity(count);
+        int[] counts = mCounts;
+        Arrays.fill(counts, 0);
+        //一次遍历统计所有字节的直方图
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < PASSES; pass++) {
+                counts[pass * BUCKETS + (int) ((key >>> (pass * RADIX_BITS)) & (BUCKETS - 1))]++;
+            }
+        }
+        long[] srcKeys = keys;
+        int[] srcValues = values;
+        long[] dstKeys = mKeyScratch;
+        int[] dstValues = mValueScratch;
+        int passes = 0;
+        for (int pass = 0; pass < PASSES; pass++) {
+            int base = pass * BUCKETS;
+            int shift = pass * RADIX_BITS;
+            //所有键这个字节都相同，顺序不会变
+            if (count == 0 || counts[base + (int) ((srcKeys[0] >>> shift) & (BUCKETS - 1))] == count) {
+                continue;
+            }
+            //直方图转成每个桶的起始位置
+            int sum = 0;
+            for (int b = 0; b < BUCKETS; b++) {
+                int c = counts[base + b];
+                counts[base + b] = sum;
+                sum += c;
+            }
+            for (int i = 0; i < count; i++) {
+                long key = srcKeys[i];
+                int position = counts[base + (int) ((key >>> shift) & (BUCKETS - 1))]++;
+                dstKeys[position] = key;
+                dstValues[position] = srcValues[i];
+            }
+            long[] k = srcKeys;
+            srcKeys = dstKeys;
+            dstKeys = k;
+            int[] v = srcValues;
+            srcValues = dstValues;
+            dstValues = v;
+            passes++;
+        }
+        if (srcKeys != keys) {
+            System.arraycopy(srcKeys, 0, keys, 0, count);
+            System.arraycopy(srcValues, 0, values, 0, count);
+        }
+        mLastPassCount = passes;
+    }
+
+    /**
+     * 上一次排序实际执行的趟数
+     */
+    public int getLastPassCount() {
+        return mLastPassCount;
+    }
+}
@@ -0,0 +1,196 @@
+package com.example.opengl.queue;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+
+import java.util.Arrays;
+
+/**
+ * 一帧的绘制命令先提交到队列，每条带一个 {@link SortKey} 生成的64位排序键，
+ * {@link #sort()} 用基数排序按键重排后再 {@link #execute(GL)}，绘制顺序不再取决于代码的书写顺序：
+ * 不透明的按程序、纹理分组并从近到远，半透明的在后面从远到近。
+ * <p>
+ * 队列只负责不透明和半透明之间的混合和深度写入状态：进入半透明部分时开启
+ * {@code glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA)} 混合并关闭深度写入，执行完恢复。
+ * 程序和纹理由命令自己绑定，配合 StateTrackingGL 时相同的绑定会被去掉。
+ * <p>
+ * 排序时统计提交顺序和排序后顺序各需要多少次程序、纹理、混合状态的切换，用于比较排序的效果。
+ * 数组按两倍扩容，容量稳定后每帧不分配内存。只能在GL线程使用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class RenderQueue {
+
+    /**
+     * 一条绘制命令，执行时绑定需要的程序、纹理并发出绘制调用
+     */
+    public interface Command {
+        void execute(GL gl);
+    }
+
+    private long[] mKeys;
+    private int[] mOrder;
+    private Command[] mCommands;
+    private int mCount;
+    private boolean mSorted;
+    private final RadixSort mSort;
+
+    private int mLastCount;
+    private int mLastUnsortedStateChanges;
+    private int mLastSortedStateChanges;
+
+    public RenderQueue() {
+        this(256);
+    }
+
+    /**
+     * @param capacity 预先分配的命令个数
+     */
+    public RenderQueue(int capacity) {
+        capacity = Math.max(1, capacity);
+        mKeys = new long[capacity];
+        mOrder = new int[capacity];
+        mCommands = new Command[capacity];
+        mSort = new RadixSort(capacity);
+    }
+
+    /**
+     * 提交一条命令，同一个命令对象可以用不同的键提交多次
+     */
+    public void submit(long key, Command command) {
+        if (mCount == mKeys.length) {
+            int capacity = mCount * 2;
+            mKeys = Arrays.copyOf(mKeys, capacity);
+            mOrder = Arrays.copyOf(mOrder, capacity);
+            mCommands = Arrays.copyOf(mCommands, capacity);
+        }
+        mKeys[mCount] = key;
+        mOrder[mCount] = mCount;
+        mCommands[mCount] = command;
+        mCount++;
+        mSorted = false;
+    }
+
+    /**
+     * 按键排序，键相同的命令保持提交顺序
+     */
+    public void sort() {
+        mLastCount = mCount;
+        mLastUnsortedStateChanges = countStateChanges(mKeys, mCount);
+        mSort.sort(mKeys, mOrder, mCount);
+        mLastSortedStateChanges = countStateChanges(mKeys, mCount);
+        mSorted = true;
+    }
+
+    /**
+     * 按排序后的顺序执行所有命令，没有排序时按提交顺序执行
+     */
+    public void execute(GL gl) {
+        boolean blending = false;
+        for (int i = 0; i < mCount; i++) {
+            boolean translucent = SortKey.isTranslucent(mKeys[i]);
+            if (translucent != blending) {
+                setBlending(gl, translucent);
+                blending = translucent;
+            }
+            mCommands[mOrder[i]].execute(gl);
+        }
+        if (blending) {
+            setBlending(gl, false);
+        }
+    }
+
+    private static void setBlending(GL gl, boolean translucent) {
+        if (translucent) {
+            gl.glEnable(GLES20.GL_BLEND);
+            gl.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+            gl.glDepthMask(false);
+        } else {
+            gl.glDisable(GLES20.GL_BLEND);
+            gl.glDepthMask(true);
+        }
+    }
+
+    /**
+     * 清空队列，开始下一帧的提交
+     */
+    public void clear() {
+        //不再持有上一帧的命令对象
+        Arrays.fill(mCommands, 0, mCount, null);
+        mCount = 0;
+        mSorted = false;
+    }
+
+    public int size() {
+        return mCount;
+    }
+
+    public boolean isSorted() {
+        return mSorted;
+    }
+
+    /**
+     * 第 index 条命令的键，排序后是排序后的顺序
+     */
+    public long getKey(int index) {
+        return mKeys[index];
+    }
+
+    /**
+     * 第 index 条命令，排序后是排序后的顺序
+     */
+    public Command getCommand(int index) {
+        return mCommands[mOrder[index]];
+    }
+
+    /**
+     * 上一次排序前，按提交顺序执行需要的状态切换次数
+     */
+    public int getLastUnsortedStateChanges() {
+        return mLastUnsortedStateChanges;
+    }
+
+    /**
+     * 上一次排序后需要的状态切换次数
+     */
+    public int getLastSortedStateChanges() {
+        return mLastSortedStateChanges;
+    }
+
+    public String getReport() {
+        return mLastCount + " commands, state changes " + mLastUnsortedStateChanges + " unsorted, "
+                + mLastSortedStateChanges + " sorted, radix passes " + mSort.getLastPassCount();
+    }
+
+    /**
+     * 按顺序执行时程序、纹理和混合状态各切换多少次，第一条命令的绑定也算在内，
+     * 初始状态是没有程序和纹理、不混合
+     */
+    static int countStateChanges(long[] keys, int count) {
+        int changes = 0;
+        int program = -1;
+        int texture = -1;
+        boolean translucent = false;
+        for (int i = 0; i < count; i++) {
+            long key = keys[i];
+            int p = SortKey.program(key);
+            int t = SortKey.texture(key);
+            boolean blend = SortKey.isTranslucent(key);
+            if (p != program) {
+                changes++;
+                program = p;
+            }
+            if (t != texture) {
+                changes++;
+                texture = t;
+            }
+            if (blend != translucent) {
+                changes++;
+                translucent = blend;
+            }
+        }
+        return changes;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.opengl.queue;
+
+/**
+ * 绘制命令的64位排序键，按无符号整数从小到大排序就是提交顺序。从高位到低位：
+ * <pre>
+ *   不透明：层(4) | 0 | 程序(11) | 纹理(12) | 深度(24) | 保留(12)
+ *   半透明：层(4) | 1 | 反转的深度(24) | 程序(11) | 纹理(12) | 保留(12)
+ * </pre>
+ * 同一层里先画不透明的再画半透明的。不透明的按程序、纹理分组，减少状态切换，
+ * 组内从近到远，让深度测试尽早丢掉被挡住的片元；半透明的必须从远到近混合，深度优先于状态。
+ * <p>
+ * 程序和纹理用调用方分配的小编号，不直接使用GL对象名，编号超出范围时抛出异常。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class SortKey {
+
+    public static final int LAYER_BITS = 4;
+    public static final int PROGRAM_BITS = 11;
+    public static final int TEXTURE_BITS = 12;
+    public static final int DEPTH_BITS = 24;
+
+    public static final int MAX_LAYER = (1 << LAYER_BITS) - 1;
+    public static final int MAX_PROGRAM = (1 << PROGRAM_BITS) - 1;
+    public static final int MAX_TEXTURE = (1 << TEXTURE_BITS) - 1;
+    public static final int MAX_DEPTH = (1 << DEPTH_BITS) - 1;
+
+    private static final int RESERVED_BITS = 64 - LAYER_BITS - 1 - PROGRAM_BITS - TEXTURE_BITS - DEPTH_BITS;
+    private static final int LAYER_SHIFT = 64 - LAYER_BITS;
+    private static final int TRANSLUCENT_SHIFT = LAYER_SHIFT - 1;
+
+    private static final int OPAQUE_TEXTURE_SHIFT = RESERVED_BITS + DEPTH_BITS;
+    private static final int OPAQUE_PROGRAM_SHIFT = OPAQUE_TEXTURE_SHIFT + TEXTURE_BITS;
+    private static final int TRANSLUCENT_TEXTURE_SHIFT = RESERVED_BITS;
+    private static final int TRANSLUCENT_PROGRAM_SHIFT = TRANSLUCENT_TEXTURE_SHIFT + TEXTURE_BITS;
+    private static final int TRANSLUCENT_DEPTH_SHIFT = TRANSLUCENT_PROGRAM_SHIFT + PROGRAM_BITS;
+
+    private SortKey() {
+    }
+
+    /**
+     * 不透明物体的键
+     *
+     * @param depth 到相机的距离归一化到 [0,1]，0 最近
+     */
+    public static long opaque(int layer, int program, int texture, float depth) {
+        check(layer, program, texture);
+        return ((long) layer << LAYER_SHIFT)
+                | ((long) program << OPAQUE_PROGRAM_SHIFT)
+                | ((long) texture << OPAQUE_TEXTURE_SHIFT)
+                | ((long) quantizeDepth(depth) << RESERVED_BITS);
+    }
+
+    /**
+     * 半透明物体的键，深度反转后从远到近排序
+     *
+     * @param depth 到相机的距离归一化到 [0,1]，0 最近
+     */
+    public static long translucent(int layer, int program, int texture, float depth) {
+        check(layer, program, texture);
+        return ((long) layer << LAYER_SHIFT)
+                | (1L << TRANSLUCENT_SHIFT)
+                | ((long) (MAX_DEPTH - quantizeDepth(depth)) << TRANSLUCENT_DEPTH_SHIFT)
+                | ((long) program << TRANSLUCENT_PROGRAM_SHIFT)
+                | ((long) texture << TRANSLUCENT_TEXTURE_SHIFT);
+    }
+
+    /**
+     * 把 [0,1] 的深度量化成 24 位，超出范围的截断
+     */
+    public static int quantizeDepth(float depth) {
+        if (!(depth > 0f)) {
+            return 0;
+        }
+        if (depth >= 1f) {
+            return MAX_DEPTH;
+        }
+        return (int) (depth * MAX_DEPTH + 0.5f);
+    }
+
+    public static int layer(long key) {
+        return (int) (key >>> LAYER_SHIFT);
+    }
+
+    public static boolean isTranslucent(long key) {
+        return ((key >>> TRANSLUCENT_SHIFT) & 1) != 0;
+    }
+
+    public static int program(long key) {
+        int shift = isTranslucent(key) ? TRANSLUCENT_PROGRAM_SHIFT : OPAQUE_PROGRAM_SHIFT;
+        return (int) (key >>> shift) & MAX_PROGRAM;
+    }
+
+    public static int texture(long key) {
+        int shift = isTranslucent(key) ? TRANSLUCENT_TEXTURE_SHIFT : OPAQUE_TEXTURE_SHIFT;
+        return (int) (key >>> shift) & MAX_TEXTURE;
+    }
+
+    /**
+     * 量化后的深度，半透明的键已经还原成 0 最近
+     */
+    public static int depth(long key) {
+        if (isTranslucent(key)) {
+            return MAX_DEPTH - ((int) (key >>> TRANSLUCENT_DEPTH_SHIFT) & MAX_DEPTH);
+        }
+        return (int) (key >>> RESERVED_BITS) & MAX_DEPTH;
+    }
+
+    private static void check(int layer, int program, int texture) {
+        if (layer < 0 || layer > MAX_LAYER) {
+            throw new IllegalArgumentException("layer out of range: " + layer);
+        }
+        if (program < 0 || program > MAX_PROGRAM) {
+            throw new IllegalArgumentException("program id out of range: " + program);
+        }
+        if (texture < 0 || texture > MAX_TEXTURE) {
+            throw new IllegalArgumentException("texture id out of range: " + texture);
+        }
+    }
+}
@@ -2,26 +2,39 @@ package com.example.opengl.render;
 
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.Matrix;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.util.ArrayList;
+import android.util.Log;
+
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.geometry.IndexedGeometry;
+import com.example.opengl.geometry.LodSelector;
+import com.example.opengl.geometry.SphereGenerator;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.LodMesh;
+import com.example.opengl.mesh.VertexLayout;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import static com.example.opengl.render.Triangle.COORDS_PER_VERTEX;
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
 
 /**
  * @author majun
  * @date 2020-03-19
  */
 public class BallRender implements GLSurfaceView.Renderer {
-    private static final int NUM_SIDE = 10000;
-    private static final float CIRCLE_RADIUS = 0.5f;
+    private static final String TAG = "BallRender";
+    private static final float BALL_RADIUS = 0.5f;
+    /**
+     * 最高细节级别，二十面体细分5次，20480个三角形
+     */
+    private static final int MAX_LEVEL = 5;
+    /**
+     * 三角形的边在屏幕上不超过的像素数
+     */
+    private static final float MAX_EDGE_PIXELS = 8f;
 
     private final String vertexShaderCode =
             "uniform mat4 vMatrix;" +
@@ -29,11 +42,9 @@ public class BallRender implements GLSurfaceView.Renderer {
                     "attribute vec4 vPosition;" +
                     "void main(){" +
                     "    gl_Position=vMatrix*vPosition;" +
-                    "    if(vPosition.z!=0.0){" +
-                    "        vColor=vec4(0.0,0.0,0.0,1.0);" +
-                    "    }else{" +
-                    "        vColor=vec4(0.9,0.9,0.9,1.0);" +
-                    "    }" +
+                    //球心在原点，位置的方向就是法线，光从相机那一侧照过来
+                    "    float diffuse=max(dot(normalize(vPosition.xyz),normalize(vec3(-0.3,-0.5,-1.0))),0.0);" +
+                    "    vColor=vec4(vec3(0.2+0.7*diffuse),1.0);" +
                     "}";
 
     private final String fragmentShaderCode =
@@ -42,110 +53,82 @@ public class BallRender implements GLSurfaceView.Renderer {
                     "void main() {" +
                     "gl_FragColor = vColor;" +
                     "}";
-    private final int vertexCount;
     /**
-     * 正方体各个点
+     * 从低到高各个细节级别的球
      */
-    private float[] positions;
+    private final IndexedGeometry[] mLevels;
 
-    private int mProgram;
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
-    private FloatBuffer vertexBuffer;
+    private GLProgram mProgram;
+    private GLProgram.Uniform mMatrixUniform;
+    private LodMesh mMesh;
+    private int mViewportHeight;
+    private int mReportedLevel = -1;
     private float[] mProjectMatrix = new float[16];
     private float[] mViewMatrix = new float[16];
     private float[] mMVPMatrix = new float[16];
 
+    private final GL mGL;
+
     public BallRender() {
-        positions = createPositions();
-        vertexCount = positions.length / 3;
+        this(AndroidGL.getInstance());
+    }
+
+    public BallRender(GL gl) {
+        mGL = gl;
+        mLevels = SphereGenerator.icosphereLods(MAX_LEVEL, BALL_RADIUS);
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         //将背景设置为灰色，
-        GLES20.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
+        mGL.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
         //开启深度绘制
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-        //申请底层空间
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                positions.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(positions);
-        vertexBuffer.position(0);
-
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        //创建一个空的OpenGLES程序
-        mProgram = GLES20.glCreateProgram();
-        //将顶点着色器加入到程序
-        GLES20.glAttachShader(mProgram, vertexShader);
-        //将片元着色器加入到程序中
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        //连接到着色器程序
-        GLES20.glLinkProgram(mProgram);
+        mGL.glEnable(GLES20.GL_DEPTH_TEST);
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
+        //链接时就确定好句柄，绘制时不再按名字查询
+        mMatrixUniform = mProgram.uniform("vMatrix");
+        //所有细节级别只在这里上传一次，坐标都在 [-1,1] 内，用归一化的 short 存储
+        if (mMesh != null) {
+            mMesh.release();
+        }
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", COORDS_PER_VERTEX, GLES20.GL_SHORT, true);
+        LodSelector selector = new LodSelector(SphereGenerator.icosphereThresholds(MAX_LEVEL, MAX_EDGE_PIXELS));
+        mMesh = new LodMesh(mGL, mProgram, layout, mLevels, selector, BALL_RADIUS);
+        mReportedLevel = -1;
+        Log.d(TAG, "ball mesh: " + mMesh.getMesh(MAX_LEVEL).getReport());
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
 //计算宽高比
         float ratio = (float) width / height;
+        mViewportHeight = height;
         //设置透视投影
-        Matrix.frustumM(mProjectMatrix, 0, -ratio, ratio, -1, 1, 3, 20);
+        Mat4.frustumM(mProjectMatrix, 0, -ratio, ratio, -1, 1, 3, 20);
         //设置相机位置
-        Matrix.setLookAtM(mViewMatrix, 0, -5.0f, -5.0f, -5.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
+        Mat4.setLookAtM(mViewMatrix, 0, -5.0f, -5.0f, -5.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
         //计算变换矩阵
-        Matrix.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
+        Mat4.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         //将程序加入到OpenGLES2.0环境
-        GLES20.glUseProgram(mProgram);
-
-        //指定vMatrix的值,glGetUniformLocation这个是获取uniform的
-        int mMatrixHandler = GLES20.glGetUniformLocation(mProgram, "vMatrix");
-        GLES20.glUniformMatrix4fv(mMatrixHandler, 1, false, mMVPMatrix, 0);
-
-
-        //获取顶点着色器的vPosition成员句柄
-        int mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        //启用三角形顶点的句柄
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
-        //准备三角形的坐标数据
-        GLES20.glVertexAttribPointer(mPositionHandle, COORDS_PER_VERTEX,
-                GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
+        mProgram.use();
 
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_FAN, 0, vertexCount);
+        //指定vMatrix的值，没有变化时不会重复上传
+        mMatrixUniform.setMatrix4fv(mMVPMatrix, 0);
 
-        //禁止顶点数组的句柄
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
-    }
-
-    private float[] createPositions() {
-        ArrayList<Float> data = new ArrayList<>();
-        //设置圆心坐标
-        data.add(0.0f);
-        data.add(0.0f);
-        //设置高度，形成锥面
-        data.add(1f);
-        float angDegSpan = 360f / NUM_SIDE;
-        for (float i = 0; i < 360 + angDegSpan; i += angDegSpan) {
-            data.add((float) (CIRCLE_RADIUS * Math.sin(i * Math.PI / 180f)));
-            data.add((float) (CIRCLE_RADIUS * Math.cos(i * Math.PI / 180f)));
-            data.add(0.0f);
-        }
-        float[] f = new float[data.size()];
-        for (int i = 0; i < f.length; i++) {
-            f[i] = data.get(i);
+        //按球在屏幕上的大小选择细节级别
+        mMesh.beginFrame();
+        int level = mMesh.draw(mMVPMatrix, 0, mViewportHeight);
+        if (level != mReportedLevel) {
+            mReportedLevel = level;
+            Log.d(TAG, "level changed, last frame " + mMesh.getReport());
         }
-        return f;
     }
 }
@@ -1,29 +1,32 @@
 package com.example.opengl.render;
 
 import android.content.Context;
-import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.GLUtils;
-import android.opengl.Matrix;
+import android.util.Log;
 
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
 import com.example.opengl.R;
-
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.mesh.VertexLayout;
+import com.example.opengl.utils.AsyncTextureLoader;
+import com.example.opengl.utils.BitmapDecoder;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+import com.example.opengl.utils.TextureManager;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
-
 /**
  * @author majun
  * @date 2020-03-22
  */
 public class BitmapRender implements GLSurfaceView.Renderer {
+    private static final String TAG = "BitmapRender";
+
     /**
      * 顶点着色器
      * gl_Position是Shader的内置变量，为定点位置
@@ -128,127 +131,158 @@ public class BitmapRender implements GLSurfaceView.Renderer {
             1.0f, 1.0f,
     };
 
+    /**
+     * 顶点坐标用归一化的 short，纹理坐标用归一化的 unsigned short，每个顶点8字节
+     */
+    private static final VertexLayout LAYOUT = new VertexLayout()
+            .add("vPosition", 2, GLES20.GL_SHORT, true)
+            .add("vCoordinate", 2, GLES20.GL_UNSIGNED_SHORT, true);
+
     private float[] colors = {1f, 1f, 1f};
 
     private Context mContext;
 
 
-    private FloatBuffer positionBuffer;
-    private FloatBuffer mTextureBuffer;
+    private Mesh mQuad;
 
 
-    private int mProgram;
+    private GLProgram mProgram;
     private float[] mProjectMatrix = new float[16];
     private float[] mViewMatrix = new float[16];
     private float[] mMVPMatrix = new float[16];
-    private Bitmap mBitmap;
-    private int glHCoordinate;
-    private int glHTexture;
-    private int glHMatrix;
-    private int glHPosition;
-    private int glHUxy;
-    private int hChangeType;
-    private int hChangeColor;
-    private int hIsHalf;
+    private int mWidth;
+    private int mHeight;
+    /**
+     * 计算投影矩阵时使用的图片宽高，纹理加载完成前按正方形计算
+     */
+    private int mImageWidth = 1;
+    private int mImageHeight = 1;
+    private GLProgram.Uniform glHTexture;
+    private GLProgram.Uniform glHMatrix;
+    private GLProgram.Uniform glHUxy;
+    private GLProgram.Uniform hChangeType;
+    private GLProgram.Uniform hChangeColor;
+    private GLProgram.Uniform hIsHalf;
     private float uXY;
 
+    private static final String TEXTURE_KEY = "res:" + R.drawable.picture;
+
+    private final GL mGL;
+    private final TextureManager mTextures;
+    private final AsyncTextureLoader mLoader;
+    private AsyncTextureLoader.Request mPicture;
+    private BitmapDecoder mDecoder;
+    /**
+     * 解码时请求的宽高，取出现过的显示区域各边的最大值
+     */
+    private int mRequestWidth;
+    private int mRequestHeight;
+    private boolean mReported;
+
     public BitmapRender(Context context) {
+        this(context, AndroidGL.getInstance());
+    }
+
+    public BitmapRender(Context context, GL gl) {
+        mGL = gl;
+        mTextures = new TextureManager(gl);
+        mLoader = new AsyncTextureLoader(gl, mTextures);
         mContext = context;
-        initBitmap();
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         //将背景设置为灰色，
-        GLES20.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
-        GLES20.glEnable(GLES20.GL_TEXTURE_2D);
-        createShowPosition();
-        createTexturePosition();
+        mGL.glClearColor(1.0f, 1.0f, 1.0f, 1.0f);
+        mGL.glEnable(GLES20.GL_TEXTURE_2D);
         initProgram();
         initHandler();
+        createQuad();
+        mPicture = null;
     }
 
-    private void createShowPosition() {
-        //申请底层空间
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                sPos.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        positionBuffer = bb.asFloatBuffer();
-        positionBuffer.put(sPos);
-        positionBuffer.position(0);
-    }
-
-    private void createTexturePosition() {
-        //申请底层空间
-        ByteBuffer aa = ByteBuffer.allocateDirect(
-                sCoord.length * 4);
-        aa.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        mTextureBuffer = aa.asFloatBuffer();
-        mTextureBuffer.put(sCoord);
-        mTextureBuffer.position(0);
+    /**
+     * 顶点坐标和纹理坐标上传到顶点缓冲区
+     */
+    private void createQuad() {
+        if (mQuad != null) {
+            mQuad.release();
+        }
+        mQuad = new Mesh(mGL, GLES20.GL_TRIANGLE_STRIP)
+                .addVertices(mProgram, LAYOUT, sPos, sCoord);
     }
 
     private void initProgram() {
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        //创建一个空的OpenGLES程序
-        mProgram = GLES20.glCreateProgram();
-        //将顶点着色器加入到程序
-        GLES20.glAttachShader(mProgram, vertexShader);
-        //将片元着色器加入到程序中
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        //连接到着色器程序
-        GLES20.glLinkProgram(mProgram);
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
     }
 
     private void initHandler() {
-        glHPosition = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        glHCoordinate = GLES20.glGetAttribLocation(mProgram, "vCoordinate");
-        glHMatrix = GLES20.glGetUniformLocation(mProgram, "vMatrix");
+        glHMatrix = mProgram.uniform("vMatrix");
 
-        glHTexture = GLES20.glGetUniformLocation(mProgram, "vTexture");
-        hIsHalf = GLES20.glGetUniformLocation(mProgram, "vIsHalf");
-        glHUxy = GLES20.glGetUniformLocation(mProgram, "uXY");
-        hChangeType = GLES20.glGetUniformLocation(mProgram, "vChangeType");
-        hChangeColor = GLES20.glGetUniformLocation(mProgram, "vChangeColor");
+        glHTexture = mProgram.uniform("vTexture");
+        hIsHalf = mProgram.uniform("vIsHalf");
+        glHUxy = mProgram.uniform("uXY");
+        hChangeType = mProgram.uniform("vChangeType");
+        hChangeColor = mProgram.uniform("vChangeColor");
 
     }
 
-    private void initBitmap() {
-        mBitmap = BitmapFactory.decodeResource(mContext.getResources(), R.drawable.picture);
+    /**
+     * 图片在工作线程按显示区域的宽高采样解码，GL线程分块上传，加载完成前显示占位纹理。
+     * 请求的宽高保留之前出现过的最大值，屏幕旋转回来时不需要再次解码；
+     * 解码后的尺寸不小于显示尺寸，绘制时是缩小的，所以生成 mipmap
+     */
+    private void loadBitmap() {
+        mRequestWidth = Math.max(mRequestWidth, mWidth);
+        mRequestHeight = Math.max(mRequestHeight, mHeight);
+        mDecoder = new BitmapDecoder(mContext.getResources(), R.drawable.picture, mRequestWidth, mRequestHeight);
+        mReported = false;
+        mPicture = mLoader.load(TEXTURE_KEY, mDecoder, true);
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
+        mGL.glViewport(0, 0, width, height);
+        mWidth = width;
+        mHeight = height;
+        updateMatrix();
+        //知道显示区域的大小之后才开始加载
+        if (mPicture == null) {
+            loadBitmap();
+        } else if (width > mRequestWidth || height > mRequestHeight) {
+            //旋转后某一边需要更多的像素，丢掉按原来尺寸解码的图片重新加载
+            mPicture.cancel();
+            mTextures.release(TEXTURE_KEY);
+            loadBitmap();
+        }
+    }
 
-        int w = mBitmap.getWidth();
-        int h = mBitmap.getHeight();
+    private void updateMatrix() {
+        int width = mWidth;
+        int height = mHeight;
+        int w = mImageWidth;
+        int h = mImageHeight;
         float sWH = w / (float) h;
         float sWidthHeight = width / (float) height;
         uXY = sWidthHeight;
         if (width > height) {
             if (sWH > sWidthHeight) {
-                Matrix.orthoM(mProjectMatrix, 0, -sWidthHeight * sWH, sWidthHeight * sWH, -1, 1, 3, 7);
+                Mat4.orthoM(mProjectMatrix, 0, -sWidthHeight * sWH, sWidthHeight * sWH, -1, 1, 3, 7);
             } else {
-                Matrix.orthoM(mProjectMatrix, 0, -sWidthHeight / sWH, sWidthHeight / sWH, -1, 1, 3, 7);
+                Mat4.orthoM(mProjectMatrix, 0, -sWidthHeight / sWH, sWidthHeight / sWH, -1, 1, 3, 7);
             }
         } else {
             if (sWH > sWidthHeight) {
-                Matrix.orthoM(mProjectMatrix, 0, -1, 1, -1 / sWidthHeight * sWH, 1 / sWidthHeight * sWH, 3, 7);
+                Mat4.orthoM(mProjectMatrix, 0, -1, 1, -1 / sWidthHeight * sWH, 1 / sWidthHeight * sWH, 3, 7);
             } else {
-                Matrix.orthoM(mProjectMatrix, 0, -1, 1, -sWH / sWidthHeight, sWH / sWidthHeight, 3, 7);
+                Mat4.orthoM(mProjectMatrix, 0, -1, 1, -sWH / sWidthHeight, sWH / sWidthHeight, 3, 7);
             }
         }
         //设置相机位置
-        Matrix.setLookAtM(mViewMatrix, 0, 0, 0, 7.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
+        Mat4.setLookAtM(mViewMatrix, 0, 0, 0, 7.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
         //计算变换矩阵
-        Matrix.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
+        Mat4.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
     }
 
     @Override
@@ -274,42 +308,37 @@ public class BitmapRender implements GLSurfaceView.Renderer {
 //        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
 
 
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
-        GLES20.glUseProgram(mProgram);
-        GLES20.glUniform1i(hChangeType, 4);
-        GLES20.glUniform3fv(hChangeColor, 1, colors, 0);
-
-        GLES20.glUniform1i(hIsHalf, 0);
-        GLES20.glUniform1f(glHUxy, uXY);
-        GLES20.glUniformMatrix4fv(glHMatrix, 1, false, mMVPMatrix, 0);
-        GLES20.glEnableVertexAttribArray(glHPosition);
-        GLES20.glEnableVertexAttribArray(glHCoordinate);
-        GLES20.glUniform1i(glHTexture, 0);
-        createTexture();
-        GLES20.glVertexAttribPointer(glHPosition, 2, GLES20.GL_FLOAT, false, 0, positionBuffer);
-        GLES20.glVertexAttribPointer(glHCoordinate, 2, GLES20.GL_FLOAT, false, 0, mTextureBuffer);
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
-    }
-
-    private int createTexture() {
-        int[] texture = new int[1];
-        if (mBitmap != null && !mBitmap.isRecycled()) {
-            //生成纹理
-            GLES20.glGenTextures(1, texture, 0);
-            //生成纹理
-            GLES20.glBindTexture(GLES20.GL_TEXTURE_2D, texture[0]);
-            //设置缩小过滤为使用纹理中坐标最接近的一个像素的颜色作为需要绘制的像素颜色
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
-            //设置放大过滤为使用纹理中坐标最接近的若干个颜色，通过加权平均算法得到需要绘制的像素颜色
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
-            //设置环绕方向S，截取纹理坐标到[1/2n,1-1/2n]。将导致永远不会与border融合
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
-            //设置环绕方向T，截取纹理坐标到[1/2n,1-1/2n]。将导致永远不会与border融合
-            GLES20.glTexParameterf(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
-            //根据以上指定的参数，生成一个2D纹理
-            GLUtils.texImage2D(GLES20.GL_TEXTURE_2D, 0, mBitmap, 0);
-            return texture[0];
+        //在时间预算内上传解码好的图片
+        mLoader.processUploads();
+        TextureManager.Texture texture = mPicture.getTexture();
+        if (texture != null && texture.getId() == 0) {
+            //被纹理缓存淘汰了，重新加载
+            loadBitmap();
+            texture = mPicture.getTexture();
+        }
+        if (texture != null && !mReported && mDecoder.getConfig() != null) {
+            mReported = true;
+            Log.d(TAG, mDecoder.getReport(true));
         }
-        return 0;
+        if (texture != null && (texture.getWidth() != mImageWidth || texture.getHeight() != mImageHeight)) {
+            mImageWidth = texture.getWidth();
+            mImageHeight = texture.getHeight();
+            updateMatrix();
+        }
+
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        mProgram.use();
+        //uniform 的值没有变化时不会重复上传
+        hChangeType.set1i(4);
+        hChangeColor.set3fv(colors, 0);
+
+        hIsHalf.set1i(0);
+        glHUxy.set1f(uXY);
+        glHMatrix.setMatrix4fv(mMVPMatrix, 0);
+        glHTexture.set1i(0);
+        mGL.glActiveTexture(GLES20.GL_TEXTURE0);
+        mGL.glBindTexture(GLES20.GL_TEXTURE_2D, mPicture.getTextureId());
+        mQuad.draw();
     }
+
 }
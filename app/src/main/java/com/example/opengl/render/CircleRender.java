@@ -3,18 +3,24 @@ package com.example.opengl.render;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.util.ArrayList;
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.geometry.CircleGenerator;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.shape.SdfBatch;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import static com.example.opengl.render.Triangle.COORDS_PER_VERTEX;
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
 
 /**
+ * 默认用 {@link SdfBatch} 在一个四边形上按距离场画出边缘抗锯齿的圆，
+ * 构造时 analytic 传 false 则用三角形扇面近似
+ *
  * @author majun
  * @date 2020-03-19
  */
@@ -44,90 +50,88 @@ public class CircleRender implements GLSurfaceView.Renderer {
 
 
     float color[] = {1.0f, 1.0f, 1.0f, 1.0f}; //白色
-    private FloatBuffer vertexBuffer;
-    private int mProgram;
+    private final boolean mAnalytic;
+    private SdfBatch mBatch;
+    private final float[] mProjection = new float[16];
+    private int mWidth;
+    private int mHeight;
+    private Mesh mMesh;
+    private GLProgram mProgram;
     private int mPositionHandle;
-    private int mColorHandle;
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 每个点的字节大小
+    private GLProgram.Uniform mColorHandle;
 
-    private int vertexCount;
     private float[] shapeData;
 
+    private final GL mGL;
+
     public CircleRender() {
-        shapeData = createPositions();
-        vertexCount = shapeData.length / COORDS_PER_VERTEX;
+        this(AndroidGL.getInstance());
+    }
+
+    public CircleRender(GL gl) {
+        this(gl, true);
+    }
+
+    /**
+     * @param analytic true 时用距离场画圆，false 时用三角形扇面
+     */
+    public CircleRender(GL gl, boolean analytic) {
+        mGL = gl;
+        mAnalytic = analytic;
+        shapeData = CircleGenerator.createFan(NUM_SIDE, CIRCLE_RADIUS, 0f);
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         //将背景设置为灰色，
-        GLES20.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
-        //申请底层空间
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                shapeData.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(shapeData);
-        vertexBuffer.position(0);
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        //创建一个空的OpenGLES程序
-        mProgram = GLES20.glCreateProgram();
-        //将顶点着色器加入到程序
-        GLES20.glAttachShader(mProgram, vertexShader);
-        //将片元着色器加入到程序中
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        //连接到着色器程序
-        GLES20.glLinkProgram(mProgram);
+        mGL.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
+        if (mAnalytic) {
+            //边缘的覆盖率写在透明度里，需要混合
+            mGL.glEnable(GLES20.GL_BLEND);
+            mGL.glBlendFunc(GLES20.GL_SRC_ALPHA, GLES20.GL_ONE_MINUS_SRC_ALPHA);
+            if (mBatch != null) {
+                mBatch.release();
+            }
+            mBatch = new SdfBatch(mGL, 1);
+            return;
+        }
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
+        //获取顶点着色器的vPosition成员句柄
+        mPositionHandle = mProgram.attribute("vPosition");
+        //获取片元着色器的vColor成员的句柄
+        mColorHandle = mProgram.uniform("vColor");
+        //将坐标数据上传到顶点缓冲区
+        if (mMesh != null) {
+            mMesh.release();
+        }
+        mMesh = new Mesh(mGL, GLES20.GL_TRIANGLE_STRIP).addAttribute(mPositionHandle, COORDS_PER_VERTEX, shapeData);
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
+        mGL.glViewport(0, 0, width, height);
+        mWidth = width;
+        mHeight = height;
+        //左上角为原点的像素坐标
+        Mat4.orthoM(mProjection, 0, 0, width, height, 0, -1, 1);
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        if (mAnalytic) {
+            //半径取短边的四分之一，和扇面在短边方向的大小相同
+            mBatch.begin(mProjection);
+            mBatch.circle(mWidth * 0.5f, mHeight * 0.5f, Math.min(mWidth, mHeight) * CIRCLE_RADIUS * 0.5f, 0xffffffff);
+            mBatch.end();
+            return;
+        }
         //将程序加入到OpenGLES2.0环境
-        GLES20.glUseProgram(mProgram);
-        //获取顶点着色器的vPosition成员句柄
-        mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        //启用三角形顶点的句柄
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
-        //准备三角形的坐标数据
-        GLES20.glVertexAttribPointer(mPositionHandle, COORDS_PER_VERTEX,
-                GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-        //获取片元着色器的vColor成员的句柄
-        mColorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+        mProgram.use();
         //设置绘制三角形的颜色
-        GLES20.glUniform4fv(mColorHandle, 1, color, 0);
+        mColorHandle.set4fv(color, 0);
         //绘制多边形
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, vertexCount);
-        //禁止顶点数组的句柄
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
-    }
-
-    private float[] createPositions() {
-        ArrayList<Float> data = new ArrayList<>();
-        data.add(0.0f);             //设置圆心坐标
-        data.add(0.0f);
-        data.add(0.0f);
-        float angDegSpan = 360f / CircleRender.NUM_SIDE;
-        for (float i = 0; i < 360 + angDegSpan; i += angDegSpan) {
-            data.add((float) (CircleRender.CIRCLE_RADIUS * Math.sin(i * Math.PI / 180f)));
-            data.add((float) (CircleRender.CIRCLE_RADIUS * Math.cos(i * Math.PI / 180f)));
-            data.add(0.0f);
-        }
-        float[] f = new float[data.size()];
-        for (int i = 0; i < f.length; i++) {
-            f[i] = data.get(i);
-        }
-        return f;
+        mMesh.draw();
     }
 }
@@ -3,21 +3,33 @@ package com.example.opengl.render;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
 import static com.example.opengl.render.Triangle.COORDS_PER_VERTEX;
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
 
 /**
  * @author majun
  * @date 2020-03-18
  */
 public class CommonTriangleRender implements GLSurfaceView.Renderer {
+
+    private final GL mGL;
+
+    public CommonTriangleRender() {
+        this(AndroidGL.getInstance());
+    }
+
+    public CommonTriangleRender(GL gl) {
+        mGL = gl;
+    }
+
     /**
      * 顶点着色器
      * gl_Position是Shader的内置变量，为定点位置
@@ -52,67 +64,42 @@ public class CommonTriangleRender implements GLSurfaceView.Renderer {
      * 三角形的颜色
      */
     float color[] = {1.0f, 1.0f, 1.0f, 1.0f}; //白色
-    private FloatBuffer vertexBuffer;
-    private int mProgram;
+    private Mesh mMesh;
+    private GLProgram mProgram;
     private int mPositionHandle;
-    private int mColorHandle;
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
-    private final int vertexCount = triangleCoords.length / COORDS_PER_VERTEX;
+    private GLProgram.Uniform mColorHandle;
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         //将背景设置为灰色，
-        GLES20.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
-        //申请底层空间
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                triangleCoords.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(triangleCoords);
-        vertexBuffer.position(0);
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        //创建一个空的OpenGLES程序
-        mProgram = GLES20.glCreateProgram();
-        //将顶点着色器加入到程序
-        GLES20.glAttachShader(mProgram, vertexShader);
-        //将片元着色器加入到程序中
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        //连接到着色器程序
-        GLES20.glLinkProgram(mProgram);
+        mGL.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
+        //获取顶点着色器的vPosition成员句柄
+        mPositionHandle = mProgram.attribute("vPosition");
+        //获取片元着色器的vColor成员的句柄
+        mColorHandle = mProgram.uniform("vColor");
+        //将坐标数据上传到顶点缓冲区
+        if (mMesh != null) {
+            mMesh.release();
+        }
+        mMesh = new Mesh(mGL, GLES20.GL_TRIANGLES).addAttribute(mPositionHandle, COORDS_PER_VERTEX, triangleCoords);
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0, 0, width, height);
+        mGL.glViewport(0, 0, width, height);
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
         //将程序加入到OpenGLES2.0环境
-        GLES20.glUseProgram(mProgram);
-        //获取顶点着色器的vPosition成员句柄
-        mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        //启用三角形顶点的句柄
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
-        //准备三角形的坐标数据
-        GLES20.glVertexAttribPointer(mPositionHandle, COORDS_PER_VERTEX,
-                GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-        //获取片元着色器的vColor成员的句柄
-        mColorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+        mProgram.use();
         //设置绘制三角形的颜色
-        GLES20.glUniform4fv(mColorHandle, 1, color, 0);
+        mColorHandle.set4fv(color, 0);
         //绘制三角形
-        //第一个参数表示绘制方式，第二个参数表示偏移量，第三个参数表示顶点个数。
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
-        //禁止顶点数组的句柄
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
+        mMesh.draw();
 
     }
 }
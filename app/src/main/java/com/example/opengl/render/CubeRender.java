@@ -2,22 +2,35 @@ package com.example.opengl.render;
 
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.Matrix;
-
+import android.os.SystemClock;
+
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.geometry.Bounds;
+import com.example.opengl.input.TouchInput;
+import com.example.opengl.input.TouchSnapshot;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.GLES30InstancingGL;
+import com.example.opengl.mesh.InstancedMesh;
+import com.example.opengl.mesh.InstancingGL;
+import com.example.opengl.mesh.VertexLayout;
+import com.example.opengl.queue.CommandList;
+import com.example.opengl.queue.FramePipeline;
+import com.example.opengl.scene.Bvh;
+import com.example.opengl.scene.Frustum;
+import com.example.opengl.scene.SceneGraph;
+import com.example.opengl.scene.SceneNode;
 import com.example.opengl.utils.MatrixTools;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-import java.nio.ShortBuffer;
-
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import static com.example.opengl.render.Triangle.COORDS_PER_VERTEX;
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
-
 /**
+ * 五个正方体共用一个网格，层级关系放在 {@link SceneGraph} 里，帧末用 {@link InstancedMesh} 一次画完。
+ * 每个正方体的世界包围盒放进 {@link Bvh}，只画和视锥相交的正方体。
+ * 场景更新、剔除和矩阵计算由 {@link FramePipeline} 在工作线程录制成命令，onDrawFrame 只执行录制好的命令。
+ * 设置了 {@link TouchInput} 时按触摸累积的角度绕y轴旋转整个场景
+ *
  * @author majun
  * @date 2020-03-19
  */
@@ -25,11 +38,10 @@ public class CubeRender implements GLSurfaceView.Renderer {
 
     private final String vertexShaderCode =
             "attribute vec4 vPosition;" +
-                    "uniform mat4 vMatrix;" +
                     "varying  vec4 vColor;" +
                     "attribute vec4 aColor;" +
                     "void main() {" +
-                    "gl_Position = vMatrix*vPosition;" +
+                    "gl_Position = instanceMatrix()*vPosition;" +
                     "vColor=aColor;" +
                     "}";
 
@@ -39,6 +51,15 @@ public class CubeRender implements GLSurfaceView.Renderer {
                     "void main() {" +
                     "gl_FragColor = vColor;" +
                     "}";
+    /**
+     * 顶点格式，位置和颜色交错存放。
+     * 坐标都在 [-1,1] 内，用归一化的 short 存储；颜色每个通道8位就够了，用归一化的 byte 存储，
+     * 每个顶点从28字节减少到12字节
+     */
+    private static final VertexLayout LAYOUT = new VertexLayout()
+            .add("vPosition", 3, GLES20.GL_SHORT, true)
+            .add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true);
+
     /**
      * 正方体各个点
      */
@@ -80,146 +101,262 @@ public class CubeRender implements GLSurfaceView.Renderer {
     };
 
 
-    private int mProgram;
-    private FloatBuffer vertexBuffer;
-    private FloatBuffer colorBuffer;
-    private ShortBuffer indexBuffer;
-    private float[] matrix = new float[16];
-    private int hMatrix;
-    private int hVertex;
-    private int hColor;
+    /**
+     * 每帧最多的正方体个数
+     */
+    private static final int MAX_CUBES = 5;
+
+    /**
+     * 命令列表里绘制正方体的编号
+     */
+    private static final int DRAW_CUBES = 0;
+
+    private InstancedMesh mCubes;
+    private final Bounds mCubeBounds = Bounds.fromPositions(cubePositions, 3);
+    /**
+     * 场景更新和命令录制在工作线程，GL线程只执行录制好的命令
+     */
+    private final FramePipeline mPipeline;
+    /**
+     * 视口的宽高打包在一起，GL线程写、工作线程读
+     */
+    private volatile long mViewportSize;
+    private TouchInput mInput;
+    /**
+     * GL线程取到的触摸状态复制到这里给工作线程读，复制时工作线程没有在录制
+     */
+    private final TouchSnapshot mInputState = new TouchSnapshot();
+
+    //以下字段只在工作线程访问
+    private long mAppliedSize;
+    private long mAppliedInput;
+    private int mVisibleCount;
+    /**
+     * 正方体的层级关系，世界矩阵缓存在场景图里
+     */
+    private final SceneGraph mScene = new SceneGraph();
+    private final SceneNode[] mCubeNodes = new SceneNode[MAX_CUBES];
+    /**
+     * 每个正方体的世界包围盒，场景图有节点更新时重新计算
+     */
+    private final float[] mWorldBounds = new float[MAX_CUBES * Bounds.AABB_SIZE];
+    private final Bvh mBvh = new Bvh();
+    private boolean mBvhBuilt;
+    private final Frustum mFrustum = new Frustum();
+    private final int[] mVisible = new int[MAX_CUBES];
     private MatrixTools tools;
 
+    private final GL mGL;
+    private final InstancingGL mInstancing;
+
     public CubeRender() {
+        this(AndroidGL.getInstance());
+    }
+
+    public CubeRender(GL gl) {
+        this(gl, new GLES30InstancingGL(gl));
+    }
+
+    /**
+     * @param instancing 实例化绘制的接口，为 null 时用 uniform 数组一次画多个
+     */
+    public CubeRender(GL gl, InstancingGL instancing) {
+        mGL = gl;
+        mInstancing = instancing;
         tools = new MatrixTools();
+        buildScene();
+        mPipeline = new FramePipeline(new FramePipeline.FrameBuilder() {
+            @Override
+            public void update(long frame) {
+                updateScene();
+            }
+
+            @Override
+            public void record(long frame, int part, int partCount, CommandList list) {
+                recordCubes(list);
+            }
+        }, 1);
+    }
+
+    /**
+     * 在开始渲染前设置，之后由 onDrawFrame 每帧取一次最新的触摸状态
+     */
+    public void setTouchInput(TouchInput input) {
+        mInput = input;
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
         //将背景设置为灰色，
-        GLES20.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
+        mGL.glClearColor(0.5f, 0.5f, 0.5f, 1.0f);
         //开启深度绘制
-        GLES20.glEnable(GLES20.GL_DEPTH_TEST);
-        //申请底层空间
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                cubePositions.length * 4);
-        bb.order(ByteOrder.nativeOrder());
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        vertexBuffer = bb.asFloatBuffer();
-        vertexBuffer.put(cubePositions);
-        vertexBuffer.position(0);
-
-
-        ByteBuffer dd = ByteBuffer.allocateDirect(
-                color.length * 4);
-        dd.order(ByteOrder.nativeOrder());
-        colorBuffer = dd.asFloatBuffer();
-        colorBuffer.put(color);
-        colorBuffer.position(0);
-
-        ByteBuffer cc = ByteBuffer.allocateDirect(index.length * 2);
-        cc.order(ByteOrder.nativeOrder());
-        indexBuffer = cc.asShortBuffer();
-        indexBuffer.put(index);
-        indexBuffer.position(0);
-
-
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        //创建一个空的OpenGLES程序
-        mProgram = GLES20.glCreateProgram();
-        //将顶点着色器加入到程序
-        GLES20.glAttachShader(mProgram, vertexShader);
-        //将片元着色器加入到程序中
-        GLES20.glAttachShader(mProgram, fragmentShader);
-        //连接到着色器程序
-        GLES20.glLinkProgram(mProgram);
-
-        hVertex = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        hColor = GLES20.glGetAttribLocation(mProgram, "aColor");
-        hMatrix = GLES20.glGetUniformLocation(mProgram, "vMatrix");
+        mGL.glEnable(GLES20.GL_DEPTH_TEST);
+        //顶点和颜色交错存放在一个缓冲区，和索引一起只上传一次，绘制时直接使用显存中的数据；
+        //着色器程序根据是否支持实例化绘制生成，同样从缓存获取
+        if (mCubes != null) {
+            mCubes.release();
+        }
+        mCubes = new InstancedMesh(mGL, mInstancing, GLES20.GL_TRIANGLES, vertexShaderCode, fragmentShaderCode,
+                LAYOUT, new float[][]{cubePositions, color}, index);
+        mPipeline.setDrawable(DRAW_CUBES, new CommandList.Drawable() {
+            @Override
+            public void draw(GL gl, float[] data, int offset, int count) {
+                mCubes.draw(data, offset, count);
+            }
+        });
     }
 
     @Override
     public void onSurfaceChanged(GL10 gl, int width, int height) {
-        GLES20.glViewport(0,0,width,height);
-        float rate=width/(float)height;
-        tools.ortho(-rate*6,rate*6,-6,6,3,20);
-        tools.setCamera(10,10,10,0,0,0,0,1,0);
+        mGL.glViewport(0,0,width,height);
+        //投影矩阵由工作线程在下一次录制时更新
+        long size = ((long) width << 32) | (height & 0xffffffffL);
+        if (size != mViewportSize) {
+            mViewportSize = size;
+            //提前录制的一帧用的是旧的投影，丢掉重新录制，否则按需渲染时拉伸的画面会一直留在屏幕上
+            mPipeline.invalidate();
+        }
     }
 
     @Override
     public void onDrawFrame(GL10 gl) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        mCubes.beginFrame();
+        TouchInput input = mInput;
+        if (input != null && input.acquire()) {
+            //提前录制的下一帧用的是旧的输入，丢掉重新录制，新的触摸在这一帧就能画出来
+            mPipeline.invalidate();
+            mInputState.copyFrom(input.getSnapshot());
+        }
+        //执行工作线程录制好的清屏和绘制命令，同时开始录制下一帧
+        mPipeline.drawFrame(mGL);
+        if (input != null) {
+            input.onFrameSubmitted(SystemClock.uptimeMillis());
+        }
+    }
 
-        //将程序加入到OpenGLES2.0环境
-        GLES20.glUseProgram(mProgram);
+    /**
+     * 工作线程：更新投影、场景图和包围盒，剔除视锥外的正方体
+     */
+    private void updateScene() {
+        long size = mViewportSize;
+        if (size != mAppliedSize) {
+            mAppliedSize = size;
+            int width = (int) (size >>> 32);
+            int height = (int) size;
+            if (height > 0) {
+                float rate = width / (float) height;
+                tools.ortho(-rate * 6, rate * 6, -6, 6, 3, 20);
+                tools.setCamera(10, 10, 10, 0, 0, 0, 0, 1, 0);
+            }
+        }
+
+        if (mInputState.getSequence() != mAppliedInput) {
+            mAppliedInput = mInputState.getSequence();
+            mScene.getRoot().setIdentity().rotate(mInputState.getAngle(), 0, 1, 0);
+        }
+
+        mBvh.beginFrame();
+        //只有局部变换改变过的节点才重新计算世界矩阵，没有触摸时节点都是静止的，不再计算
+        mScene.update();
+        if (!mBvhBuilt || mScene.getLastUpdateCount() > 0) {
+            updateBounds(mScene.getWorldMatrices());
+        }
+
+        //视锥外的正方体不提交
+        mVisibleCount = mBvh.cull(mFrustum.set(tools.getViewProjectionMatrix(), 0), mVisible);
+    }
+
+    /**
+     * 工作线程：矩阵直接算到命令列表的浮点数据里，所有可见的正方体一次绘制
+     */
+    private void recordCubes(CommandList list) {
+        list.clear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        int count = mVisibleCount;
+        int offset = list.allocFloats(count * 16);
+        float[] data = list.getFloats();
+        float[] viewProjection = tools.getViewProjectionMatrix();
+        float[] world = mScene.getWorldMatrices();
+        for (int k = 0; k < count; k++) {
+            int node = mVisible[k];
+            Mat4.multiplyMMAffine(data, offset + k * 16, viewProjection, 0, world, mCubeNodes[node].getWorldOffset());
+        }
+        list.draw(DRAW_CUBES, offset, count);
+    }
 
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
-        matrix = tools.getFinalMatrix();
-        drawSelf();
+    /**
+     * 按世界矩阵变换网格的包围盒，第一次建树，之后只更新节点的包围盒
+     */
+    private void updateBounds(float[] world) {
+        Bounds bounds = mCubeBounds;
+        for (int i = 0; i < mCubeNodes.length; i++) {
+            bounds.transform(world, mCubeNodes[i].getWorldOffset(), mWorldBounds, i * Bounds.AABB_SIZE);
+        }
+        if (mBvhBuilt) {
+            for (int i = 0; i < mCubeNodes.length; i++) {
+                mBvh.setItemBounds(i, mWorldBounds, i * Bounds.AABB_SIZE);
+            }
+            mBvh.refit();
+        } else {
+            mBvh.build(mWorldBounds, mCubeNodes.length);
+            mBvhBuilt = true;
+        }
+    }
+
+    /**
+     * 搭建正方体的层级，和原来 pushMatrix/popMatrix 的嵌套一一对应
+     */
+    private void buildScene() {
+        SceneNode root = mScene.getRoot();
+        mCubeNodes[0] = mScene.createNode(root);
 
 //y轴正方形平移
-        tools.pushMatrix();
-        tools.translate(0, 3, 0);
-        matrix = tools.getFinalMatrix();
-        drawSelf();
-        tools.popMatrix();
+        mCubeNodes[1] = mScene.createNode(root).translate(0, 3, 0);
 
 //y轴负方向平移，然后按xyz->(0,0,0)到(1,1,1)旋转30度
-        tools.pushMatrix();
-        tools.translate(0, -3, 0);
-        tools.rotate(30f, 1, 1, 1);
-        matrix = tools.getFinalMatrix();
-        drawSelf();
-        tools.popMatrix();
+        mCubeNodes[2] = mScene.createNode(root).translate(0, -3, 0).rotate(30f, 1, 1, 1);
 
 //x轴负方向平移，然后按xyz->(0,0,0)到(1,-1,1)旋转120度，在放大到0.5倍
-        tools.pushMatrix();
-        tools.translate(-3, 0, 0);
-        tools.scale(0.5f, 0.5f, 0.5f);
+        SceneNode group = mScene.createNode(root).translate(-3, 0, 0).scale(0.5f, 0.5f, 0.5f);
 
 //在以上变换的基础上再进行变换
-        tools.pushMatrix();
-        tools.translate(12, 0, 0);
-        tools.scale(1.0f, 2.0f, 1.0f);
-        tools.rotate(30f, 1, 2, 1);
-        matrix = tools.getFinalMatrix();
-        drawSelf();
-        tools.popMatrix();
+        mCubeNodes[3] = mScene.createNode(group).translate(12, 0, 0).scale(1.0f, 2.0f, 1.0f).rotate(30f, 1, 2, 1);
 
 //接着被中断的地方执行
-        tools.rotate(30f, -1, -1, 1);
-        matrix = tools.getFinalMatrix();
-        drawSelf();
-        tools.popMatrix();
+        mCubeNodes[4] = mScene.createNode(group).rotate(30f, -1, -1, 1);
     }
 
-    public void drawSelf() {
+    /**
+     * 关闭录制用的工作线程，视图销毁、GL线程已经停止时调用。之后再画一帧会重新创建工作线程
+     */
+    public void release() {
+        mPipeline.release();
+    }
 
-        //指定vMatrix的值
-        if (matrix != null) {
-            GLES20.glUniformMatrix4fv(hMatrix, 1, false, matrix, 0);
-        }
-        //启用句柄
-        GLES20.glEnableVertexAttribArray(hVertex);
-        GLES20.glEnableVertexAttribArray(hColor);
-        //准备三角形的坐标数据
-        GLES20.glVertexAttribPointer(hVertex, 3,
-                GLES20.GL_FLOAT, false,
-                0, vertexBuffer);
-        //设置绘制三角形的颜色
-        GLES20.glVertexAttribPointer(hColor, 4,
-                GLES20.GL_FLOAT, false,
-                0, colorBuffer);
-        //索引法绘制正方体
-        GLES20.glDrawElements(GLES20.GL_TRIANGLES, index.length, GLES20.GL_UNSIGNED_SHORT, indexBuffer);
-        //禁止顶点数组的句柄
-        GLES20.glDisableVertexAttribArray(hVertex);
-        GLES20.glDisableVertexAttribArray(hColor);
+    /**
+     * 最近一次录制时视锥剔除的统计，数据来自工作线程，只用于调试
+     */
+    public String getCullingReport() {
+        return mBvh.getReport();
     }
 
+    /**
+     * GL线程和工作线程各自的耗时
+     */
+    public String getPipelineReport() {
+        return mPipeline.getReport();
+    }
+
+    /**
+     * 触摸事件的合并和输入延迟，没有设置 {@link TouchInput} 时为 null
+     */
+    public String getInputReport() {
+        return mInput != null ? mInput.getReport() : null;
+    }
+
+    /**
+     * 上一帧的实例个数和节省的绘制调用
+     */
+    public String getInstancingReport() {
+        return mCubes.getReport();
+    }
 }
@@ -2,17 +2,18 @@ package com.example.opengl.render;
 
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.Matrix;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.mesh.VertexLayout;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
 
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
-
 /**
  * @author majun
  * @date 2020-03-03
@@ -46,13 +47,20 @@ public class IsoscelesTriangleRender implements GLSurfaceView.Renderer {
                     "  gl_FragColor = vColor;" +
                     "}";
 
-    private int mProgram;
+    private GLProgram mProgram;
+    private GLProgram.Uniform mMatrixHandler;
 
-    private FloatBuffer vertexBuffer;
-    private FloatBuffer colorBuffer;
+    private Mesh mMesh;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
+
+    /**
+     * 顶点格式，位置和颜色交错存放，坐标用归一化的 short，颜色用归一化的 byte
+     */
+    private static final VertexLayout LAYOUT = new VertexLayout()
+            .add("vPosition", COORDS_PER_VERTEX, GLES20.GL_SHORT, true)
+            .add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true);
     static float triangleCoords[] = {   // in counterclockwise order:
             0.6f, 0.2f, 0.0f, // top
             -0.7f, -1f, 0.0f, // bottom left
@@ -70,68 +78,41 @@ public class IsoscelesTriangleRender implements GLSurfaceView.Renderer {
     private float[] mViewMatrix = new float[16];
     private float[] mMVPMatrix = new float[16];
 
+    private final GL mGL;
+
     public IsoscelesTriangleRender() {
+        this(AndroidGL.getInstance());
+    }
+
+    public IsoscelesTriangleRender(GL gl) {
+        mGL = gl;
     }
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
-        initShape();
-
-        initColor();
+        //将背景设置为灰色
+        mGL.glClearColor(0f, 0f, 0f, 1.0f);
 
         initProgram();
 
-    }
+        initShape();
 
-    private void initShape() {
-        //将背景设置为灰色
-        GLES20.glClearColor(0f, 0f, 0f, 1.0f);
-        //申请底层空间
-        // initialize vertex byte buffer for shape coordinates
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                // (number of coordinate values * 4 bytes per float)
-                triangleCoords.length * 4);
-        // use the device hardware's native byte order
-        bb.order(ByteOrder.nativeOrder());
-
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        // create a floating point buffer from the ByteBuffer
-        vertexBuffer = bb.asFloatBuffer();
-        // add the coordinates to the FloatBuffer
-        vertexBuffer.put(triangleCoords);
-        // set the buffer to read the first coordinate
-        vertexBuffer.position(0);
     }
 
-    private void initColor() {
-        ByteBuffer dd = ByteBuffer.allocateDirect(
-                vertexColor.length * 4);
-        dd.order(ByteOrder.nativeOrder());
-        colorBuffer = dd.asFloatBuffer();
-        colorBuffer.put(vertexColor);
-        colorBuffer.position(0);
+    private void initShape() {
+        //顶点坐标和颜色交错打包，一次性上传到顶点缓冲区
+        if (mMesh != null) {
+            mMesh.release();
+        }
+        mMesh = new Mesh(mGL, GLES20.GL_TRIANGLES)
+                .addVertices(mProgram, LAYOUT, triangleCoords, vertexColor);
     }
 
     private void initProgram() {
-        // create empty OpenGL ES Program
-        //程序 - 包含您希望用于绘制一个或多个形状的着色程序的 OpenGL ES 对象。
-        mProgram = GLES20.glCreateProgram();
-
-        //加载顶点着色程序
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER,
-                vertexShaderCode);
-        //加载片段着色程序
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER,
-                fragmentShaderCode);
-
-        // add the vertex shader to program
-        GLES20.glAttachShader(mProgram, vertexShader);
-
-        // add the fragment shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader);
-
-        // creates OpenGL ES program executables
-        GLES20.glLinkProgram(mProgram);
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
+        //获取变换矩阵vMatrix成员句柄
+        mMatrixHandler = mProgram.uniform("vMatrix");
     }
 
     @Override
@@ -139,49 +120,25 @@ public class IsoscelesTriangleRender implements GLSurfaceView.Renderer {
         //计算宽高比
         float ratio = (float) width / height;
         //设置透视投影
-        Matrix.frustumM(mProjectMatrix, 0, -ratio, ratio, -1, 1, 3, 7);
+        Mat4.frustumM(mProjectMatrix, 0, -ratio, ratio, -1, 1, 3, 7);
 //        //设置相机位置
-        Matrix.setLookAtM(mViewMatrix, 0, 0, 0, 7.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
+        Mat4.setLookAtM(mViewMatrix, 0, 0, 0, 7.0f, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
 //        //计算变换矩阵
-        Matrix.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
+        Mat4.multiplyMM(mMVPMatrix, 0, mProjectMatrix, 0, mViewMatrix, 0);
 //        GLES20.glViewport(0,0,width,height);
     }
 
-    private final int vertexCount = triangleCoords.length / COORDS_PER_VERTEX;
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
-
 
     @Override
     public void onDrawFrame(GL10 gl) {
         //清楚抖动
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT | GLES20.GL_DEPTH_BUFFER_BIT);
 
         //将程序加入到OpenGLES2.0环境
-        GLES20.glUseProgram(mProgram);
-        //获取变换矩阵vMatrix成员句柄
-        int mMatrixHandler = GLES20.glGetUniformLocation(mProgram, "vMatrix");
+        mProgram.use();
         //指定vMatrix的值,通过生成的投影矩阵，来改变位置
-        GLES20.glUniformMatrix4fv(mMatrixHandler, 1, false, mMVPMatrix, 0);
-        //获取顶点着色器的vPosition成员句柄
-        int mPositionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
-        //启用三角形顶点的句柄
-        GLES20.glEnableVertexAttribArray(mPositionHandle);
-        //准备三角形的坐标数据
-        GLES20.glVertexAttribPointer(mPositionHandle, COORDS_PER_VERTEX,
-                GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-
-        //获取片元着色器的vColor成员的句柄
-        int mColorHandle = GLES20.glGetAttribLocation(mProgram, "aColor");
-        //设置绘制三角形的颜色
-        GLES20.glEnableVertexAttribArray(mColorHandle);
-        GLES20.glVertexAttribPointer(mColorHandle, 4,
-                GLES20.GL_FLOAT, false,
-                0, colorBuffer);
-
+        mMatrixHandler.setMatrix4fv(mMVPMatrix, 0);
         //绘制三角形
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
-        //禁止顶点数组的句柄
-        GLES20.glDisableVertexAttribArray(mPositionHandle);
+        mMesh.draw();
     }
 }
@@ -3,6 +3,9 @@ package com.example.opengl.render;
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
 
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
@@ -12,6 +15,16 @@ import javax.microedition.khronos.opengles.GL10;
  */
 public class MyGLRenderer implements GLSurfaceView.Renderer {
 
+    private final GL mGL;
+
+    public MyGLRenderer() {
+        this(AndroidGL.getInstance());
+    }
+
+    public MyGLRenderer(GL gl) {
+        mGL = gl;
+    }
+
     /**
      * 调用一次以设置视图的 OpenGL ES 环境。
      *
@@ -21,7 +34,7 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
     @Override
     public void onSurfaceCreated(GL10 gl10, EGLConfig eglConfig) {
         //设置背景的颜色
-        GLES20.glClearColor(1.0f, 0.0f, 0.0f, 1.0f);
+        mGL.glClearColor(1.0f, 0.0f, 0.0f, 1.0f);
 
     }
 
@@ -30,7 +43,7 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
      */
     @Override
     public void onSurfaceChanged(GL10 gl10, int width, int height) {
-        GLES20.glViewport(0, 0, width / 2, height / 2);
+        mGL.glViewport(0, 0, width / 2, height / 2);
     }
 
     /**
@@ -40,6 +53,6 @@ public class MyGLRenderer implements GLSurfaceView.Renderer {
      */
     @Override
     public void onDrawFrame(GL10 gl10) {
-        GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        mGL.glClear(GLES20.GL_COLOR_BUFFER_BIT);
     }
 }
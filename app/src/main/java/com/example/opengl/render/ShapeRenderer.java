@@ -2,9 +2,13 @@ package com.example.opengl.render;
 
 import android.opengl.GLES20;
 import android.opengl.GLSurfaceView;
-import android.opengl.Matrix;
 import android.os.SystemClock;
 
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.input.TouchInput;
+import com.example.opengl.math.Mat4;
+
 import javax.microedition.khronos.egl.EGLConfig;
 import javax.microedition.khronos.opengles.GL10;
 
@@ -13,12 +17,36 @@ import javax.microedition.khronos.opengles.GL10;
  * @date 2020-03-03
  */
 public class ShapeRenderer implements GLSurfaceView.Renderer {
+
+    private final GL mGL;
+    /**
+     * 触摸旋转的角度由输入线程整份发布，GL线程每帧取一次
+     */
+    private final TouchInput mInput;
+    private float mAngle;
+
+    public ShapeRenderer() {
+        this(AndroidGL.getInstance());
+    }
+
+    public ShapeRenderer(GL gl) {
+        this(gl, new TouchInput());
+    }
+
+    public ShapeRenderer(GL gl, TouchInput input) {
+        mGL = gl;
+        mInput = input;
+    }
+
     private Triangle mTriangle;
 
     @Override
     public void onSurfaceCreated(GL10 gl, EGLConfig config) {
 // initialize a triangle
-        mTriangle = new Triangle();
+        if (mTriangle != null) {
+            mTriangle.release();
+        }
+        mTriangle = new Triangle(mGL);
     }
 
     // vPMatrix is an abbreviation for "Model View Projection Matrix"
@@ -30,27 +58,30 @@ public class ShapeRenderer implements GLSurfaceView.Renderer {
     @Override
     public void onSurfaceChanged(GL10 unused, int width, int height) {
         //设置设置视图窗口
-        GLES20.glViewport(0, 0, width, height);
+        mGL.glViewport(0, 0, width, height);
 
         float ratio = (float) width / height;
 
         // this projection matrix is applied to object coordinates
         // in the onDrawFrame() method
-        Matrix.frustumM(projectionMatrix, 0, -ratio, ratio, -1, 1, 3, 7);
+        Mat4.frustumM(projectionMatrix, 0, -ratio, ratio, -1, 1, 3, 7);
     }
 
     private float[] rotationMatrix = new float[16];
 
     @Override
     public void onDrawFrame(GL10 unused) {
+        mInput.acquire();
+        mAngle = mInput.getSnapshot().getAngle();
         addRotate();
+        mInput.onFrameSubmitted(SystemClock.uptimeMillis());
     }
 
 
     private void addRotate() {
         // Set the camera position (View matrix)
         //设置相机变换矩阵
-        Matrix.setLookAtM(viewMatrix,//相机变换矩阵
+        Mat4.setLookAtM(viewMatrix,//相机变换矩阵
                 0,//变换矩阵的起始位置（偏移量）
                 0, 0, -3,//相机位置
                 0f, 0f, 0f,//观测点位置
@@ -58,18 +89,18 @@ public class ShapeRenderer implements GLSurfaceView.Renderer {
 
         // Calculate the projection and view transformation
         //矩阵相乘 vPMatrix是相乘的结果
-        Matrix.multiplyMM(vPMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
+        Mat4.multiplyMM(vPMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
 
         // Create a rotation for the triangle
         // long time = SystemClock.uptimeMillis() % 4000L;
         // float angle = 0.090f * ((int) time);
         //设置旋转变化矩阵
-        Matrix.setRotateM(rotationMatrix, 0, mAngle, 0, 0, -1.0f);
+        Mat4.setRotateM(rotationMatrix, 0, mAngle, 0, 0, -1.0f);
 
         // Combine the rotation matrix with the projection and camera view
         // Note that the vPMatrix factor *must be first* in order
         // for the matrix multiplication product to be correct.
-        Matrix.multiplyMM(scratch, 0, vPMatrix, 0, rotationMatrix, 0);
+        Mat4.multiplyMM(scratch, 0, vPMatrix, 0, rotationMatrix, 0);
 
         // Draw triangle
         mTriangle.draw(scratch);
@@ -78,32 +109,36 @@ public class ShapeRenderer implements GLSurfaceView.Renderer {
     private void addAnimation() {
 
         // Set the camera position (View matrix)
-        Matrix.setLookAtM(viewMatrix, 0, 0, 0, -3, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
+        Mat4.setLookAtM(viewMatrix, 0, 0, 0, -3, 0f, 0f, 0f, 0f, 1.0f, 0.0f);
 
         // Calculate the projection and view transformation
-        Matrix.multiplyMM(vPMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
+        Mat4.multiplyMM(vPMatrix, 0, projectionMatrix, 0, viewMatrix, 0);
 
         // Create a rotation transformation for the triangle
         long time = SystemClock.uptimeMillis() % 4000L;
         float angle = 0.090f * ((int) time);
-        Matrix.setRotateM(rotationMatrix, 0, angle, 0, 0, -1.0f);
+        Mat4.setRotateM(rotationMatrix, 0, angle, 0, 0, -1.0f);
 
         // Combine the rotation matrix with the projection and camera view
         // Note that the vPMatrix factor *must be first* in order
         // for the matrix multiplication product to be correct.
-        Matrix.multiplyMM(scratch, 0, vPMatrix, 0, rotationMatrix, 0);
+        Mat4.multiplyMM(scratch, 0, vPMatrix, 0, rotationMatrix, 0);
 
         // Draw triangle
         mTriangle.draw(scratch);
     }
 
-    public volatile float mAngle;
+    /**
+     * 触摸事件交给它处理，旋转在下一帧画出来
+     */
+    public TouchInput getTouchInput() {
+        return mInput;
+    }
 
+    /**
+     * 最近一帧画出来的角度
+     */
     public float getAngle() {
         return mAngle;
     }
-
-    public void setAngle(float angle) {
-        mAngle = angle;
-    }
 }
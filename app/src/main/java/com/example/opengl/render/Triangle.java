@@ -2,11 +2,11 @@ package com.example.opengl.render;
 
 import android.opengl.GLES20;
 
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
-import java.nio.FloatBuffer;
-
-import static com.example.opengl.utils.OpenGLUtils.loadShader;
+import com.example.gles.AndroidGL;
+import com.example.gles.GL;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
 
 /**
  * @author majun
@@ -49,9 +49,9 @@ public class Triangle {
                     "  gl_FragColor = vColor;" +
                     "}";
 
-    private final int mProgram;
+    private final GLProgram mProgram;
 
-    private FloatBuffer vertexBuffer;
+    private final Mesh mMesh;
 
     // number of coordinates per vertex in this array
     static final int COORDS_PER_VERTEX = 3;
@@ -64,92 +64,53 @@ public class Triangle {
     // Set color with red, green, blue and alpha (opacity) values
     float color[] = {0.63671875f, 0.76953125f, 0.22265625f, 1.0f};
 
-    public Triangle() {
-        //申请底层空间
-        // initialize vertex byte buffer for shape coordinates
-        ByteBuffer bb = ByteBuffer.allocateDirect(
-                // (number of coordinate values * 4 bytes per float)
-                triangleCoords.length * 4);
-        // use the device hardware's native byte order
-        bb.order(ByteOrder.nativeOrder());
-
-        //将坐标数据转换为FloatBuffer，用以传入给OpenGL ES程序
-        // create a floating point buffer from the ByteBuffer
-        vertexBuffer = bb.asFloatBuffer();
-        // add the coordinates to the FloatBuffer
-        vertexBuffer.put(triangleCoords);
-        // set the buffer to read the first coordinate
-        vertexBuffer.position(0);
-
-
-        //加载顶点着色程序
-        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, vertexShaderCode);
-        //加载片段着色程序
-        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
-
-        // create empty OpenGL ES Program
-        //程序 - 包含您希望用于绘制一个或多个形状的着色程序的 OpenGL ES 对象。
-        mProgram = GLES20.glCreateProgram();
-
-        // add the vertex shader to program
-        GLES20.glAttachShader(mProgram, vertexShader);
-
-        // add the fragment shader to program
-        GLES20.glAttachShader(mProgram, fragmentShader);
-
-        // creates OpenGL ES program executables
-        GLES20.glLinkProgram(mProgram);
-
+    private final GL mGL;
 
+    public Triangle() {
+        this(AndroidGL.getInstance());
     }
 
-    private int positionHandle;
-    private int colorHandle;
-    private int vPMatrixHandle;
+    public Triangle(GL gl) {
+        mGL = gl;
+        //从缓存获取着色器程序，代码相同的着色器只编译一次
+        mProgram = ProgramCache.getInstance().getProgram(mGL, vertexShaderCode, fragmentShaderCode);
+        // get handles once, instead of looking them up by name every frame
+        positionHandle = mProgram.attribute("vPosition");
+        colorHandle = mProgram.uniform("vColor");
+        vPMatrixHandle = mProgram.uniform("uMVPMatrix");
+
+        // upload the coordinates once into a buffer object
+        mMesh = new Mesh(mGL, GLES20.GL_TRIANGLES)
+                .addAttribute(positionHandle, COORDS_PER_VERTEX, triangleCoords);
+    }
 
-    private final int vertexCount = triangleCoords.length / COORDS_PER_VERTEX;
-    private final int vertexStride = COORDS_PER_VERTEX * 4; // 4 bytes per vertex
+    private final int positionHandle;
+    private final GLProgram.Uniform colorHandle;
+    private final GLProgram.Uniform vPMatrixHandle;
 
     public void draw(float[] mvpMatrix) {
         // Add program to OpenGL ES environment
-        GLES20.glUseProgram(mProgram);
-
-        // get handle to vertex shader's vPosition member
-        //获取顶点着色器的vPosition成员句柄
-        positionHandle = GLES20.glGetAttribLocation(mProgram, "vPosition");
-
-        // Enable a handle to the triangle vertices
-        GLES20.glEnableVertexAttribArray(positionHandle);
-
-        // Prepare the triangle coordinate data
-        GLES20.glVertexAttribPointer(positionHandle, COORDS_PER_VERTEX,
-                GLES20.GL_FLOAT, false,
-                vertexStride, vertexBuffer);
-
-        // get handle to fragment shader's vColor member
-        colorHandle = GLES20.glGetUniformLocation(mProgram, "vColor");
+        mProgram.use();
 
         // Set color for drawing the triangle
-        GLES20.glUniform4fv(colorHandle, 1, color, 0);
+        colorHandle.set4fv(color, 0);
 
         // Draw the triangle
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
-
-        // Disable vertex array
-        GLES20.glDisableVertexAttribArray(positionHandle);
-
-        // get handle to shape's transformation matrix
-        vPMatrixHandle = GLES20.glGetUniformLocation(mProgram, "uMVPMatrix");
+        mMesh.draw();
 
         // Pass the projection and view transformation to the shader
-        GLES20.glUniformMatrix4fv(vPMatrixHandle, 1, false, mvpMatrix, 0);
+        vPMatrixHandle.setMatrix4fv(mvpMatrix, 0);
 
         // Draw the triangle
-        GLES20.glDrawArrays(GLES20.GL_TRIANGLES, 0, vertexCount);
+        mMesh.draw();
 
-        // Disable vertex array
-        GLES20.glDisableVertexAttribArray(positionHandle);
+    }
 
+    /**
+     * 删除顶点缓冲区
+     */
+    public void release() {
+        mMesh.release();
     }
 
 
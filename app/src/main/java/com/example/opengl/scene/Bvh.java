@@ -0,0 +1,318 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.geometry.Bounds;
+
+import java.util.Arrays;
+
+/**
+ * 世界空间包围盒的层次包围体（BVH），用来批量做视锥剔除。
+ * 建树时按包围盒中心在最长轴上的中位数二分，节点按先序存放在数组里：
+ * 左子节点紧跟在父节点后面，每个节点包含的物体在叶子顺序中是一段连续区间。
+ * <p>
+ * 剔除时整个节点在视锥外就跳过它的全部物体，整个节点在视锥内就直接输出全部物体，
+ * 只有和视锥边界相交的节点才继续往下测试，大部分物体在屏幕外时测试次数远少于物体个数。
+ * 物体移动后用 {@link #setItemBounds(int, float[], int)} 更新包围盒再 {@link #refit()}，
+ * 树的结构不变；移动很大导致剔除效率下降时重新 {@link #build(float[], int)}。
+ * <p>
+ * 每帧开始时调用 {@link #beginFrame()}，上一帧的统计通过 getLastFrame* 方法读取。
+ * 不是线程安全的。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class Bvh {
+
+    /**
+     * 叶子节点最多的物体个数
+     */
+    public static final int LEAF_SIZE = 4;
+    private static final int AABB = Bounds.AABB_SIZE;
+    /**
+     * 中位数二分的树深度不超过 log2(n)+1，64层足够
+     */
+    private static final int MAX_DEPTH = 64;
+
+    private float[] mItemBounds = new float[0];
+    private float[] mCentroids = new float[0];
+    private int mItemCount;
+    /**
+     * 物体编号按叶子顺序排列
+     */
+    private int[] mItems = new int[0];
+
+    private float[] mNodeBounds = new float[0];
+    private int[] mNodeStart = new int[0];
+    private int[] mNodeItemCount = new int[0];
+    /**
+     * 右子节点的下标，叶子节点为 0
+     */
+    private int[] mNodeRight = new int[0];
+    private int mNodeCount;
+
+    private final int[] mStack = new int[MAX_DEPTH * 2];
+
+    private int mVisible;
+    private int mCulled;
+    private int mNodeTests;
+    private int mLastFrameVisible;
+    private int mLastFrameCulled;
+    private int mLastFrameNodeTests;
+
+    /**
+     * 建树
+     *
+     * @param aabbs 每个物体的世界空间包围盒，按 minX, minY, minZ, maxX, maxY, maxZ 存放，会被复制
+     * @param count 物体个数
+     */
+    public void build(float[] aabbs, int count) {
+        mItemCount = count;
+        if (mItemBounds.length < count * AABB) {
+            mItemBounds = new float[count * AABB];
+            mCentroids = new float[count * 3];
+            mItems = new int[count];
+        }
+        System.arraycopy(aabbs, 0, mItemBounds, 0, count * AABB);
+        for (int i = 0; i < count; i++) {
+            mItems[i] = i;
+            for (int axis = 0; axis < 3; axis++) {
+                mCentroids[i * 3 + axis] = (aabbs[i * AABB + axis] + aabbs[i * AABB + 3 + axis]) * 0.5f;
+            }
+        }
+        //叶子最少1个物体，节点个数不超过 2n-1
+        int capacity = Math.max(1, count * 2);
+        if (mNodeStart.length < capacity) {
+            mNodeBounds = new float[capacity * AABB];
+            mNodeStart = new int[capacity];
+            mNodeItemCount = new int[capacity];
+            mNodeRight = new int[capacity];
+        }
+        mNodeCount = 0;
+        buildNode(0, count);
+    }
+
+    private int buildNode(int start, int end) {
+        int node = mNodeCount++;
+        mNodeStart[node] = start;
+        mNodeItemCount[node] = end - start;
+        mNodeRight[node] = 0;
+        computeNodeBounds(node);
+        if (end - start <= LEAF_SIZE) {
+            return node;
+        }
+        //按中心点的范围选最长的轴
+        float[] centroids = mCentroids;
+        float[] min = {Float.MAX_VALUE, Float.MAX_VALUE, Float.MAX_VALUE};
+        float[] max = {-Float.MAX_VALUE, -Float.MAX_VALUE, -Float.MAX_VALUE};
+        for (int i = start; i < end; i++) {
+            int c = mItems[i] * 3;
+            for (int axis = 0; axis < 3; axis++) {
+                min[axis] = Math.min(min[axis], centroids[c + axis]);
+                max[axis] = Math.max(max[axis], centroids[c + axis]);
+            }
+        }
+        int axis = 0;
+        for (int a = 1; a < 3; a++) {
+            if (max[a] - min[a] > max[axis] - min[axis]) {
+                axis = a;
+            }
+        }
+        if (max[axis] <= min[axis]) {
+            //中心都重合时分不开，留作叶子
+            return node;
+        }
+        int mid = (start + end) >>> 1;
+        select(start, end - 1, mid, axis);
+        buildNode(start, mid);
+        mNodeRight[node] = buildNode(mid, end);
+        return node;
+    }
+
+    /**
+     * 快速选择，让 mItems[k] 是 [left, right] 中按 axis 排第 k 的物体，左边都不大于它，右边都不小于它
+     */
+    private void select(int left, int right, int k, int axis) {
+        int[] items = mItems;
+        float[] centroids = mCentroids;
+        while (left < right) {
+            float pivot = centroids[items[(left + right) >>> 1] * 3 + axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (centroids[items[i] * 3 + axis] < pivot) {
+                    i++;
+                }
+                while (centroids[items[j] * 3 + axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int t = items[i];
+                    items[i] = items[j];
+                    items[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /**
+     * 更新一个物体的包围盒，所有物体更新完后调用 {@link #refit()}
+     */
+    public void setItemBounds(int item, float[] aabb, int offset) {
+        System.arraycopy(aabb, offset, mItemBounds, item * AABB, AABB);
+    }
+
+    /**
+     * 按物体新的包围盒自底向上重新计算节点的包围盒。
+     * 子节点总在父节点后面，倒序计算即可
+     */
+    public void refit() {
+        float[] bounds = mNodeBounds;
+        for (int node = mNodeCount - 1; node >= 0; node--) {
+            int right = mNodeRight[node];
+            if (right == 0) {
+                computeNodeBounds(node);
+                continue;
+            }
+            int n = node * AABB;
+            int l = (node + 1) * AABB;
+            int r = right * AABB;
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[n + axis] = Math.min(bounds[l + axis], bounds[r + axis]);
+                bounds[n + 3 + axis] = Math.max(bounds[l + 3 + axis], bounds[r + 3 + axis]);
+            }
+        }
+    }
+
+    private void computeNodeBounds(int node) {
+        float[] bounds = mNodeBounds;
+        float[] items = mItemBounds;
+        int n = node * AABB;
+        for (int axis = 0; axis < 3; axis++) {
+            bounds[n + axis] = Float.MAX_VALUE;
+            bounds[n + 3 + axis] = -Float.MAX_VALUE;
+        }
+        int end = mNodeStart[node] + mNodeItemCount[node];
+        for (int i = mNodeStart[node]; i < end; i++) {
+            int b = mItems[i] * AABB;
+            for (int axis = 0; axis < 3; axis++) {
+                bounds[n + axis] = Math.min(bounds[n + axis], items[b + axis]);
+                bounds[n + 3 + axis] = Math.max(bounds[n + 3 + axis], items[b + 3 + axis]);
+            }
+        }
+    }
+
+    /**
+     * 找出可能可见的物体
+     *
+     * @param result 写入可见物体的编号，长度不小于物体个数；顺序按树的叶子顺序，不是编号顺序
+     * @return 可见物体的个数
+     */
+    public int cull(Frustum frustum, int[] result) {
+        if (mItemCount == 0) {
+            return 0;
+        }
+        int visible = 0;
+        int[] stack = mStack;
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            int node = stack[--top];
+            mNodeTests++;
+            int state = frustum.classifyAabb(mNodeBounds, node * AABB);
+            if (state == Frustum.OUTSIDE) {
+                continue;
+            }
+            int start = mNodeStart[node];
+            int count = mNodeItemCount[node];
+            if (state == Frustum.INSIDE) {
+                //整个子树都在视锥内，不再测试
+                System.arraycopy(mItems, start, result, visible, count);
+                visible += count;
+                continue;
+            }
+            int right = mNodeRight[node];
+            if (right != 0) {
+                stack[top++] = right;
+                stack[top++] = node + 1;
+                continue;
+            }
+            for (int i = start; i < start + count; i++) {
+                int item = mItems[i];
+                mNodeTests++;
+                if (frustum.classifyAabb(mItemBounds, item * AABB) != Frustum.OUTSIDE) {
+                    result[visible++] = item;
+                }
+            }
+        }
+        mVisible += visible;
+        mCulled += mItemCount - visible;
+        return visible;
+    }
+
+    /**
+     * 不用树、逐个测试每个物体，用来和 {@link #cull(Frustum, int[])} 比较，不计入统计
+     */
+    public int cullLinear(Frustum frustum, int[] result) {
+        int visible = 0;
+        for (int item = 0; item < mItemCount; item++) {
+            if (frustum.classifyAabb(mItemBounds, item * AABB) != Frustum.OUTSIDE) {
+                result[visible++] = item;
+            }
+        }
+        return visible;
+    }
+
+    public int getItemCount() {
+        return mItemCount;
+    }
+
+    public int getNodeCount() {
+        return mNodeCount;
+    }
+
+    /**
+     * 根节点的包围盒，也就是所有物体的包围盒
+     */
+    public float[] getRootBounds() {
+        return Arrays.copyOf(mNodeBounds, AABB);
+    }
+
+    public void beginFrame() {
+        mLastFrameVisible = mVisible;
+        mLastFrameCulled = mCulled;
+        mLastFrameNodeTests = mNodeTests;
+        mVisible = 0;
+        mCulled = 0;
+        mNodeTests = 0;
+    }
+
+    public int getLastFrameVisibleCount() {
+        return mLastFrameVisible;
+    }
+
+    public int getLastFrameCulledCount() {
+        return mLastFrameCulled;
+    }
+
+    /**
+     * 上一帧做的包围盒测试次数，包括节点和叶子里的物体
+     */
+    public int getLastFrameTestCount() {
+        return mLastFrameNodeTests;
+    }
+
+    public String getReport() {
+        int total = mLastFrameVisible + mLastFrameCulled;
+        return mLastFrameVisible + " visible, " + mLastFrameCulled + " culled"
+                + " (" + (total > 0 ? mLastFrameCulled * 100 / total : 0) + "%), "
+                + mLastFrameNodeTests + " box tests for " + total + " objects";
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.geometry.Bounds;
+
+/**
+ * 从视图投影矩阵提取的六个裁剪平面，平面法线朝向视锥内部并已归一化。
+ * 传入视图投影矩阵时平面在世界空间；传入模型视图投影矩阵时平面在模型空间，
+ * 可以直接测试模型的 {@link Bounds}。
+ * <p>
+ * 测试都是保守的：返回不可见时一定在视锥外，返回可见时可能仍在视锥外的角落里。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class Frustum {
+
+    /**
+     * 完全在视锥外
+     */
+    public static final int OUTSIDE = 0;
+    /**
+     * 和视锥的边界相交
+     */
+    public static final int INTERSECTING = 1;
+    /**
+     * 完全在视锥内
+     */
+    public static final int INSIDE = 2;
+
+    private static final int PLANE_COUNT = 6;
+
+    /**
+     * 每个平面 a, b, c, d，点 (x,y,z) 在平面内侧时 ax+by+cz+d >= 0
+     */
+    private final float[] mPlanes = new float[PLANE_COUNT * 4];
+
+    /**
+     * 从列主序的矩阵提取平面：裁剪空间中 -w <= x,y,z <= w，
+     * 分别是矩阵第4行加减第1、2、3行
+     */
+    public Frustum set(float[] m, int offset) {
+        for (int i = 0; i < 3; i++) {
+            setPlane(i * 2, m, offset, i, 1f);
+            setPlane(i * 2 + 1, m, offset, i, -1f);
+        }
+        return this;
+    }
+
+    private void setPlane(int plane, float[] m, int offset, int row, float sign) {
+        float a = m[offset + 3] + sign * m[offset + row];
+        float b = m[offset + 7] + sign * m[offset + 4 + row];
+        float c = m[offset + 11] + sign * m[offset + 8 + row];
+        float d = m[offset + 15] + sign * m[offset + 12 + row];
+        float length = (float) Math.sqrt(a * a + b * b + c * c);
+        float scale = length > 0f ? 1f / length : 0f;
+        int p = plane * 4;
+        mPlanes[p] = a * scale;
+        mPlanes[p + 1] = b * scale;
+        mPlanes[p + 2] = c * scale;
+        mPlanes[p + 3] = d * scale;
+    }
+
+    /**
+     * 平面的系数 a, b, c, d，顺序为左、右、下、上、近、远
+     */
+    public void getPlane(int plane, float[] result, int offset) {
+        System.arraycopy(mPlanes, plane * 4, result, offset, 4);
+    }
+
+    /**
+     * 球和视锥是否可能相交
+     */
+    public boolean intersectsSphere(float x, float y, float z, float radius) {
+        float[] planes = mPlanes;
+        for (int p = 0; p < PLANE_COUNT * 4; p += 4) {
+            if (planes[p] * x + planes[p + 1] * y + planes[p + 2] * z + planes[p + 3] < -radius) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 包围盒和视锥的关系
+     *
+     * @param aabb 按 minX, minY, minZ, maxX, maxY, maxZ 存放
+     * @return {@link #OUTSIDE}、{@link #INTERSECTING} 或 {@link #INSIDE}
+     */
+    public int classifyAabb(float[] aabb, int offset) {
+        float cx = (aabb[offset] + aabb[offset + 3]) * 0.5f;
+        float cy = (aabb[offset + 1] + aabb[offset + 4]) * 0.5f;
+        float cz = (aabb[offset + 2] + aabb[offset + 5]) * 0.5f;
+        float ex = (aabb[offset + 3] - aabb[offset]) * 0.5f;
+        float ey = (aabb[offset + 4] - aabb[offset + 1]) * 0.5f;
+        float ez = (aabb[offset + 5] - aabb[offset + 2]) * 0.5f;
+        return classify(cx, cy, cz, ex, ey, ez);
+    }
+
+    /**
+     * 模型空间的包围体是否可能可见，先用包围球排除，再测试包围盒
+     */
+    public boolean isVisible(Bounds bounds) {
+        float cx = bounds.getCenterX();
+        float cy = bounds.getCenterY();
+        float cz = bounds.getCenterZ();
+        if (!intersectsSphere(cx, cy, cz, bounds.getRadius())) {
+            return false;
+        }
+        return classify(cx, cy, cz, (bounds.getMaxX() - bounds.getMinX()) * 0.5f,
+                (bounds.getMaxY() - bounds.getMinY()) * 0.5f, (bounds.getMaxZ() - bounds.getMinZ()) * 0.5f) != OUTSIDE;
+    }
+
+    /**
+     * 中心到平面的距离和半边长在法线上的投影比较
+     */
+    private int classify(float cx, float cy, float cz, float ex, float ey, float ez) {
+        float[] planes = mPlanes;
+        int result = INSIDE;
+        for (int p = 0; p < PLANE_COUNT * 4; p += 4) {
+            float a = planes[p];
+            float b = planes[p + 1];
+            float c = planes[p + 2];
+            float distance = a * cx + b * cy + c * cz + planes[p + 3];
+            float extent = Math.abs(a) * ex + Math.abs(b) * ey + Math.abs(c) * ez;
+            if (distance < -extent) {
+                return OUTSIDE;
+            }
+            if (distance < extent) {
+                result = INTERSECTING;
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,236 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.math.Mat4;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 扁平存放的场景图。所有节点的局部矩阵和世界矩阵按深度优先的顺序连续存放在 float 数组里，
+ * 父节点总在子节点前面，一个节点的子树是紧跟在它后面的一段连续区间，
+ * 更新时顺序读写数组，不需要递归也不需要访问节点对象。
+ * <p>
+ * 修改局部变换的节点记录在脏列表里，{@link #update()} 只重新计算这些节点的子树，
+ * 没有变化的部分不做任何计算，每帧的开销和变化的节点数成正比。
+ * 添加或移除节点后下一次 update 重新排列数组并计算全部节点。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class SceneGraph {
+
+    private static final int MATRIX_SIZE = 16;
+
+    float[] mLocal;
+    float[] mWorld;
+    /**
+     * 父节点的下标，根节点为 -1
+     */
+    private int[] mParent;
+    /**
+     * 子树结束的下标（不含）
+     */
+    private int[] mEnd;
+    private boolean[] mDirty;
+    private SceneNode[] mNodes;
+    private int mCount;
+
+    private int[] mDirtyRoots = new int[16];
+    private int mDirtyCount;
+    boolean mStructureChanged;
+
+    private final SceneNode mRoot;
+    private int mLastUpdateCount;
+
+    public SceneGraph() {
+        this(64);
+    }
+
+    /**
+     * @param capacity 预先分配的节点个数，不够时按两倍扩容
+     */
+    public SceneGraph(int capacity) {
+        capacity = Math.max(1, capacity);
+        mLocal = new float[capacity * MATRIX_SIZE];
+        mWorld = new float[capacity * MATRIX_SIZE];
+        mParent = new int[capacity];
+        mEnd = new int[capacity];
+        mDirty = new boolean[capacity];
+        mNodes = new SceneNode[capacity];
+        mRoot = new SceneNode(this, null, 0);
+        mNodes[0] = mRoot;
+        mParent[0] = -1;
+        mEnd[0] = 1;
+        mCount = 1;
+        mRoot.setIdentity();
+    }
+
+    /**
+     * 根节点，局部变换默认是单位矩阵
+     */
+    public SceneNode getRoot() {
+        return mRoot;
+    }
+
+    /**
+     * 创建一个局部变换为单位矩阵的子节点
+     */
+    public SceneNode createNode(SceneNode parent) {
+        if (parent.mGraph != this || parent.mIndex < 0) {
+            throw new IllegalArgumentException("parent is not in this graph");
+        }
+        ensureCapacity(mCount + 1);
+        //先放在数组末尾，下一次 update 再按深度优先重新排列
+        SceneNode node = new SceneNode(this, parent, mCount);
+        mNodes[mCount] = node;
+        mCount++;
+        parent.mChildren.add(node);
+        mStructureChanged = true;
+        node.setIdentity();
+        return node;
+    }
+
+    public int getNodeCount() {
+        return mCount;
+    }
+
+    /**
+     * 所有节点的世界矩阵，每16个 float 一个，节点的偏移见 {@link SceneNode#getWorldOffset()}。
+     * 扩容或重新排列后会换成新的数组，每次 update 后重新获取
+     */
+    public float[] getWorldMatrices() {
+        return mWorld;
+    }
+
+    /**
+     * 上一次 update 重新计算的世界矩阵个数
+     */
+    public int getLastUpdateCount() {
+        return mLastUpdateCount;
+    }
+
+    void markDirty(SceneNode node) {
+        int index = node.mIndex;
+        if (mStructureChanged || mDirty[index]) {
+            return;
+        }
+        mDirty[index] = true;
+        if (mDirtyCount == mDirtyRoots.length) {
+            mDirtyRoots = Arrays.copyOf(mDirtyRoots, mDirtyCount * 2);
+        }
+        mDirtyRoots[mDirtyCount++] = index;
+    }
+
+    /**
+     * 重新计算局部变换改变过的节点及其子树的世界矩阵
+     */
+    public void update() {
+        if (mStructureChanged) {
+            relayout();
+            clearDirty();
+            mLastUpdateCount = recompute(0);
+            return;
+        }
+        int updated = 0;
+        if (mDirtyCount > 0) {
+            //按下标排序后，父节点的子树区间包含了子节点，后面落在已经更新过的区间里的直接跳过
+            Arrays.sort(mDirtyRoots, 0, mDirtyCount);
+            int done = 0;
+            for (int k = 0; k < mDirtyCount; k++) {
+                int index = mDirtyRoots[k];
+                if (index >= done) {
+                    updated += recompute(index);
+                    done = mEnd[index];
+                }
+            }
+            clearDirty();
+        }
+        mLastUpdateCount = updated;
+    }
+
+    private void clearDirty() {
+        for (int k = 0; k < mDirtyCount; k++) {
+            mDirty[mDirtyRoots[k]] = false;
+        }
+        mDirtyCount = 0;
+    }
+
+    /**
+     * 重新计算 index 的子树，子树里每个节点的父节点都在它前面，顺序计算即可
+     */
+    private int recompute(int index) {
+        float[] local = mLocal;
+        float[] world = mWorld;
+        int[] parents = mParent;
+        int end = mEnd[index];
+        for (int i = index; i < end; i++) {
+            int parent = parents[i];
+            if (parent < 0) {
+                System.arraycopy(local, i * MATRIX_SIZE, world, i * MATRIX_SIZE, MATRIX_SIZE);
+            } else {
+                //局部变换只有平移、旋转、缩放，是仿射矩阵
+                Mat4.multiplyMMAffine(world, i * MATRIX_SIZE, world, parent * MATRIX_SIZE, local, i * MATRIX_SIZE);
+            }
+        }
+        return end - index;
+    }
+
+    /**
+     * 从根节点按深度优先重新排列，移除的节点不再出现
+     */
+    private void relayout() {
+        int capacity = mNodes.length;
+        float[] local = new float[capacity * MATRIX_SIZE];
+        int[] parents = new int[capacity];
+        int[] ends = new int[capacity];
+        SceneNode[] nodes = new SceneNode[capacity];
+
+        List<SceneNode> stack = new ArrayList<>();
+        stack.add(mRoot);
+        int count = 0;
+        while (!stack.isEmpty()) {
+            SceneNode node = stack.remove(stack.size() - 1);
+            System.arraycopy(mLocal, node.mIndex * MATRIX_SIZE, local, count * MATRIX_SIZE, MATRIX_SIZE);
+            nodes[count] = node;
+            node.mIndex = count;
+            parents[count] = node.mParent != null ? node.mParent.mIndex : -1;
+            count++;
+            //倒序入栈，第一个子节点先出栈，保持子节点的顺序
+            for (int c = node.mChildren.size() - 1; c >= 0; c--) {
+                stack.add(node.mChildren.get(c));
+            }
+        }
+        //倒序计算子树的结束位置：有子节点时和最后一个子节点的子树一起结束
+        for (int i = count - 1; i >= 0; i--) {
+            List<SceneNode> children = nodes[i].mChildren;
+            ends[i] = children.isEmpty() ? i + 1 : ends[children.get(children.size() - 1).mIndex];
+        }
+        //被移除的节点没有分配新的下标
+        for (int i = 0; i < mCount; i++) {
+            SceneNode node = mNodes[i];
+            if (node.mIndex >= count || nodes[node.mIndex] != node) {
+                node.mIndex = -1;
+            }
+        }
+        mLocal = local;
+        mParent = parents;
+        mEnd = ends;
+        mNodes = nodes;
+        mCount = count;
+        mStructureChanged = false;
+    }
+
+    private void ensureCapacity(int count) {
+        if (count <= mNodes.length) {
+            return;
+        }
+        int capacity = Math.max(count, mNodes.length * 2);
+        mLocal = Arrays.copyOf(mLocal, capacity * MATRIX_SIZE);
+        mWorld = Arrays.copyOf(mWorld, capacity * MATRIX_SIZE);
+        mParent = Arrays.copyOf(mParent, capacity);
+        mEnd = Arrays.copyOf(mEnd, capacity);
+        mDirty = Arrays.copyOf(mDirty, capacity);
+        mNodes = Arrays.copyOf(mNodes, capacity);
+    }
+}
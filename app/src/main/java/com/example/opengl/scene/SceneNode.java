@@ -0,0 +1,112 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.math.Mat4;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 场景图中的一个节点，有一个相对父节点的局部变换。
+ * 局部矩阵和世界矩阵都存放在 {@link SceneGraph} 的连续数组里，节点只记录自己的下标；
+ * 修改局部变换后节点被标记为脏，下一次 {@link SceneGraph#update()} 只重新计算脏节点的子树。
+ * <p>
+ * 变换方法和 {@link com.example.opengl.utils.MatrixTools} 一样右乘到局部矩阵上，
+ * 只能在更新场景图的线程调用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class SceneNode {
+
+    final SceneGraph mGraph;
+    SceneNode mParent;
+    final List<SceneNode> mChildren = new ArrayList<>();
+    /**
+     * 在场景图数组中的下标，结构变化后重新按深度优先排列时会改变
+     */
+    int mIndex;
+
+    SceneNode(SceneGraph graph, SceneNode parent, int index) {
+        mGraph = graph;
+        mParent = parent;
+        mIndex = index;
+    }
+
+    public SceneNode getParent() {
+        return mParent;
+    }
+
+    public int getChildCount() {
+        return mChildren.size();
+    }
+
+    public SceneNode getChild(int index) {
+        return mChildren.get(index);
+    }
+
+    /**
+     * 局部变换重置为单位矩阵
+     */
+    public SceneNode setIdentity() {
+        Mat4.setIdentityM(mGraph.mLocal, localOffset());
+        mGraph.markDirty(this);
+        return this;
+    }
+
+    public SceneNode setLocalMatrix(float[] m, int offset) {
+        System.arraycopy(m, offset, mGraph.mLocal, localOffset(), 16);
+        mGraph.markDirty(this);
+        return this;
+    }
+
+    public SceneNode translate(float x, float y, float z) {
+        Mat4.translateM(mGraph.mLocal, localOffset(), x, y, z);
+        mGraph.markDirty(this);
+        return this;
+    }
+
+    public SceneNode rotate(float angle, float x, float y, float z) {
+        Mat4.rotateM(mGraph.mLocal, localOffset(), angle, x, y, z);
+        mGraph.markDirty(this);
+        return this;
+    }
+
+    public SceneNode scale(float x, float y, float z) {
+        Mat4.scaleM(mGraph.mLocal, localOffset(), x, y, z);
+        mGraph.markDirty(this);
+        return this;
+    }
+
+    /**
+     * 世界矩阵在 {@link SceneGraph#getWorldMatrices()} 中的偏移，update 之后有效
+     */
+    public int getWorldOffset() {
+        return mIndex * 16;
+    }
+
+    /**
+     * 复制世界矩阵，update 之后有效
+     */
+    public void getWorldMatrix(float[] result, int offset) {
+        System.arraycopy(mGraph.mWorld, getWorldOffset(), result, offset, 16);
+    }
+
+    /**
+     * 把这个节点和它的子树从场景图中移除，移除后不能再使用
+     */
+    public void removeFromParent() {
+        if (mParent == null) {
+            throw new IllegalStateException("can not remove the root");
+        }
+        mParent.mChildren.remove(this);
+        mParent = null;
+        mGraph.mStructureChanged = true;
+    }
+
+    private int localOffset() {
+        if (mIndex < 0) {
+            throw new IllegalStateException("node has been removed");
+        }
+        return mIndex * 16;
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.opengl.shape;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.opengl.mesh.VertexLayout;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+/**
+ * 用有向距离场画圆、圆环和圆角矩形：每个图形只有一个和屏幕对齐的四边形，
+ * 片元着色器算出像素到图形边缘的距离，边缘一个像素内按距离做抗锯齿。
+ * 图形再大也只有4个顶点，边缘始终是平滑的，不需要根据大小增加分段。
+ * <p>
+ * 所有图形的参数都放在顶点属性里，{@link #begin(float[])} 和 {@link #end()} 之间添加的图形
+ * 一次 glDrawElements 画完，超过容量时自动分批。坐标以像素为单位，投影矩阵通常用
+ * {@code Mat4.orthoM(m, 0, 0, width, height, 0, -1, 1)}。边缘的透明度需要开启混合
+ * {@code glBlendFunc(GL_SRC_ALPHA, GL_ONE_MINUS_SRC_ALPHA)}。
+ * <p>
+ * 只能在GL线程创建和使用，不再使用时调用 {@link #release()}。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class SdfBatch {
+
+    /**
+     * short 索引最多引用 65536 个顶点，每个图形4个顶点
+     */
+    public static final int MAX_CAPACITY = (1 << 16) / 4;
+
+    /**
+     * 四边形比图形向外扩展的像素数，留给边缘的抗锯齿
+     */
+    private static final float MARGIN = 1f;
+
+    private static final String VERTEX_SHADER =
+            "uniform mat4 uProjection;" +
+                    "attribute vec2 aPosition;" +
+                    "attribute vec2 aLocal;" +
+                    "attribute vec4 aShape;" +
+                    "attribute vec4 aColor;" +
+                    "varying vec2 vLocal;" +
+                    "varying vec4 vShape;" +
+                    "varying vec4 vColor;" +
+                    "void main(){" +
+                    "    vLocal=aLocal;" +
+                    "    vShape=aShape;" +
+                    "    vColor=aColor;" +
+                    "    gl_Position=uProjection*vec4(aPosition,0.0,1.0);" +
+                    "}";
+
+    /**
+     * vShape 是 (半宽, 半高, 圆角半径, 圆环宽度)，圆是圆角半径等于半宽的正方形，
+     * 圆环宽度大于0时只保留边缘向内这么宽的一圈。距离以像素为单位，
+     * 所以不需要 OES_standard_derivatives 就能得到一个像素宽的抗锯齿过渡
+     */
+    private static final String FRAGMENT_SHADER =
+            "#ifdef GL_FRAGMENT_PRECISION_HIGH\n" +
+                    "precision highp float;\n" +
+                    "#else\n" +
+                    "precision mediump float;\n" +
+                    "#endif\n" +
+                    "varying vec2 vLocal;" +
+                    "varying vec4 vShape;" +
+                    "varying vec4 vColor;" +
+                    "void main(){" +
+                    "    vec2 q=abs(vLocal)-vShape.xy+vShape.z;" +
+                    "    float d=length(max(q,0.0))+min(max(q.x,q.y),0.0)-vShape.z;" +
+                    "    float ring=abs(d+vShape.w*0.5)-vShape.w*0.5;" +
+                    "    d=mix(d,ring,step(0.0001,vShape.w));" +
+                    "    gl_FragColor=vec4(vColor.rgb,vColor.a*clamp(0.5-d,0.0,1.0));" +
+                    "}";
+
+    private static final VertexLayout LAYOUT = new VertexLayout()
+            .add("aPosition", 2)
+            .add("aLocal", 2)
+            .add("aShape", 4)
+            .add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true);
+
+    /**
+     * 每个顶点占用的 int 个数
+     */
+    private static final int VERTEX_INTS = LAYOUT.getStride() / 4;
+
+    private final GL mGL;
+    private final GLProgram mProgram;
+    private final GLProgram.Uniform mProjection;
+    private final int[] mLocations = new int[LAYOUT.getAttributeCount()];
+    private final int mCapacity;
+    /**
+     * 顶点先写到 int 数组里，浮点数按位存放，最后一次拷贝到直接缓冲区
+     */
+    private final int[] mVertices;
+    private final IntBuffer mVertexBuffer;
+    private final int[] mNames = new int[2];
+    private final boolean mLittleEndian = ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN;
+
+    private float[] mMatrix;
+    private int mCount;
+    private boolean mDrawing;
+
+    private int mShapeCount;
+    private int mDrawCallCount;
+    private long mUploadedBytes;
+
+    /**
+     * @param capacity 一次绘制最多的图形个数，不超过 {@link #MAX_CAPACITY}
+     */
+    public SdfBatch(GL gl, int capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be 1~" + MAX_CAPACITY + ": " + capacity);
+        }
+        mGL = gl;
+        mCapacity = capacity;
+        mProgram = ProgramCache.getInstance().getProgram(gl, VERTEX_SHADER, FRAGMENT_SHADER);
+        mProjection = mProgram.uniform("uProjection");
+        for (int i = 0; i < mLocations.length; i++) {
+            mLocations[i] = mProgram.attribute(LAYOUT.getName(i));
+        }
+        mVertices = new int[capacity * 4 * VERTEX_INTS];
+        mVertexBuffer = ByteBuffer.allocateDirect(mVertices.length * 4).order(ByteOrder.nativeOrder()).asIntBuffer();
+
+        //每个图形两个三角形，索引不会变化，创建时一次上传
+        ShortBuffer indices = ByteBuffer.allocateDirect(capacity * 6 * 2).order(ByteOrder.nativeOrder()).asShortBuffer();
+        for (int i = 0; i < capacity; i++) {
+            short v = (short) (i * 4);
+            indices.put(v).put((short) (v + 1)).put((short) (v + 2))
+                    .put((short) (v + 2)).put((short) (v + 1)).put((short) (v + 3));
+        }
+        indices.position(0);
+        gl.glGenBuffers(2, mNames, 0);
+        gl.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mNames[1]);
+        gl.glBufferData(GLES20.GL_ELEMENT_ARRAY_BUFFER, capacity * 6 * 2, indices, GLES20.GL_STATIC_DRAW);
+    }
+
+    public SdfBatch(GL gl) {
+        this(gl, 4096);
+    }
+
+    /**
+     * 开始添加图形，清空上一批的统计
+     *
+     * @param projection 像素坐标到裁剪坐标的变换，绘制时才读取，end 之前不要修改
+     */
+    public void begin(float[] projection) {
+        if (mDrawing) {
+            throw new IllegalStateException("begin() called twice");
+        }
+        mDrawing = true;
+        mMatrix = projection;
+        mCount = 0;
+        mShapeCount = 0;
+        mDrawCallCount = 0;
+        mUploadedBytes = 0;
+    }
+
+    /**
+     * @param color ARGB 颜色，和 android.graphics.Color 相同
+     */
+    public void circle(float x, float y, float radius, int color) {
+        shape(x, y, radius, radius, radius, 0f, color);
+    }
+
+    /**
+     * 圆环，外半径为 radius，向内 thickness 像素宽
+     */
+    public void ring(float x, float y, float radius, float thickness, int color) {
+        shape(x, y, radius, radius, radius, thickness, color);
+    }
+
+    /**
+     * 以 (x, y) 为中心的圆角矩形
+     */
+    public void roundRect(float x, float y, float halfWidth, float halfHeight, float cornerRadius, int color) {
+        float corner = Math.min(cornerRadius, Math.min(halfWidth, halfHeight));
+        shape(x, y, halfWidth, halfHeight, corner, 0f, color);
+    }
+
+    /**
+     * 画完所有还没有画的图形
+     */
+    public void end() {
+        if (!mDrawing) {
+            throw new IllegalStateException("end() without begin()");
+        }
+        flush();
+        mDrawing = false;
+        mMatrix = null;
+    }
+
+    private void shape(float x, float y, float halfWidth, float halfHeight, float corner, float thickness, int color) {
+        if (!mDrawing) {
+            throw new IllegalStateException("begin() must be called first");
+        }
+        if (mCount == mCapacity) {
+            flush();
+        }
+        float ex = halfWidth + MARGIN;
+        float ey = halfHeight + MARGIN;
+        int rgba = toRgba(color);
+        int p = mCount * 4 * VERTEX_INTS;
+        p = vertex(p, x - ex, y - ey, -ex, -ey, halfWidth, halfHeight, corner, thickness, rgba);
+        p = vertex(p, x + ex, y - ey, ex, -ey, halfWidth, halfHeight, corner, thickness, rgba);
+        p = vertex(p, x - ex, y + ey, -ex, ey, halfWidth, halfHeight, corner, thickness, rgba);
+        vertex(p, x + ex, y + ey, ex, ey, halfWidth, halfHeight, corner, thickness, rgba);
+        mCount++;
+        mShapeCount++;
+    }
+
+    private int vertex(int p, float x, float y, float localX, float localY,
+                       float halfWidth, float halfHeight, float corner, float thickness, int rgba) {
+        int[] v = mVertices;
+        v[p] = Float.floatToRawIntBits(x);
+        v[p + 1] = Float.floatToRawIntBits(y);
+        v[p + 2] = Float.floatToRawIntBits(localX);
+        v[p + 3] = Float.floatToRawIntBits(localY);
+        v[p + 4] = Float.floatToRawIntBits(halfWidth);
+        v[p + 5] = Float.floatToRawIntBits(halfHeight);
+        v[p + 6] = Float.floatToRawIntBits(corner);
+        v[p + 7] = Float.floatToRawIntBits(thickness);
+        v[p + 8] = rgba;
+        return p + VERTEX_INTS;
+    }
+
+    /**
+     * ARGB 转成内存中依次为 R、G、B、A 四个字节的 int
+     */
+    private int toRgba(int argb) {
+        int a = argb >>> 24;
+        int r = (argb >> 16) & 0xff;
+        int g = (argb >> 8) & 0xff;
+        int b = argb & 0xff;
+        return mLittleEndian ? (a << 24) | (b << 16) | (g << 8) | r : (r << 24) | (g << 16) | (b << 8) | a;
+    }
+
+    private void flush() {
+        if (mCount == 0) {
+            return;
+        }
+        int ints = mCount * 4 * VERTEX_INTS;
+        mVertexBuffer.clear();
+        mVertexBuffer.put(mVertices, 0, ints);
+        mVertexBuffer.position(0);
+
+        mProgram.use();
+        mProjection.setMatrix4fv(mMatrix, 0);
+        mGL.glBindBuffer(GLES20.GL_ARRAY_BUFFER, mNames[0]);
+        //每次重新指定整个缓冲区的数据，驱动可以分配新的存储，不用等GPU读完上一批
+        mGL.glBufferData(GLES20.GL_ARRAY_BUFFER, ints * 4, mVertexBuffer, GLES20.GL_STREAM_DRAW);
+        int stride = LAYOUT.getStride();
+        for (int i = 0; i < mLocations.length; i++) {
+            if (mLocations[i] >= 0) {
+                mGL.glEnableVertexAttribArray(mLocations[i]);
+                mGL.glVertexAttribPointer(mLocations[i], LAYOUT.getSize(i), LAYOUT.getType(i),
+                        LAYOUT.isNormalized(i), stride, LAYOUT.getOffset(i));
+            }
+        }
+        mGL.glBindBuffer(GLES20.GL_ELEMENT_ARRAY_BUFFER, mNames[1]);
+        mGL.glDrawElements(GLES20.GL_TRIANGLES, mCount * 6, GLES20.GL_UNSIGNED_SHORT, 0);
+        for (int location : mLocations) {
+            if (location >= 0) {
+                mGL.glDisableVertexAttribArray(location);
+            }
+        }
+        mDrawCallCount++;
+        mUploadedBytes += ints * 4;
+        mCount = 0;
+    }
+
+    /**
+     * 这一批添加的图形个数
+     */
+    public int getShapeCount() {
+        return mShapeCount;
+    }
+
+    /**
+     * 这一批用了几次绘制调用，超过容量才会大于1
+     */
+    public int getDrawCallCount() {
+        return mDrawCallCount;
+    }
+
+    /**
+     * 这一批上传的顶点字节数
+     */
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    /**
+     * 每个图形的顶点字节数
+     */
+    public static int getBytesPerShape() {
+        return LAYOUT.getStride() * 4;
+    }
+
+    /**
+     * 和片元着色器相同的距离计算，点 (x, y) 相对图形中心，负数在图形内
+     */
+    public static float distance(float x, float y, float halfWidth, float halfHeight, float corner, float thickness) {
+        float qx = Math.abs(x) - halfWidth + corner;
+        float qy = Math.abs(y) - halfHeight + corner;
+        float ox = Math.max(qx, 0f);
+        float oy = Math.max(qy, 0f);
+        float d = (float) Math.sqrt(ox * ox + oy * oy) + Math.min(Math.max(qx, qy), 0f) - corner;
+        if (thickness > 0.0001f) {
+            d = Math.abs(d + thickness * 0.5f) - thickness * 0.5f;
+        }
+        return d;
+    }
+
+    /**
+     * 像素中心在距离 d 处的覆盖率，边缘一个像素内线性过渡
+     */
+    public static float coverage(float d) {
+        return Math.max(0f, Math.min(1f, 0.5f - d));
+    }
+
+    /**
+     * 删除缓冲区，程序由 {@link ProgramCache} 管理
+     */
+    public void release() {
+        mGL.glDeleteBuffers(2, mNames, 0);
+        mNames[0] = 0;
+        mNames[1] = 0;
+    }
+}
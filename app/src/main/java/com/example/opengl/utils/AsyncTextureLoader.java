@@ -0,0 +1,548 @@
+package com.example.opengl.utils;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+import android.util.Log;
+
+import com.example.gles.GL;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 异步纹理加载：图片在工作线程解码成像素（RGB_565 保持 16 位，其他格式转换成 RGBA），GL线程每帧调用 {@link #processUploads()}，
+ * 在时间预算（默认2ms）内按行分块用 glTexSubImage2D 上传，上传完成后放入 {@link TextureManager}。
+ * 需要 mipmap 时最后一块上传之后 glGenerateMipmap 单独作为一步，同样算在预算里，预算用完时留到下一帧。
+ * 加载完成之前 {@link Request#getTextureId()} 返回一个 1x1 的占位纹理。
+ * <p>
+ * 同时解码或等待上传的图片数量有上限，超出的请求排队等待，避免大量图片同时占用内存；
+ * 请求可以随时取消。除了 {@link Request#cancel()}，其他方法都只能在GL线程调用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class AsyncTextureLoader {
+
+    private static final String TAG = "AsyncTextureLoader";
+
+    /**
+     * 每帧上传的时间预算
+     */
+    public static final long DEFAULT_UPLOAD_BUDGET_NANOS = 2000000L;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+    /**
+     * 每次 glTexSubImage2D 上传的数据量，太大单次调用会超出预算，太小调用次数太多
+     */
+    private static final int SLICE_BYTES = 64 * 1024;
+
+    private final GL mGL;
+    private final TextureManager mTextures;
+    private final int mMaxInFlight;
+    private final long mUploadBudgetNanos;
+    private final int mThreadCount;
+    private ExecutorService mExecutor;
+
+    private final Map<String, Request> mRequests = new HashMap<>();
+    private final ArrayDeque<Request> mPending = new ArrayDeque<>();
+    private final ConcurrentLinkedQueue<Request> mDecoded = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Request> mUploading = new ArrayDeque<>();
+    private final int[] mName = new int[1];
+    private int mInFlight;
+    private int mPlaceholder;
+    private Object mContext;
+    /**
+     * 非2的幂的纹理能否生成 mipmap，每个上下文查询一次
+     */
+    private Boolean mNpotMipmap;
+
+    private long mMaxSliceNanos;
+    private long mMaxFrameNanos;
+    private int mCompletedCount;
+    private int mCancelledCount;
+    private int mFailedCount;
+
+    public AsyncTextureLoader(GL gl, TextureManager textures) {
+        this(gl, textures, 2, DEFAULT_MAX_IN_FLIGHT, DEFAULT_UPLOAD_BUDGET_NANOS);
+    }
+
+    /**
+     * @param threadCount       解码线程数
+     * @param maxInFlight       同时解码或等待上传的最大数量
+     * @param uploadBudgetNanos 每帧上传的时间预算
+     */
+    public AsyncTextureLoader(GL gl, TextureManager textures, int threadCount, int maxInFlight, long uploadBudgetNanos) {
+        mGL = gl;
+        mTextures = textures;
+        mThreadCount = Math.max(1, threadCount);
+        mMaxInFlight = Math.max(1, maxInFlight);
+        mUploadBudgetNanos = uploadBudgetNanos;
+    }
+
+    /**
+     * 请求加载 key 对应的纹理。已经在缓存中时返回一个完成的请求，
+     * 同一个 key 正在加载时返回同一个请求
+     *
+     * @param loader 在工作线程调用，解码出的图片转换成像素后会被回收
+     */
+    public Request load(String key, TextureManager.Loader loader) {
+        return load(key, loader, false);
+    }
+
+    /**
+     * @param mipmap 纹理会被缩小显示时传 true，上传完成后生成 mipmap 并使用三线性过滤，多占用 1/3 的显存
+     */
+    public Request load(String key, TextureManager.Loader loader, boolean mipmap) {
+        checkContext();
+        Request request = mRequests.get(key);
+        if (request != null && !request.isCancelled()) {
+            return request;
+        }
+        request = new Request(this, key, loader, mipmap);
+        TextureManager.Texture texture = mTextures.get(key);
+        if (texture != null) {
+            request.mTexture = texture;
+            request.mState = Request.DONE;
+            return request;
+        }
+        mRequests.put(key, request);
+        mPending.add(request);
+        submitPending();
+        return request;
+    }
+
+    /**
+     * 每帧在GL线程调用一次，处理解码完成的图片，在时间预算内上传
+     */
+    public void processUploads() {
+        long start = System.nanoTime();
+        checkContext();
+        //排队中被取消的请求直接丢弃
+        Iterator<Request> pending = mPending.iterator();
+        while (pending.hasNext()) {
+            Request request = pending.next();
+            if (request.isCancelled()) {
+                pending.remove();
+                finish(request, Request.CANCELLED);
+            }
+        }
+        Request request;
+        while ((request = mDecoded.poll()) != null) {
+            if (request.isCancelled()) {
+                finish(request, Request.CANCELLED);
+            } else if (request.mPixels == null) {
+                finish(request, Request.FAILED);
+            } else {
+                request.mState = Request.UPLOADING;
+                mUploading.add(request);
+            }
+        }
+        //至少上传一块，保证在预算很小时也能前进
+        while (!mUploading.isEmpty()) {
+            request = mUploading.peek();
+            if (request.isCancelled()) {
+                mUploading.poll();
+                deleteTexture(request);
+                finish(request, Request.CANCELLED);
+                continue;
+            }
+            long sliceStart = System.nanoTime();
+            boolean done = uploadSlice(request);
+            mMaxSliceNanos = Math.max(mMaxSliceNanos, System.nanoTime() - sliceStart);
+            if (done) {
+                mUploading.poll();
+                complete(request);
+            }
+            if (System.nanoTime() - start >= mUploadBudgetNanos) {
+                break;
+            }
+        }
+        submitPending();
+        mMaxFrameNanos = Math.max(mMaxFrameNanos, System.nanoTime() - start);
+    }
+
+    /**
+     * 1x1 的灰色占位纹理，加载完成之前使用
+     */
+    public int getPlaceholder() {
+        checkContext();
+        if (mPlaceholder == 0) {
+            ByteBuffer pixel = ByteBuffer.allocateDirect(4).order(ByteOrder.nativeOrder());
+            pixel.put((byte) 0x80).put((byte) 0x80).put((byte) 0x80).put((byte) 0xff);
+            pixel.position(0);
+            mPlaceholder = genTexture();
+            mGL.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, GLES20.GL_RGBA, 1, 1, 0,
+                    GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixel);
+        }
+        return mPlaceholder;
+    }
+
+    /**
+     * 取消所有请求，停止解码线程
+     */
+    public void release() {
+        for (Request request : mRequests.values()) {
+            request.cancel();
+        }
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+            mExecutor = null;
+        }
+    }
+
+    /**
+     * 正在解码或等待上传的数量
+     */
+    public int getInFlightCount() {
+        return mInFlight;
+    }
+
+    /**
+     * 因为超出同时加载数量而排队的请求数
+     */
+    public int getPendingCount() {
+        return mPending.size();
+    }
+
+    public int getCompletedCount() {
+        return mCompletedCount;
+    }
+
+    public int getCancelledCount() {
+        return mCancelledCount;
+    }
+
+    public int getFailedCount() {
+        return mFailedCount;
+    }
+
+    /**
+     * 单次上传调用的最长耗时
+     */
+    public long getMaxSliceNanos() {
+        return mMaxSliceNanos;
+    }
+
+    /**
+     * 单帧 {@link #processUploads()} 的最长耗时
+     */
+    public long getMaxFrameNanos() {
+        return mMaxFrameNanos;
+    }
+
+    /**
+     * 在工作线程把图片解码为像素，填充 request 的像素数据，失败时保持为空。
+     * RGB_565 的图片直接按 GL_UNSIGNED_SHORT_5_6_5 上传，其他格式转换为 RGBA
+     */
+    protected void decode(Request request) {
+        Bitmap bitmap = request.mLoader.load();
+        if (bitmap == null) {
+            return;
+        }
+        if (bitmap.getConfig() == Bitmap.Config.RGB_565) {
+            //RGB_565 在内存中按本机字节序存放16位像素，和 GL_UNSIGNED_SHORT_5_6_5 一致
+            ByteBuffer pixels = ByteBuffer.allocateDirect(bitmap.getWidth() * 2 * bitmap.getHeight())
+                    .order(ByteOrder.nativeOrder());
+            bitmap.copyPixelsToBuffer(pixels);
+            pixels.position(0);
+            request.setPixels(pixels, bitmap.getWidth(), bitmap.getHeight(),
+                    GLES20.GL_RGB, GLES20.GL_UNSIGNED_SHORT_5_6_5);
+            bitmap.recycle();
+            return;
+        }
+        Bitmap rgba = bitmap;
+        if (bitmap.getConfig() != Bitmap.Config.ARGB_8888) {
+            rgba = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+            bitmap.recycle();
+        }
+        if (rgba == null) {
+            return;
+        }
+        //ARGB_8888 在内存中的字节顺序就是 RGBA
+        ByteBuffer pixels = ByteBuffer.allocateDirect(rgba.getRowBytes() * rgba.getHeight())
+                .order(ByteOrder.nativeOrder());
+        rgba.copyPixelsToBuffer(pixels);
+        pixels.position(0);
+        request.setPixels(pixels, rgba.getWidth(), rgba.getHeight());
+        rgba.recycle();
+    }
+
+    private void submitPending() {
+        while (mInFlight < mMaxInFlight && !mPending.isEmpty()) {
+            final Request request = mPending.poll();
+            if (request.isCancelled()) {
+                finish(request, Request.CANCELLED);
+                continue;
+            }
+            mInFlight++;
+            request.mSubmitted = true;
+            request.mState = Request.DECODING;
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!request.isCancelled()) {
+                        try {
+                            decode(request);
+                        } catch (RuntimeException e) {
+                            Log.w(TAG, "decode " + request.mKey + " failed", e);
+                        }
+                    }
+                    mDecoded.add(request);
+                }
+            });
+        }
+    }
+
+    /**
+     * 上传一块，第一次只分配纹理存储，全部上传之后需要时再生成 mipmap
+     *
+     * @return 是否全部上传完成
+     */
+    private boolean uploadSlice(Request request) {
+        if (request.mUploadedRows == request.mHeight && request.mTextureId != 0) {
+            //生成 mipmap 要读整个纹理，耗时和上传一块相当甚至更长，不和最后一块放在同一步
+            mGL.glBindTexture(GLES20.GL_TEXTURE_2D, request.mTextureId);
+            mGL.glGenerateMipmap(GLES20.GL_TEXTURE_2D);
+            mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR_MIPMAP_LINEAR);
+            request.mMipmapped = true;
+            return true;
+        }
+        if (request.mTextureId == 0) {
+            request.mTextureId = genTexture();
+            mGL.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, request.mFormat, request.mWidth, request.mHeight, 0,
+                    request.mFormat, request.mType, null);
+            return false;
+        }
+        int rowBytes = request.mWidth * TextureManager.bytesPerPixel(request.mFormat, request.mType);
+        int rows = Math.max(1, SLICE_BYTES / rowBytes);
+        int y = request.mUploadedRows;
+        rows = Math.min(rows, request.mHeight - y);
+        request.mPixels.position(y * rowBytes);
+        mGL.glBindTexture(GLES20.GL_TEXTURE_2D, request.mTextureId);
+        //像素数据每行紧密排列，16位像素宽度为奇数时每行不是4字节对齐
+        boolean unaligned = rowBytes % 4 != 0;
+        if (unaligned) {
+            mGL.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, rowBytes % 2 == 0 ? 2 : 1);
+        }
+        mGL.glTexSubImage2D(GLES20.GL_TEXTURE_2D, 0, 0, y, request.mWidth, rows,
+                request.mFormat, request.mType, request.mPixels);
+        if (unaligned) {
+            mGL.glPixelStorei(GLES20.GL_UNPACK_ALIGNMENT, 4);
+        }
+        request.mUploadedRows = y + rows;
+        return request.mUploadedRows == request.mHeight
+                && !(request.mMipmap && canMipmap(request.mWidth, request.mHeight));
+    }
+
+    private void complete(Request request) {
+        long bytes = (long) request.mWidth * request.mHeight
+                * TextureManager.bytesPerPixel(request.mFormat, request.mType);
+        if (request.mMipmapped) {
+            //所有级别加起来多占用1/3
+            bytes = bytes * 4 / 3;
+        } else if (request.mMipmap) {
+            //不能生成 mipmap 时至少用线性过滤，减轻缩小时的闪烁
+            mGL.glBindTexture(GLES20.GL_TEXTURE_2D, request.mTextureId);
+            mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        }
+        request.mTexture = mTextures.adopt(request.mKey, request.mTextureId, request.mWidth, request.mHeight, bytes);
+        request.mTextureId = 0;
+        finish(request, Request.DONE);
+    }
+
+    /**
+     * OpenGL ES 2.0 只有2的幂的纹理能生成 mipmap，
+     * 非2的幂的纹理需要 ES 3.0 或者 GL_OES_texture_npot 扩展
+     */
+    private boolean canMipmap(int width, int height) {
+        if ((width & (width - 1)) == 0 && (height & (height - 1)) == 0) {
+            return true;
+        }
+        if (mNpotMipmap == null) {
+            String version = mGL.glGetString(GLES20.GL_VERSION);
+            String extensions = mGL.glGetString(GLES20.GL_EXTENSIONS);
+            mNpotMipmap = (version != null && version.startsWith("OpenGL ES 3"))
+                    || (extensions != null && extensions.contains("GL_OES_texture_npot"));
+        }
+        return mNpotMipmap;
+    }
+
+    private void finish(Request request, int state) {
+        request.mPixels = null;
+        request.mState = state;
+        if (request.mSubmitted) {
+            request.mSubmitted = false;
+            mInFlight--;
+        }
+        if (mRequests.get(request.mKey) == request) {
+            mRequests.remove(request.mKey);
+        }
+        if (state == Request.DONE) {
+            mCompletedCount++;
+        } else if (state == Request.CANCELLED) {
+            mCancelledCount++;
+        } else {
+            mFailedCount++;
+        }
+    }
+
+    private int genTexture() {
+        mGL.glGenTextures(1, mName, 0);
+        mGL.glBindTexture(GLES20.GL_TEXTURE_2D, mName[0]);
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        return mName[0];
+    }
+
+    private void deleteTexture(Request request) {
+        if (request.mTextureId != 0) {
+            mName[0] = request.mTextureId;
+            mGL.glDeleteTextures(1, mName, 0);
+            request.mTextureId = 0;
+        }
+    }
+
+    /**
+     * 上下文重建之后纹理都已失效，正在上传的图片从头开始上传
+     */
+    private void checkContext() {
+        Object context = mGL.getCurrentContext();
+        if (context != mContext) {
+            mPlaceholder = 0;
+            mNpotMipmap = null;
+            for (Request request : mUploading) {
+                request.mTextureId = 0;
+                request.mUploadedRows = 0;
+            }
+            mContext = context;
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newFixedThreadPool(mThreadCount, new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "TextureDecode-" + mCount++);
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+
+    /**
+     * 一次加载请求
+     */
+    public static class Request {
+        static final int PENDING = 0;
+        static final int DECODING = 1;
+        static final int UPLOADING = 2;
+        static final int DONE = 3;
+        static final int FAILED = 4;
+        static final int CANCELLED = 5;
+
+        private final AsyncTextureLoader mOwner;
+        private final String mKey;
+        private final TextureManager.Loader mLoader;
+        private final boolean mMipmap;
+        private volatile boolean mCancelled;
+        private int mState = PENDING;
+        private boolean mSubmitted;
+
+        /**
+         * 工作线程写入，通过 mDecoded 队列交给GL线程
+         */
+        private ByteBuffer mPixels;
+        private int mWidth;
+        private int mHeight;
+        private int mFormat;
+        private int mType;
+
+        private int mTextureId;
+        private int mUploadedRows;
+        private boolean mMipmapped;
+        private TextureManager.Texture mTexture;
+
+        Request(AsyncTextureLoader owner, String key, TextureManager.Loader loader, boolean mipmap) {
+            mOwner = owner;
+            mKey = key;
+            mLoader = loader;
+            mMipmap = mipmap;
+        }
+
+        public String getKey() {
+            return mKey;
+        }
+
+        /**
+         * 设置解码好的 RGBA 像素，在 {@link AsyncTextureLoader#decode(Request)} 中调用
+         */
+        public void setPixels(ByteBuffer pixels, int width, int height) {
+            setPixels(pixels, width, height, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE);
+        }
+
+        /**
+         * 设置解码好的像素，每行紧密排列
+         *
+         * @param format 像素格式，如 GL_RGB
+         * @param type   数据类型，如 GL_UNSIGNED_SHORT_5_6_5
+         */
+        public void setPixels(ByteBuffer pixels, int width, int height, int format, int type) {
+            mPixels = pixels;
+            mWidth = width;
+            mHeight = height;
+            mFormat = format;
+            mType = type;
+        }
+
+        /**
+         * 可以在任意线程调用，正在进行的解码或上传会在GL线程下一次处理时丢弃
+         */
+        public void cancel() {
+            mCancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return mCancelled;
+        }
+
+        public boolean isDone() {
+            return mState == DONE;
+        }
+
+        public boolean isFailed() {
+            return mState == FAILED;
+        }
+
+        /**
+         * @return 加载完成的纹理，没有完成时返回 null
+         */
+        public TextureManager.Texture getTexture() {
+            return mTexture;
+        }
+
+        /**
+         * @return 加载完成的纹理id，没有完成或者已经被淘汰时返回占位纹理
+         */
+        public int getTextureId() {
+            if (mTexture != null && mTexture.getId() != 0) {
+                return mTexture.getId();
+            }
+            return mOwner.getPlaceholder();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.opengl.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * 按显示尺寸解码资源图片：先只读取图片的宽高，再选择一个2的幂的 inSampleSize，
+ * 使解码后的图片不小于需要的尺寸；JPEG 没有透明通道，用 RGB_565 解码，其他格式用 ARGB_8888。
+ * PNG、WebP 解码前不知道有没有透明通道，解码后 {@link Bitmap#hasAlpha()} 为 false 时再转换成 RGB_565；
+ * 带透明通道但所有像素都不透明的图片无法区分，仍然是 ARGB_8888。
+ * 解码完成后可以获取和原图全尺寸 ARGB_8888 相比节省的内存。
+ * <p>
+ * 作为 {@link TextureManager.Loader} 使用时 {@link #load()} 在工作线程调用，之后在其他线程读取结果前需要自行同步，
+ * 通过 {@link AsyncTextureLoader} 加载时，请求完成后读取即可。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class BitmapDecoder implements TextureManager.Loader {
+
+    private final Resources mResources;
+    private final int mResId;
+    private final int mReqWidth;
+    private final int mReqHeight;
+
+    private int mSourceWidth;
+    private int mSourceHeight;
+    private int mSampleSize;
+    private int mWidth;
+    private int mHeight;
+    private Bitmap.Config mConfig;
+
+    /**
+     * @param reqWidth  显示需要的宽度，小于等于0表示不缩小
+     * @param reqHeight 显示需要的高度，小于等于0表示不缩小
+     */
+    public BitmapDecoder(Resources resources, int resId, int reqWidth, int reqHeight) {
+        mResources = resources;
+        mResId = resId;
+        mReqWidth = reqWidth;
+        mReqHeight = reqHeight;
+    }
+
+    @Override
+    public Bitmap load() {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        //按原始像素计算采样率，不做屏幕密度缩放
+        options.inScaled = false;
+        BitmapFactory.decodeResource(mResources, mResId, options);
+        mSourceWidth = options.outWidth;
+        mSourceHeight = options.outHeight;
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(mSourceWidth, mSourceHeight, mReqWidth, mReqHeight);
+        options.inPreferredConfig = chooseConfig(options.outMimeType);
+        Bitmap bitmap = BitmapFactory.decodeResource(mResources, mResId, options);
+        if (bitmap != null && bitmap.getConfig() == Bitmap.Config.ARGB_8888
+                && chooseConfig(options.outMimeType, bitmap.hasAlpha()) == Bitmap.Config.RGB_565) {
+            //多一次拷贝，换来纹理少占一半的显存
+            Bitmap opaque = bitmap.copy(Bitmap.Config.RGB_565, false);
+            if (opaque != null) {
+                bitmap.recycle();
+                bitmap = opaque;
+            }
+        }
+        if (bitmap != null) {
+            mSampleSize = options.inSampleSize;
+            mWidth = bitmap.getWidth();
+            mHeight = bitmap.getHeight();
+            mConfig = bitmap.getConfig();
+        }
+        return bitmap;
+    }
+
+    /**
+     * 最大的2的幂的采样率，使采样后的宽高都不小于需要的宽高
+     */
+    public static int calculateInSampleSize(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        if (reqWidth <= 0 || reqHeight <= 0) {
+            return sampleSize;
+        }
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * JPEG 没有透明通道，用 RGB_565 占一半的内存；无法确定时用 ARGB_8888
+     */
+    public static Bitmap.Config chooseConfig(String mimeType) {
+        return "image/jpeg".equals(mimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * 解码之后知道图片有没有透明通道时的选择，没有透明通道的图片都可以用 RGB_565
+     *
+     * @param hasAlpha 解码出的图片的 {@link Bitmap#hasAlpha()}
+     */
+    public static Bitmap.Config chooseConfig(String mimeType, boolean hasAlpha) {
+        return hasAlpha ? chooseConfig(mimeType) : Bitmap.Config.RGB_565;
+    }
+
+    public int getSourceWidth() {
+        return mSourceWidth;
+    }
+
+    public int getSourceHeight() {
+        return mSourceHeight;
+    }
+
+    public int getSampleSize() {
+        return mSampleSize;
+    }
+
+    public int getWidth() {
+        return mWidth;
+    }
+
+    public int getHeight() {
+        return mHeight;
+    }
+
+    public Bitmap.Config getConfig() {
+        return mConfig;
+    }
+
+    /**
+     * 原图全尺寸 ARGB_8888 上传时占用的显存
+     */
+    public long getFullSizeBytes() {
+        return (long) mSourceWidth * mSourceHeight * 4;
+    }
+
+    /**
+     * 解码后的图片上传后占用的显存，mipmap 额外占用1/3
+     */
+    public long getTextureBytes(boolean mipmap) {
+        long bytes = (long) mWidth * mHeight * TextureManager.bytesPerPixel(mConfig);
+        return mipmap ? bytes * 4 / 3 : bytes;
+    }
+
+    public long getSavedBytes(boolean mipmap) {
+        return getFullSizeBytes() - getTextureBytes(mipmap);
+    }
+
+    public String getReport(boolean mipmap) {
+        return "res " + mResId + ": " + mSourceWidth + "x" + mSourceHeight + " ARGB_8888 "
+                + getFullSizeBytes() / 1024 + "KB -> " + mWidth + "x" + mHeight + " " + mConfig
+                + (mipmap ? " +mipmaps " : " ") + getTextureBytes(mipmap) / 1024 + "KB"
+                + " (inSampleSize " + mSampleSize + "), saved " + getSavedBytes(mipmap) / 1024 + "KB";
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.opengl.utils;
+
+import android.annotation.TargetApi;
+import android.opengl.GLES20;
+import android.opengl.GLES30;
+import android.os.Build;
+
+import com.example.gles.GL;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 基于 ES 3.0 glGetProgramBinary/glProgramBinary 的实现，所有调用经过传入的 {@link GL}，
+ * 状态跟踪和调用统计都能看到，也可以在JVM上测试。
+ * OES_get_program_binary 在 Java 层没有绑定，GLES2 上下文下直接视为不支持，回退到源码编译。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+@TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+public class GLES30ProgramBinaryGL implements ProgramBinaryGL {
+
+    /**
+     * 清理之前的错误时最多读的次数，防止上下文丢失时一直返回错误
+     */
+    private static final int MAX_PENDING_ERRORS = 16;
+
+    private final GL mGL;
+    private final int[] mValue = new int[1];
+    private final int[] mFormat = new int[1];
+    private Boolean mSupported;
+
+    public GLES30ProgramBinaryGL(GL gl) {
+        mGL = gl;
+    }
+
+    @Override
+    public boolean isProgramBinarySupported() {
+        if (mSupported == null) {
+            mSupported = querySupported();
+        }
+        return mSupported;
+    }
+
+    private boolean querySupported() {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            return false;
+        }
+        String version = mGL.glGetString(GLES20.GL_VERSION);
+        if (version == null || !version.startsWith("OpenGL ES 3")) {
+            return false;
+        }
+        mGL.glGetIntegerv(GLES30.GL_NUM_PROGRAM_BINARY_FORMATS, mValue, 0);
+        return mValue[0] > 0;
+    }
+
+    @Override
+    public String getDriverSignature() {
+        return mGL.glGetString(GLES20.GL_VENDOR) + "|"
+                + mGL.glGetString(GLES20.GL_RENDERER) + "|"
+                + mGL.glGetString(GLES20.GL_VERSION);
+    }
+
+    @Override
+    public int createProgram() {
+        return mGL.glCreateProgram();
+    }
+
+    @Override
+    public void deleteProgram(int program) {
+        mGL.glDeleteProgram(program);
+    }
+
+    @Override
+    public int getProgramBinaryLength(int program) {
+        mGL.glGetProgramiv(program, GLES30.GL_PROGRAM_BINARY_LENGTH, mValue, 0);
+        return mValue[0];
+    }
+
+    @Override
+    public int getProgramBinary(int program, ByteBuffer binary) {
+        mGL.glGetProgramBinary(program, binary.capacity(), mValue, 0, mFormat, 0, binary);
+        return mFormat[0];
+    }
+
+    @Override
+    public boolean programBinary(int program, int format, ByteBuffer binary, int length) {
+        //先读掉之前无关调用留下的错误，否则会被当成这次加载失败
+        clearErrors();
+        mGL.glProgramBinary(program, format, binary, length);
+        //驱动不认这份二进制时会链接失败，这里不抛异常，交给调用方回退
+        mGL.glGetProgramiv(program, GLES20.GL_LINK_STATUS, mValue, 0);
+        return mValue[0] == GLES20.GL_TRUE && mGL.glGetError() == GLES20.GL_NO_ERROR;
+    }
+
+    private void clearErrors() {
+        for (int i = 0; i < MAX_PENDING_ERRORS; i++) {
+            if (mGL.glGetError() == GLES20.GL_NO_ERROR) {
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.opengl.utils;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 链接好的着色器程序。链接完成后通过 glGetActiveAttrib/glGetActiveUniform 枚举出所有的
+ * attribute 和 uniform，建立名字到位置的表，绘制时不再调用 glGet*Location。
+ * uniform 通过 {@link Uniform} 句柄设置，和上一次上传的值相同时跳过 glUniform* 调用。
+ * 表里没有的名字（例如 GL 实现不支持反射时）第一次使用时再查询一次位置并记下来。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class GLProgram {
+
+    private final GL mGL;
+    private final int mProgram;
+    private final Map<String, Integer> mAttributes = new HashMap<>();
+    private final Map<String, Uniform> mUniforms = new HashMap<>();
+    private int mUploadCount;
+    private int mSkipCount;
+
+    GLProgram(GL gl, int program) {
+        mGL = gl;
+        mProgram = program;
+        reflect();
+    }
+
+    public int getId() {
+        return mProgram;
+    }
+
+    public void use() {
+        mGL.glUseProgram(mProgram);
+    }
+
+    /**
+     * @return attribute 的位置，不存在（或被编译器优化掉）时返回 -1
+     */
+    public int attribute(String name) {
+        Integer location = mAttributes.get(name);
+        if (location == null) {
+            location = mGL.glGetAttribLocation(mProgram, name);
+            mAttributes.put(name, location);
+        }
+        return location;
+    }
+
+    /**
+     * @return uniform 句柄，不存在时返回一个位置为 -1 的句柄，对它的设置都会被忽略
+     */
+    public Uniform uniform(String name) {
+        Uniform uniform = mUniforms.get(name);
+        if (uniform == null) {
+            uniform = new Uniform(this, mGL.glGetUniformLocation(mProgram, name), 0, 1);
+            mUniforms.put(name, uniform);
+        }
+        return uniform;
+    }
+
+    /**
+     * 删除程序对象，由 {@link ProgramCache} 调用
+     */
+    void release() {
+        mGL.glDeleteProgram(mProgram);
+    }
+
+    /**
+     * 实际调用 glUniform* 的次数
+     */
+    public int getUploadCount() {
+        return mUploadCount;
+    }
+
+    /**
+     * 值没有变化而跳过的 glUniform* 次数
+     */
+    public int getSkipCount() {
+        return mSkipCount;
+    }
+
+    private void reflect() {
+        int[] count = new int[1];
+        int[] maxLength = new int[1];
+        int[] length = new int[1];
+        int[] size = new int[1];
+        int[] type = new int[1];
+
+        mGL.glGetProgramiv(mProgram, GLES20.GL_ACTIVE_ATTRIBUTES, count, 0);
+        mGL.glGetProgramiv(mProgram, GLES20.GL_ACTIVE_ATTRIBUTE_MAX_LENGTH, maxLength, 0);
+        byte[] name = new byte[Math.max(maxLength[0], 1)];
+        for (int i = 0; i < count[0]; i++) {
+            mGL.glGetActiveAttrib(mProgram, i, name.length, length, 0, size, 0, type, 0, name, 0);
+            String attribName = new String(name, 0, length[0]);
+            mAttributes.put(attribName, mGL.glGetAttribLocation(mProgram, attribName));
+        }
+
+        mGL.glGetProgramiv(mProgram, GLES20.GL_ACTIVE_UNIFORMS, count, 0);
+        mGL.glGetProgramiv(mProgram, GLES20.GL_ACTIVE_UNIFORM_MAX_LENGTH, maxLength, 0);
+        name = new byte[Math.max(maxLength[0], 1)];
+        for (int i = 0; i < count[0]; i++) {
+            mGL.glGetActiveUniform(mProgram, i, name.length, length, 0, size, 0, type, 0, name, 0);
+            String uniformName = new String(name, 0, length[0]);
+            int location = mGL.glGetUniformLocation(mProgram, uniformName);
+            //数组 uniform 的名字带有 [0]，去掉后再作为key
+            if (uniformName.endsWith("[0]")) {
+                uniformName = uniformName.substring(0, uniformName.length() - 3);
+            }
+            mUniforms.put(uniformName, new Uniform(this, location, type[0], size[0]));
+        }
+    }
+
+    /**
+     * uniform 句柄，缓存最后一次上传的值。
+     * 缓存跟随程序对象，多个Render共用同一个程序时也是一致的。
+     */
+    public static class Uniform {
+        private final GLProgram mOwner;
+        private final int mLocation;
+        private final int mType;
+        private final int mSize;
+        private float[] mValue;
+        private int mIntValue;
+        private boolean mHasValue;
+
+        Uniform(GLProgram owner, int location, int type, int size) {
+            mOwner = owner;
+            mLocation = location;
+            mType = type;
+            mSize = size;
+        }
+
+        public int getLocation() {
+            return mLocation;
+        }
+
+        /**
+         * GL类型，例如 GLES20.GL_FLOAT_MAT4
+         */
+        public int getType() {
+            return mType;
+        }
+
+        /**
+         * 数组长度，非数组为1
+         */
+        public int getSize() {
+            return mSize;
+        }
+
+        public void set1i(int value) {
+            if (mLocation < 0) {
+                return;
+            }
+            if (mHasValue && mIntValue == value) {
+                mOwner.mSkipCount++;
+                return;
+            }
+            mIntValue = value;
+            mHasValue = true;
+            mOwner.mUploadCount++;
+            mOwner.mGL.glUniform1i(mLocation, value);
+        }
+
+        public void set1f(float value) {
+            if (!changed(value)) {
+                return;
+            }
+            mOwner.mGL.glUniform1f(mLocation, value);
+        }
+
+        public void set3fv(float[] value, int offset) {
+            if (!changed(value, offset, 3)) {
+                return;
+            }
+            mOwner.mGL.glUniform3fv(mLocation, 1, value, offset);
+        }
+
+        public void set4fv(float[] value, int offset) {
+            if (!changed(value, offset, 4)) {
+                return;
+            }
+            mOwner.mGL.glUniform4fv(mLocation, 1, value, offset);
+        }
+
+        public void setMatrix4fv(float[] value, int offset) {
+            if (!changed(value, offset, 16)) {
+                return;
+            }
+            mOwner.mGL.glUniformMatrix4fv(mLocation, 1, false, value, offset);
+        }
+
+        /**
+         * 设置矩阵数组的前 count 个元素
+         */
+        public void setMatrix4fv(float[] value, int offset, int count) {
+            if (!changed(value, offset, 16 * count)) {
+                return;
+            }
+            mOwner.mGL.glUniformMatrix4fv(mLocation, count, false, value, offset);
+        }
+
+        private boolean changed(float value) {
+            if (mLocation < 0) {
+                return false;
+            }
+            if (mValue == null) {
+                mValue = new float[1];
+            } else if (mHasValue && Float.floatToRawIntBits(mValue[0]) == Float.floatToRawIntBits(value)) {
+                mOwner.mSkipCount++;
+                return false;
+            }
+            mValue[0] = value;
+            mHasValue = true;
+            mOwner.mUploadCount++;
+            return true;
+        }
+
+        private boolean changed(float[] value, int offset, int count) {
+            if (mLocation < 0) {
+                return false;
+            }
+            if (mValue == null || mValue.length != count) {
+                mValue = new float[count];
+            } else if (mHasValue && equals(mValue, value, offset, count)) {
+                mOwner.mSkipCount++;
+                return false;
+            }
+            System.arraycopy(value, offset, mValue, 0, count);
+            mHasValue = true;
+            mOwner.mUploadCount++;
+            return true;
+        }
+
+        private static boolean equals(float[] cached, float[] value, int offset, int count) {
+            for (int i = 0; i < count; i++) {
+                if (Float.floatToRawIntBits(cached[i]) != Float.floatToRawIntBits(value[offset + i])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
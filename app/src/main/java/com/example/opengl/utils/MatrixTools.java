@@ -1,9 +1,9 @@
 package com.example.opengl.utils;
 
-import android.opengl.Matrix;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.math.MatrixBatch;
 
 import java.util.Arrays;
-import java.util.Stack;
 
 /**
  * @author majun
@@ -13,54 +13,98 @@ public class MatrixTools {
 
     private float[] mMatrixCamera = new float[16];    //相机矩阵
     private float[] mMatrixProjection = new float[16];    //投影矩阵
-    private float[] mMatrixCurrent =     //原始矩阵
+    private float[] mMatrixViewProjection = new float[16];    //投影矩阵*相机矩阵的缓存
+    private boolean mViewProjectionDirty = true;    //相机或投影改变后需要重新计算缓存
+    private final float[] mMatrixCurrent =     //原始矩阵
             {1, 0, 0, 0,
                     0, 1, 0, 0,
                     0, 0, 1, 0,
                     0, 0, 0, 1};
 
-    private Stack<float[]> mStack;      //变换矩阵堆栈
+    private static final int DEFAULT_STACK_DEPTH = 32;
+    private static final int DEFAULT_MAX_STACK_DEPTH = 1024;
+
+    private float[] mStack;      //变换矩阵堆栈，每16个float为一层
+    private int mStackDepth;     //当前入栈的层数
+    private final int mMaxStackDepth;
 
     public MatrixTools() {
-        mStack = new Stack<>();
+        this(DEFAULT_STACK_DEPTH, DEFAULT_MAX_STACK_DEPTH);
+    }
+
+    /**
+     * @param initialDepth 堆栈初始容量（层数），不够时按两倍扩容
+     * @param maxDepth     堆栈最大层数，超过时认为push/pop不配对
+     */
+    public MatrixTools(int initialDepth, int maxDepth) {
+        if (initialDepth <= 0 || maxDepth < initialDepth) {
+            throw new IllegalArgumentException("invalid stack depth: " + initialDepth + "/" + maxDepth);
+        }
+        mStack = new float[initialDepth * 16];
+        mMaxStackDepth = maxDepth;
     }
 
     //保护现场
     public void pushMatrix() {
-        mStack.push(Arrays.copyOf(mMatrixCurrent, 16));
+        if (mStackDepth * 16 == mStack.length) {
+            if (mStackDepth == mMaxStackDepth) {
+                throw new IllegalStateException("matrix stack overflow, depth " + mStackDepth);
+            }
+            //只有超过当前容量才会扩容，之后的push/pop都不再分配内存
+            mStack = Arrays.copyOf(mStack, Math.min(mStackDepth * 2, mMaxStackDepth) * 16);
+        }
+        System.arraycopy(mMatrixCurrent, 0, mStack, mStackDepth * 16, 16);
+        mStackDepth++;
     }
 
     //恢复现场
     public void popMatrix() {
-        mMatrixCurrent = mStack.pop();
+        if (mStackDepth == 0) {
+            throw new IllegalStateException("matrix stack underflow");
+        }
+        mStackDepth--;
+        System.arraycopy(mStack, mStackDepth * 16, mMatrixCurrent, 0, 16);
     }
 
     public void clearStack() {
-        mStack.clear();
+        mStackDepth = 0;
+    }
+
+    public int getStackDepth() {
+        return mStackDepth;
+    }
+
+    /**
+     * 复制第 depth 层保存的矩阵，只用于测试
+     */
+    void getStackMatrix(int depth, float[] out, int offset) {
+        System.arraycopy(mStack, depth * 16, out, offset, 16);
     }
 
     //平移变换
     public void translate(float x, float y, float z) {
-        Matrix.translateM(mMatrixCurrent, 0, x, y, z);
+        Mat4.translateM(mMatrixCurrent, 0, x, y, z);
     }
 
     //旋转变换
     public void rotate(float angle, float x, float y, float z) {
-        Matrix.rotateM(mMatrixCurrent, 0, angle, x, y, z);
+        Mat4.rotateM(mMatrixCurrent, 0, angle, x, y, z);
     }
 
     //缩放变换
     public void scale(float x, float y, float z) {
-        Matrix.scaleM(mMatrixCurrent, 0, x, y, z);
+        Mat4.scaleM(mMatrixCurrent, 0, x, y, z);
     }
 
     //设置相机的角度
     public void setCamera(float ex, float ey, float ez, float cx, float cy, float cz, float ux, float uy, float uz) {
-        Matrix.setLookAtM(mMatrixCamera, 0, ex, ey, ez, cx, cy, cz, ux, uy, uz);
+        Mat4.setLookAtM(mMatrixCamera, 0, ex, ey, ez, cx, cy, cz, ux, uy, uz);
+        mViewProjectionDirty = true;
     }
 
     public void frustum(float left, float right, float bottom, float top, float near, float far) {
-        Matrix.frustumM(mMatrixProjection, 0, left, right, bottom, top, near, far);
+        Mat4.frustumM(mMatrixProjection, 0, left, right, bottom, top, near, far);
+        mViewProjectionDirty = true;
     }
 
     /**
@@ -75,14 +119,49 @@ public class MatrixTools {
      * @param far 远平面距离
      */
     public void ortho(float left, float right, float bottom, float top, float near, float far) {
-        Matrix.orthoM(mMatrixProjection, 0, left, right, bottom, top, near, far);
+        Mat4.orthoM(mMatrixProjection, 0, left, right, bottom, top, near, far);
+        mViewProjectionDirty = true;
+    }
+
+    /**
+     * 投影矩阵*相机矩阵，只有在相机或投影改变之后才重新计算
+     */
+    public float[] getViewProjectionMatrix() {
+        if (mViewProjectionDirty) {
+            Mat4.multiplyMM(mMatrixViewProjection, 0, mMatrixProjection, 0, mMatrixCamera, 0);
+            mViewProjectionDirty = false;
+        }
+        return mMatrixViewProjection;
     }
 
     public float[] getFinalMatrix() {
         float[] ans = new float[16];
-        Matrix.multiplyMM(ans, 0, mMatrixCamera, 0, mMatrixCurrent, 0);
-        Matrix.multiplyMM(ans, 0, mMatrixProjection, 0, ans, 0);
+        getFinalMatrix(ans, 0);
         return ans;
     }
 
+    /**
+     * 把最终变换矩阵写入调用方提供的数组，不产生新的对象，每次只做一次矩阵乘法
+     *
+     * @param result 结果数组
+     * @param offset 结果在数组中的偏移量
+     */
+    public void getFinalMatrix(float[] result, int offset) {
+        //当前矩阵只经过平移、旋转、缩放，是仿射矩阵，可以省掉最后一行的乘法
+        Mat4.multiplyMMAffine(result, offset, getViewProjectionMatrix(), 0, mMatrixCurrent, 0);
+    }
+
+    /**
+     * 批量计算最终变换矩阵：用缓存的投影*相机矩阵乘以 count 个连续存放的模型矩阵
+     *
+     * @param models       模型矩阵，每16个float一个
+     * @param modelsOffset 第一个模型矩阵的偏移量
+     * @param result       结果数组，可以直接作为实例数据上传
+     * @param resultOffset 结果在数组中的偏移量
+     * @param count        矩阵个数
+     */
+    public void getFinalMatrices(float[] models, int modelsOffset, float[] result, int resultOffset, int count) {
+        MatrixBatch.multiplyAffine(getViewProjectionMatrix(), 0, models, modelsOffset, result, resultOffset, count);
+    }
+
 }
@@ -1,30 +1,89 @@
 package com.example.opengl.utils;
 
 import android.opengl.GLES20;
+import android.util.Log;
+
+import com.example.gles.GL;
 
 /**
  * @author majun
  * @date 2020-03-18
  */
 public class OpenGLUtils {
+    private static final String TAG = "OpenGLUtils";
+
     /**
      * 这个类主要用于编译C++的代码
      * 这边主要就是生成顶点着色程序和片段着色程序
      *
+     * @param gl
      * @param type
      * @param shaderCode
      * @return
      */
-    public static int loadShader(int type, String shaderCode) {
+    public static int loadShader(GL gl, int type, String shaderCode) {
 
         // create a vertex shader type (GLES20.GL_VERTEX_SHADER)
         // or a fragment shader type (GLES20.GL_FRAGMENT_SHADER)
-        int shader = GLES20.glCreateShader(type);
+        int shader = gl.glCreateShader(type);
 
         // add the source code to the shader and compile it
-        GLES20.glShaderSource(shader, shaderCode);
-        GLES20.glCompileShader(shader);
+        gl.glShaderSource(shader, shaderCode);
+        gl.glCompileShader(shader);
 
+        //检查编译结果，失败时带上编译日志抛出
+        int[] status = new int[1];
+        gl.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            String log = gl.glGetShaderInfoLog(shader);
+            gl.glDeleteShader(shader);
+            String kind = type == GLES20.GL_VERTEX_SHADER ? "vertex" : "fragment";
+            Log.e(TAG, "Could not compile " + kind + " shader: " + log + "\n" + shaderCode);
+            throw new RuntimeException("Could not compile " + kind + " shader: " + log);
+        }
         return shader;
     }
+
+    /**
+     * 编译并链接着色器程序，链接成功后着色器对象就不再需要了，直接释放
+     *
+     * @param gl                 GL实现
+     * @param vertexShaderCode   顶点着色器代码
+     * @param fragmentShaderCode 片元着色器代码
+     * @return 程序句柄
+     */
+    public static int createProgram(GL gl, String vertexShaderCode, String fragmentShaderCode) {
+        int vertexShader = loadShader(gl, GLES20.GL_VERTEX_SHADER, vertexShaderCode);
+        int fragmentShader;
+        try {
+            fragmentShader = loadShader(gl, GLES20.GL_FRAGMENT_SHADER, fragmentShaderCode);
+        } catch (RuntimeException e) {
+            gl.glDeleteShader(vertexShader);
+            throw e;
+        }
+
+        //创建一个空的OpenGLES程序
+        int program = gl.glCreateProgram();
+        //将顶点着色器和片元着色器加入到程序
+        gl.glAttachShader(program, vertexShader);
+        gl.glAttachShader(program, fragmentShader);
+        //连接到着色器程序
+        gl.glLinkProgram(program);
+
+        //链接完成后着色器对象可以释放了
+        gl.glDetachShader(program, vertexShader);
+        gl.glDetachShader(program, fragmentShader);
+        gl.glDeleteShader(vertexShader);
+        gl.glDeleteShader(fragmentShader);
+
+        int[] status = new int[1];
+        gl.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] != GLES20.GL_TRUE) {
+            String log = gl.glGetProgramInfoLog(program);
+            gl.glDeleteProgram(program);
+            Log.e(TAG, "Could not link program: " + log);
+            throw new RuntimeException("Could not link program: " + log);
+        }
+        return program;
+    }
 }
@@ -0,0 +1,133 @@
+package com.example.opengl.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * 把 [0, count) 拆分成几段并行处理：前面的分段交给线程池，最后一段在调用线程处理，
+ * 全部完成后才返回。等待时不响应中断，返回时结果总是完整的，中断标志在返回前恢复；
+ * 某一段抛出异常时在调用线程重新抛出。
+ * <p>
+ * 线程池在第一次并行时创建，不再使用时调用 {@link #release()}。实例本身不是线程安全的。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class ParallelRange {
+
+    /**
+     * 处理 [from, to) 的一段，各段在不同线程上同时调用
+     */
+    public interface Body {
+        void run(int from, int to);
+    }
+
+    private final int mParallelism;
+    private final String mThreadName;
+    private ExecutorService mExecutor;
+
+    /**
+     * @param parallelism 使用的线程数，包括调用线程，1表示始终在调用线程处理
+     * @param threadName  线程池中线程的名字前缀
+     */
+    public ParallelRange(int parallelism, String threadName) {
+        mParallelism = Math.max(1, parallelism);
+        mThreadName = threadName;
+    }
+
+    public int getParallelism() {
+        return mParallelism;
+    }
+
+    /**
+     * 处理 [0, count)，count 不大于0时什么都不做
+     */
+    public void run(int count, final Body body) {
+        if (count <= 0) {
+            return;
+        }
+        if (mParallelism == 1) {
+            body.run(0, count);
+            return;
+        }
+        int chunk = (count + mParallelism - 1) / mParallelism;
+        int tasks = (count + chunk - 1) / chunk;
+        final CountDownLatch latch = new CountDownLatch(tasks - 1);
+        final Throwable[] failure = new Throwable[1];
+        ExecutorService executor = getExecutor();
+        for (int t = 0; t < tasks - 1; t++) {
+            final int start = t * chunk;
+            final int end = start + chunk;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        body.run(start, end);
+                    } catch (Throwable e) {
+                        synchronized (failure) {
+                            if (failure[0] == null) {
+                                failure[0] = e;
+                            }
+                        }
+                    } finally {
+                        latch.countDown();
+                    }
+                }
+            });
+        }
+        try {
+            body.run((tasks - 1) * chunk, count);
+        } finally {
+            //线程池里的分段还在写结果，不能提前返回
+            awaitUninterruptibly(latch);
+        }
+        synchronized (failure) {
+            if (failure[0] != null) {
+                throw new RuntimeException("parallel task failed", failure[0]);
+            }
+        }
+    }
+
+    /**
+     * 释放线程池
+     */
+    public void release() {
+        if (mExecutor != null) {
+            mExecutor.shutdown();
+            mExecutor = null;
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private ExecutorService getExecutor() {
+        if (mExecutor == null) {
+            mExecutor = Executors.newFixedThreadPool(mParallelism - 1, new ThreadFactory() {
+                private int mCount;
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, mThreadName + "-" + mCount++);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return mExecutor;
+    }
+}
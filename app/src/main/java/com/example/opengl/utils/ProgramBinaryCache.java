@@ -0,0 +1,182 @@
+package com.example.opengl.utils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * 着色器程序二进制的磁盘缓存。
+ * 以源码哈希作为文件名，文件头里记录驱动标识的哈希，驱动不一致或者加载失败时删除文件，回退到源码编译。
+ * 读取时使用内存映射，不经过Java堆。
+ * <p>
+ * 文件格式：magic, version, 源码哈希, 驱动哈希, 二进制格式, 二进制长度, 二进制数据
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class ProgramBinaryCache {
+
+    private static final int MAGIC = 0x47504243;    // "GPBC"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4;
+
+    private final File mDir;
+    private final ProgramBinaryGL mGL;
+    private long mDriverHash;
+    private boolean mDriverHashValid;
+
+    private int mLoadCount;
+    private int mSaveCount;
+    private int mInvalidateCount;
+
+    /**
+     * @param dir 应用私有的缓存目录
+     * @param gl  GL调用
+     */
+    public ProgramBinaryCache(File dir, ProgramBinaryGL gl) {
+        mDir = dir;
+        mGL = gl;
+    }
+
+    /**
+     * 尝试从缓存加载程序
+     *
+     * @return 程序句柄，缓存不存在或者失效时返回0
+     */
+    public int load(String vertexShaderCode, String fragmentShaderCode) {
+        if (!mGL.isProgramBinarySupported()) {
+            return 0;
+        }
+        long sourceHash = ProgramCache.hash(vertexShaderCode, fragmentShaderCode);
+        File file = fileFor(sourceHash);
+        if (!file.isFile()) {
+            return 0;
+        }
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                invalidate(file);
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION
+                    || buffer.getLong() != sourceHash || buffer.getLong() != driverHash()) {
+                invalidate(file);
+                return 0;
+            }
+            int format = buffer.getInt();
+            int length = buffer.getInt();
+            if (length <= 0 || length != size - HEADER_SIZE) {
+                invalidate(file);
+                return 0;
+            }
+            ByteBuffer binary = buffer.slice();
+            int program = mGL.createProgram();
+            if (!mGL.programBinary(program, format, binary, length)) {
+                mGL.deleteProgram(program);
+                invalidate(file);
+                return 0;
+            }
+            mLoadCount++;
+            return program;
+        } catch (IOException e) {
+            invalidate(file);
+            return 0;
+        } finally {
+            closeQuietly(raf);
+        }
+    }
+
+    /**
+     * 把已经链接好的程序写入缓存
+     *
+     * @return 是否写入成功
+     */
+    public boolean save(int program, String vertexShaderCode, String fragmentShaderCode) {
+        if (!mGL.isProgramBinarySupported()) {
+            return false;
+        }
+        int length = mGL.getProgramBinaryLength(program);
+        if (length <= 0) {
+            return false;
+        }
+        ByteBuffer binary = ByteBuffer.allocate(length);
+        int format = mGL.getProgramBinary(program, binary);
+
+        long sourceHash = ProgramCache.hash(vertexShaderCode, fragmentShaderCode);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putLong(sourceHash).putLong(driverHash())
+                .putInt(format).putInt(length);
+
+        if (!mDir.isDirectory() && !mDir.mkdirs()) {
+            return false;
+        }
+        File file = fileFor(sourceHash);
+        //先写临时文件再重命名，避免进程被杀时留下写了一半的文件
+        File tmp = new File(mDir, file.getName() + ".tmp");
+        FileOutputStream out = null;
+        try {
+            out = new FileOutputStream(tmp);
+            out.write(header.array());
+            out.write(binary.array(), 0, length);
+            out.getFD().sync();
+        } catch (IOException e) {
+            closeQuietly(out);
+            tmp.delete();
+            return false;
+        }
+        closeQuietly(out);
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return false;
+        }
+        mSaveCount++;
+        return true;
+    }
+
+    public int getLoadCount() {
+        return mLoadCount;
+    }
+
+    public int getSaveCount() {
+        return mSaveCount;
+    }
+
+    public int getInvalidateCount() {
+        return mInvalidateCount;
+    }
+
+    private long driverHash() {
+        if (!mDriverHashValid) {
+            mDriverHash = ProgramCache.hash(String.valueOf(mGL.getDriverSignature()), "");
+            mDriverHashValid = true;
+        }
+        return mDriverHash;
+    }
+
+    private File fileFor(long sourceHash) {
+        return new File(mDir, Long.toHexString(sourceHash) + ".bin");
+    }
+
+    private void invalidate(File file) {
+        mInvalidateCount++;
+        file.delete();
+    }
+
+    private static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.opengl.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 程序二进制缓存需要用到的GL调用，单独抽出来方便在单元测试中替换成假的实现
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public interface ProgramBinaryGL {
+
+    /**
+     * 当前上下文是否支持获取和加载程序二进制
+     */
+    boolean isProgramBinarySupported();
+
+    /**
+     * 驱动标识（厂商、渲染器、版本），驱动升级后旧的二进制就不能用了
+     */
+    String getDriverSignature();
+
+    int createProgram();
+
+    void deleteProgram(int program);
+
+    /**
+     * @return 已链接程序的二进制长度，获取不到时返回0
+     */
+    int getProgramBinaryLength(int program);
+
+    /**
+     * 把程序二进制读到 binary 中（从0开始，写满 binary.capacity()）
+     *
+     * @return 二进制格式
+     */
+    int getProgramBinary(int program, ByteBuffer binary);
+
+    /**
+     * 用二进制加载程序
+     *
+     * @return 是否加载并链接成功
+     */
+    boolean programBinary(int program, int format, ByteBuffer binary, int length);
+}
@@ -0,0 +1,178 @@
+package com.example.opengl.utils;
+
+import android.util.Log;
+
+import com.example.gles.GL;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 着色器程序缓存，按顶点+片元着色器代码的哈希值缓存链接好的程序，
+ * 代码相同的着色器只编译一次，多个Render共用同一个程序。
+ * 哈希相同、代码不同的程序串在同一个哈希值下面，各自缓存，查找时比较完整的代码。
+ * <p>
+ * 程序属于当前的GL上下文，只能在GL线程调用。上下文重建之后旧的程序全部失效，缓存会自动清空。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class ProgramCache {
+
+    private static final String TAG = "ProgramCache";
+    private static final ProgramCache sInstance = new ProgramCache();
+
+    private final Map<Long, Entry> mPrograms = new HashMap<>();
+    private Object mContext;
+    private int mSize;
+    private int mHitCount;
+    private int mMissCount;
+
+    private ProgramBinaryCache mBinaryCache;
+    private int mBinaryLoadCount;
+    private long mBinaryLoadNanos;
+    private int mSourceCompileCount;
+    private long mSourceCompileNanos;
+
+    public static ProgramCache getInstance() {
+        return sInstance;
+    }
+
+    /**
+     * 获取着色器程序，缓存中没有时编译链接一个新的
+     *
+     * @param gl                 GL实现
+     * @param vertexShaderCode   顶点着色器代码
+     * @param fragmentShaderCode 片元着色器代码
+     * @return 程序对象，调用方不要删除它
+     */
+    public GLProgram getProgram(GL gl, String vertexShaderCode, String fragmentShaderCode) {
+        checkContext(gl);
+        long key = hash(vertexShaderCode, fragmentShaderCode);
+        Entry first = mPrograms.get(key);
+        for (Entry entry = first; entry != null; entry = entry.next) {
+            if (entry.matches(vertexShaderCode, fragmentShaderCode)) {
+                mHitCount++;
+                return entry.program;
+            }
+        }
+        mMissCount++;
+        GLProgram program = new GLProgram(gl, createProgram(gl, vertexShaderCode, fragmentShaderCode));
+        //哈希冲突时挂在已有的程序后面，同样由缓存持有和删除
+        Entry entry = new Entry(vertexShaderCode, fragmentShaderCode, program);
+        entry.next = first;
+        mPrograms.put(key, entry);
+        mSize++;
+        return program;
+    }
+
+    /**
+     * 设置磁盘上的程序二进制缓存，设置之后未命中时先尝试加载二进制，失败再从源码编译
+     */
+    public void setBinaryCache(ProgramBinaryCache binaryCache) {
+        mBinaryCache = binaryCache;
+    }
+
+    private int createProgram(GL gl, String vertexShaderCode, String fragmentShaderCode) {
+        long start = System.nanoTime();
+        int program = mBinaryCache == null ? 0 : mBinaryCache.load(vertexShaderCode, fragmentShaderCode);
+        if (program != 0) {
+            long elapsed = System.nanoTime() - start;
+            mBinaryLoadCount++;
+            mBinaryLoadNanos += elapsed;
+            Log.i(TAG, "warm program load from binary: " + elapsed / 1000 + "us");
+            return program;
+        }
+        program = OpenGLUtils.createProgram(gl, vertexShaderCode, fragmentShaderCode);
+        if (mBinaryCache != null) {
+            mBinaryCache.save(program, vertexShaderCode, fragmentShaderCode);
+        }
+        long elapsed = System.nanoTime() - start;
+        mSourceCompileCount++;
+        mSourceCompileNanos += elapsed;
+        Log.i(TAG, "cold program compile from source: " + elapsed / 1000 + "us");
+        return program;
+    }
+
+    /**
+     * 冷启动（源码编译）和热启动（加载二进制）分别花费的时间
+     */
+    public String getStartupReport() {
+        return "source compile: " + mSourceCompileCount + " programs, " + mSourceCompileNanos / 1000 + "us; "
+                + "binary load: " + mBinaryLoadCount + " programs, " + mBinaryLoadNanos / 1000 + "us";
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * 删除缓存的所有程序，需要在GL线程调用
+     */
+    public void clear() {
+        for (Entry first : mPrograms.values()) {
+            for (Entry entry = first; entry != null; entry = entry.next) {
+                entry.program.release();
+            }
+        }
+        mPrograms.clear();
+        mSize = 0;
+    }
+
+    /**
+     * GLSurfaceView 暂停或重建surface时会换一个新的上下文，旧的程序句柄不能再用
+     */
+    private void checkContext(GL gl) {
+        Object context = gl.getCurrentContext();
+        if (context != mContext) {
+            mPrograms.clear();
+            mSize = 0;
+            mContext = context;
+        }
+    }
+
+    /**
+     * 64位 FNV-1a 哈希，两段代码之间加一个分隔符
+     */
+    static long hash(String vertexShaderCode, String fragmentShaderCode) {
+        long h = 0xcbf29ce484222325L;
+        h = hash(h, vertexShaderCode);
+        h = (h ^ 0xff) * 0x100000001b3L;
+        return hash(h, fragmentShaderCode);
+    }
+
+    private static long hash(long h, String s) {
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    private static class Entry {
+        final String vertexShaderCode;
+        final String fragmentShaderCode;
+        final GLProgram program;
+        /**
+         * 哈希相同的下一个程序
+         */
+        Entry next;
+
+        Entry(String vertexShaderCode, String fragmentShaderCode, GLProgram program) {
+            this.vertexShaderCode = vertexShaderCode;
+            this.fragmentShaderCode = fragmentShaderCode;
+            this.program = program;
+        }
+
+        boolean matches(String vertex, String fragment) {
+            return vertexShaderCode.equals(vertex) && fragmentShaderCode.equals(fragment);
+        }
+    }
+}
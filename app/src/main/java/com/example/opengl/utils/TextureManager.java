@@ -0,0 +1,346 @@
+package com.example.opengl.utils;
+
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+
+import java.nio.Buffer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 纹理缓存，按 key（资源id、文件路径等）缓存上传好的纹理，每张图只上传一次。
+ * 显存占用超过预算时按最近最少使用的顺序删除纹理。
+ * <p>
+ * 被淘汰的纹理会被删除，所以不要长期持有 {@link Texture}，每帧绘制前重新获取即可，命中时只是一次哈希查找。
+ * 纹理属于当前的GL上下文，只能在GL线程调用，上下文重建后缓存会自动清空。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class TextureManager {
+
+    /**
+     * 默认显存预算 32MB
+     */
+    public static final long DEFAULT_BUDGET_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * 缓存未命中时加载图片，只有需要上传时才会调用
+     */
+    public interface Loader {
+        /**
+         * @return 要上传的图片，加载失败返回 null
+         */
+        Bitmap load();
+    }
+
+    private final GL mGL;
+    private long mBudgetBytes;
+    private final LinkedHashMap<String, Texture> mTextures = new LinkedHashMap<>(16, 0.75f, true);
+    private final int[] mName = new int[1];
+    private Object mContext;
+
+    private long mResidentBytes;
+    private int mUploadCount;
+    private long mUploadedBytes;
+    private int mEvictionCount;
+    private int mHitCount;
+
+    public TextureManager(GL gl) {
+        this(gl, DEFAULT_BUDGET_BYTES);
+    }
+
+    /**
+     * @param budgetBytes 显存预算，超过后淘汰最久没有使用的纹理
+     */
+    public TextureManager(GL gl, long budgetBytes) {
+        mGL = gl;
+        mBudgetBytes = budgetBytes;
+    }
+
+    /**
+     * 获取资源图片对应的纹理，第一次使用时解码并上传
+     */
+    public Texture getTexture(final Resources resources, final int resId) {
+        return getTexture("res:" + resId, new Loader() {
+            @Override
+            public Bitmap load() {
+                return BitmapFactory.decodeResource(resources, resId);
+            }
+        });
+    }
+
+    /**
+     * 获取 key 对应的纹理，不在缓存中时通过 loader 加载图片上传，上传后图片会被回收
+     *
+     * @return 纹理，图片加载失败时返回 null
+     */
+    public Texture getTexture(String key, Loader loader) {
+        Texture texture = get(key);
+        if (texture != null) {
+            return texture;
+        }
+        Bitmap bitmap = loader.load();
+        if (bitmap == null) {
+            return null;
+        }
+        texture = upload(key, bitmap);
+        bitmap.recycle();
+        return texture;
+    }
+
+    /**
+     * 获取 key 对应的纹理，不在缓存中时上传 bitmap。图片仍然属于调用方，不会被回收
+     *
+     * @return 纹理，图片为空或已回收时返回 null
+     */
+    public Texture getTexture(String key, Bitmap bitmap) {
+        Texture texture = get(key);
+        if (texture != null) {
+            return texture;
+        }
+        if (bitmap == null || bitmap.isRecycled()) {
+            return null;
+        }
+        return upload(key, bitmap);
+    }
+
+    /**
+     * 获取 key 对应的纹理，不在缓存中时上传原始像素数据
+     */
+    public Texture getTexture(String key, int width, int height, int format, int type, Buffer pixels) {
+        Texture texture = get(key);
+        if (texture != null) {
+            return texture;
+        }
+        int id = genTexture();
+        mGL.glTexImage2D(GLES20.GL_TEXTURE_2D, 0, format, width, height, 0, format, type, pixels);
+        return put(key, id, width, height, (long) width * height * bytesPerPixel(format, type));
+    }
+
+    /**
+     * 登记一个已经上传好的纹理，之后由缓存负责淘汰和删除
+     */
+    Texture adopt(String key, int id, int width, int height, long bytes) {
+        checkContext();
+        return put(key, id, width, height, bytes);
+    }
+
+    /**
+     * 只查询缓存，不上传
+     *
+     * @return 已经上传的纹理，没有时返回 null
+     */
+    public Texture get(String key) {
+        checkContext();
+        Texture texture = mTextures.get(key);
+        if (texture != null) {
+            mHitCount++;
+        }
+        return texture;
+    }
+
+    /**
+     * 删除 key 对应的纹理
+     */
+    public void release(String key) {
+        checkContext();
+        Texture texture = mTextures.remove(key);
+        if (texture != null) {
+            delete(texture);
+        }
+    }
+
+    /**
+     * 删除所有纹理，需要在GL线程调用
+     */
+    public void clear() {
+        checkContext();
+        for (Texture texture : mTextures.values()) {
+            delete(texture);
+        }
+        mTextures.clear();
+    }
+
+    /**
+     * 修改显存预算，超出的部分立即淘汰
+     */
+    public void setBudgetBytes(long budgetBytes) {
+        mBudgetBytes = budgetBytes;
+        trimToBudget(null);
+    }
+
+    public long getBudgetBytes() {
+        return mBudgetBytes;
+    }
+
+    /**
+     * 当前缓存的纹理占用的显存
+     */
+    public long getResidentBytes() {
+        return mResidentBytes;
+    }
+
+    /**
+     * 纹理上传的次数
+     */
+    public int getUploadCount() {
+        return mUploadCount;
+    }
+
+    public long getUploadedBytes() {
+        return mUploadedBytes;
+    }
+
+    /**
+     * 因为超出预算被淘汰的纹理个数
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int size() {
+        return mTextures.size();
+    }
+
+    private Texture upload(String key, Bitmap bitmap) {
+        int id = genTexture();
+        mGL.texImage2D(GLES20.GL_TEXTURE_2D, 0, bitmap, 0);
+        return put(key, id, bitmap.getWidth(), bitmap.getHeight(),
+                (long) bitmap.getWidth() * bitmap.getHeight() * bytesPerPixel(bitmap.getConfig()));
+    }
+
+    private int genTexture() {
+        mGL.glGenTextures(1, mName, 0);
+        mGL.glBindTexture(GLES20.GL_TEXTURE_2D, mName[0]);
+        //设置缩小过滤为使用纹理中坐标最接近的一个像素的颜色作为需要绘制的像素颜色
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_NEAREST);
+        //设置放大过滤为使用纹理中坐标最接近的若干个颜色，通过加权平均算法得到需要绘制的像素颜色
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        //截取纹理坐标到[1/2n,1-1/2n]，不会与border融合
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        mGL.glTexParameteri(GLES20.GL_TEXTURE_2D, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+        return mName[0];
+    }
+
+    private Texture put(String key, int id, int width, int height, long bytes) {
+        Texture texture = new Texture(id, width, height, bytes);
+        Texture old = mTextures.put(key, texture);
+        if (old != null) {
+            delete(old);
+        }
+        mResidentBytes += bytes;
+        mUploadCount++;
+        mUploadedBytes += bytes;
+        trimToBudget(texture);
+        return texture;
+    }
+
+    /**
+     * 淘汰最久没有使用的纹理直到不超过预算，刚上传的纹理即使单独超出预算也保留
+     */
+    private void trimToBudget(Texture keep) {
+        Iterator<Map.Entry<String, Texture>> iterator = mTextures.entrySet().iterator();
+        while (mResidentBytes > mBudgetBytes && iterator.hasNext()) {
+            Texture texture = iterator.next().getValue();
+            if (texture == keep) {
+                continue;
+            }
+            iterator.remove();
+            delete(texture);
+            mEvictionCount++;
+        }
+    }
+
+    private void delete(Texture texture) {
+        mName[0] = texture.mId;
+        mGL.glDeleteTextures(1, mName, 0);
+        mResidentBytes -= texture.mByteCount;
+        texture.mId = 0;
+    }
+
+    /**
+     * 上下文重建之后旧的纹理已经随上下文销毁，只清空记录
+     */
+    private void checkContext() {
+        Object context = mGL.getCurrentContext();
+        if (context != mContext) {
+            for (Texture texture : mTextures.values()) {
+                texture.mId = 0;
+            }
+            mTextures.clear();
+            mResidentBytes = 0;
+            mContext = context;
+        }
+    }
+
+    static int bytesPerPixel(Bitmap.Config config) {
+        if (config == Bitmap.Config.RGB_565 || config == Bitmap.Config.ARGB_4444) {
+            return 2;
+        }
+        return config == Bitmap.Config.ALPHA_8 ? 1 : 4;
+    }
+
+    static int bytesPerPixel(int format, int type) {
+        if (type == GLES20.GL_UNSIGNED_SHORT_5_6_5 || type == GLES20.GL_UNSIGNED_SHORT_4_4_4_4
+                || type == GLES20.GL_UNSIGNED_SHORT_5_5_5_1) {
+            return 2;
+        }
+        switch (format) {
+            case GLES20.GL_ALPHA:
+            case GLES20.GL_LUMINANCE:
+                return 1;
+            case GLES20.GL_LUMINANCE_ALPHA:
+                return 2;
+            case GLES20.GL_RGB:
+                return 3;
+            default:
+                return 4;
+        }
+    }
+
+    /**
+     * 上传好的纹理，被淘汰或删除之后 id 变为 0
+     */
+    public static class Texture {
+        private int mId;
+        private final int mWidth;
+        private final int mHeight;
+        private final long mByteCount;
+
+        Texture(int id, int width, int height, long byteCount) {
+            mId = id;
+            mWidth = width;
+            mHeight = height;
+            mByteCount = byteCount;
+        }
+
+        public int getId() {
+            return mId;
+        }
+
+        public int getWidth() {
+            return mWidth;
+        }
+
+        public int getHeight() {
+            return mHeight;
+        }
+
+        /**
+         * 占用的显存字节数
+         */
+        public long getByteCount() {
+            return mByteCount;
+        }
+    }
+}
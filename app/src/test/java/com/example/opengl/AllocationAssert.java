@@ -0,0 +1,36 @@
+package com.example.opengl;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 检查一段代码在当前线程上没有分配内存，用于验证每帧执行的路径不产生垃圾。
+ * 依赖 HotSpot 的 com.sun.management.ThreadMXBean，只统计调用线程的分配
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public final class AllocationAssert {
+
+    /**
+     * 留一点余量给 MXBean 自身
+     */
+    private static final long TOLERANCE_BYTES = 1024;
+
+    private AllocationAssert() {
+    }
+
+    /**
+     * 执行 action，断言期间当前线程分配的内存不超过余量。需要预热的代码先自行执行一次
+     */
+    public static void assertNoAllocation(String message, Runnable action) {
+        com.sun.management.ThreadMXBean bean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = bean.getThreadAllocatedBytes(threadId);
+        action.run();
+        long allocated = bean.getThreadAllocatedBytes(threadId) - before;
+        assertTrue(message + ": allocated " + allocated + " bytes", allocated < TOLERANCE_BYTES);
+    }
+}
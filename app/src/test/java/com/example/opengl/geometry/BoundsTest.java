@@ -0,0 +1,60 @@
+package com.example.opengl.geometry;
+
+import com.example.opengl.math.Mat4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试包围体的计算和变换
+ */
+public class BoundsTest {
+
+    @Test
+    public void fromPositions_coversAllVertices() {
+        float[] positions = {
+                -1f, 0f, 2f,
+                3f, 4f, 2f,
+                1f, -2f, 0f,
+        };
+        Bounds bounds = Bounds.fromPositions(positions, 3);
+        assertEquals(-1f, bounds.getMinX(), 0f);
+        assertEquals(-2f, bounds.getMinY(), 0f);
+        assertEquals(0f, bounds.getMinZ(), 0f);
+        assertEquals(3f, bounds.getMaxX(), 0f);
+        assertEquals(4f, bounds.getMaxY(), 0f);
+        assertEquals(2f, bounds.getMaxZ(), 0f);
+        //球心 (1,1,1)，最远的是 (3,4,2)
+        assertEquals((float) Math.sqrt(4 + 9 + 1), bounds.getRadius(), 1e-6f);
+    }
+
+    @Test
+    public void fromPositions_twoComponents() {
+        Bounds bounds = Bounds.fromPositions(new float[]{-1f, -1f, 1f, 1f}, 2);
+        assertEquals(0f, bounds.getMinZ(), 0f);
+        assertEquals(0f, bounds.getMaxZ(), 0f);
+        assertEquals((float) Math.sqrt(2), bounds.getRadius(), 1e-6f);
+    }
+
+    @Test
+    public void transform_containsTransformedCorners() {
+        Bounds bounds = Bounds.fromPositions(new float[]{-1f, -1f, -1f, 1f, 1f, 1f}, 3);
+        float[] m = new float[16];
+        Mat4.setIdentityM(m, 0);
+        Mat4.translateM(m, 0, 5f, 0f, 0f);
+        Mat4.rotateM(m, 0, 45f, 0f, 0f, 1f);
+        Mat4.scaleM(m, 0, 2f, 1f, 1f);
+        float[] aabb = new float[Bounds.AABB_SIZE];
+        bounds.transform(m, 0, aabb, 0);
+
+        //绕z轴转45度后，x、y方向的半边长都是 (2+1)/√2
+        float extent = 3f / (float) Math.sqrt(2);
+        assertEquals(5f - extent, aabb[0], 1e-5f);
+        assertEquals(-extent, aabb[1], 1e-5f);
+        assertEquals(-1f, aabb[2], 1e-5f);
+        assertEquals(5f + extent, aabb[3], 1e-5f);
+        assertEquals(extent, aabb[4], 1e-5f);
+        assertEquals(1f, aabb[5], 1e-5f);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.opengl.geometry;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static com.example.opengl.AllocationAssert.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试扇面生成的顶点个数、坐标和内存分配
+ */
+public class CircleGeneratorTest {
+
+    private static final int[] SIZES = {4, 10000, 1000000};
+
+    @Test
+    public void vertexCount_isExact() {
+        for (int segments : SIZES) {
+            float[] fan = CircleGenerator.createFan(segments, 0.5f, 1f);
+            assertEquals((segments + 2) * 3, fan.length);
+            //最后一个圆周点和第一个完全重合
+            assertEquals(fan[3], fan[fan.length - 3], 0f);
+            assertEquals(fan[4], fan[fan.length - 2], 0f);
+        }
+    }
+
+    @Test
+    public void positions_matchAngles() {
+        int segments = 360;
+        float[] fan = CircleGenerator.createFan(segments, 2f, 1f);
+        assertEquals(1f, fan[2], 0f);
+        for (int i = 0; i <= segments; i++) {
+            double angle = 2 * Math.PI * i / segments;
+            int p = (i + 1) * 3;
+            assertEquals(2 * Math.sin(angle), fan[p], 1e-6);
+            assertEquals(2 * Math.cos(angle), fan[p + 1], 1e-6);
+            assertEquals(0f, fan[p + 2], 0f);
+        }
+    }
+
+    @Test
+    public void bufferAndParallel_matchSerial() {
+        int segments = 100000;
+        float[] expected = CircleGenerator.createFan(segments, 0.5f, 1f);
+
+        FloatBuffer buffer = ByteBuffer.allocateDirect(expected.length * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        CircleGenerator.fan(buffer, segments, 0.5f, 1f);
+        assertEquals(expected.length, buffer.position());
+
+        CircleGenerator generator = new CircleGenerator(4, 1024);
+        float[] parallel = new float[expected.length];
+        generator.generateFan(parallel, 0, segments, 0.5f, 1f);
+        generator.release();
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], buffer.get(i), 0f);
+            assertEquals(expected[i], parallel[i], 0f);
+        }
+    }
+
+    @Test
+    public void fanIntoArray_doesNotAllocate() {
+        for (final int segments : SIZES) {
+            final float[] out = new float[CircleGenerator.fanVertexCount(segments) * 3];
+            //预热，正余弦表第一次使用时创建
+            CircleGenerator.fan(out, 0, segments, 0.5f, 1f);
+
+            //原来的做法每个坐标装箱一次，查表写入现成的数组不分配
+            assertNoAllocation(segments + " segments", new Runnable() {
+                @Override
+                public void run() {
+                    CircleGenerator.fan(out, 0, segments, 0.5f, 1f);
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.opengl.geometry;
+
+import com.example.opengl.math.Mat4;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试投影半径的计算和级别切换的滞后
+ */
+public class LodSelectorTest {
+
+    private static final float[] THRESHOLDS = {0f, 10f, 20f, 40f};
+
+    @Test
+    public void select_firstTimeUsesThresholds() {
+        assertEquals(0, new LodSelector(THRESHOLDS).select(5f));
+        assertEquals(1, new LodSelector(THRESHOLDS).select(10f));
+        assertEquals(2, new LodSelector(THRESHOLDS).select(39f));
+        assertEquals(3, new LodSelector(THRESHOLDS).select(1000f));
+    }
+
+    @Test
+    public void select_hysteresisPreventsFlicker() {
+        LodSelector selector = new LodSelector(THRESHOLDS, 0.1f);
+        assertEquals(1, selector.select(19f));
+        //在阈值附近来回变化不切换
+        for (int i = 0; i < 10; i++) {
+            assertEquals(1, selector.select(i % 2 == 0 ? 21f : 19f));
+        }
+        assertEquals(2, selector.select(22.5f));
+        for (int i = 0; i < 10; i++) {
+            assertEquals(2, selector.select(i % 2 == 0 ? 19f : 21f));
+        }
+        assertEquals(1, selector.select(17.5f));
+        //变化很大时一次跳过多级
+        assertEquals(3, selector.select(100f));
+        assertEquals(0, selector.select(1f));
+    }
+
+    @Test
+    public void projectedRadius_matchesPerspective() {
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] mvp = new float[16];
+        //近平面高度为2，距离为3，y 方向缩放为3
+        Mat4.frustumM(projection, 0, -1, 1, -1, 1, 3, 20);
+        Mat4.setLookAtM(view, 0, 0f, 0f, 10f, 0f, 0f, 0f, 0f, 1f, 0f);
+        Mat4.multiplyMM(mvp, 0, projection, 0, view, 0);
+        float radius = LodSelector.projectedRadius(mvp, 0, 0f, 0f, 0f, 1f, 1000);
+        assertEquals(1f * 3 / 10 * 500, radius, 1e-3f);
+        //距离加倍半径减半
+        float far = LodSelector.projectedRadius(mvp, 0, 0f, 0f, -10f, 1f, 1000);
+        assertEquals(radius / 2, far, 1e-3f);
+        //在相机后面时用最高级别
+        assertTrue(LodSelector.projectedRadius(mvp, 0, 0f, 0f, 20f, 1f, 1000) == Float.MAX_VALUE);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.opengl.geometry;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试生成的球面顶点都在球面上、三角形朝外、网格闭合
+ */
+public class SphereGeneratorTest {
+
+    @Test
+    public void icosphere_counts() {
+        IndexedGeometry[] lods = SphereGenerator.icosphereLods(SphereGenerator.MAX_ICOSPHERE_LEVEL, 1f);
+        for (int level = 0; level < lods.length; level++) {
+            assertEquals(10 * (1 << 2 * level) + 2, lods[level].getVertexCount());
+            assertEquals(20 * (1 << 2 * level), lods[level].getTriangleCount());
+        }
+    }
+
+    @Test
+    public void icosphere_isClosedAndOutward() {
+        for (int level = 0; level <= 3; level++) {
+            checkSphere(SphereGenerator.icosphere(level, 2f), 2f);
+        }
+    }
+
+    @Test
+    public void uvSphere_isClosedAndOutward() {
+        IndexedGeometry sphere = SphereGenerator.uvSphere(16, 32, 0.5f);
+        assertEquals(17 * 33, sphere.getVertexCount());
+        assertEquals(2 * 32 * 15, sphere.getTriangleCount());
+        checkSphere(sphere, 0.5f);
+    }
+
+    @Test
+    public void thresholds_keepEdgesSmall() {
+        float[] thresholds = SphereGenerator.icosphereThresholds(5, 8f);
+        assertEquals(0f, thresholds[0], 0f);
+        for (int level = 1; level < thresholds.length; level++) {
+            assertTrue(thresholds[level] > thresholds[level - 1]);
+            //刚好需要这一级时，上一级的边长不小于 8 像素
+            float edge = thresholds[level] * 1.0515f / (1 << (level - 1));
+            assertEquals(8f, edge, 1e-3f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void icosphere_rejectsTooManyVertices() {
+        SphereGenerator.icosphere(SphereGenerator.MAX_ICOSPHERE_LEVEL + 1, 1f);
+    }
+
+    /**
+     * 顶点到球心的距离等于半径，三角形的法线和球心方向同向，
+     * 用顶点位置合并重合的顶点后每条边正好被两个三角形反向使用
+     */
+    private static void checkSphere(IndexedGeometry sphere, float radius) {
+        float[] p = sphere.getPositions();
+        for (int v = 0; v < sphere.getVertexCount(); v++) {
+            double length = Math.sqrt(p[v * 3] * p[v * 3] + p[v * 3 + 1] * p[v * 3 + 1] + p[v * 3 + 2] * p[v * 3 + 2]);
+            assertEquals(radius, length, 1e-5);
+        }
+        int[] weld = new int[sphere.getVertexCount()];
+        Map<String, Integer> unique = new HashMap<>();
+        for (int v = 0; v < weld.length; v++) {
+            String key = Math.round(p[v * 3] * 1e4) + "," + Math.round(p[v * 3 + 1] * 1e4) + ","
+                    + Math.round(p[v * 3 + 2] * 1e4);
+            Integer index = unique.get(key);
+            if (index == null) {
+                index = v;
+                unique.put(key, v);
+            }
+            weld[v] = index;
+        }
+        short[] indices = sphere.getIndices();
+        Map<Long, Integer> edges = new HashMap<>();
+        for (int t = 0; t < indices.length; t += 3) {
+            int a = indices[t] & 0xffff;
+            int b = indices[t + 1] & 0xffff;
+            int c = indices[t + 2] & 0xffff;
+            float ux = p[b * 3] - p[a * 3], uy = p[b * 3 + 1] - p[a * 3 + 1], uz = p[b * 3 + 2] - p[a * 3 + 2];
+            float vx = p[c * 3] - p[a * 3], vy = p[c * 3 + 1] - p[a * 3 + 1], vz = p[c * 3 + 2] - p[a * 3 + 2];
+            float nx = uy * vz - uz * vy, ny = uz * vx - ux * vz, nz = ux * vy - uy * vx;
+            float cx = p[a * 3] + p[b * 3] + p[c * 3];
+            float cy = p[a * 3 + 1] + p[b * 3 + 1] + p[c * 3 + 1];
+            float cz = p[a * 3 + 2] + p[b * 3 + 2] + p[c * 3 + 2];
+            assertTrue("triangle " + t / 3 + " faces inward", nx * cx + ny * cy + nz * cz > 0);
+            addEdge(edges, weld[a], weld[b]);
+            addEdge(edges, weld[b], weld[c]);
+            addEdge(edges, weld[c], weld[a]);
+        }
+        for (Map.Entry<Long, Integer> edge : edges.entrySet()) {
+            long reverse = (edge.getKey() & 0xffffffffL) << 32 | edge.getKey() >>> 32;
+            assertEquals(Integer.valueOf(1), edge.getValue());
+            assertEquals(Integer.valueOf(1), edges.get(reverse));
+        }
+    }
+
+    private static void addEdge(Map<Long, Integer> edges, int from, int to) {
+        long key = (long) from << 32 | to;
+        Integer count = edges.get(key);
+        edges.put(key, count == null ? 1 : count + 1);
+    }
+}
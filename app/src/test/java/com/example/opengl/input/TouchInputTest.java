@@ -0,0 +1,161 @@
+package com.example.opengl.input;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试触摸采样的合并、每帧最多一次渲染请求和延迟统计
+ */
+public class TouchInputTest {
+
+    private static final int WIDTH = 100;
+    private static final int HEIGHT = 100;
+
+    private TouchInput input;
+    private int requests;
+
+    @Before
+    public void setUp() {
+        input = new TouchInput(1f);
+        requests = 0;
+        input.setRenderRequester(new TouchInput.RenderRequester() {
+            @Override
+            public void requestRender() {
+                requests++;
+            }
+        });
+        //右下方按下，向右移动时角度增加
+        input.down(60, 60);
+    }
+
+    @Test
+    public void samplesInOneEvent_publishOneSnapshot() {
+        //一个移动事件带着三个历史采样和一个当前采样
+        input.move(61, 60, 100, WIDTH, HEIGHT);
+        input.move(62, 60, 104, WIDTH, HEIGHT);
+        input.move(63, 60, 108, WIDTH, HEIGHT);
+        input.move(64, 60, 112, WIDTH, HEIGHT);
+        input.publish();
+
+        assertTrue(input.acquire());
+        TouchSnapshot snapshot = input.getSnapshot();
+        assertEquals(-4f, snapshot.getAngle(), 0f);
+        assertEquals(4, snapshot.getSampleCount());
+        assertEquals(100, snapshot.getOldestEventTime());
+        assertEquals(112, snapshot.getNewestEventTime());
+        assertEquals(1, input.getPublishCount());
+        assertEquals(1, requests);
+    }
+
+    @Test
+    public void eventsBeforeFrame_areMergedWithOneRequest() {
+        for (int i = 1; i <= 5; i++) {
+            input.move(60 + i, 60, i * 4, WIDTH, HEIGHT);
+            input.publish();
+        }
+        //GL线程还没开始画，后面四次不再请求
+        assertEquals(1, requests);
+        assertEquals(4, input.getSuppressedRequestCount());
+        assertEquals(4, input.getMergedCount());
+
+        assertTrue(input.acquire());
+        TouchSnapshot snapshot = input.getSnapshot();
+        //中间的快照被覆盖，累积的角度和采样都在最新的一份里
+        assertEquals(-5f, snapshot.getAngle(), 0f);
+        assertEquals(5, snapshot.getSampleCount());
+        assertEquals(4, snapshot.getOldestEventTime());
+        assertEquals(5, snapshot.getSequence());
+
+        //取过之后的输入再请求下一帧
+        input.move(70, 60, 30, WIDTH, HEIGHT);
+        input.publish();
+        assertEquals(2, requests);
+        assertTrue(input.acquire());
+        assertEquals(1, input.getSnapshot().getSampleCount());
+        assertEquals(30, input.getSnapshot().getOldestEventTime());
+        assertFalse(input.acquire());
+    }
+
+    @Test
+    public void publishWithoutSamples_doesNothing() {
+        input.publish();
+        assertEquals(0, requests);
+        assertFalse(input.acquire());
+        assertEquals(0, input.getSnapshot().getSequence());
+    }
+
+    @Test
+    public void onFrameSubmitted_measuresLatencyOncePerSnapshot() {
+        input.move(61, 60, 100, WIDTH, HEIGHT);
+        input.move(62, 60, 110, WIDTH, HEIGHT);
+        input.publish();
+        input.acquire();
+        input.onFrameSubmitted(126);
+        assertEquals(26, input.getLastLatencyMillis());
+        assertEquals(16, input.getLastNewestLatencyMillis());
+
+        //同一份快照再画一次不重复统计
+        input.acquire();
+        input.onFrameSubmitted(142);
+        assertEquals(1, input.getRenderedCount());
+        assertEquals(26, input.getMaxLatencyMillis());
+
+        input.move(63, 60, 140, WIDTH, HEIGHT);
+        input.publish();
+        input.acquire();
+        input.onFrameSubmitted(150);
+        assertEquals(2, input.getRenderedCount());
+        assertEquals(10, input.getLastLatencyMillis());
+        assertEquals(18f, input.getAverageLatencyMillis(), 0f);
+        assertTrue(input.getReport(), input.getReport().contains("3 samples"));
+    }
+
+    @Test
+    public void rotationDirection_followsQuadrant() {
+        //左上方向右移动，上半部分 dx 不反转；左半部分 dy 反转
+        input.down(10, 10);
+        input.move(12, 10, 0, WIDTH, HEIGHT);
+        input.move(12, 13, 1, WIDTH, HEIGHT);
+        input.publish();
+        input.acquire();
+        assertEquals(2f - 3f, input.getSnapshot().getAngle(), 0f);
+    }
+
+    @Test
+    public void concurrent_glThreadSeesEveryMoveEventually() throws InterruptedException {
+        final int moves = 50000;
+        Thread ui = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 1; i <= moves; i++) {
+                    //来回移动，每次累积 -1 度
+                    input.move(60 + (i & 1), 60, i, WIDTH, HEIGHT);
+                    input.down(60, 60);
+                    input.publish();
+                }
+            }
+        });
+        ui.start();
+        int frames = 0;
+        long lastSequence = 0;
+        while (lastSequence < moves) {
+            if (input.acquire()) {
+                TouchSnapshot snapshot = input.getSnapshot();
+                assertTrue(snapshot.getSequence() > lastSequence);
+                //角度和序号在同一份快照里，总是一致的
+                assertEquals(-(snapshot.getSequence() + 1) / 2, snapshot.getAngle(), 0f);
+                lastSequence = snapshot.getSequence();
+                frames++;
+            }
+        }
+        ui.join();
+        assertEquals(moves, input.getPublishCount());
+        assertEquals(moves, frames + input.getMergedCount());
+        //每次发布要么请求一帧，要么因为已经有一帧在等待而省掉
+        assertEquals(moves, input.getRenderRequestCount() + input.getSuppressedRequestCount());
+    }
+}
@@ -0,0 +1,95 @@
+package com.example.opengl.input;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试三缓冲的交换：读到最新的数据、覆盖未读数据的计数、并发时不会读到写了一半的数据
+ */
+public class TripleBufferTest {
+
+    private static TripleBuffer<long[]> newBuffer() {
+        return new TripleBuffer<>(new long[4], new long[4], new long[4]);
+    }
+
+    @Test
+    public void update_returnsLatestPublished() {
+        TripleBuffer<long[]> buffer = newBuffer();
+        assertFalse(buffer.update());
+
+        buffer.getBack()[0] = 1;
+        assertFalse(buffer.publish());
+        buffer.getBack()[0] = 2;
+        //第一份还没被取走就被覆盖
+        assertTrue(buffer.publish());
+        assertTrue(buffer.isPending());
+
+        assertTrue(buffer.update());
+        assertEquals(2, buffer.getFront()[0]);
+        assertFalse(buffer.isPending());
+        //没有新数据时前缓冲不变
+        assertFalse(buffer.update());
+        assertEquals(2, buffer.getFront()[0]);
+    }
+
+    @Test
+    public void writerAndReader_neverShareBuffer() {
+        TripleBuffer<long[]> buffer = newBuffer();
+        for (int i = 0; i < 10; i++) {
+            assertNotSame(buffer.getBack(), buffer.getFront());
+            buffer.publish();
+            if (i % 3 == 0) {
+                buffer.update();
+            }
+        }
+        long[] front = buffer.getFront();
+        buffer.publish();
+        buffer.publish();
+        //写线程怎么发布都不会换到读线程正在用的缓冲区
+        assertSame(front, buffer.getFront());
+        assertNotSame(front, buffer.getBack());
+    }
+
+    @Test
+    public void concurrent_readerSeesWholeSnapshotsInOrder() throws InterruptedException {
+        final TripleBuffer<long[]> buffer = newBuffer();
+        final int count = 200000;
+        Thread writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long v = 1; v <= count; v++) {
+                    long[] back = buffer.getBack();
+                    for (int i = 0; i < back.length; i++) {
+                        back[i] = v;
+                    }
+                    buffer.publish();
+                }
+            }
+        });
+        writer.start();
+
+        long last = 0;
+        int reads = 0;
+        while (last < count) {
+            if (!buffer.update()) {
+                continue;
+            }
+            long[] front = buffer.getFront();
+            //同一份里的值必须一致，序号只增不减
+            for (long value : front) {
+                assertEquals(front[0], value);
+            }
+            assertTrue(front[0] > last);
+            last = front[0];
+            reads++;
+        }
+        writer.join();
+        assertEquals(count, last);
+        assertTrue(reads > 0);
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.opengl.math;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Mat4/Vec3/Quat 和按定义逐项计算的参考实现对比
+ */
+public class Mat4Test {
+
+    private static final float EPSILON = 1e-5f;
+
+    private final Random random = new Random(42);
+
+    @Test
+    public void multiplyMM_matchesReference() {
+        for (int n = 0; n < 100; n++) {
+            float[] a = randomMatrix();
+            float[] b = randomMatrix();
+            float[] result = new float[16];
+            Mat4.multiplyMM(result, 0, a, 0, b, 0);
+            assertArrayEquals(referenceMultiply(a, b), result, EPSILON);
+        }
+    }
+
+    @Test
+    public void multiplyMM_allowsAliasing() {
+        float[] a = randomMatrix();
+        float[] b = randomMatrix();
+        float[] expected = referenceMultiply(a, b);
+        Mat4.multiplyMM(a, 0, a, 0, b, 0);
+        assertArrayEquals(expected, a, EPSILON);
+    }
+
+    @Test
+    public void multiplyMMAffine_matchesGeneralMultiply() {
+        for (int n = 0; n < 100; n++) {
+            float[] lhs = randomMatrix();
+            float[] rhs = randomAffine();
+            float[] general = new float[16];
+            float[] affine = new float[16];
+            Mat4.multiplyMM(general, 0, lhs, 0, rhs, 0);
+            Mat4.multiplyMMAffine(affine, 0, lhs, 0, rhs, 0);
+            assertArrayEquals(general, affine, EPSILON);
+        }
+    }
+
+    @Test
+    public void invert_producesIdentity() {
+        float[] identity = new float[16];
+        Mat4.setIdentityM(identity, 0);
+        for (int n = 0; n < 100; n++) {
+            float[] m = randomAffine();
+            float[] inv = new float[16];
+            float[] invAffine = new float[16];
+            float[] product = new float[16];
+            assertTrue(Mat4.invertM(inv, 0, m, 0));
+            assertTrue(Mat4.invertAffineM(invAffine, 0, m, 0));
+            assertArrayEquals(inv, invAffine, 1e-3f);
+            Mat4.multiplyMM(product, 0, m, 0, inv, 0);
+            assertArrayEquals(identity, product, 1e-3f);
+        }
+    }
+
+    @Test
+    public void rotateM_inPlaceMatchesSetRotateThenMultiply() {
+        for (int n = 0; n < 100; n++) {
+            float[] m = randomMatrix();
+            float angle = random.nextFloat() * 720 - 360;
+            float x = random.nextFloat() - 0.5f, y = random.nextFloat() - 0.5f, z = random.nextFloat() - 0.5f;
+            float[] rotation = new float[16];
+            Mat4.setRotateM(rotation, 0, angle, x, y, z);
+            float[] expected = referenceMultiply(m, rotation);
+            Mat4.rotateM(m, 0, angle, x, y, z);
+            assertArrayEquals(expected, m, EPSILON);
+        }
+    }
+
+    @Test
+    public void translateAndScale_matchReference() {
+        float[] m = randomMatrix();
+        float[] t = new float[16];
+        Mat4.setIdentityM(t, 0);
+        t[12] = 1.5f;
+        t[13] = -2f;
+        t[14] = 3f;
+        float[] expected = referenceMultiply(m, t);
+        float[] actual = m.clone();
+        Mat4.translateM(actual, 0, 1.5f, -2f, 3f);
+        assertArrayEquals(expected, actual, EPSILON);
+
+        float[] s = new float[16];
+        Mat4.setIdentityM(s, 0);
+        s[0] = 2f;
+        s[5] = 0.5f;
+        s[10] = -1f;
+        expected = referenceMultiply(m, s);
+        actual = m.clone();
+        Mat4.scaleM(actual, 0, 2f, 0.5f, -1f);
+        assertArrayEquals(expected, actual, EPSILON);
+    }
+
+    @Test
+    public void lookAt_mapsEyeToOriginAndCenterToNegativeZ() {
+        float[] view = new float[16];
+        Mat4.setLookAtM(view, 0, 10, 10, 10, 0, 0, 0, 0, 1, 0);
+        float[] eye = {10, 10, 10, 1};
+        float[] center = {0, 0, 0, 1};
+        float[] out = new float[4];
+        Mat4.multiplyMV(out, 0, view, 0, eye, 0);
+        assertArrayEquals(new float[]{0, 0, 0, 1}, out, 1e-4f);
+        Mat4.multiplyMV(out, 0, view, 0, center, 0);
+        assertEquals(0, out[0], 1e-4f);
+        assertEquals(0, out[1], 1e-4f);
+        assertEquals(-Vec3.length(10, 10, 10), out[2], 1e-4f);
+    }
+
+    @Test
+    public void ortho_mapsBoxToClipCube() {
+        float[] m = new float[16];
+        Mat4.orthoM(m, 0, -2, 4, -1, 3, 3, 20);
+        float[] out = new float[4];
+        Mat4.multiplyMV(out, 0, m, 0, new float[]{4, 3, -20, 1}, 0);
+        assertArrayEquals(new float[]{1, 1, 1, 1}, out, EPSILON);
+        Mat4.multiplyMV(out, 0, m, 0, new float[]{-2, -1, -3, 1}, 0);
+        assertArrayEquals(new float[]{-1, -1, -1, 1}, out, EPSILON);
+    }
+
+    @Test
+    public void frustum_mapsNearCornerToClipCorner() {
+        float[] m = new float[16];
+        Mat4.frustumM(m, 0, -1, 1, -1, 1, 3, 7);
+        float[] out = new float[4];
+        Mat4.multiplyMV(out, 0, m, 0, new float[]{1, 1, -3, 1}, 0);
+        assertArrayEquals(new float[]{1, 1, -1}, new float[]{out[0] / out[3], out[1] / out[3], out[2] / out[3]}, EPSILON);
+    }
+
+    @Test
+    public void quat_matchesRotationMatrix() {
+        for (int n = 0; n < 100; n++) {
+            float angle = random.nextFloat() * 720 - 360;
+            float x = random.nextFloat() - 0.5f, y = random.nextFloat() - 0.5f, z = random.nextFloat() - 0.5f;
+            float[] q = new float[4];
+            Quat.setAxisAngle(q, 0, angle, x, y, z);
+            float[] fromQuat = new float[16];
+            Quat.toMatrix(fromQuat, 0, q, 0);
+            float[] rotation = new float[16];
+            Mat4.setRotateM(rotation, 0, angle, x, y, z);
+            assertArrayEquals(rotation, fromQuat, 1e-4f);
+
+            float[] v = {random.nextFloat(), random.nextFloat(), random.nextFloat()};
+            float[] byQuat = new float[3];
+            float[] byMatrix = new float[3];
+            Quat.rotateVec3(byQuat, 0, q, 0, v, 0);
+            Vec3.transformDirection(byMatrix, 0, rotation, 0, v, 0);
+            assertArrayEquals(byMatrix, byQuat, 1e-4f);
+        }
+    }
+
+    @Test
+    public void quatMultiply_composesRotations() {
+        float[] a = new float[4];
+        float[] b = new float[4];
+        Quat.setAxisAngle(a, 0, 30, 1, 2, 3);
+        Quat.setAxisAngle(b, 0, -75, 0, 1, 0);
+        float[] ab = new float[4];
+        Quat.multiply(ab, 0, a, 0, b, 0);
+
+        float[] ma = new float[16];
+        float[] mb = new float[16];
+        Quat.toMatrix(ma, 0, a, 0);
+        Quat.toMatrix(mb, 0, b, 0);
+        float[] mab = new float[16];
+        Quat.toMatrix(mab, 0, ab, 0);
+        assertArrayEquals(referenceMultiply(ma, mb), mab, 1e-4f);
+    }
+
+    private float[] randomMatrix() {
+        float[] m = new float[16];
+        for (int i = 0; i < 16; i++) {
+            m[i] = random.nextFloat() * 4 - 2;
+        }
+        return m;
+    }
+
+    private float[] randomAffine() {
+        float[] m = new float[16];
+        Mat4.setIdentityM(m, 0);
+        Mat4.translateM(m, 0, random.nextFloat() * 10 - 5, random.nextFloat() * 10 - 5, random.nextFloat() * 10 - 5);
+        Mat4.rotateM(m, 0, random.nextFloat() * 360, random.nextFloat(), random.nextFloat(), random.nextFloat() + 0.1f);
+        Mat4.scaleM(m, 0, random.nextFloat() + 0.5f, random.nextFloat() + 0.5f, random.nextFloat() + 0.5f);
+        return m;
+    }
+
+    /**
+     * 按定义计算的列主序矩阵乘法
+     */
+    private static float[] referenceMultiply(float[] a, float[] b) {
+        float[] r = new float[16];
+        for (int col = 0; col < 4; col++) {
+            for (int row = 0; row < 4; row++) {
+                float sum = 0;
+                for (int k = 0; k < 4; k++) {
+                    sum += a[k * 4 + row] * b[col * 4 + k];
+                }
+                r[col * 4 + row] = sum;
+            }
+        }
+        return r;
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.opengl.math;
+
+import org.junit.Test;
+
+import java.nio.FloatBuffer;
+import java.util.Random;
+
+import static com.example.opengl.AllocationAssert.assertNoAllocation;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MatrixBatch 的正确性测试，以及和原来逐个计算的结果对比
+ */
+public class MatrixBatchTest {
+
+    private static final int[] SIZES = {1000, 10000, 100000};
+
+    @Test
+    public void multiply_matchesPerObjectPath() {
+        int count = 5000;
+        float[] vp = viewProjection();
+        float[] models = randomModels(count);
+        float[] expected = new float[count * 16];
+        for (int i = 0; i < count; i++) {
+            Mat4.multiplyMM(expected, i * 16, vp, 0, models, i * 16);
+        }
+
+        MatrixBatch batch = new MatrixBatch(4, 1000);
+        float[] parallel = new float[count * 16];
+        batch.multiply(vp, 0, models, 0, parallel, 0, count);
+        batch.release();
+        assertArrayEquals(expected, parallel, 1e-4f);
+
+        float[] serial = new float[count * 16];
+        MatrixBatch.multiplyAffine(vp, 0, models, 0, serial, 0, count);
+        assertArrayEquals(expected, serial, 1e-4f);
+    }
+
+    @Test
+    public void multiply_directBuffers() {
+        int count = 300;
+        float[] vp = viewProjection();
+        float[] models = randomModels(count);
+        FloatBuffer in = MatrixBatch.allocateInstanceBuffer(count);
+        in.put(models).position(0);
+        FloatBuffer out = MatrixBatch.allocateInstanceBuffer(count);
+
+        new MatrixBatch(1, 0).multiply(vp, 0, in, out, count);
+        assertEquals(count * 16, out.position());
+
+        float[] expected = new float[count * 16];
+        MatrixBatch.multiplyAffine(vp, 0, models, 0, expected, 0, count);
+        float[] actual = new float[count * 16];
+        out.position(0);
+        out.get(actual);
+        assertArrayEquals(expected, actual, 0f);
+    }
+
+    @Test
+    public void multiply_emptyBatch() {
+        //阈值为0时空的一批也会走到并行路径
+        MatrixBatch batch = new MatrixBatch(4, 0);
+        float[] result = {7f};
+        batch.multiply(viewProjection(), 0, new float[0], 0, result, 0, 0);
+        assertEquals(7f, result[0], 0f);
+
+        FloatBuffer out = MatrixBatch.allocateInstanceBuffer(0);
+        batch.multiply(viewProjection(), 0, MatrixBatch.allocateInstanceBuffer(0), out, 0);
+        assertEquals(0, out.position());
+        batch.release();
+    }
+
+    @Test
+    public void multiply_interruptedCallerGetsFullResult() {
+        int count = 20000;
+        float[] vp = viewProjection();
+        float[] models = randomModels(count);
+        float[] expected = new float[count * 16];
+        MatrixBatch.multiplyAffine(vp, 0, models, 0, expected, 0, count);
+
+        MatrixBatch batch = new MatrixBatch(4, 1);
+        float[] result = new float[count * 16];
+        Thread.currentThread().interrupt();
+        batch.multiply(vp, 0, models, 0, result, 0, count);
+        //中断标志保留给调用方
+        assertTrue(Thread.interrupted());
+        batch.release();
+        assertArrayEquals(expected, result, 0f);
+    }
+
+    @Test
+    public void batch_matchesLegacyPathWithoutAllocating() {
+        final float[] vp = viewProjection();
+        for (final int size : SIZES) {
+            final float[] models = randomModels(size);
+            float[] expected = new float[size * 16];
+            perObject(vp, models, expected, size);
+            final float[] result = new float[size * 16];
+
+            //原来的做法每个物体分配一个数组，批量计算不分配
+            assertNoAllocation(size + " instances", new Runnable() {
+                @Override
+                public void run() {
+                    MatrixBatch.multiplyAffine(vp, 0, models, 0, result, 0, size);
+                }
+            });
+            assertArrayEquals(expected, result, 1e-4f);
+        }
+    }
+
+    /**
+     * 原来 MatrixTools.getFinalMatrix 的做法：每个物体分配一个数组，做两次乘法
+     */
+    private static void perObject(float[] vp, float[] models, float[] result, int count) {
+        float[] camera = new float[16];
+        float[] projection = new float[16];
+        Mat4.setIdentityM(camera, 0);
+        System.arraycopy(vp, 0, projection, 0, 16);
+        for (int i = 0; i < count; i++) {
+            float[] ans = new float[16];
+            Mat4.multiplyMM(ans, 0, camera, 0, models, i * 16);
+            Mat4.multiplyMM(ans, 0, projection, 0, ans, 0);
+            System.arraycopy(ans, 0, result, i * 16, 16);
+        }
+    }
+
+    private static float[] viewProjection() {
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] vp = new float[16];
+        Mat4.orthoM(projection, 0, -6, 6, -6, 6, 3, 20);
+        Mat4.setLookAtM(view, 0, 10, 10, 10, 0, 0, 0, 0, 1, 0);
+        Mat4.multiplyMM(vp, 0, projection, 0, view, 0);
+        return vp;
+    }
+
+    private static float[] randomModels(int count) {
+        Random random = new Random(7);
+        float[] models = new float[count * 16];
+        for (int i = 0; i < count; i++) {
+            int o = i * 16;
+            Mat4.setIdentityM(models, o);
+            Mat4.translateM(models, o, random.nextFloat() * 10, random.nextFloat() * 10, random.nextFloat() * 10);
+            Mat4.rotateM(models, o, random.nextFloat() * 360, 1, 1, 1);
+            Mat4.scaleM(models, o, 0.5f, 0.5f, 0.5f);
+        }
+        return models;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.gles.RecordingGL;
+import com.example.opengl.geometry.CircleGenerator;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试合并绘制的批数和刷新原因，并和每个网格单独绘制比较
+ */
+public class DynamicBatcherTest {
+
+    private static final float[] TRIANGLE = {
+            0.0f, 0.622008459f, 0.0f,
+            -0.5f, -0.311004243f, 0.0f,
+            0.5f, -0.311004243f, 0.0f,
+    };
+    private static final float[] TRIANGLE_COLORS = {
+            0f, 1f, 0f, 1f,
+            1f, 0f, 0f, 1f,
+            0f, 0f, 1f, 1f,
+    };
+    private static final float[] IDENTITY = new float[16];
+
+    static {
+        Mat4.setIdentityM(IDENTITY, 0);
+    }
+
+    private RecordingGL gl;
+    private GLProgram program;
+    private BatchGeometry triangle;
+    private BatchGeometry circle;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+        program = DynamicBatcher.getDefaultProgram(gl);
+        triangle = new BatchGeometry(TRIANGLE, TRIANGLE_COLORS, null);
+        circle = BatchGeometry.fromFan(CircleGenerator.createFan(16, 0.5f, 0f), new float[]{1f, 1f, 1f, 1f});
+    }
+
+    @Test
+    public void sameState_mergesIntoOneDraw() {
+        DynamicBatcher batcher = new DynamicBatcher(gl);
+        float[] model = new float[16];
+        gl.beginFrame();
+        batcher.begin(IDENTITY);
+        for (int i = 0; i < 100; i++) {
+            Mat4.setIdentityM(model, 0);
+            Mat4.translateM(model, 0, i, 0f, 0f);
+            batcher.draw(program, null, i % 2 == 0 ? triangle : circle, model);
+        }
+        batcher.end();
+        batcher.beginFrame();
+        gl.beginFrame();
+
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(1, batcher.getLastFrameBatchCount());
+        assertEquals(100, batcher.getLastFrameMeshCount());
+        assertEquals(50 * 3 + 50 * 16 * 3, gl.getLastFrameVertexCount());
+    }
+
+    @Test
+    public void materialChange_flushes() {
+        DynamicBatcher batcher = new DynamicBatcher(gl);
+        CountingMaterial red = new CountingMaterial();
+        CountingMaterial blue = new CountingMaterial();
+        gl.beginFrame();
+        batcher.begin(IDENTITY);
+        batcher.draw(program, red, triangle, null);
+        batcher.draw(program, red, triangle, null);
+        batcher.draw(program, blue, triangle, null);
+        batcher.draw(program, red, triangle, null);
+        batcher.end();
+        batcher.beginFrame();
+        gl.beginFrame();
+
+        assertEquals(3, gl.getLastFrameDrawCallCount());
+        assertEquals(2, batcher.getLastFrameStateFlushCount());
+        assertEquals(2, red.applied);
+        assertEquals(1, blue.applied);
+    }
+
+    @Test
+    public void capacity_flushes() {
+        DynamicBatcher batcher = new DynamicBatcher(gl, 10, 100);
+        gl.beginFrame();
+        batcher.begin(IDENTITY);
+        for (int i = 0; i < 7; i++) {
+            batcher.draw(program, null, triangle, null);
+        }
+        batcher.end();
+        batcher.beginFrame();
+        gl.beginFrame();
+
+        //每批最多3个三角形
+        assertEquals(3, gl.getLastFrameDrawCallCount());
+        assertEquals(2, batcher.getLastFrameCapacityFlushCount());
+        assertTrue(batcher.getReport(), batcher.getReport().startsWith("7 meshes in 3 batches"));
+    }
+
+    @Test
+    public void vertices_arePreTransformed() {
+        final float[][] uploaded = new float[1][];
+        RecordingGL capture = new RecordingGL() {
+            @Override
+            public void glBufferData(int target, int size, java.nio.Buffer data, int usage) {
+                super.glBufferData(target, size, data, usage);
+                if (target == GLES20.GL_ARRAY_BUFFER) {
+                    java.nio.IntBuffer ints = (java.nio.IntBuffer) data;
+                    uploaded[0] = new float[size / 4];
+                    for (int i = 0; i < uploaded[0].length; i++) {
+                        uploaded[0][i] = Float.intBitsToFloat(ints.get(i));
+                    }
+                }
+            }
+        };
+        DynamicBatcher batcher = new DynamicBatcher(capture);
+        float[] model = new float[16];
+        Mat4.setIdentityM(model, 0);
+        Mat4.translateM(model, 0, 10f, 20f, 30f);
+        Mat4.scaleM(model, 0, 2f, 2f, 2f);
+        batcher.begin(IDENTITY);
+        batcher.draw(DynamicBatcher.getDefaultProgram(capture), null, triangle, model);
+        batcher.end();
+
+        //每个顶点4个 int，前3个是变换后的位置
+        assertEquals(10f, uploaded[0][0], 1e-5f);
+        assertEquals(20f + 2 * 0.622008459f, uploaded[0][1], 1e-5f);
+        assertEquals(30f, uploaded[0][2], 1e-5f);
+        assertEquals(10f - 1f, uploaded[0][4], 1e-5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void geometry_rejectsPartialVertex() {
+        new BatchGeometry(new float[]{0f, 0f, 0f, 1f}, new float[]{1f, 1f, 1f, 1f}, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void geometry_rejectsIndexOutOfRange() {
+        new BatchGeometry(TRIANGLE, TRIANGLE_COLORS, new short[]{0, 1, 3});
+    }
+
+    /**
+     * 1000个小图形、两种材质交替：逐个绘制、合并绘制、按材质排序后合并绘制
+     */
+    @Test
+    public void sortedByMaterial_drawsOncePerMaterial() {
+        int count = 1000;
+        CountingMaterial[] materials = {new CountingMaterial(), new CountingMaterial()};
+        float[][] models = new float[count][16];
+        for (int i = 0; i < count; i++) {
+            Mat4.setIdentityM(models[i], 0);
+            Mat4.translateM(models[i], 0, i % 40, i / 40, 0f);
+        }
+        ProgramCache.getInstance().clear();
+        GLProgram individualProgram = ProgramCache.getInstance().getProgram(gl,
+                "uniform mat4 uMVPMatrix;attribute vec4 aPosition;attribute vec4 aColor;varying vec4 vColor;"
+                        + "void main(){gl_Position=uMVPMatrix*aPosition;vColor=aColor;}",
+                DynamicBatcher.FRAGMENT_SHADER);
+        GLProgram batchProgram = DynamicBatcher.getDefaultProgram(gl);
+        Mesh triangleMesh = new Mesh(gl, GLES20.GL_TRIANGLES)
+                .addAttribute(individualProgram.attribute("aPosition"), 3, TRIANGLE)
+                .addAttribute(individualProgram.attribute("aColor"), 4, TRIANGLE_COLORS);
+        DynamicBatcher batcher = new DynamicBatcher(gl);
+        float[] mvp = new float[16];
+
+        gl.beginFrame();
+        GLProgram.Uniform matrix = individualProgram.uniform("uMVPMatrix");
+        individualProgram.use();
+        for (int i = 0; i < count; i++) {
+            materials[i % 2].apply(gl);
+            Mat4.multiplyMM(mvp, 0, IDENTITY, 0, models[i], 0);
+            matrix.setMatrix4fv(mvp, 0);
+            triangleMesh.draw();
+        }
+        gl.beginFrame();
+        assertEquals(count, gl.getLastFrameDrawCallCount());
+
+        //材质交替时每个网格都要刷新，合并不起作用
+        batcher.begin(IDENTITY);
+        for (int i = 0; i < count; i++) {
+            batcher.draw(batchProgram, materials[i % 2], triangle, models[i]);
+        }
+        batcher.end();
+        batcher.beginFrame();
+        gl.beginFrame();
+        assertEquals(count, gl.getLastFrameDrawCallCount());
+        assertEquals(count - 1, batcher.getLastFrameStateFlushCount());
+
+        //调用方按材质分组后提交，状态变化只剩一次
+        batcher.begin(IDENTITY);
+        for (int m = 0; m < 2; m++) {
+            for (int i = m; i < count; i += 2) {
+                batcher.draw(batchProgram, materials[m], triangle, models[i]);
+            }
+        }
+        batcher.end();
+        batcher.beginFrame();
+        gl.beginFrame();
+        assertEquals(2, gl.getLastFrameDrawCallCount());
+        assertEquals(1, batcher.getLastFrameStateFlushCount());
+        assertEquals(count * 3, gl.getLastFrameVertexCount());
+        triangleMesh.release();
+        batcher.release();
+    }
+
+    private static class CountingMaterial implements DynamicBatcher.Material {
+        int applied;
+
+        @Override
+        public void apply(GL gl) {
+            applied++;
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.RecordingGL;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试实例化绘制和 uniform 数组回退两种方式的绘制调用个数
+ */
+public class InstancedMeshTest {
+
+    private static final String VERTEX_SHADER =
+            "attribute vec4 vPosition;" +
+                    "void main(){" +
+                    "    gl_Position=instanceMatrix()*vPosition;" +
+                    "}";
+
+    private static final String FRAGMENT_SHADER =
+            "precision mediump float;" +
+                    "void main(){" +
+                    "    gl_FragColor=vec4(1.0);" +
+                    "}";
+
+    private static final VertexLayout LAYOUT = new VertexLayout().add("vPosition", 3);
+    private static final float[] POSITIONS = {
+            0f, 1f, 0f,
+            -1f, -1f, 0f,
+            1f, -1f, 0f,
+    };
+    private static final short[] INDICES = {0, 1, 2};
+
+    private RecordingGL gl;
+    private FakeInstancingGL instancing;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+        instancing = new FakeInstancingGL();
+    }
+
+    @Test
+    public void hardware_drawsAllInstancesOnce() {
+        instancing.supported = true;
+        InstancedMesh mesh = create(instancing);
+        assertTrue(mesh.isHardwareInstancing());
+
+        gl.beginFrame();
+        mesh.draw(matrices(1000));
+        mesh.beginFrame();
+        gl.beginFrame();
+
+        assertEquals(1, instancing.drawCalls);
+        assertEquals(1000, instancing.lastInstanceCount);
+        assertEquals(3, instancing.lastCount);
+        //每个实例一个矩阵上传到实例缓冲区
+        assertEquals(1000 * 16 * 4, gl.getLastFrameUploadedBytes());
+        //mat4 属性的4列设置了 divisor，画完后恢复
+        assertEquals(8, instancing.divisorCalls);
+        assertEquals(0, instancing.nonZeroDivisors);
+        assertEquals(0, gl.getLastFrameDrawCallCount());
+        assertEquals(999, mesh.getLastFrameDrawCallsSaved());
+    }
+
+    @Test
+    public void uniformArray_drawsInBatches() {
+        InstancedMesh mesh = create(instancing);
+        assertFalse(mesh.isHardwareInstancing());
+        //NoOpGL 报告256个 uniform 向量，留16个给其他 uniform
+        assertEquals(60, mesh.getBatchSize());
+
+        gl.beginFrame();
+        mesh.draw(matrices(130));
+        mesh.beginFrame();
+        gl.beginFrame();
+
+        assertEquals(3, gl.getLastFrameDrawCallCount());
+        assertEquals(130 * 3, gl.getLastFrameVertexCount());
+        assertEquals(3, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+        assertEquals(130 * 16 * 4, gl.getLastFrameUploadedBytes());
+        assertEquals(127, mesh.getLastFrameDrawCallsSaved());
+        assertTrue(mesh.getReport(), mesh.getReport().startsWith("uniform array x60: 130 instances in 3 draw calls"));
+    }
+
+    @Test
+    public void uniformArray_withoutInstancingInterface() {
+        InstancedMesh mesh = create(null);
+        assertFalse(mesh.isHardwareInstancing());
+        //网格复制 batchSize 份，每份3个顶点
+        gl.beginFrame();
+        mesh.draw(matrices(5));
+        gl.beginFrame();
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(5 * 3, gl.getLastFrameVertexCount());
+    }
+
+    @Test
+    public void uniformBatchSize_limitedByIndexRange() {
+        assertEquals(60, InstancedMesh.uniformBatchSize(gl, 8));
+        assertEquals(2, InstancedMesh.uniformBatchSize(gl, 30000));
+        assertEquals(1, InstancedMesh.uniformBatchSize(gl, 65536));
+    }
+
+    private InstancedMesh create(InstancingGL instancingGL) {
+        return new InstancedMesh(gl, instancingGL, GLES20.GL_TRIANGLES, VERTEX_SHADER, FRAGMENT_SHADER,
+                LAYOUT, new float[][]{POSITIONS}, INDICES);
+    }
+
+    /**
+     * 每个矩阵都不一样，避免 uniform 缓存跳过上传
+     */
+    private static List<float[]> matrices(int count) {
+        List<float[]> matrices = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            float[] m = new float[16];
+            m[0] = m[5] = m[10] = m[15] = 1f;
+            m[12] = i;
+            matrices.add(m);
+        }
+        return matrices;
+    }
+
+    private static class FakeInstancingGL implements InstancingGL {
+        boolean supported;
+        int drawCalls;
+        int lastCount;
+        int lastInstanceCount;
+        int divisorCalls;
+        int nonZeroDivisors;
+
+        @Override
+        public boolean isInstancingSupported() {
+            return supported;
+        }
+
+        @Override
+        public void glVertexAttribDivisor(int index, int divisor) {
+            divisorCalls++;
+            nonZeroDivisors += divisor != 0 ? 1 : -1;
+        }
+
+        @Override
+        public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+            drawCalls++;
+            lastCount = count;
+            lastInstanceCount = instanceCount;
+        }
+    }
+}
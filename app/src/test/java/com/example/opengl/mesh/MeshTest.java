@@ -0,0 +1,105 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.ForwardingGL;
+import com.example.gles.RecordingGL;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 用 RecordingGL 测试网格只上传一次，绘制时不再拷贝顶点数据
+ */
+public class MeshTest {
+
+    private static final float[] POSITIONS = {
+            0f, 1f, 0f,
+            -1f, -1f, 0f,
+            1f, -1f, 0f,
+            1f, 1f, 0f,
+    };
+    private static final float[] COLORS = new float[4 * 4];
+    private static final short[] INDICES = {0, 1, 2, 0, 2, 3};
+
+    private RecordingGL gl;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+    }
+
+    @Test
+    public void upload_happensOnce() {
+        Mesh mesh = new Mesh(gl, GLES20.GL_TRIANGLES)
+                .addAttribute(0, 3, POSITIONS)
+                .addAttribute(1, 4, COLORS)
+                .setIndices(INDICES);
+        assertEquals(4, mesh.getVertexCount());
+        assertEquals(6, mesh.getIndexCount());
+        assertEquals(POSITIONS.length * 4 + COLORS.length * 4 + INDICES.length * 2, mesh.getByteCount());
+        assertEquals(3, gl.getCallCount("glBufferData"));
+
+        gl.beginFrame();
+        for (int i = 0; i < 10; i++) {
+            mesh.draw();
+        }
+        gl.beginFrame();
+
+        assertEquals(10, gl.getLastFrameDrawCallCount());
+        assertEquals(0, gl.getLastFrameCallCount("glBufferData"));
+        assertEquals(0, gl.getLastFrameUploadedBytes());
+        assertEquals(60, gl.getLastFrameVertexCount());
+    }
+
+    @Test
+    public void bounds_computedFromFirstAttribute() {
+        Mesh mesh = new Mesh(gl, GLES20.GL_TRIANGLES)
+                .addAttribute(0, 3, POSITIONS)
+                .addAttribute(1, 4, COLORS);
+        assertEquals(-1f, mesh.getBounds().getMinX(), 0f);
+        assertEquals(1f, mesh.getBounds().getMaxY(), 0f);
+        assertEquals((float) Math.sqrt(2), mesh.getBounds().getRadius(), 1e-6f);
+    }
+
+    @Test
+    public void withoutIndices_drawsArrays() {
+        Mesh mesh = new Mesh(gl, GLES20.GL_TRIANGLE_FAN).addAttribute(0, 3, POSITIONS);
+        gl.beginFrame();
+        mesh.draw(1, 3);
+        gl.beginFrame();
+
+        assertEquals(1, gl.getLastFrameCallCount("glDrawArrays"));
+        assertEquals(3, gl.getLastFrameVertexCount());
+    }
+
+    @Test
+    public void release_deletesBuffers() {
+        Mesh mesh = new Mesh(gl, GLES20.GL_TRIANGLES)
+                .addAttribute(0, 3, POSITIONS)
+                .setIndices(INDICES);
+        mesh.release();
+
+        assertEquals(2, gl.getCallCount("glDeleteBuffers"));
+        assertEquals(0, mesh.getByteCount());
+    }
+
+    @Test
+    public void release_afterContextLossOnlyForgets() {
+        final Object[] context = {new Object()};
+        ForwardingGL lost = new ForwardingGL(gl) {
+            @Override
+            public Object getCurrentContext() {
+                return context[0];
+            }
+        };
+        Mesh mesh = new Mesh(lost, GLES20.GL_TRIANGLES).addAttribute(0, 3, POSITIONS);
+        context[0] = new Object();
+        mesh.release();
+
+        //旧的缓冲区已经随上下文销毁，名字可能已经被新上下文重新分配，不能删除
+        assertEquals(0, gl.getCallCount("glDeleteBuffers"));
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试顶点格式的偏移计算和交错打包
+ */
+public class VertexLayoutTest {
+
+    @Test
+    public void offsets_followAddOrder() {
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", 3)
+                .add("aColor", 4)
+                .add("aCoord", 2);
+
+        assertEquals(0, layout.getOffset(0));
+        assertEquals(12, layout.getOffset(1));
+        assertEquals(28, layout.getOffset(2));
+        assertEquals(36, layout.getStride());
+        assertEquals(1, layout.indexOf("aColor"));
+        assertEquals(-1, layout.indexOf("missing"));
+    }
+
+    @Test
+    public void smallAttributes_areAlignedToFourBytes() {
+        VertexLayout layout = new VertexLayout()
+                .add("aColor", 3, GLES20.GL_UNSIGNED_BYTE, true)
+                .add("vPosition", 3);
+
+        assertEquals(4, layout.getOffset(1));
+        assertEquals(16, layout.getStride());
+    }
+
+    @Test
+    public void pack_interleavesAttributes() {
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", 3)
+                .add("aColor", 4);
+        float[] positions = {1, 2, 3, 4, 5, 6};
+        float[] colors = {10, 11, 12, 13, 14, 15, 16, 17};
+        ByteBuffer buffer = VertexPacker.pack(layout, positions, colors);
+
+        assertEquals(2 * layout.getStride(), buffer.remaining());
+        float[] expected = {1, 2, 3, 10, 11, 12, 13, 4, 5, 6, 14, 15, 16, 17};
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], buffer.getFloat(i * 4), 0f);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pack_rejectsMismatchedLengths() {
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", 3)
+                .add("aColor", 4);
+        VertexPacker.pack(layout, new float[6], new float[4]);
+    }
+}
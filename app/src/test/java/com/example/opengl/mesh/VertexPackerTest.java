@@ -0,0 +1,104 @@
+package com.example.opengl.mesh;
+
+import android.opengl.GLES20;
+
+import com.example.gles.RecordingGL;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试压缩顶点格式的编码和量化误差
+ */
+public class VertexPackerTest {
+
+    @Test
+    public void halfFloat_roundTrips() {
+        float[] exact = {0f, 1f, -1f, 0.5f, 2048f, 65504f, 0x1p-24f};
+        for (float value : exact) {
+            assertEquals(value, VertexPacker.halfToFloat(VertexPacker.floatToHalf(value)), 0f);
+        }
+        assertEquals(0x3c00, VertexPacker.floatToHalf(1f) & 0xffff);
+        assertEquals(0xc000, VertexPacker.floatToHalf(-2f) & 0xffff);
+        //超出范围变为无穷大
+        assertTrue(Float.isInfinite(VertexPacker.halfToFloat(VertexPacker.floatToHalf(1e6f))));
+    }
+
+    @Test
+    public void normalizedByteColor_packsToBytes() {
+        VertexLayout layout = new VertexLayout().add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true);
+        ByteBuffer buffer = VertexPacker.pack(layout, new float[]{1f, 0f, 0.5f, 2f});
+
+        assertEquals(4, buffer.remaining());
+        assertEquals(255, buffer.get(0) & 0xff);
+        assertEquals(0, buffer.get(1) & 0xff);
+        assertEquals(128, buffer.get(2) & 0xff);
+        //超出范围截断
+        assertEquals(255, buffer.get(3) & 0xff);
+    }
+
+    @Test
+    public void normalizedShort_encodesUnitRangeExactly() {
+        assertEquals(1f, VertexPacker.quantize(GLES20.GL_SHORT, true, 1f), 0f);
+        assertEquals(-1f, VertexPacker.quantize(GLES20.GL_SHORT, true, -1f), 0f);
+        assertEquals(0f, VertexPacker.quantize(GLES20.GL_SHORT, true, 0f), 0f);
+        assertEquals(1f, VertexPacker.quantize(GLES20.GL_UNSIGNED_SHORT, true, 1f), 0f);
+    }
+
+    @Test
+    public void quantizationError_isWithinBound() {
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", 3, VertexLayout.GL_HALF_FLOAT_OES, false)
+                .add("aNormal", 3, GLES20.GL_SHORT, true)
+                .add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true)
+                .add("aCoord", 2, GLES20.GL_UNSIGNED_SHORT, true);
+        int vertexCount = 1000;
+        Random random = new Random(1);
+        float[] positions = random(random, vertexCount * 3, -8f, 8f);
+        float[] normals = random(random, vertexCount * 3, -1f, 1f);
+        float[] colors = random(random, vertexCount * 4, 0f, 1f);
+        float[] coords = random(random, vertexCount * 2, 0f, 1f);
+
+        float[] errors = VertexPacker.maxError(layout, positions, normals, colors, coords);
+        float[] maxAbs = {8f, 1f, 1f, 1f};
+        for (int i = 0; i < errors.length; i++) {
+            assertTrue(layout.getName(i) + " error " + errors[i],
+                    errors[i] <= layout.getErrorBound(i, maxAbs[i]));
+        }
+    }
+
+    @Test
+    public void compressedLayout_halvesVertexMemory() {
+        VertexLayout layout = new VertexLayout()
+                .add("vPosition", 3, GLES20.GL_SHORT, true)
+                .add("aColor", 4, GLES20.GL_UNSIGNED_BYTE, true)
+                .add("aCoord", 2, GLES20.GL_UNSIGNED_SHORT, true);
+        int vertexCount = 10000;
+        RecordingGL gl = new RecordingGL();
+        GLProgram program = ProgramCache.getInstance().getProgram(gl, "vertex", "fragment");
+        Mesh mesh = new Mesh(gl, GLES20.GL_TRIANGLES).addVertices(program, layout,
+                new float[vertexCount * 3], new float[vertexCount * 4], new float[vertexCount * 2]);
+
+        //36 字节减少到 16 字节
+        assertEquals(16, layout.getStride());
+        assertEquals(36, layout.getFloatStride());
+        assertEquals(vertexCount * 16L, mesh.getVertexBytes());
+        assertEquals(vertexCount * 36L, mesh.getFloatVertexBytes());
+        assertTrue(mesh.getVertexBytes() * 2 <= mesh.getFloatVertexBytes());
+    }
+
+    private static float[] random(Random random, int count, float min, float max) {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = min + random.nextFloat() * (max - min);
+        }
+        return values;
+    }
+}
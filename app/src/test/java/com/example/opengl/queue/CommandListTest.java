@@ -0,0 +1,120 @@
+package com.example.opengl.queue;
+
+import android.opengl.GLES20;
+
+import com.example.gles.GL;
+import com.example.gles.RecordingGL;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 测试命令的录制和执行
+ */
+public class CommandListTest {
+
+    private static final String VERTEX = "uniform mat4 uMatrix;attribute vec4 vPosition;"
+            + "void main(){gl_Position=uMatrix*vPosition;}";
+    private static final String FRAGMENT = "precision mediump float;void main(){gl_FragColor=vec4(1.0);}";
+
+    @Test
+    public void execute_replaysRecordedCalls() {
+        RecordingGL gl = new RecordingGL();
+        GLProgram program = ProgramCache.getInstance().getProgram(gl, VERTEX, FRAGMENT);
+        CommandList list = new CommandList(4, 16);
+        float[] matrix = new float[16];
+        matrix[0] = 2f;
+        list.clear(GLES20.GL_COLOR_BUFFER_BIT);
+        list.useProgram(program);
+        list.bindTexture(GLES20.GL_TEXTURE_2D, 5);
+        list.uniformMatrix4fv(program.uniform("uMatrix"), 1, matrix, 0);
+        list.drawArrays(GLES20.GL_TRIANGLES, 0, 3);
+        list.drawElements(GLES20.GL_TRIANGLES, 6, 0);
+        //录制后修改不影响命令
+        matrix[0] = 0f;
+        assertEquals(6, list.getCommandCount());
+
+        list.execute(gl, new CommandList.Drawable[0]);
+        assertEquals(1, gl.getCallCount("glClear"));
+        assertEquals(1, gl.getCallCount("glUseProgram"));
+        assertEquals(1, gl.getCallCount("glBindTexture"));
+        assertEquals(1, gl.getCallCount("glUniformMatrix4fv"));
+        assertEquals(2, gl.getDrawCallCount());
+        assertEquals(2f, list.getFloats()[0], 0f);
+    }
+
+    @Test
+    public void uniform_sharesCacheWithHandle() {
+        RecordingGL gl = new RecordingGL();
+        GLProgram program = ProgramCache.getInstance().getProgram(gl, VERTEX, FRAGMENT);
+        GLProgram.Uniform matrix = program.uniform("uMatrix");
+        float[] a = new float[16];
+        float[] b = new float[16];
+        a[0] = 1f;
+        b[0] = 2f;
+        matrix.setMatrix4fv(a, 0);
+
+        CommandList list = new CommandList();
+        list.useProgram(program);
+        list.uniformMatrix4fv(matrix, 1, b, 0);
+        list.execute(gl, new CommandList.Drawable[0]);
+        assertEquals(2, gl.getCallCount("glUniformMatrix4fv"));
+
+        //命令列表上传的值进了缓存：再设回 a 必须上传，设成 b 才能跳过
+        matrix.setMatrix4fv(b, 0);
+        assertEquals(2, gl.getCallCount("glUniformMatrix4fv"));
+        matrix.setMatrix4fv(a, 0);
+        assertEquals(3, gl.getCallCount("glUniformMatrix4fv"));
+
+        //和缓存相同的值执行时跳过
+        list.reset();
+        list.uniformMatrix4fv(matrix, 1, a, 0);
+        list.execute(gl, new CommandList.Drawable[0]);
+        assertEquals(3, gl.getCallCount("glUniformMatrix4fv"));
+    }
+
+    @Test
+    public void draw_passesDataToDrawable() {
+        final float[] received = new float[3];
+        CommandList.Drawable drawable = new CommandList.Drawable() {
+            @Override
+            public void draw(GL gl, float[] data, int offset, int count) {
+                received[0] = data[offset];
+                received[1] = data[offset + 1];
+                received[2] = count;
+            }
+        };
+        CommandList list = new CommandList();
+        list.putFloats(new float[]{9f}, 0, 1);
+        int offset = list.allocFloats(2);
+        list.getFloats()[offset] = 4f;
+        list.getFloats()[offset + 1] = 5f;
+        list.draw(1, offset, 7);
+        list.execute(new RecordingGL(), new CommandList.Drawable[]{null, drawable});
+        assertEquals(4f, received[0], 0f);
+        assertEquals(5f, received[1], 0f);
+        assertEquals(7f, received[2], 0f);
+    }
+
+    @Test
+    public void reset_keepsArrays() {
+        CommandList list = new CommandList(4, 16);
+        for (int i = 0; i < 100; i++) {
+            list.drawArrays(GLES20.GL_POINTS, i, 1);
+            list.allocFloats(16);
+        }
+        float[] floats = list.getFloats();
+        list.reset();
+        assertEquals(0, list.getCommandCount());
+        assertEquals(0, list.getByteCount());
+        for (int i = 0; i < 100; i++) {
+            list.drawArrays(GLES20.GL_POINTS, i, 1);
+            list.allocFloats(16);
+        }
+        assertSame(floats, list.getFloats());
+    }
+}
@@ -0,0 +1,223 @@
+package com.example.opengl.queue;
+
+import com.example.gles.GL;
+import com.example.gles.NoOpGL;
+import com.example.opengl.math.Mat4;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 测试录制和执行的交接：帧的顺序、各部分的顺序、不等待时重复上一帧、工作线程出错
+ */
+public class FramePipelineTest {
+
+    /**
+     * 每部分录制一条绘制命令，数据是帧号和部分编号
+     */
+    private static class LoggingBuilder implements FramePipeline.FrameBuilder {
+        volatile Thread mUpdateThread;
+
+        @Override
+        public void update(long frame) {
+            mUpdateThread = Thread.currentThread();
+        }
+
+        @Override
+        public void record(long frame, int part, int partCount, CommandList list) {
+            int offset = list.allocFloats(2);
+            list.getFloats()[offset] = frame;
+            list.getFloats()[offset + 1] = part;
+            list.draw(0, offset, 1);
+        }
+    }
+
+    private static CommandList.Drawable logTo(final List<String> log) {
+        return new CommandList.Drawable() {
+            @Override
+            public void draw(GL gl, float[] data, int offset, int count) {
+                log.add((int) data[offset] + "." + (int) data[offset + 1]);
+            }
+        };
+    }
+
+    @Test
+    public void drawFrame_executesFramesInOrder() {
+        List<String> log = new ArrayList<>();
+        LoggingBuilder builder = new LoggingBuilder();
+        FramePipeline pipeline = new FramePipeline(builder, 3);
+        pipeline.setDrawable(0, logTo(log));
+        GL gl = new NoOpGL();
+        for (int i = 0; i < 3; i++) {
+            pipeline.drawFrame(gl);
+        }
+        pipeline.release();
+        assertEquals(Arrays.asList("1.0", "1.1", "1.2", "2.0", "2.1", "2.2", "3.0", "3.1", "3.2"), log);
+        assertNotSame(Thread.currentThread(), builder.mUpdateThread);
+        assertEquals(0, pipeline.getLateFrameCount());
+        assertEquals(3, pipeline.getFrameCount());
+    }
+
+    @Test
+    public void dropLateFrames_repeatsPreviousFrame() throws InterruptedException {
+        final CountDownLatch gate = new CountDownLatch(1);
+        LoggingBuilder builder = new LoggingBuilder() {
+            @Override
+            public void update(long frame) {
+                if (frame == 2) {
+                    try {
+                        gate.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+        };
+        List<String> log = new ArrayList<>();
+        FramePipeline pipeline = new FramePipeline(builder, 1);
+        pipeline.setDrawable(0, logTo(log));
+        pipeline.setDropLateFrames(true);
+        GL gl = new NoOpGL();
+        //第一帧总要等待
+        pipeline.drawFrame(gl);
+        //第二帧还在录制，重新执行第一帧
+        pipeline.drawFrame(gl);
+        assertEquals(Arrays.asList("1.0", "1.0"), log);
+        assertEquals(1, pipeline.getLateFrameCount());
+
+        gate.countDown();
+        for (int i = 0; i < 1000 && !log.contains("2.0"); i++) {
+            Thread.sleep(1);
+            pipeline.drawFrame(gl);
+        }
+        pipeline.release();
+        assertTrue(log.toString(), log.contains("2.0"));
+    }
+
+    @Test
+    public void invalidate_rerecordsFrameBeforeDrawing() {
+        List<String> log = new ArrayList<>();
+        FramePipeline pipeline = new FramePipeline(new LoggingBuilder(), 1);
+        pipeline.setDrawable(0, logTo(log));
+        pipeline.setDropLateFrames(true);
+        GL gl = new NoOpGL();
+        pipeline.drawFrame(gl);
+        //第2帧已经提前开始录制，丢掉后这一帧等重新录制的第3帧，即使设置了不等待
+        pipeline.invalidate();
+        pipeline.drawFrame(gl);
+        pipeline.release();
+        assertEquals(Arrays.asList("1.0", "3.0"), log);
+        assertEquals(1, pipeline.getInvalidateCount());
+        assertEquals(0, pipeline.getLateFrameCount());
+    }
+
+    @Test
+    public void workerFailure_isReportedOnGLThread() {
+        FramePipeline pipeline = new FramePipeline(new LoggingBuilder() {
+            @Override
+            public void record(long frame, int part, int partCount, CommandList list) {
+                if (frame == 2) {
+                    throw new IllegalArgumentException("broken");
+                }
+                super.record(frame, part, partCount, list);
+            }
+        }, 1);
+        pipeline.setDrawable(0, logTo(new ArrayList<String>()));
+        GL gl = new NoOpGL();
+        pipeline.drawFrame(gl);
+        try {
+            pipeline.drawFrame(gl);
+            fail();
+        } catch (IllegalStateException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        pipeline.release();
+    }
+
+    /**
+     * 每帧计算2万个物体的矩阵。串行时GL线程既要计算又要提交；
+     * 流水线时计算在两个工作线程上，GL线程只执行命令，提交的数据和串行时一样
+     */
+    @Test
+    public void glThreadOnlySubmits() {
+        final int objects = 20000;
+        final float[] models = new float[objects * 16];
+        for (int i = 0; i < objects; i++) {
+            Mat4.setIdentityM(models, i * 16);
+            Mat4.translateM(models, i * 16, i % 100, i / 100, 0);
+        }
+        final float[] viewProjection = new float[16];
+        Mat4.orthoM(viewProjection, 0, -100, 100, -100, 100, -1, 1);
+        final Thread glThread = Thread.currentThread();
+        final AtomicInteger onGLThread = new AtomicInteger();
+        FramePipeline.FrameBuilder builder = new FramePipeline.FrameBuilder() {
+            @Override
+            public void update(long frame) {
+                if (Thread.currentThread() == glThread) {
+                    onGLThread.incrementAndGet();
+                }
+                //旋转一个物体，模拟场景更新，平移不变
+                Mat4.rotateM(models, 0, 1f, 0, 0, 1);
+            }
+
+            @Override
+            public void record(long frame, int part, int partCount, CommandList list) {
+                if (Thread.currentThread() == glThread) {
+                    onGLThread.incrementAndGet();
+                }
+                int from = objects * part / partCount;
+                int to = objects * (part + 1) / partCount;
+                int offset = list.allocFloats((to - from) * 16);
+                float[] data = list.getFloats();
+                for (int i = from; i < to; i++) {
+                    Mat4.multiplyMMAffine(data, offset + (i - from) * 16, viewProjection, 0, models, i * 16);
+                }
+                list.draw(0, offset, to - from);
+            }
+        };
+        final float[] sink = new float[2];
+        CommandList.Drawable drawable = new CommandList.Drawable() {
+            @Override
+            public void draw(GL gl, float[] data, int offset, int count) {
+                //只读一遍数据，代表提交
+                for (int i = 0; i < count; i++) {
+                    sink[0] += data[offset + i * 16 + 12];
+                }
+                sink[1] += count;
+            }
+        };
+        GL gl = new NoOpGL();
+        int frames = 20;
+
+        CommandList serial = new CommandList();
+        serial.reset();
+        builder.update(0);
+        builder.record(0, 0, 1, serial);
+        serial.execute(gl, new CommandList.Drawable[]{drawable});
+        float expectedSum = sink[0];
+        onGLThread.set(0);
+
+        FramePipeline pipeline = new FramePipeline(builder, 2);
+        pipeline.setDrawable(0, drawable);
+        for (int f = 0; f < frames; f++) {
+            sink[0] = 0;
+            sink[1] = 0;
+            pipeline.drawFrame(gl);
+            assertEquals(objects, (int) sink[1]);
+            assertEquals(expectedSum, sink[0], Math.abs(expectedSum) * 1e-5f);
+        }
+        pipeline.release();
+        assertEquals(0, onGLThread.get());
+        assertEquals(frames, pipeline.getFrameCount());
+    }
+}
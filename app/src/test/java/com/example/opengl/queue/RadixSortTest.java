@@ -0,0 +1,61 @@
+package com.example.opengl.queue;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试基数排序和无符号比较的结果一致、排序稳定，以及跳过没用到的字节
+ */
+public class RadixSortTest {
+
+    @Test
+    public void sort_matchesUnsignedOrder() {
+        Random random = new Random(5);
+        int count = 10000;
+        long[] keys = new long[count];
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = random.nextLong();
+            values[i] = i;
+        }
+        long[] original = keys.clone();
+        new RadixSort().sort(keys, values, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(original[values[i]], keys[i]);
+            if (i > 0) {
+                assertTrue(compareUnsigned(keys[i - 1], keys[i]) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void sort_isStable() {
+        long[] keys = {3, 1, 3, 1, 2};
+        int[] values = {0, 1, 2, 3, 4};
+        new RadixSort().sort(keys, values, keys.length);
+        assertEquals("[1, 1, 2, 3, 3]", Arrays.toString(keys));
+        assertEquals("[1, 3, 4, 0, 2]", Arrays.toString(values));
+    }
+
+    @Test
+    public void sort_skipsConstantBytes() {
+        RadixSort sort = new RadixSort();
+        long[] keys = {0x7f00000000000300L, 0x7f00000000000100L, 0x7f00000000000200L};
+        int[] values = {0, 1, 2};
+        sort.sort(keys, values, keys.length);
+        assertEquals(1, sort.getLastPassCount());
+        assertEquals("[1, 2, 0]", Arrays.toString(values));
+
+        sort.sort(keys, values, 0);
+        assertEquals(0, sort.getLastPassCount());
+    }
+
+    private static int compareUnsigned(long a, long b) {
+        return Long.compare(a + Long.MIN_VALUE, b + Long.MIN_VALUE);
+    }
+}
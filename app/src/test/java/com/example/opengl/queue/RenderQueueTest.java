@@ -0,0 +1,147 @@
+package com.example.opengl.queue;
+
+import com.example.gles.GL;
+import com.example.gles.RecordingGL;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static com.example.opengl.AllocationAssert.assertNoAllocation;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试排序键的编码、队列的绘制顺序和状态切换的统计
+ */
+public class RenderQueueTest {
+
+    /**
+     * 执行时记下自己的名字
+     */
+    private static class NamedCommand implements RenderQueue.Command {
+        final String mName;
+        final List<String> mLog;
+
+        NamedCommand(String name, List<String> log) {
+            mName = name;
+            mLog = log;
+        }
+
+        @Override
+        public void execute(GL gl) {
+            mLog.add(mName);
+        }
+    }
+
+    @Test
+    public void sortKey_roundTrips() {
+        long opaque = SortKey.opaque(9, 1000, 4000, 0.25f);
+        assertEquals(9, SortKey.layer(opaque));
+        assertEquals(1000, SortKey.program(opaque));
+        assertEquals(4000, SortKey.texture(opaque));
+        assertEquals(SortKey.quantizeDepth(0.25f), SortKey.depth(opaque));
+        assertTrue(!SortKey.isTranslucent(opaque));
+
+        long translucent = SortKey.translucent(15, 3, 7, 0.75f);
+        assertEquals(15, SortKey.layer(translucent));
+        assertEquals(3, SortKey.program(translucent));
+        assertEquals(7, SortKey.texture(translucent));
+        assertEquals(SortKey.quantizeDepth(0.75f), SortKey.depth(translucent));
+        assertTrue(SortKey.isTranslucent(translucent));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sortKey_rejectsLargeProgramId() {
+        SortKey.opaque(0, SortKey.MAX_PROGRAM + 1, 0, 0f);
+    }
+
+    @Test
+    public void execute_opaqueFrontToBackThenTranslucentBackToFront() {
+        List<String> log = new ArrayList<>();
+        RenderQueue queue = new RenderQueue(2);
+        queue.submit(SortKey.translucent(0, 1, 1, 0.2f), new NamedCommand("glass near", log));
+        queue.submit(SortKey.opaque(0, 1, 1, 0.9f), new NamedCommand("wall far", log));
+        queue.submit(SortKey.opaque(1, 0, 0, 0.0f), new NamedCommand("ui", log));
+        queue.submit(SortKey.translucent(0, 2, 1, 0.8f), new NamedCommand("glass far", log));
+        queue.submit(SortKey.opaque(0, 1, 1, 0.1f), new NamedCommand("wall near", log));
+        queue.sort();
+
+        RecordingGL gl = new RecordingGL();
+        queue.execute(gl);
+        assertEquals(Arrays.asList("wall near", "wall far", "glass far", "glass near", "ui"), log);
+        //进入半透明部分开启混合，进入下一层的不透明部分时关闭
+        assertEquals(1, gl.getCallCount("glEnable"));
+        assertEquals(1, gl.getCallCount("glDisable"));
+        assertEquals(2, gl.getCallCount("glDepthMask"));
+
+        queue.clear();
+        assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void sort_reducesStateChanges() {
+        RenderQueue queue = new RenderQueue();
+        RenderQueue.Command command = new NamedCommand("", new ArrayList<String>());
+        //两个程序、两个纹理交替提交
+        for (int i = 0; i < 8; i++) {
+            queue.submit(SortKey.opaque(0, i % 2, i / 2 % 2, i / 8f), command);
+        }
+        queue.sort();
+        //每条都换程序，纹理每两条换一次
+        assertEquals(8 + 4, queue.getLastUnsortedStateChanges());
+        //排序后：程序0纹理0、程序0纹理1、程序1纹理0、程序1纹理1，各两条
+        assertEquals(2 + 4, queue.getLastSortedStateChanges());
+        assertTrue(queue.getReport(), queue.getReport().startsWith("8 commands, state changes 12 unsorted, 6 sorted"));
+    }
+
+    /**
+     * 1万条命令，16个程序、64个纹理、一成半透明，随机提交
+     */
+    @Test
+    public void sortFrame_matchesBoxedSortWithoutAllocating() {
+        Random random = new Random(2);
+        int count = 10000;
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int program = random.nextInt(16);
+            int texture = random.nextInt(64);
+            float depth = random.nextFloat();
+            keys[i] = random.nextInt(10) == 0 ? SortKey.translucent(0, program, texture, depth)
+                    : SortKey.opaque(0, program, texture, depth);
+        }
+        final RenderQueue queue = new RenderQueue(count);
+        RenderQueue.Command command = new NamedCommand("", null);
+        //第一帧预热
+        for (int f = 0; f < 2; f++) {
+            queue.clear();
+            for (int i = 0; i < count; i++) {
+                queue.submit(keys[i], command);
+            }
+            if (f == 0) {
+                queue.sort();
+            }
+        }
+        assertNoAllocation("sort", new Runnable() {
+            @Override
+            public void run() {
+                queue.sort();
+            }
+        });
+
+        //对比：装箱后用 Collections.sort，加上 Long.MIN_VALUE 按无符号数比较
+        List<Long> list = new ArrayList<>(count);
+        for (long key : keys) {
+            list.add(key + Long.MIN_VALUE);
+        }
+        Collections.sort(list);
+        for (int i = 0; i < count; i++) {
+            assertEquals(list.get(i) - Long.MIN_VALUE, queue.getKey(i));
+        }
+        assertTrue(queue.getLastSortedStateChanges() < queue.getLastUnsortedStateChanges());
+    }
+}
@@ -0,0 +1,258 @@
+package com.example.opengl.render;
+
+import android.opengl.GLSurfaceView;
+
+import com.example.gles.FrameRenderer;
+import com.example.gles.RecordingGL;
+import com.example.gles.StateTrackingGL;
+import com.example.opengl.input.TouchInput;
+import com.example.opengl.mesh.GLES30InstancingGL;
+import com.example.opengl.mesh.InstancingGL;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在JVM上用 RecordingGL 跑Render的绘制流程，检查每帧的GL调用
+ */
+public class RenderHeadlessTest {
+
+    private RecordingGL gl;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+    }
+
+    @Test
+    public void cubeRender_drawsFiveCubesWithOneProgram() {
+        CubeRender render = new CubeRender(gl);
+        drawFrames(render, 1);
+
+        //不支持实例化绘制时五个矩阵放在 uniform 数组里，一次绘制
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(5 * 36, gl.getLastFrameVertexCount());
+        assertEquals(1, gl.getLastFrameCallCount("glUseProgram"));
+        assertEquals(1, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+        //位置在创建时已经查好，绘制时不再查询
+        assertEquals(0, gl.getLastFrameCallCount("glGetAttribLocation"));
+        assertEquals(0, gl.getLastFrameCallCount("glGetUniformLocation"));
+        //顶点和索引已经在缓冲区中，每帧只上传矩阵
+        assertEquals(0, gl.getLastFrameCallCount("glBufferData"));
+        assertEquals(5 * 16 * 4, gl.getLastFrameUploadedBytes());
+
+        //矩阵没有变化时不再上传
+        gl.beginFrame();
+        render.onDrawFrame(null);
+        gl.beginFrame();
+        assertEquals(0, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+        assertTrue(render.getInstancingReport(), render.getInstancingReport().endsWith("saved 4"));
+        assertTrue(render.getCullingReport(), render.getCullingReport().startsWith("5 visible, 0 culled"));
+    }
+
+    @Test
+    public void cubeRender_skipsCubesOutsideFrustum() {
+        CubeRender render = new CubeRender(gl);
+        render.onSurfaceCreated(null, null);
+        //很窄的视口只能看到中间一列的三个正方体，左右两个的包围盒在视锥外
+        render.onSurfaceChanged(null, 120, 1920);
+        gl.beginFrame();
+        render.onDrawFrame(null);
+        gl.beginFrame();
+
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(3 * 36, gl.getLastFrameVertexCount());
+        render.onDrawFrame(null);
+        assertTrue(render.getCullingReport(), render.getCullingReport().startsWith("3 visible, 2 culled"));
+    }
+
+    @Test
+    public void cubeRender_drawsTouchInSameFrame() {
+        CubeRender render = new CubeRender(gl);
+        TouchInput input = new TouchInput();
+        render.setTouchInput(input);
+        drawFrames(render, 2);
+        gl.beginFrame();
+        assertEquals(0, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+
+        input.down(60, 60);
+        input.move(70, 60, 0, 100, 100);
+        input.publish();
+        render.onDrawFrame(null);
+        gl.beginFrame();
+        //提前录制的一帧被丢掉，旋转后的矩阵在这一帧就上传
+        assertEquals(1, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+        assertEquals(1, input.getRenderedCount());
+        assertTrue(render.getPipelineReport(), render.getPipelineReport().contains("1 invalidated"));
+    }
+
+    @Test
+    public void cubeRender_drawsResizeInSameFrame() {
+        CubeRender render = new CubeRender(gl);
+        drawFrames(render, 2);
+
+        render.onSurfaceChanged(null, 1920, 1080);
+        gl.beginFrame();
+        render.onDrawFrame(null);
+        gl.beginFrame();
+        //提前按旧投影录制的一帧被丢掉，新的矩阵在这一帧就上传
+        assertEquals(1, gl.getLastFrameCallCount("glUniformMatrix4fv"));
+        assertTrue(render.getPipelineReport(), render.getPipelineReport().contains("1 invalidated"));
+    }
+
+    @Test
+    public void cubeRender_drawsAgainAfterRelease() {
+        CubeRender render = new CubeRender(gl);
+        drawFrames(render, 1);
+        render.release();
+
+        //视图重新附加到窗口时GL线程重新开始，工作线程按需重新创建
+        for (int i = 0; i < 2; i++) {
+            gl.beginFrame();
+            render.onDrawFrame(null);
+        }
+        gl.beginFrame();
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        render.release();
+    }
+
+    @Test
+    public void shapeRenderer_rotatesByTouch() {
+        ShapeRenderer render = new ShapeRenderer(gl);
+        drawFrames(render, 1);
+        TouchInput input = render.getTouchInput();
+        input.down(60, 60);
+        input.move(70, 60, 0, 100, 100);
+        input.publish();
+        render.onDrawFrame(null);
+        assertEquals(-10f * TouchInput.DEFAULT_DEGREES_PER_PIXEL, render.getAngle(), 1e-6f);
+    }
+
+    @Test
+    public void shapeRenderer_drawsTriangle() {
+        ShapeRenderer render = new ShapeRenderer(gl);
+        drawFrames(render, 2);
+
+        assertEquals(2, gl.getLastFrameDrawCallCount());
+        assertEquals(0, gl.getLastFrameCallCount("glCompileShader"));
+    }
+
+    @Test
+    public void stateTracking_dropsRedundantCalls() {
+        StateTrackingGL tracking = new StateTrackingGL(gl);
+        FrameRenderer render = new FrameRenderer(tracking, new CubeRender(tracking));
+        drawFrames(render, 2);
+        tracking.beginFrame();
+
+        //程序、顶点属性、缓冲区在上一帧已经设置好，矩阵也没有变化，这一帧只剩清屏、顶点指针和一次绘制
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(1, gl.getLastFrameCallCount("glClear"));
+        assertEquals(0, gl.getLastFrameCallCount("glUseProgram"));
+        assertEquals(0, gl.getLastFrameCallCount("glEnableVertexAttribArray"));
+        assertEquals(0, gl.getLastFrameCallCount("glDisableVertexAttribArray"));
+        //位置和颜色交错存放在同一个缓冲区，不需要重新绑定
+        assertEquals(0, gl.getLastFrameCallCount("glBindBuffer"));
+        assertEquals(1, tracking.getLastFrameIssuedCount());
+        //丢弃的是 glUseProgram、两次 glBindBuffer 和三个已经打开的属性的 enable；
+        //帧末的 disable 和实际状态不同，还没下发，也不算丢弃
+        assertEquals(6, tracking.getLastFrameSkippedCount());
+    }
+
+    @Test
+    public void stateTracking_flushesAttributesBeforeInstancedDraw() {
+        StateTrackingGL tracking = new StateTrackingGL(gl);
+        //和真机一样经过 GLES30InstancingGL 下发，只是跳过系统和上下文版本的检查
+        InstancingGL hardware = new GLES30InstancingGL(tracking) {
+            @Override
+            public boolean isInstancingSupported() {
+                return true;
+            }
+        };
+        FrameRenderer render = new FrameRenderer(tracking, new CubeRender(tracking, hardware));
+        drawFrames(render, 1);
+
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(1, gl.getLastFrameCallCount("glDrawElementsInstanced"));
+        assertEquals(5 * 36, gl.getLastFrameVertexCount());
+        //属性开关在实例化绘制前真正下发。NoOpGL 按查询顺序分配位置，矩阵占 0~3，和位置、颜色重叠，一共4个
+        assertEquals(4, gl.getLastFrameCallCount("glEnableVertexAttribArray"));
+        //绘制前设置、绘制后恢复
+        assertEquals(8, gl.getLastFrameCallCount("glVertexAttribDivisor"));
+    }
+
+    @Test
+    public void stateTracking_clearIsIssuedEveryFrame() {
+        StateTrackingGL tracking = new StateTrackingGL(gl);
+        FrameRenderer render = new FrameRenderer(tracking, new MyGLRenderer(tracking));
+        drawFrames(render, 3);
+
+        //没有绘制的帧，交换缓冲区之后也要重新清屏
+        assertEquals(1, gl.getLastFrameCallCount("glClear"));
+    }
+
+    @Test
+    public void ballRender_picksLevelByScreenSize() {
+        BallRender render = new BallRender(gl);
+        drawFrames(render, 1);
+        //球的投影半径约166像素，用最高级别 20480 个三角形
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(20480 * 3, gl.getLastFrameVertexCount());
+
+        //视口变小后投影半径约10像素，只需要细分1次的 80 个三角形
+        render.onSurfaceChanged(null, 1080, 120);
+        gl.beginFrame();
+        render.onDrawFrame(null);
+        gl.beginFrame();
+        assertEquals(80 * 3, gl.getLastFrameVertexCount());
+        assertEquals(0, gl.getLastFrameCallCount("glBufferData"));
+    }
+
+    @Test
+    public void allRenders_drawWithoutDevice() {
+        GLSurfaceView.Renderer[] renders = {
+                new MyGLRenderer(gl),
+                new CommonTriangleRender(gl),
+                new IsoscelesTriangleRender(gl),
+                new CircleRender(gl),
+                new BallRender(gl),
+                new ShapeRenderer(gl),
+                new CubeRender(gl),
+        };
+        for (GLSurfaceView.Renderer render : renders) {
+            drawFrames(render, 1);
+            assertTrue(render.getClass().getSimpleName(), gl.getLastFrameCallCount() > 0);
+        }
+    }
+
+    @Test
+    public void cubeRender_staticFramesStayConstant() {
+        CubeRender render = new CubeRender(gl);
+        drawFrames(render, 100);
+        int calls = gl.getLastFrameCallCount();
+        int stateChanges = gl.getLastFrameStateChangeCount();
+
+        //画面不变时每帧的调用完全一样，不上传任何数据
+        for (int i = 0; i < 1000; i++) {
+            gl.beginFrame();
+            render.onDrawFrame(null);
+            gl.beginFrame();
+            assertEquals(calls, gl.getLastFrameCallCount());
+            assertEquals(stateChanges, gl.getLastFrameStateChangeCount());
+            assertEquals(1, gl.getLastFrameDrawCallCount());
+            assertEquals(0, gl.getLastFrameUploadedBytes());
+        }
+    }
+
+    private void drawFrames(GLSurfaceView.Renderer render, int frames) {
+        render.onSurfaceCreated(null, null);
+        render.onSurfaceChanged(null, 1080, 1920);
+        for (int i = 0; i < frames; i++) {
+            gl.beginFrame();
+            render.onDrawFrame(null);
+        }
+        gl.beginFrame();
+    }
+}
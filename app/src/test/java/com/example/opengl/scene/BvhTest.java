@@ -0,0 +1,132 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.math.Mat4;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试层次剔除的结果和逐个测试一致，以及大部分物体在屏幕外时的测试次数
+ */
+public class BvhTest {
+
+    /**
+     * 在 [-size, size] 的立方体里随机放 count 个边长不超过1的盒子
+     */
+    private static float[] randomBoxes(Random random, int count, float size) {
+        float[] aabbs = new float[count * 6];
+        for (int i = 0; i < count; i++) {
+            for (int axis = 0; axis < 3; axis++) {
+                float center = (random.nextFloat() * 2 - 1) * size;
+                float extent = random.nextFloat() * 0.5f;
+                aabbs[i * 6 + axis] = center - extent;
+                aabbs[i * 6 + 3 + axis] = center + extent;
+            }
+        }
+        return aabbs;
+    }
+
+    /**
+     * 相机在 (0,0,eye) 看向 -z，正交投影的可见范围是 [-half, half]
+     */
+    private static Frustum frustum(float x, float half) {
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] viewProjection = new float[16];
+        Mat4.orthoM(projection, 0, -half, half, -half, half, 1, 1000);
+        Mat4.setLookAtM(view, 0, x, 0, 500, x, 0, 0, 0, 1, 0);
+        Mat4.multiplyMM(viewProjection, 0, projection, 0, view, 0);
+        return new Frustum().set(viewProjection, 0);
+    }
+
+    private static int[] sorted(int[] values, int count) {
+        int[] copy = Arrays.copyOf(values, count);
+        Arrays.sort(copy);
+        return copy;
+    }
+
+    @Test
+    public void cull_matchesLinearTest() {
+        Random random = new Random(7);
+        int count = 5000;
+        Bvh bvh = new Bvh();
+        bvh.build(randomBoxes(random, count, 100), count);
+        int[] tree = new int[count];
+        int[] linear = new int[count];
+        for (int i = 0; i < 20; i++) {
+            Frustum frustum = frustum(random.nextFloat() * 200 - 100, 5 + random.nextFloat() * 50);
+            int visible = bvh.cull(frustum, tree);
+            assertArrayEquals(sorted(linear, bvh.cullLinear(frustum, linear)), sorted(tree, visible));
+        }
+    }
+
+    @Test
+    public void refit_followsMovedItems() {
+        float[] aabbs = {
+                -1, -1, -1, 1, 1, 1,
+                50, 0, 0, 51, 1, 1,
+        };
+        Bvh bvh = new Bvh();
+        bvh.build(aabbs, 2);
+        int[] visible = new int[2];
+        Frustum frustum = frustum(0, 10);
+        assertEquals(1, bvh.cull(frustum, visible));
+        assertEquals(0, visible[0]);
+
+        bvh.setItemBounds(1, new float[]{2, 0, 0, 3, 1, 1}, 0);
+        bvh.refit();
+        assertEquals(2, bvh.cull(frustum, visible));
+        assertArrayEquals(new float[]{-1, -1, -1, 3, 1, 1}, bvh.getRootBounds(), 0f);
+    }
+
+    @Test
+    public void counters_rollOverPerFrame() {
+        Random random = new Random(3);
+        int count = 1000;
+        Bvh bvh = new Bvh();
+        bvh.build(randomBoxes(random, count, 100), count);
+        int[] visible = new int[count];
+        bvh.beginFrame();
+        int drawn = bvh.cull(frustum(0, 10), visible);
+        bvh.beginFrame();
+        assertEquals(drawn, bvh.getLastFrameVisibleCount());
+        assertEquals(count - drawn, bvh.getLastFrameCulledCount());
+        assertTrue(bvh.getReport(), bvh.getLastFrameTestCount() < count);
+
+        //视锥包含全部物体时只测试根节点
+        bvh.cull(frustum(0, 1000), visible);
+        bvh.beginFrame();
+        assertEquals(count, bvh.getLastFrameVisibleCount());
+        assertEquals(1, bvh.getLastFrameTestCount());
+    }
+
+    /**
+     * 10万个物体，视锥只看到其中一小块，层次剔除和逐个测试结果相同，测试的包围盒少得多
+     */
+    @Test
+    public void mostlyOffscreen_testsFewBoxes() {
+        Random random = new Random(1);
+        int count = 100000;
+        float[] aabbs = randomBoxes(random, count, 500);
+        Bvh bvh = new Bvh();
+        bvh.build(aabbs, count);
+
+        int[] visible = new int[count];
+        for (int i = 0; i < 64; i++) {
+            Frustum frustum = frustum(random.nextFloat() * 800 - 400, 50);
+            int expected = bvh.cullLinear(frustum, visible);
+            bvh.beginFrame();
+            int drawn = bvh.cull(frustum, visible);
+            bvh.beginFrame();
+            assertEquals(expected, drawn);
+            //逐个测试每帧要测 count 个包围盒
+            assertTrue(bvh.getReport(), bvh.getLastFrameTestCount() < count / 10);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.geometry.Bounds;
+import com.example.opengl.math.Mat4;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用正交投影测试平面的提取和各种包围体的测试
+ */
+public class FrustumTest {
+
+    private Frustum frustum;
+
+    @Before
+    public void setUp() {
+        //相机在 z=10 看向原点，可见范围 x∈[-2,2]，y∈[-1,1]，z∈[-10,7]
+        float[] projection = new float[16];
+        float[] view = new float[16];
+        float[] viewProjection = new float[16];
+        Mat4.orthoM(projection, 0, -2, 2, -1, 1, 3, 20);
+        Mat4.setLookAtM(view, 0, 0, 0, 10, 0, 0, 0, 0, 1, 0);
+        Mat4.multiplyMM(viewProjection, 0, projection, 0, view, 0);
+        frustum = new Frustum().set(viewProjection, 0);
+    }
+
+    @Test
+    public void planes_areNormalized() {
+        float[] plane = new float[4];
+        for (int i = 0; i < 6; i++) {
+            frustum.getPlane(i, plane, 0);
+            assertEquals(1f, (float) Math.sqrt(plane[0] * plane[0] + plane[1] * plane[1] + plane[2] * plane[2]), 1e-5f);
+        }
+        //左平面 x+2>=0
+        frustum.getPlane(0, plane, 0);
+        assertEquals(1f, plane[0], 1e-5f);
+        assertEquals(2f, plane[3], 1e-5f);
+    }
+
+    @Test
+    public void sphere() {
+        assertTrue(frustum.intersectsSphere(0, 0, 0, 0.1f));
+        assertTrue(frustum.intersectsSphere(2.5f, 0, 0, 0.6f));
+        assertFalse(frustum.intersectsSphere(2.5f, 0, 0, 0.4f));
+        //在近平面后面
+        assertFalse(frustum.intersectsSphere(0, 0, 9, 1f));
+    }
+
+    @Test
+    public void aabb() {
+        assertEquals(Frustum.INSIDE, frustum.classifyAabb(new float[]{-1, -0.5f, -1, 1, 0.5f, 1}, 0));
+        assertEquals(Frustum.INTERSECTING, frustum.classifyAabb(new float[]{1, -0.5f, -1, 3, 0.5f, 1}, 0));
+        assertEquals(Frustum.OUTSIDE, frustum.classifyAabb(new float[]{0, 0, 0, 2.1f, 1.1f, 1, 0, 0, 0}, 3));
+        assertEquals(Frustum.OUTSIDE, frustum.classifyAabb(new float[]{-1, -1, -15, 1, 1, -11}, 0));
+    }
+
+    @Test
+    public void modelSpaceBounds() {
+        Bounds bounds = Bounds.fromPositions(new float[]{-1, -1, -1, 1, 1, 1}, 3);
+        float[] mvp = new float[16];
+        float[] model = new float[16];
+        float[] projection = new float[16];
+        Mat4.orthoM(projection, 0, -2, 2, -1, 1, -20, 20);
+        //正方体移到 x=3.2，包围球半径 √3 仍然和右平面 x=2 相交，包围盒从 2.2 开始已经在视锥外
+        Mat4.setIdentityM(model, 0);
+        Mat4.translateM(model, 0, 3.2f, 0, 0);
+        Mat4.multiplyMM(mvp, 0, projection, 0, model, 0);
+        assertTrue(frustum.set(mvp, 0).intersectsSphere(0, 0, 0, bounds.getRadius()));
+        assertFalse(frustum.isVisible(bounds));
+
+        Mat4.translateM(model, 0, -1f, 0, 0);
+        Mat4.multiplyMM(mvp, 0, projection, 0, model, 0);
+        assertTrue(frustum.set(mvp, 0).isVisible(bounds));
+    }
+}
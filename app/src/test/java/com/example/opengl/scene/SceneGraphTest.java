@@ -0,0 +1,144 @@
+package com.example.opengl.scene;
+
+import com.example.opengl.math.Mat4;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试世界矩阵的计算、脏子树的更新范围和深度优先的排列
+ */
+public class SceneGraphTest {
+
+    @Test
+    public void worldMatrices_matchNestedTransforms() {
+        SceneGraph graph = new SceneGraph(2);
+        SceneNode group = graph.createNode(graph.getRoot()).translate(-3, 0, 0).scale(0.5f, 0.5f, 0.5f);
+        SceneNode child = graph.createNode(group).translate(12, 0, 0).rotate(30f, 1, 2, 1);
+        graph.update();
+
+        float[] expected = new float[16];
+        Mat4.setIdentityM(expected, 0);
+        Mat4.translateM(expected, 0, -3, 0, 0);
+        Mat4.scaleM(expected, 0, 0.5f, 0.5f, 0.5f);
+        assertMatrix(expected, graph.getWorldMatrices(), group.getWorldOffset());
+        Mat4.translateM(expected, 0, 12, 0, 0);
+        Mat4.rotateM(expected, 0, 30f, 1, 2, 1);
+        assertMatrix(expected, graph.getWorldMatrices(), child.getWorldOffset());
+    }
+
+    @Test
+    public void update_onlyRecomputesDirtySubtrees() {
+        SceneGraph graph = new SceneGraph();
+        SceneNode a = graph.createNode(graph.getRoot());
+        SceneNode a1 = graph.createNode(a);
+        graph.createNode(a1);
+        SceneNode b = graph.createNode(graph.getRoot());
+        graph.createNode(b);
+        graph.update();
+        assertEquals(6, graph.getLastUpdateCount());
+
+        graph.update();
+        assertEquals(0, graph.getLastUpdateCount());
+
+        //子节点的变化不会重新计算父节点
+        b.translate(1, 0, 0);
+        graph.update();
+        assertEquals(2, graph.getLastUpdateCount());
+
+        //父节点和子节点都变化时子树只计算一次
+        a1.translate(0, 1, 0);
+        a.translate(0, 0, 1);
+        a.translate(0, 0, 1);
+        graph.update();
+        assertEquals(3, graph.getLastUpdateCount());
+        float[] world = graph.getWorldMatrices();
+        assertEquals(1f, world[a1.getWorldOffset() + 13], 0f);
+        assertEquals(2f, world[a1.getChild(0).getWorldOffset() + 14], 0f);
+    }
+
+    @Test
+    public void layout_isDepthFirst() {
+        SceneGraph graph = new SceneGraph();
+        SceneNode a = graph.createNode(graph.getRoot());
+        SceneNode b = graph.createNode(graph.getRoot());
+        SceneNode a1 = graph.createNode(a);
+        SceneNode b1 = graph.createNode(b);
+        SceneNode a2 = graph.createNode(a);
+        graph.update();
+        //root a a1 a2 b b1
+        assertEquals(16, a.getWorldOffset());
+        assertEquals(32, a1.getWorldOffset());
+        assertEquals(48, a2.getWorldOffset());
+        assertEquals(64, b.getWorldOffset());
+        assertEquals(80, b1.getWorldOffset());
+
+        a.removeFromParent();
+        graph.update();
+        assertEquals(3, graph.getNodeCount());
+        assertEquals(16, b.getWorldOffset());
+        assertEquals(32, b1.getWorldOffset());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void removedNode_cannotBeUsed() {
+        SceneGraph graph = new SceneGraph();
+        SceneNode a = graph.createNode(graph.getRoot());
+        a.removeFromParent();
+        graph.update();
+        a.translate(1, 0, 0);
+    }
+
+    /**
+     * 10万个节点的树：100个分组，每组10个子分组，每个子分组100个叶子。
+     * 每帧随机移动一部分叶子，重新计算的节点数不超过移动的节点数，和节点总数无关
+     */
+    @Test
+    public void mostlyStaticTree_updatesOnlyMovedNodes() {
+        SceneGraph graph = new SceneGraph(1 << 17);
+        List<SceneNode> leaves = new ArrayList<>();
+        for (int g = 0; g < 100; g++) {
+            SceneNode group = graph.createNode(graph.getRoot()).translate(g, 0, 0);
+            for (int s = 0; s < 10; s++) {
+                SceneNode sub = graph.createNode(group).rotate(s * 10f, 0, 1, 0);
+                for (int l = 0; l < 100; l++) {
+                    leaves.add(graph.createNode(sub).translate(0, l, 0));
+                }
+            }
+        }
+        graph.update();
+        int total = graph.getNodeCount();
+        assertEquals(1 + 100 + 1000 + 100000, total);
+        assertEquals(total, graph.getLastUpdateCount());
+
+        Random random = new Random(1);
+        int[] changes = {0, 10, 100, 1000, 10000};
+        for (int changed : changes) {
+            for (int f = 0; f < 20; f++) {
+                for (int i = 0; i < changed; i++) {
+                    leaves.get(random.nextInt(leaves.size())).translate(0.01f, 0, 0);
+                }
+                graph.update();
+                //同一个叶子可能被选中多次
+                assertTrue(graph.getLastUpdateCount() <= changed);
+                assertTrue(changed == 0 || graph.getLastUpdateCount() > 0);
+            }
+        }
+        //根节点变化时所有节点都要重新计算
+        graph.getRoot().rotate(1f, 0, 0, 1);
+        graph.update();
+        assertEquals(total, graph.getLastUpdateCount());
+    }
+
+    private static void assertMatrix(float[] expected, float[] actual, int offset) {
+        for (int i = 0; i < 16; i++) {
+            assertEquals(expected[i], actual[offset + i], 1e-5f);
+        }
+    }
+}
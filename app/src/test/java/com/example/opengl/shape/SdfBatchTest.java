@@ -0,0 +1,172 @@
+package com.example.opengl.shape;
+
+import android.opengl.GLES20;
+
+import com.example.gles.RecordingGL;
+import com.example.opengl.geometry.CircleGenerator;
+import com.example.opengl.math.Mat4;
+import com.example.opengl.mesh.Mesh;
+import com.example.opengl.utils.GLProgram;
+import com.example.opengl.utils.ProgramCache;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 测试距离场图形的批量绘制，并和三角形扇面画同样多的圆比较
+ */
+public class SdfBatchTest {
+
+    private static final String FAN_VERTEX_SHADER =
+            "uniform mat4 uMatrix;" +
+                    "attribute vec4 vPosition;" +
+                    "void main(){" +
+                    "    gl_Position=uMatrix*vPosition;" +
+                    "}";
+
+    private static final String FAN_FRAGMENT_SHADER =
+            "precision mediump float;" +
+                    "uniform vec4 vColor;" +
+                    "void main(){" +
+                    "    gl_FragColor=vColor;" +
+                    "}";
+
+    private RecordingGL gl;
+    private final float[] projection = new float[16];
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+        Mat4.orthoM(projection, 0, 0, 1080, 1920, 0, -1, 1);
+    }
+
+    @Test
+    public void thousandsOfShapes_oneDrawCall() {
+        SdfBatch batch = new SdfBatch(gl, SdfBatch.MAX_CAPACITY);
+        gl.beginFrame();
+        batch.begin(projection);
+        for (int i = 0; i < 5000; i++) {
+            switch (i % 3) {
+                case 0:
+                    batch.circle(i % 1080, i % 1920, 20f, 0xffff0000);
+                    break;
+                case 1:
+                    batch.ring(i % 1080, i % 1920, 20f, 3f, 0x8000ff00);
+                    break;
+                default:
+                    batch.roundRect(i % 1080, i % 1920, 30f, 10f, 4f, 0xff0000ff);
+                    break;
+            }
+        }
+        batch.end();
+        gl.beginFrame();
+
+        assertEquals(1, gl.getLastFrameDrawCallCount());
+        assertEquals(5000 * 6, gl.getLastFrameVertexCount());
+        //顶点数据加上一次投影矩阵
+        assertEquals(5000 * SdfBatch.getBytesPerShape() + 16 * 4, gl.getLastFrameUploadedBytes());
+        assertEquals(1, batch.getDrawCallCount());
+        assertEquals(5000, batch.getShapeCount());
+    }
+
+    @Test
+    public void overCapacity_flushesInBatches() {
+        SdfBatch batch = new SdfBatch(gl, 100);
+        gl.beginFrame();
+        batch.begin(projection);
+        for (int i = 0; i < 250; i++) {
+            batch.circle(100f, 100f, 10f, 0xffffffff);
+        }
+        batch.end();
+        gl.beginFrame();
+        assertEquals(3, gl.getLastFrameDrawCallCount());
+        assertEquals(250 * 6, gl.getLastFrameVertexCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shapeWithoutBegin_throws() {
+        new SdfBatch(gl, 1).circle(0f, 0f, 1f, 0);
+    }
+
+    @Test
+    public void distance_matchesShapes() {
+        //圆
+        assertEquals(-10f, SdfBatch.distance(0f, 0f, 10f, 10f, 10f, 0f), 1e-5f);
+        assertEquals(0f, SdfBatch.distance(6f, 8f, 10f, 10f, 10f, 0f), 1e-5f);
+        assertEquals(5f, SdfBatch.distance(0f, 15f, 10f, 10f, 10f, 0f), 1e-5f);
+        //圆环内外都在外面，环上在里面
+        assertTrue(SdfBatch.distance(0f, 0f, 10f, 10f, 10f, 2f) > 0f);
+        assertEquals(-1f, SdfBatch.distance(9f, 0f, 10f, 10f, 10f, 2f), 1e-5f);
+        assertEquals(2f, SdfBatch.distance(6f, 0f, 10f, 10f, 10f, 2f), 1e-5f);
+        //直角矩形和圆角矩形的角
+        assertEquals(0f, SdfBatch.distance(30f, 10f, 30f, 10f, 0f, 0f), 1e-5f);
+        assertTrue(SdfBatch.distance(30f, 10f, 30f, 10f, 4f, 0f) > 1f);
+        assertEquals(-3f, SdfBatch.distance(27f, 0f, 30f, 10f, 4f, 0f), 1e-5f);
+    }
+
+    @Test
+    public void coverage_isAntialiased() {
+        assertEquals(1f, SdfBatch.coverage(-2f), 0f);
+        assertEquals(0.5f, SdfBatch.coverage(0f), 0f);
+        assertEquals(0f, SdfBatch.coverage(2f), 0f);
+    }
+
+    /**
+     * 画同样多同样大的圆：距离场每个圆一个四边形、一次绘制全部画完；
+     * 扇面的分段数取弦到圆弧的距离不超过0.25像素，和距离场的边缘精度相当，每个圆一次绘制
+     */
+    @Test
+    public void sdf_fewerDrawsAndVerticesThanTessellated() {
+        int[] counts = {100, 2000};
+        float[] radii = {8f, 64f, 256f};
+        ProgramCache.getInstance().clear();
+        SdfBatch batch = new SdfBatch(gl, SdfBatch.MAX_CAPACITY);
+        GLProgram fanProgram = ProgramCache.getInstance().getProgram(gl, FAN_VERTEX_SHADER, FAN_FRAGMENT_SHADER);
+        GLProgram.Uniform fanMatrix = fanProgram.uniform("uMatrix");
+        GLProgram.Uniform fanColor = fanProgram.uniform("vColor");
+        float[] color = {1f, 1f, 1f, 1f};
+        float[] model = new float[16];
+        float[] mvp = new float[16];
+        for (float radius : radii) {
+            int segments = CircleGenerator.segmentsForError(radius, 0.25f);
+            Mesh fan = new Mesh(gl, GLES20.GL_TRIANGLE_FAN)
+                    .addAttribute(fanProgram.attribute("vPosition"), 3, CircleGenerator.createFan(segments, 1f, 0f));
+            for (int count : counts) {
+                gl.beginFrame();
+                batch.begin(projection);
+                for (int i = 0; i < count; i++) {
+                    batch.circle(i % 1080, (i * 7) % 1920, radius, 0xffffffff);
+                }
+                batch.end();
+                gl.beginFrame();
+                long sdfVertices = gl.getLastFrameVertexCount();
+                int sdfDraws = gl.getLastFrameDrawCallCount();
+
+                fanProgram.use();
+                fanColor.set4fv(color, 0);
+                for (int i = 0; i < count; i++) {
+                    Mat4.setIdentityM(model, 0);
+                    Mat4.translateM(model, 0, i % 1080, (i * 7) % 1920, 0f);
+                    Mat4.scaleM(model, 0, radius, radius, 1f);
+                    Mat4.multiplyMM(mvp, 0, projection, 0, model, 0);
+                    fanMatrix.setMatrix4fv(mvp, 0);
+                    fan.draw();
+                }
+                gl.beginFrame();
+                long fanVertices = gl.getLastFrameVertexCount();
+                int fanDraws = gl.getLastFrameDrawCallCount();
+
+                assertEquals(1, sdfDraws);
+                assertEquals(count, fanDraws);
+                assertEquals(count * 6L, sdfVertices);
+                assertEquals((long) count * CircleGenerator.fanVertexCount(segments), fanVertices);
+                assertTrue(radius + ": " + segments + " segments", sdfVertices < fanVertices);
+            }
+            fan.release();
+        }
+        batch.release();
+    }
+}
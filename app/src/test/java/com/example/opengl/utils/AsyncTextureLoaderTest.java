@@ -0,0 +1,221 @@
+package com.example.opengl.utils;
+
+import android.opengl.GLES20;
+
+import com.example.gles.RecordingGL;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用假的解码结果测试异步加载的分块上传、排队和取消
+ */
+public class AsyncTextureLoaderTest {
+
+    private static final int SIZE = 512;
+
+    private RecordingGL gl;
+    private TextureManager textures;
+    private CountDownLatch decodeGate;
+    private FakeLoader loader;
+    private int width;
+    private int height;
+    private int type;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+        textures = new TextureManager(gl);
+        decodeGate = new CountDownLatch(0);
+        width = SIZE;
+        height = SIZE;
+        type = GLES20.GL_UNSIGNED_BYTE;
+    }
+
+    @After
+    public void tearDown() {
+        if (loader != null) {
+            loader.release();
+        }
+    }
+
+    @Test
+    public void upload_isSlicedAcrossFrames() throws InterruptedException {
+        //预算为0时每帧只上传一块
+        loader = new FakeLoader(4, 0);
+        AsyncTextureLoader.Request request = loader.load("a");
+        int placeholder = request.getTextureId();
+        assertTrue(placeholder != 0);
+
+        int frames = runUntilDone(request);
+
+        //第一帧分配存储，之后每帧 64KB，512x512 RGBA 共 16 块
+        assertTrue(request.isDone());
+        assertEquals(16, gl.getCallCount("glTexSubImage2D"));
+        assertTrue(frames >= 17);
+        assertTrue(request.getTextureId() != placeholder);
+        assertNotNull(textures.get("a"));
+        assertEquals(1, textures.getUploadCount());
+        assertEquals(0, loader.getInFlightCount());
+    }
+
+    @Test
+    public void sameKey_returnsSameRequest() throws InterruptedException {
+        loader = new FakeLoader(4, AsyncTextureLoader.DEFAULT_UPLOAD_BUDGET_NANOS);
+        AsyncTextureLoader.Request request = loader.load("a");
+        assertSame(request, loader.load("a"));
+        runUntilDone(request);
+
+        //已经在纹理缓存中，直接完成
+        AsyncTextureLoader.Request cached = loader.load("a");
+        assertTrue(cached.isDone());
+        assertEquals(request.getTexture(), cached.getTexture());
+    }
+
+    @Test
+    public void inFlight_isLimited() throws InterruptedException {
+        decodeGate = new CountDownLatch(1);
+        loader = new FakeLoader(2, AsyncTextureLoader.DEFAULT_UPLOAD_BUDGET_NANOS);
+        AsyncTextureLoader.Request[] requests = new AsyncTextureLoader.Request[5];
+        for (int i = 0; i < requests.length; i++) {
+            requests[i] = loader.load("image" + i);
+        }
+        assertEquals(2, loader.getInFlightCount());
+        assertEquals(3, loader.getPendingCount());
+
+        decodeGate.countDown();
+        for (AsyncTextureLoader.Request request : requests) {
+            runUntilDone(request);
+        }
+        assertEquals(5, loader.getCompletedCount());
+        assertEquals(0, loader.getPendingCount());
+    }
+
+    @Test
+    public void cancel_dropsPendingAndUploading() throws InterruptedException {
+        decodeGate = new CountDownLatch(1);
+        loader = new FakeLoader(1, 0);
+        AsyncTextureLoader.Request first = loader.load("a");
+        AsyncTextureLoader.Request queued = loader.load("b");
+        queued.cancel();
+        loader.processUploads();
+        assertEquals(1, loader.getCancelledCount());
+
+        decodeGate.countDown();
+        //等第一张开始上传后再取消
+        while (gl.getCallCount("glTexSubImage2D") == 0) {
+            loader.processUploads();
+            Thread.sleep(1);
+        }
+        first.cancel();
+        loader.processUploads();
+
+        assertEquals(2, loader.getCancelledCount());
+        assertFalse(first.isDone());
+        assertEquals(0, loader.getInFlightCount());
+        assertEquals(1, gl.getCallCount("glDeleteTextures"));
+        assertEquals(0, textures.size());
+    }
+
+    @Test
+    public void mipmap_isGeneratedForPowerOfTwo() throws InterruptedException {
+        loader = new FakeLoader(4, AsyncTextureLoader.DEFAULT_UPLOAD_BUDGET_NANOS);
+        AsyncTextureLoader.Request request = loader.load("a", null, true);
+        runUntilDone(request);
+
+        assertEquals(1, gl.getCallCount("glGenerateMipmap"));
+        //mipmap 多占用 1/3
+        assertEquals((long) SIZE * SIZE * 4 * 4 / 3, request.getTexture().getByteCount());
+    }
+
+    @Test
+    public void mipmap_isGeneratedInItsOwnStep() throws InterruptedException {
+        //预算为0时每帧只做一步，生成 mipmap 不能和最后一块挤在同一帧
+        loader = new FakeLoader(4, 0);
+        AsyncTextureLoader.Request request = loader.load("a", null, true);
+        while (gl.getCallCount("glTexSubImage2D") < 16) {
+            loader.processUploads();
+            Thread.sleep(1);
+        }
+        assertEquals(0, gl.getCallCount("glGenerateMipmap"));
+        assertFalse(request.isDone());
+
+        loader.processUploads();
+        assertEquals(16, gl.getCallCount("glTexSubImage2D"));
+        assertEquals(1, gl.getCallCount("glGenerateMipmap"));
+        assertTrue(request.isDone());
+    }
+
+    @Test
+    public void mipmap_isSkippedForNpotOnEs2() throws InterruptedException {
+        width = 300;
+        height = 200;
+        loader = new FakeLoader(4, AsyncTextureLoader.DEFAULT_UPLOAD_BUDGET_NANOS);
+        AsyncTextureLoader.Request request = loader.load("a", null, true);
+        runUntilDone(request);
+
+        assertEquals(0, gl.getCallCount("glGenerateMipmap"));
+        assertEquals(300L * 200 * 4, request.getTexture().getByteCount());
+    }
+
+    @Test
+    public void rgb565_isUploadedAsShort565() throws InterruptedException {
+        //宽度为奇数，每行不是4字节对齐
+        width = 301;
+        height = 64;
+        type = GLES20.GL_UNSIGNED_SHORT_5_6_5;
+        loader = new FakeLoader(4, AsyncTextureLoader.DEFAULT_UPLOAD_BUDGET_NANOS);
+        AsyncTextureLoader.Request request = loader.load("a");
+        runUntilDone(request);
+
+        assertEquals(301L * 64 * 2, request.getTexture().getByteCount());
+        //每块上传前后各设置一次对齐
+        assertEquals(2 * gl.getCallCount("glTexSubImage2D"), gl.getCallCount("glPixelStorei"));
+    }
+
+    private int runUntilDone(AsyncTextureLoader.Request request) throws InterruptedException {
+        int frames = 0;
+        while (!request.isDone()) {
+            assertFalse(request.isFailed());
+            loader.processUploads();
+            frames++;
+            Thread.sleep(1);
+        }
+        return frames;
+    }
+
+    private class FakeLoader extends AsyncTextureLoader {
+
+        FakeLoader(int maxInFlight, long budgetNanos) {
+            super(gl, textures, 2, maxInFlight, budgetNanos);
+        }
+
+        @Override
+        protected void decode(Request request) {
+            try {
+                decodeGate.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+            if (type == GLES20.GL_UNSIGNED_SHORT_5_6_5) {
+                request.setPixels(ByteBuffer.allocateDirect(width * height * 2), width, height, GLES20.GL_RGB, type);
+            } else {
+                request.setPixels(ByteBuffer.allocateDirect(width * height * 4), width, height);
+            }
+        }
+
+        Request load(String key) {
+            return load(key, null);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.opengl.utils;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试采样率和像素格式的选择
+ */
+public class BitmapDecoderTest {
+
+    @Test
+    public void sampleSize_keepsImageLargerThanRequest() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(1080, 1920, 1080, 1920));
+        assertEquals(2, BitmapDecoder.calculateInSampleSize(4000, 3000, 1920, 1080));
+        assertEquals(4, BitmapDecoder.calculateInSampleSize(4000, 3000, 1000, 700));
+        //任一边不够时不再缩小
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(4000, 1000, 1000, 600));
+    }
+
+    @Test
+    public void sampleSize_noRequestKeepsFullSize() {
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(4000, 3000, 0, 0));
+        assertEquals(1, BitmapDecoder.calculateInSampleSize(100, 100, 1920, 1080));
+    }
+
+    @Test
+    public void config_jpegUses565() {
+        assertEquals(Bitmap.Config.RGB_565, BitmapDecoder.chooseConfig("image/jpeg"));
+        assertEquals(Bitmap.Config.ARGB_8888, BitmapDecoder.chooseConfig("image/png"));
+        assertEquals(Bitmap.Config.ARGB_8888, BitmapDecoder.chooseConfig(null));
+    }
+
+    @Test
+    public void config_opaqueImageUses565() {
+        assertEquals(Bitmap.Config.RGB_565, BitmapDecoder.chooseConfig("image/png", false));
+        assertEquals(Bitmap.Config.RGB_565, BitmapDecoder.chooseConfig("image/webp", false));
+        assertEquals(Bitmap.Config.ARGB_8888, BitmapDecoder.chooseConfig("image/png", true));
+        assertEquals(Bitmap.Config.RGB_565, BitmapDecoder.chooseConfig("image/jpeg", true));
+    }
+}
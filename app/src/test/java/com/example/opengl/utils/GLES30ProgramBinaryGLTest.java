@@ -0,0 +1,73 @@
+package com.example.opengl.utils;
+
+import android.opengl.GLES20;
+
+import com.example.gles.ForwardingGL;
+import com.example.gles.NoOpGL;
+import com.example.gles.RecordingGL;
+
+import org.junit.Test;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 在JVM上检查程序二进制的调用都经过 GL 接口，以及加载前清理之前留下的错误
+ */
+public class GLES30ProgramBinaryGLTest {
+
+    /**
+     * glGetError 依次返回预先设置好的错误
+     */
+    private static class ErrorGL extends ForwardingGL {
+        int pendingErrors;
+        boolean failLoad;
+
+        ErrorGL() {
+            super(new NoOpGL());
+        }
+
+        @Override
+        public int glGetError() {
+            if (pendingErrors > 0) {
+                pendingErrors--;
+                return GLES20.GL_INVALID_OPERATION;
+            }
+            return GLES20.GL_NO_ERROR;
+        }
+
+        @Override
+        public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length) {
+            if (failLoad) {
+                pendingErrors++;
+            }
+        }
+    }
+
+    @Test
+    public void programBinary_ignoresStaleErrors() {
+        ErrorGL errors = new ErrorGL();
+        RecordingGL gl = new RecordingGL(errors);
+        GLES30ProgramBinaryGL binaryGL = new GLES30ProgramBinaryGL(gl);
+        //之前无关的调用留下了两个错误
+        errors.pendingErrors = 2;
+
+        int program = binaryGL.createProgram();
+        assertTrue(binaryGL.programBinary(program, 1, ByteBuffer.allocateDirect(16), 16));
+        assertEquals(1, gl.getCallCount("glCreateProgram"));
+        assertEquals(1, gl.getCallCount("glProgramBinary"));
+        assertEquals(16, gl.getUploadedBytes());
+    }
+
+    @Test
+    public void programBinary_reportsErrorFromLoad() {
+        ErrorGL errors = new ErrorGL();
+        errors.failLoad = true;
+        GLES30ProgramBinaryGL binaryGL = new GLES30ProgramBinaryGL(errors);
+        assertFalse(binaryGL.programBinary(binaryGL.createProgram(), 1, ByteBuffer.allocateDirect(16), 16));
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.opengl.utils;
+
+import org.junit.Test;
+
+
+import static com.example.opengl.AllocationAssert.assertNoAllocation;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * MatrixTools 变换堆栈的测试
+ */
+public class MatrixToolsTest {
+
+    @Test
+    public void pushPop_restoresDepth() {
+        MatrixTools tools = new MatrixTools(2, 8);
+        for (int i = 0; i < 8; i++) {
+            tools.pushMatrix();
+        }
+        assertEquals(8, tools.getStackDepth());
+        for (int i = 0; i < 8; i++) {
+            tools.popMatrix();
+        }
+        assertEquals(0, tools.getStackDepth());
+    }
+
+    @Test
+    public void pop_restoresMatrixWithoutAliasingStack() {
+        //初始容量2层，压到10层会经过几次扩容
+        MatrixTools tools = new MatrixTools(2, 64);
+        tools.setCamera(0, 0, 5, 0, 0, 0, 0, 1, 0);
+        tools.ortho(-10, 10, -10, 10, 1, 20);
+        int depth = 10;
+        float[][] before = new float[depth][];
+        float[][] saved = new float[depth][16];
+        for (int d = 0; d < depth; d++) {
+            tools.translate(1f, 0f, 0f);
+            before[d] = tools.getFinalMatrix();
+            tools.pushMatrix();
+            tools.getStackMatrix(d, saved[d], 0);
+            tools.rotate(30f, 0f, 0f, 1f);
+            tools.scale(1.5f, 1.5f, 1.5f);
+        }
+        for (int d = depth - 1; d >= 0; d--) {
+            tools.popMatrix();
+            assertArrayEquals(before[d], tools.getFinalMatrix(), 0f);
+            //出栈后修改当前矩阵，保存在堆栈里的那一层不能跟着变
+            tools.translate(5f, 5f, 5f);
+            tools.rotate(45f, 1f, 0f, 0f);
+            float[] slot = new float[16];
+            tools.getStackMatrix(d, slot, 0);
+            assertArrayEquals(saved[d], slot, 0f);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void pop_onEmptyStack_underflows() {
+        new MatrixTools().popMatrix();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void push_beyondMaxDepth_overflows() {
+        MatrixTools tools = new MatrixTools(1, 4);
+        for (int i = 0; i < 5; i++) {
+            tools.pushMatrix();
+        }
+    }
+
+    @Test
+    public void deepHierarchy_doesNotAllocate() {
+        final MatrixTools tools = new MatrixTools();
+        //预热，让堆栈扩容到需要的深度
+        runFrame(tools);
+        runFrame(tools);
+
+        assertNoAllocation("100 frames", new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < 100; i++) {
+                    runFrame(tools);
+                }
+            }
+        });
+    }
+
+    private static void runFrame(MatrixTools tools) {
+        //10k次push/pop，嵌套深度16
+        for (int i = 0; i < 10000 / 16; i++) {
+            for (int d = 0; d < 16; d++) {
+                tools.pushMatrix();
+            }
+            for (int d = 0; d < 16; d++) {
+                tools.popMatrix();
+            }
+        }
+    }
+}
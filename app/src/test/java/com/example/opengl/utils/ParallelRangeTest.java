@@ -0,0 +1,104 @@
+package com.example.opengl.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 测试分段的覆盖范围、中断时的等待和异常的传递
+ */
+public class ParallelRangeTest {
+
+    private ParallelRange range;
+
+    @Before
+    public void setUp() {
+        range = new ParallelRange(4, "ParallelRangeTest");
+    }
+
+    @After
+    public void tearDown() {
+        range.release();
+    }
+
+    @Test
+    public void everyIndex_isVisitedOnce() {
+        final int[] visits = new int[1001];
+        range.run(visits.length, new ParallelRange.Body() {
+            @Override
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    visits[i]++;
+                }
+            }
+        });
+        for (int visit : visits) {
+            assertEquals(1, visit);
+        }
+    }
+
+    @Test
+    public void emptyRange_doesNothing() {
+        range.run(0, new ParallelRange.Body() {
+            @Override
+            public void run(int from, int to) {
+                fail("called for " + from + ".." + to);
+            }
+        });
+    }
+
+    @Test
+    public void interrupt_waitsForWorkers() {
+        final CountDownLatch started = new CountDownLatch(1);
+        final int[] values = new int[4];
+        Thread.currentThread().interrupt();
+        range.run(values.length, new ParallelRange.Body() {
+            @Override
+            public void run(int from, int to) {
+                if (from == 0) {
+                    //第一段故意比调用线程慢
+                    try {
+                        started.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    values[0] = 1;
+                } else {
+                    for (int i = from; i < to; i++) {
+                        values[i] = 1;
+                    }
+                    if (to == values.length) {
+                        started.countDown();
+                    }
+                }
+            }
+        });
+        assertTrue(Thread.interrupted());
+        for (int value : values) {
+            assertEquals(1, value);
+        }
+    }
+
+    @Test
+    public void workerFailure_isRethrown() {
+        try {
+            range.run(4, new ParallelRange.Body() {
+                @Override
+                public void run(int from, int to) {
+                    if (from == 0) {
+                        throw new IllegalStateException("broken");
+                    }
+                }
+            });
+            fail();
+        } catch (RuntimeException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.opengl.utils;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用假的GL实现测试程序二进制缓存的读写和失效
+ */
+public class ProgramBinaryCacheTest {
+
+    private static final String VERTEX = "attribute vec4 vPosition;void main(){gl_Position=vPosition;}";
+    private static final String FRAGMENT = "precision mediump float;void main(){gl_FragColor=vec4(1.0);}";
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("program_binaries", "");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdirs());
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Test
+    public void saveThenLoad_returnsLinkedProgram() {
+        FakeGL gl = new FakeGL("vendor|renderer|1");
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir, gl);
+        assertEquals(0, cache.load(VERTEX, FRAGMENT));
+        assertTrue(cache.save(gl.createProgram(), VERTEX, FRAGMENT));
+
+        //新的缓存实例模拟下一次启动
+        ProgramBinaryCache warm = new ProgramBinaryCache(dir, gl);
+        assertTrue(warm.load(VERTEX, FRAGMENT) != 0);
+        assertEquals(1, warm.getLoadCount());
+        assertEquals(0, warm.getInvalidateCount());
+    }
+
+    @Test
+    public void driverChange_invalidatesBinary() {
+        FakeGL gl = new FakeGL("vendor|renderer|1");
+        new ProgramBinaryCache(dir, gl).save(gl.createProgram(), VERTEX, FRAGMENT);
+
+        ProgramBinaryCache updated = new ProgramBinaryCache(dir, new FakeGL("vendor|renderer|2"));
+        assertEquals(0, updated.load(VERTEX, FRAGMENT));
+        assertEquals(1, updated.getInvalidateCount());
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void rejectedBinary_fallsBackAndDeletesFile() {
+        FakeGL gl = new FakeGL("vendor|renderer|1");
+        new ProgramBinaryCache(dir, gl).save(gl.createProgram(), VERTEX, FRAGMENT);
+
+        gl.rejectBinaries = true;
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir, gl);
+        assertEquals(0, cache.load(VERTEX, FRAGMENT));
+        assertEquals(1, gl.deletedPrograms);
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    @Test
+    public void truncatedFile_isInvalidated() throws IOException {
+        FakeGL gl = new FakeGL("vendor|renderer|1");
+        new ProgramBinaryCache(dir, gl).save(gl.createProgram(), VERTEX, FRAGMENT);
+        File file = dir.listFiles()[0];
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        raf.setLength(raf.length() - 3);
+        raf.close();
+
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir, gl);
+        assertEquals(0, cache.load(VERTEX, FRAGMENT));
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void unsupported_neverTouchesDisk() {
+        FakeGL gl = new FakeGL("vendor|renderer|1");
+        gl.supported = false;
+        ProgramBinaryCache cache = new ProgramBinaryCache(dir, gl);
+        assertFalse(cache.save(gl.createProgram(), VERTEX, FRAGMENT));
+        assertEquals(0, cache.load(VERTEX, FRAGMENT));
+        assertEquals(0, dir.listFiles().length);
+    }
+
+    private static class FakeGL implements ProgramBinaryGL {
+        private static final Charset UTF_8 = Charset.forName("UTF-8");
+        private static final int FORMAT = 0x1234;
+
+        final String signature;
+        boolean supported = true;
+        boolean rejectBinaries;
+        int nextProgram = 1;
+        int deletedPrograms;
+
+        FakeGL(String signature) {
+            this.signature = signature;
+        }
+
+        @Override
+        public boolean isProgramBinarySupported() {
+            return supported;
+        }
+
+        @Override
+        public String getDriverSignature() {
+            return signature;
+        }
+
+        @Override
+        public int createProgram() {
+            return nextProgram++;
+        }
+
+        @Override
+        public void deleteProgram(int program) {
+            deletedPrograms++;
+        }
+
+        @Override
+        public int getProgramBinaryLength(int program) {
+            return binaryOf(program).length;
+        }
+
+        @Override
+        public int getProgramBinary(int program, ByteBuffer binary) {
+            binary.put(binaryOf(program));
+            return FORMAT;
+        }
+
+        @Override
+        public boolean programBinary(int program, int format, ByteBuffer binary, int length) {
+            byte[] bytes = new byte[length];
+            binary.get(bytes);
+            return !rejectBinaries && format == FORMAT && new String(bytes, UTF_8).startsWith("binary-");
+        }
+
+        private byte[] binaryOf(int program) {
+            return ("binary-" + program + "-" + signature).getBytes(UTF_8);
+        }
+    }
+}
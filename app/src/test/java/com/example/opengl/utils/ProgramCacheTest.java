@@ -0,0 +1,107 @@
+package com.example.opengl.utils;
+
+import com.example.gles.RecordingGL;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * 用记录调用的GL实现测试程序缓存的命中、上下文切换和哈希冲突
+ */
+public class ProgramCacheTest {
+
+    private static final String VERTEX = "attribute vec4 vPosition;void main(){gl_Position=vPosition;}";
+    private static final String FRAGMENT = "precision mediump float;void main(){gl_FragColor=vec4(1.0);}";
+    private static final String OTHER_FRAGMENT = "precision mediump float;void main(){gl_FragColor=vec4(0.5);}";
+
+    private ProgramCache cache;
+    private RecordingGL gl;
+
+    @Before
+    public void setUp() {
+        cache = ProgramCache.getInstance();
+        cache.setBinaryCache(null);
+        cache.clear();
+        gl = new RecordingGL();
+    }
+
+    @Test
+    public void sameSources_compileOnce() {
+        int hits = cache.getHitCount();
+        int misses = cache.getMissCount();
+        GLProgram first = cache.getProgram(gl, VERTEX, FRAGMENT);
+        int compiles = gl.getCallCount("glCompileShader");
+        int links = gl.getCallCount("glLinkProgram");
+        GLProgram second = cache.getProgram(gl, VERTEX, FRAGMENT);
+
+        assertSame(first, second);
+        assertEquals(2, compiles);
+        assertEquals(compiles, gl.getCallCount("glCompileShader"));
+        assertEquals(links, gl.getCallCount("glLinkProgram"));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void differentSources_areCachedSeparately() {
+        int misses = cache.getMissCount();
+        GLProgram first = cache.getProgram(gl, VERTEX, FRAGMENT);
+        GLProgram other = cache.getProgram(gl, VERTEX, OTHER_FRAGMENT);
+
+        assertNotSame(first, other);
+        assertEquals(misses + 2, cache.getMissCount());
+        assertEquals(2, cache.size());
+        assertEquals(4, gl.getCallCount("glCompileShader"));
+    }
+
+    @Test
+    public void contextChange_clearsCache() {
+        GLProgram first = cache.getProgram(gl, VERTEX, FRAGMENT);
+        //每个 RecordingGL 默认包装一个新的 NoOpGL，当前上下文不同
+        RecordingGL newContext = new RecordingGL();
+        int misses = cache.getMissCount();
+        GLProgram second = cache.getProgram(newContext, VERTEX, FRAGMENT);
+
+        assertNotSame(first, second);
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(2, newContext.getCallCount("glCompileShader"));
+        assertEquals(1, cache.size());
+        //旧上下文的程序随上下文销毁，不在新上下文里删除
+        assertEquals(0, newContext.getCallCount("glDeleteProgram"));
+    }
+
+    @Test
+    public void hashCollision_doesNotShareProgram() {
+        //分隔符和字符 0xff 参与哈希的方式相同，分隔符两边挪动这个字符哈希不变
+        String vertexA = VERTEX + "\u00ff";
+        String fragmentA = FRAGMENT;
+        String vertexB = VERTEX;
+        String fragmentB = "\u00ff" + FRAGMENT;
+        assertEquals(ProgramCache.hash(vertexA, fragmentA), ProgramCache.hash(vertexB, fragmentB));
+
+        int hits = cache.getHitCount();
+        int misses = cache.getMissCount();
+        GLProgram a = cache.getProgram(gl, vertexA, fragmentA);
+        GLProgram b = cache.getProgram(gl, vertexB, fragmentB);
+
+        assertNotSame(a, b);
+        assertEquals(misses + 2, cache.getMissCount());
+        assertEquals(hits, cache.getHitCount());
+        //冲突的两个程序都被缓存，再次获取不会重新编译
+        assertSame(a, cache.getProgram(gl, vertexA, fragmentA));
+        assertSame(b, cache.getProgram(gl, vertexB, fragmentB));
+        assertEquals(hits + 2, cache.getHitCount());
+        assertEquals(4, gl.getCallCount("glCompileShader"));
+        assertEquals(2, cache.size());
+
+        //清空时两个程序都被删除
+        cache.clear();
+        assertEquals(2, gl.getCallCount("glDeleteProgram"));
+        assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.opengl.utils;
+
+import android.opengl.GLES20;
+
+import com.example.gles.RecordingGL;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 用 RecordingGL 测试纹理缓存的上传次数和淘汰
+ */
+public class TextureManagerTest {
+
+    private static final int SIZE = 64;
+    private static final long TEXTURE_BYTES = SIZE * SIZE * 4;
+
+    private RecordingGL gl;
+    private ByteBuffer pixels;
+
+    @Before
+    public void setUp() {
+        gl = new RecordingGL();
+        pixels = ByteBuffer.allocateDirect((int) TEXTURE_BYTES);
+    }
+
+    @Test
+    public void sameKey_uploadsOnce() {
+        TextureManager textures = new TextureManager(gl);
+        TextureManager.Texture first = upload(textures, "a");
+        for (int i = 0; i < 10; i++) {
+            assertSame(first, upload(textures, "a"));
+        }
+
+        assertEquals(1, textures.getUploadCount());
+        assertEquals(1, gl.getCallCount("glTexImage2D"));
+        assertEquals(1, gl.getCallCount("glGenTextures"));
+        assertEquals(TEXTURE_BYTES, textures.getResidentBytes());
+    }
+
+    @Test
+    public void overBudget_evictsLeastRecentlyUsed() {
+        TextureManager textures = new TextureManager(gl, TEXTURE_BYTES * 2);
+        TextureManager.Texture a = upload(textures, "a");
+        TextureManager.Texture b = upload(textures, "b");
+        //a 最近用过，淘汰的应该是 b
+        upload(textures, "a");
+        upload(textures, "c");
+
+        assertEquals(2, textures.size());
+        assertEquals(1, textures.getEvictionCount());
+        assertEquals(TEXTURE_BYTES * 2, textures.getResidentBytes());
+        assertEquals(1, gl.getCallCount("glDeleteTextures"));
+        assertEquals(0, b.getId());
+        assertTrue(a.getId() != 0);
+        assertNull(textures.get("b"));
+        assertNotNull(textures.get("a"));
+    }
+
+    @Test
+    public void textureLargerThanBudget_isKept() {
+        TextureManager textures = new TextureManager(gl, TEXTURE_BYTES / 2);
+        upload(textures, "a");
+        upload(textures, "b");
+
+        assertEquals(1, textures.size());
+        assertNotNull(textures.get("b"));
+    }
+
+    @Test
+    public void release_deletesTexture() {
+        TextureManager textures = new TextureManager(gl);
+        upload(textures, "a");
+        textures.release("a");
+
+        assertEquals(0, textures.getResidentBytes());
+        assertEquals(1, gl.getCallCount("glDeleteTextures"));
+        upload(textures, "a");
+        assertEquals(2, textures.getUploadCount());
+    }
+
+    @Test
+    public void shrinkBudget_evictsImmediately() {
+        TextureManager textures = new TextureManager(gl);
+        upload(textures, "a");
+        upload(textures, "b");
+        upload(textures, "c");
+        textures.setBudgetBytes(TEXTURE_BYTES);
+
+        assertEquals(1, textures.size());
+        assertEquals(2, textures.getEvictionCount());
+        assertNotNull(textures.get("c"));
+    }
+
+    @Test
+    public void bytesPerPixel_matchesFormat() {
+        assertEquals(4, TextureManager.bytesPerPixel(GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE));
+        assertEquals(3, TextureManager.bytesPerPixel(GLES20.GL_RGB, GLES20.GL_UNSIGNED_BYTE));
+        assertEquals(2, TextureManager.bytesPerPixel(GLES20.GL_RGB, GLES20.GL_UNSIGNED_SHORT_5_6_5));
+        assertEquals(1, TextureManager.bytesPerPixel(GLES20.GL_LUMINANCE, GLES20.GL_UNSIGNED_BYTE));
+    }
+
+    private TextureManager.Texture upload(TextureManager textures, String key) {
+        return textures.getTexture(key, SIZE, SIZE, GLES20.GL_RGBA, GLES20.GL_UNSIGNED_BYTE, pixels);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.gles;
+
+import android.opengl.GLSurfaceView;
+
+import javax.microedition.khronos.egl.EGLConfig;
+import javax.microedition.khronos.opengles.GL10;
+
+/**
+ * 包装一个Render，负责 {@link StateTrackingGL} 的帧边界：
+ * surface 创建时重置影子状态，每帧绘制前开始新的一帧统计。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class FrameRenderer implements GLSurfaceView.Renderer {
+
+    private final StateTrackingGL mGL;
+    private final GLSurfaceView.Renderer mRenderer;
+
+    public FrameRenderer(StateTrackingGL gl, GLSurfaceView.Renderer renderer) {
+        mGL = gl;
+        mRenderer = renderer;
+    }
+
+    public StateTrackingGL getGL() {
+        return mGL;
+    }
+
+    public GLSurfaceView.Renderer getRenderer() {
+        return mRenderer;
+    }
+
+    @Override
+    public void onSurfaceCreated(GL10 gl, EGLConfig config) {
+        //新的上下文，所有状态都是默认值
+        mGL.reset();
+        mRenderer.onSurfaceCreated(gl, config);
+    }
+
+    @Override
+    public void onSurfaceChanged(GL10 gl, int width, int height) {
+        mRenderer.onSurfaceChanged(gl, width, height);
+    }
+
+    @Override
+    public void onDrawFrame(GL10 gl) {
+        mGL.beginFrame();
+        mRenderer.onDrawFrame(gl);
+    }
+}
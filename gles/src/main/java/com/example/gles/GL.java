@@ -0,0 +1,174 @@
+package com.example.gles;
+
+import android.graphics.Bitmap;
+
+import java.nio.Buffer;
+
+/**
+ * OpenGL ES 2.0 调用的抽象，方法名和参数和 {@link android.opengl.GLES20} 保持一致，常量直接使用 GLES20 中的定义。
+ * Render 通过这个接口调用GL，真机上使用 {@link AndroidGL}，没有设备时可以换成
+ * {@link NoOpGL} 或 {@link RecordingGL}，在JVM上跑 onDrawFrame 统计调用次数。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public interface GL {
+
+    /**
+     * 当前GL上下文的标识，上下文重建之后会变化，用来判断缓存的程序、纹理等对象是否还有效
+     */
+    Object getCurrentContext();
+
+    // ---------------- 状态 ----------------
+
+    void glClearColor(float red, float green, float blue, float alpha);
+
+    void glClear(int mask);
+
+    void glEnable(int cap);
+
+    void glDisable(int cap);
+
+    void glViewport(int x, int y, int width, int height);
+
+    void glBlendFunc(int sfactor, int dfactor);
+
+    void glDepthFunc(int func);
+
+    void glDepthMask(boolean flag);
+
+    void glCullFace(int mode);
+
+    void glPixelStorei(int pname, int param);
+
+    void glGetIntegerv(int pname, int[] params, int offset);
+
+    String glGetString(int name);
+
+    int glGetError();
+
+    // ---------------- 着色器和程序 ----------------
+
+    int glCreateShader(int type);
+
+    void glShaderSource(int shader, String string);
+
+    void glCompileShader(int shader);
+
+    void glGetShaderiv(int shader, int pname, int[] params, int offset);
+
+    String glGetShaderInfoLog(int shader);
+
+    void glDeleteShader(int shader);
+
+    int glCreateProgram();
+
+    void glAttachShader(int program, int shader);
+
+    void glDetachShader(int program, int shader);
+
+    void glLinkProgram(int program);
+
+    void glGetProgramiv(int program, int pname, int[] params, int offset);
+
+    String glGetProgramInfoLog(int program);
+
+    void glDeleteProgram(int program);
+
+    void glUseProgram(int program);
+
+    int glGetAttribLocation(int program, String name);
+
+    int glGetUniformLocation(int program, String name);
+
+    void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset,
+                           int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset);
+
+    void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset,
+                            int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset);
+
+    // ---------------- uniform ----------------
+
+    void glUniform1i(int location, int x);
+
+    void glUniform1f(int location, float x);
+
+    void glUniform3fv(int location, int count, float[] v, int offset);
+
+    void glUniform4fv(int location, int count, float[] v, int offset);
+
+    void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset);
+
+    // ---------------- 顶点数据和绘制 ----------------
+
+    void glEnableVertexAttribArray(int index);
+
+    void glDisableVertexAttribArray(int index);
+
+    void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr);
+
+    void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset);
+
+    void glDrawArrays(int mode, int first, int count);
+
+    void glDrawElements(int mode, int count, int type, Buffer indices);
+
+    void glDrawElements(int mode, int count, int type, int offset);
+
+    // ---------------- ES 3.0 实例化绘制，只能在 ES 3.0 上下文调用 ----------------
+
+    void glVertexAttribDivisor(int index, int divisor);
+
+    void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount);
+
+    // ---------------- ES 3.0 程序二进制，只能在 ES 3.0 上下文调用 ----------------
+
+    void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+                            int[] binaryFormat, int binaryFormatOffset, Buffer binary);
+
+    void glProgramBinary(int program, int binaryFormat, Buffer binary, int length);
+
+    // ---------------- 缓冲区 ----------------
+
+    void glGenBuffers(int n, int[] buffers, int offset);
+
+    void glDeleteBuffers(int n, int[] buffers, int offset);
+
+    void glBindBuffer(int target, int buffer);
+
+    void glBufferData(int target, int size, Buffer data, int usage);
+
+    void glBufferSubData(int target, int offset, int size, Buffer data);
+
+    // ---------------- 纹理 ----------------
+
+    void glGenTextures(int n, int[] textures, int offset);
+
+    void glDeleteTextures(int n, int[] textures, int offset);
+
+    void glActiveTexture(int texture);
+
+    void glBindTexture(int target, int texture);
+
+    void glTexParameteri(int target, int pname, int param);
+
+    void glTexParameterf(int target, int pname, float param);
+
+    void glTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                      int format, int type, Buffer pixels);
+
+    void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height,
+                         int format, int type, Buffer pixels);
+
+    void glGenerateMipmap(int target);
+
+    /**
+     * 对应 GLUtils.texImage2D
+     */
+    void texImage2D(int target, int level, Bitmap bitmap, int border);
+
+    /**
+     * 对应 GLUtils.texSubImage2D
+     */
+    void texSubImage2D(int target, int level, int xoffset, int yoffset, Bitmap bitmap);
+}
@@ -0,0 +1,615 @@
+package com.example.gles;
+
+import android.graphics.Bitmap;
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 记录调用的装饰器，把调用转发给被包装的实现，同时按帧统计：
+ * 总调用次数、绘制调用次数、状态切换次数、上传的字节数以及每个方法的调用次数。
+ * 包装 {@link NoOpGL} 时可以在JVM上对Render做基准测试，包装 {@link AndroidGL} 时可以在真机上做统计。
+ * <p>
+ * 每帧开始时调用 {@link #beginFrame()}，上一帧的统计通过 getLastFrame* 方法读取。
+ * 只能在GL线程使用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class RecordingGL implements GL {
+
+    private final GL mDelegate;
+    private final Frame mCurrent = new Frame();
+    private final Frame mLast = new Frame();
+    private int mFrameCount;
+
+    public RecordingGL() {
+        this(new NoOpGL());
+    }
+
+    public RecordingGL(GL delegate) {
+        mDelegate = delegate;
+    }
+
+    public GL getDelegate() {
+        return mDelegate;
+    }
+
+    /**
+     * 开始新的一帧，当前的统计成为上一帧的统计
+     */
+    public void beginFrame() {
+        mLast.copyFrom(mCurrent);
+        mCurrent.reset();
+        mFrameCount++;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getCallCount() {
+        return mCurrent.calls;
+    }
+
+    public int getDrawCallCount() {
+        return mCurrent.drawCalls;
+    }
+
+    public int getStateChangeCount() {
+        return mCurrent.stateChanges;
+    }
+
+    public long getUploadedBytes() {
+        return mCurrent.uploadedBytes;
+    }
+
+    public long getVertexCount() {
+        return mCurrent.vertices;
+    }
+
+    /**
+     * 当前帧某个方法的调用次数，name 为方法名，例如 "glUseProgram"
+     */
+    public int getCallCount(String name) {
+        return mCurrent.count(name);
+    }
+
+    public int getLastFrameCallCount() {
+        return mLast.calls;
+    }
+
+    public int getLastFrameDrawCallCount() {
+        return mLast.drawCalls;
+    }
+
+    public int getLastFrameStateChangeCount() {
+        return mLast.stateChanges;
+    }
+
+    public long getLastFrameUploadedBytes() {
+        return mLast.uploadedBytes;
+    }
+
+    public long getLastFrameVertexCount() {
+        return mLast.vertices;
+    }
+
+    public int getLastFrameCallCount(String name) {
+        return mLast.count(name);
+    }
+
+    /**
+     * 当前帧每个方法的调用次数
+     */
+    public Map<String, Integer> getCallCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<String, int[]> entry : mCurrent.perMethod.entrySet()) {
+            if (entry.getValue()[0] > 0) {
+                counts.put(entry.getKey(), entry.getValue()[0]);
+            }
+        }
+        return Collections.unmodifiableMap(counts);
+    }
+
+    /**
+     * 当前帧的统计摘要
+     */
+    public String getReport() {
+        return "calls=" + mCurrent.calls
+                + " draws=" + mCurrent.drawCalls
+                + " stateChanges=" + mCurrent.stateChanges
+                + " uploadedBytes=" + mCurrent.uploadedBytes
+                + " vertices=" + mCurrent.vertices;
+    }
+
+    private void call(String name) {
+        mCurrent.calls++;
+        int[] count = mCurrent.perMethod.get(name);
+        if (count == null) {
+            count = new int[1];
+            mCurrent.perMethod.put(name, count);
+        }
+        count[0]++;
+    }
+
+    private void stateChange(String name) {
+        call(name);
+        mCurrent.stateChanges++;
+    }
+
+    private void upload(String name, long bytes) {
+        call(name);
+        mCurrent.uploadedBytes += bytes;
+    }
+
+    private void draw(String name, int vertices) {
+        call(name);
+        mCurrent.drawCalls++;
+        mCurrent.vertices += vertices;
+    }
+
+    private static int remainingBytes(Buffer buffer) {
+        if (buffer == null) {
+            return 0;
+        }
+        if (buffer instanceof ByteBuffer) {
+            return buffer.remaining();
+        }
+        if (buffer instanceof ShortBuffer) {
+            return buffer.remaining() * 2;
+        }
+        //FloatBuffer、IntBuffer
+        return buffer.remaining() * 4;
+    }
+
+    private static int indexSize(int type) {
+        switch (type) {
+            case GLES20.GL_UNSIGNED_BYTE:
+                return 1;
+            case GLES20.GL_UNSIGNED_SHORT:
+                return 2;
+            default:
+                return 4;
+        }
+    }
+
+    @Override
+    public Object getCurrentContext() {
+        return mDelegate.getCurrentContext();
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        stateChange("glClearColor");
+        mDelegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        call("glClear");
+        mDelegate.glClear(mask);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        stateChange("glEnable");
+        mDelegate.glEnable(cap);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        stateChange("glDisable");
+        mDelegate.glDisable(cap);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        stateChange("glViewport");
+        mDelegate.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        stateChange("glBlendFunc");
+        mDelegate.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        stateChange("glDepthFunc");
+        mDelegate.glDepthFunc(func);
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        stateChange("glDepthMask");
+        mDelegate.glDepthMask(flag);
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        stateChange("glCullFace");
+        mDelegate.glCullFace(mode);
+    }
+
+    @Override
+    public void glPixelStorei(int pname, int param) {
+        stateChange("glPixelStorei");
+        mDelegate.glPixelStorei(pname, param);
+    }
+
+    @Override
+    public void glGetIntegerv(int pname, int[] params, int offset) {
+        call("glGetIntegerv");
+        mDelegate.glGetIntegerv(pname, params, offset);
+    }
+
+    @Override
+    public String glGetString(int name) {
+        call("glGetString");
+        return mDelegate.glGetString(name);
+    }
+
+    @Override
+    public int glGetError() {
+        call("glGetError");
+        return mDelegate.glGetError();
+    }
+
+    @Override
+    public int glCreateShader(int type) {
+        call("glCreateShader");
+        return mDelegate.glCreateShader(type);
+    }
+
+    @Override
+    public void glShaderSource(int shader, String string) {
+        call("glShaderSource");
+        mDelegate.glShaderSource(shader, string);
+    }
+
+    @Override
+    public void glCompileShader(int shader) {
+        call("glCompileShader");
+        mDelegate.glCompileShader(shader);
+    }
+
+    @Override
+    public void glGetShaderiv(int shader, int pname, int[] params, int offset) {
+        call("glGetShaderiv");
+        mDelegate.glGetShaderiv(shader, pname, params, offset);
+    }
+
+    @Override
+    public String glGetShaderInfoLog(int shader) {
+        call("glGetShaderInfoLog");
+        return mDelegate.glGetShaderInfoLog(shader);
+    }
+
+    @Override
+    public void glDeleteShader(int shader) {
+        call("glDeleteShader");
+        mDelegate.glDeleteShader(shader);
+    }
+
+    @Override
+    public int glCreateProgram() {
+        call("glCreateProgram");
+        return mDelegate.glCreateProgram();
+    }
+
+    @Override
+    public void glAttachShader(int program, int shader) {
+        call("glAttachShader");
+        mDelegate.glAttachShader(program, shader);
+    }
+
+    @Override
+    public void glDetachShader(int program, int shader) {
+        call("glDetachShader");
+        mDelegate.glDetachShader(program, shader);
+    }
+
+    @Override
+    public void glLinkProgram(int program) {
+        call("glLinkProgram");
+        mDelegate.glLinkProgram(program);
+    }
+
+    @Override
+    public void glGetProgramiv(int program, int pname, int[] params, int offset) {
+        call("glGetProgramiv");
+        mDelegate.glGetProgramiv(program, pname, params, offset);
+    }
+
+    @Override
+    public String glGetProgramInfoLog(int program) {
+        call("glGetProgramInfoLog");
+        return mDelegate.glGetProgramInfoLog(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        call("glDeleteProgram");
+        mDelegate.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        stateChange("glUseProgram");
+        mDelegate.glUseProgram(program);
+    }
+
+    @Override
+    public int glGetAttribLocation(int program, String name) {
+        call("glGetAttribLocation");
+        return mDelegate.glGetAttribLocation(program, name);
+    }
+
+    @Override
+    public int glGetUniformLocation(int program, String name) {
+        call("glGetUniformLocation");
+        return mDelegate.glGetUniformLocation(program, name);
+    }
+
+    @Override
+    public void glGetActiveAttrib(int program, int index, int bufsize, int[] length, int lengthOffset,
+                                  int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+        call("glGetActiveAttrib");
+        mDelegate.glGetActiveAttrib(program, index, bufsize, length, lengthOffset,
+                size, sizeOffset, type, typeOffset, name, nameOffset);
+    }
+
+    @Override
+    public void glGetActiveUniform(int program, int index, int bufsize, int[] length, int lengthOffset,
+                                   int[] size, int sizeOffset, int[] type, int typeOffset, byte[] name, int nameOffset) {
+        call("glGetActiveUniform");
+        mDelegate.glGetActiveUniform(program, index, bufsize, length, lengthOffset,
+                size, sizeOffset, type, typeOffset, name, nameOffset);
+    }
+
+    @Override
+    public void glUniform1i(int location, int x) {
+        upload("glUniform1i", 4);
+        mDelegate.glUniform1i(location, x);
+    }
+
+    @Override
+    public void glUniform1f(int location, float x) {
+        upload("glUniform1f", 4);
+        mDelegate.glUniform1f(location, x);
+    }
+
+    @Override
+    public void glUniform3fv(int location, int count, float[] v, int offset) {
+        upload("glUniform3fv", count * 12);
+        mDelegate.glUniform3fv(location, count, v, offset);
+    }
+
+    @Override
+    public void glUniform4fv(int location, int count, float[] v, int offset) {
+        upload("glUniform4fv", count * 16);
+        mDelegate.glUniform4fv(location, count, v, offset);
+    }
+
+    @Override
+    public void glUniformMatrix4fv(int location, int count, boolean transpose, float[] value, int offset) {
+        upload("glUniformMatrix4fv", count * 64);
+        mDelegate.glUniformMatrix4fv(location, count, transpose, value, offset);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        stateChange("glEnableVertexAttribArray");
+        mDelegate.glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        stateChange("glDisableVertexAttribArray");
+        mDelegate.glDisableVertexAttribArray(index);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, Buffer ptr) {
+        //客户端内存中的顶点数据在绘制时由驱动拷贝，按缓冲区剩余的大小近似计入上传量
+        upload("glVertexAttribPointer", remainingBytes(ptr));
+        mDelegate.glVertexAttribPointer(indx, size, type, normalized, stride, ptr);
+    }
+
+    @Override
+    public void glVertexAttribPointer(int indx, int size, int type, boolean normalized, int stride, int offset) {
+        stateChange("glVertexAttribPointer");
+        mDelegate.glVertexAttribPointer(indx, size, type, normalized, stride, offset);
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        draw("glDrawArrays", count);
+        mDelegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        draw("glDrawElements", count);
+        mCurrent.uploadedBytes += (long) count * indexSize(type);
+        mDelegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        draw("glDrawElements", count);
+        mDelegate.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glVertexAttribDivisor(int index, int divisor) {
+        stateChange("glVertexAttribDivisor");
+        mDelegate.glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        draw("glDrawElementsInstanced", count * instanceCount);
+        mDelegate.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+
+    @Override
+    public void glGetProgramBinary(int program, int bufSize, int[] length, int lengthOffset,
+                                   int[] binaryFormat, int binaryFormatOffset, Buffer binary) {
+        call("glGetProgramBinary");
+        mDelegate.glGetProgramBinary(program, bufSize, length, lengthOffset, binaryFormat, binaryFormatOffset, binary);
+    }
+
+    @Override
+    public void glProgramBinary(int program, int binaryFormat, Buffer binary, int length) {
+        upload("glProgramBinary", length);
+        mDelegate.glProgramBinary(program, binaryFormat, binary, length);
+    }
+
+    @Override
+    public void glGenBuffers(int n, int[] buffers, int offset) {
+        call("glGenBuffers");
+        mDelegate.glGenBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        call("glDeleteBuffers");
+        mDelegate.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        stateChange("glBindBuffer");
+        mDelegate.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glBufferData(int target, int size, Buffer data, int usage) {
+        upload("glBufferData", size);
+        mDelegate.glBufferData(target, size, data, usage);
+    }
+
+    @Override
+    public void glBufferSubData(int target, int offset, int size, Buffer data) {
+        upload("glBufferSubData", size);
+        mDelegate.glBufferSubData(target, offset, size, data);
+    }
+
+    @Override
+    public void glGenTextures(int n, int[] textures, int offset) {
+        call("glGenTextures");
+        mDelegate.glGenTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        call("glDeleteTextures");
+        mDelegate.glDeleteTextures(n, textures, offset);
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        stateChange("glActiveTexture");
+        mDelegate.glActiveTexture(texture);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        stateChange("glBindTexture");
+        mDelegate.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void glTexParameteri(int target, int pname, int param) {
+        stateChange("glTexParameteri");
+        mDelegate.glTexParameteri(target, pname, param);
+    }
+
+    @Override
+    public void glTexParameterf(int target, int pname, float param) {
+        stateChange("glTexParameterf");
+        mDelegate.glTexParameterf(target, pname, param);
+    }
+
+    @Override
+    public void glTexImage2D(int target, int level, int internalformat, int width, int height, int border,
+                             int format, int type, Buffer pixels) {
+        upload("glTexImage2D", remainingBytes(pixels));
+        mDelegate.glTexImage2D(target, level, internalformat, width, height, border, format, type, pixels);
+    }
+
+    @Override
+    public void glTexSubImage2D(int target, int level, int xoffset, int yoffset, int width, int height,
+                                int format, int type, Buffer pixels) {
+        upload("glTexSubImage2D", remainingBytes(pixels));
+        mDelegate.glTexSubImage2D(target, level, xoffset, yoffset, width, height, format, type, pixels);
+    }
+
+    @Override
+    public void glGenerateMipmap(int target) {
+        call("glGenerateMipmap");
+        mDelegate.glGenerateMipmap(target);
+    }
+
+    @Override
+    public void texImage2D(int target, int level, Bitmap bitmap, int border) {
+        upload("texImage2D", bitmap == null ? 0 : bitmap.getRowBytes() * bitmap.getHeight());
+        mDelegate.texImage2D(target, level, bitmap, border);
+    }
+
+    @Override
+    public void texSubImage2D(int target, int level, int xoffset, int yoffset, Bitmap bitmap) {
+        upload("texSubImage2D", bitmap == null ? 0 : bitmap.getRowBytes() * bitmap.getHeight());
+        mDelegate.texSubImage2D(target, level, xoffset, yoffset, bitmap);
+    }
+
+    private static class Frame {
+        int calls;
+        int drawCalls;
+        int stateChanges;
+        long uploadedBytes;
+        long vertices;
+        final Map<String, int[]> perMethod = new HashMap<>();
+
+        int count(String name) {
+            int[] count = perMethod.get(name);
+            return count == null ? 0 : count[0];
+        }
+
+        void reset() {
+            calls = 0;
+            drawCalls = 0;
+            stateChanges = 0;
+            uploadedBytes = 0;
+            vertices = 0;
+            //保留key，后续帧不再分配
+            for (int[] count : perMethod.values()) {
+                count[0] = 0;
+            }
+        }
+
+        void copyFrom(Frame other) {
+            calls = other.calls;
+            drawCalls = other.drawCalls;
+            stateChanges = other.stateChanges;
+            uploadedBytes = other.uploadedBytes;
+            vertices = other.vertices;
+            for (Map.Entry<String, int[]> entry : other.perMethod.entrySet()) {
+                int[] count = perMethod.get(entry.getKey());
+                if (count == null) {
+                    count = new int[1];
+                    perMethod.put(entry.getKey(), count);
+                }
+                count[0] = entry.getValue()[0];
+            }
+        }
+    }
+}
@@ -0,0 +1,439 @@
+package com.example.gles;
+
+import android.opengl.GLES20;
+
+import java.nio.Buffer;
+
+/**
+ * 维护一份GL状态的影子副本，丢弃不会改变状态的调用：
+ * 当前程序、顶点属性开关、绑定的缓冲区和纹理、混合/深度等开关和参数、视口，
+ * 以及两次之间没有绘制的重复 glClear。
+ * <p>
+ * 顶点属性的开关不会立即下发，而是记在掩码里，绘制前和实际状态比较后只下发有变化的部分，
+ * 这样每次绘制前后成对的 enable/disable 在连续绘制时不再产生调用。
+ * <p>
+ * 前提是所有的GL调用都经过这个对象。上下文重建后需要调用 {@link #reset()}，
+ * 每帧开始时调用 {@link #beginFrame()}，可以直接使用 {@link FrameRenderer}。只能在GL线程使用。
+ *
+ * @author agent
+ * @date 2026/10/18
+ */
+public class StateTrackingGL extends ForwardingGL {
+
+    /**
+     * 跟踪开关状态的 glEnable 参数，其他参数直接下发
+     */
+    private static final int[] CAPS = {
+            GLES20.GL_BLEND,
+            GLES20.GL_DEPTH_TEST,
+            GLES20.GL_CULL_FACE,
+            GLES20.GL_SCISSOR_TEST,
+            GLES20.GL_STENCIL_TEST,
+            GLES20.GL_DITHER,
+            GLES20.GL_POLYGON_OFFSET_FILL,
+    };
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int MAX_VERTEX_ATTRIBS = 32;
+    /**
+     * 程序名字都不是负数，用来表示不知道当前程序
+     */
+    private static final int UNKNOWN_PROGRAM = -1;
+
+    private final boolean[] mCaps = new boolean[CAPS.length];
+    private int mProgram;
+    private int mArrayBuffer;
+    private int mElementArrayBuffer;
+    private int mActiveTexture;
+    private final int[] mTexture2D = new int[MAX_TEXTURE_UNITS];
+    private final int[] mTextureCube = new int[MAX_TEXTURE_UNITS];
+    private int mBlendSrc;
+    private int mBlendDst;
+    private int mDepthFunc;
+    private boolean mDepthMask;
+    private int mCullFace;
+    private float mClearRed;
+    private float mClearGreen;
+    private float mClearBlue;
+    private float mClearAlpha;
+    private boolean mViewportValid;
+    private final int[] mViewport = new int[4];
+
+    /**
+     * 渲染代码期望打开的顶点属性，绘制时才和 mAttribsEnabled 同步
+     */
+    private int mAttribsWanted;
+    private int mAttribsEnabled;
+
+    /**
+     * 上一次绘制之后已经清除过的缓冲区位
+     */
+    private int mClearedMask;
+
+    private int mIssued;
+    private int mSkipped;
+    private int mLastIssued;
+    private int mLastSkipped;
+
+    public StateTrackingGL(GL delegate) {
+        super(delegate);
+        reset();
+    }
+
+    /**
+     * 把影子状态恢复为新上下文的默认值，surface 重建之后调用
+     */
+    public void reset() {
+        for (int i = 0; i < CAPS.length; i++) {
+            mCaps[i] = CAPS[i] == GLES20.GL_DITHER;
+        }
+        mProgram = 0;
+        mArrayBuffer = 0;
+        mElementArrayBuffer = 0;
+        mActiveTexture = 0;
+        for (int i = 0; i < MAX_TEXTURE_UNITS; i++) {
+            mTexture2D[i] = 0;
+            mTextureCube[i] = 0;
+        }
+        mBlendSrc = GLES20.GL_ONE;
+        mBlendDst = GLES20.GL_ZERO;
+        mDepthFunc = GLES20.GL_LESS;
+        mDepthMask = true;
+        mCullFace = GLES20.GL_BACK;
+        mClearRed = 0;
+        mClearGreen = 0;
+        mClearBlue = 0;
+        mClearAlpha = 0;
+        //默认视口是surface的大小，这里不知道，第一次总是下发
+        mViewportValid = false;
+        mAttribsWanted = 0;
+        mAttribsEnabled = 0;
+        mClearedMask = 0;
+    }
+
+    /**
+     * 开始新的一帧。交换缓冲区之后颜色缓冲的内容是未定义的，第一次 glClear 一定要下发
+     */
+    public void beginFrame() {
+        mLastIssued = mIssued;
+        mLastSkipped = mSkipped;
+        mIssued = 0;
+        mSkipped = 0;
+        mClearedMask = 0;
+    }
+
+    /**
+     * 当前帧下发的状态调用次数
+     */
+    public int getIssuedCount() {
+        return mIssued;
+    }
+
+    /**
+     * 当前帧因为状态没有变化而丢弃的调用次数
+     */
+    public int getSkippedCount() {
+        return mSkipped;
+    }
+
+    public int getLastFrameIssuedCount() {
+        return mLastIssued;
+    }
+
+    public int getLastFrameSkippedCount() {
+        return mLastSkipped;
+    }
+
+    private boolean skip() {
+        mSkipped++;
+        return true;
+    }
+
+    private void issued() {
+        mIssued++;
+    }
+
+    private static int capIndex(int cap) {
+        for (int i = 0; i < CAPS.length; i++) {
+            if (CAPS[i] == cap) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 绘制前把顶点属性开关同步到期望的状态
+     */
+    private void flushAttribs() {
+        int changed = mAttribsWanted ^ mAttribsEnabled;
+        while (changed != 0) {
+            int index = Integer.numberOfTrailingZeros(changed);
+            changed &= changed - 1;
+            if ((mAttribsWanted & (1 << index)) != 0) {
+                mDelegate.glEnableVertexAttribArray(index);
+            } else {
+                mDelegate.glDisableVertexAttribArray(index);
+            }
+            issued();
+        }
+        mAttribsEnabled = mAttribsWanted;
+        mClearedMask = 0;
+    }
+
+    @Override
+    public void glUseProgram(int program) {
+        if (program == mProgram && skip()) {
+            return;
+        }
+        mProgram = program;
+        issued();
+        mDelegate.glUseProgram(program);
+    }
+
+    @Override
+    public void glDeleteProgram(int program) {
+        //删除当前程序后它在GL里仍然是当前程序，直到切换为止，名字之后可能被重新分配；
+        //影子状态记为未知，下一次 glUseProgram 一定下发
+        if (program == mProgram) {
+            mProgram = UNKNOWN_PROGRAM;
+        }
+        mDelegate.glDeleteProgram(program);
+    }
+
+    @Override
+    public void glEnableVertexAttribArray(int index) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            mDelegate.glEnableVertexAttribArray(index);
+            return;
+        }
+        //先记下来，绘制时再同步；和实际状态相同的才算丢弃，不同的在同步时算下发
+        int bit = 1 << index;
+        if ((mAttribsEnabled & bit) != 0) {
+            mSkipped++;
+        }
+        mAttribsWanted |= bit;
+    }
+
+    @Override
+    public void glDisableVertexAttribArray(int index) {
+        if (index < 0 || index >= MAX_VERTEX_ATTRIBS) {
+            mDelegate.glDisableVertexAttribArray(index);
+            return;
+        }
+        int bit = 1 << index;
+        if ((mAttribsEnabled & bit) == 0) {
+            mSkipped++;
+        }
+        mAttribsWanted &= ~bit;
+    }
+
+    @Override
+    public void glDrawArrays(int mode, int first, int count) {
+        flushAttribs();
+        mDelegate.glDrawArrays(mode, first, count);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, Buffer indices) {
+        flushAttribs();
+        mDelegate.glDrawElements(mode, count, type, indices);
+    }
+
+    @Override
+    public void glDrawElements(int mode, int count, int type, int offset) {
+        flushAttribs();
+        mDelegate.glDrawElements(mode, count, type, offset);
+    }
+
+    @Override
+    public void glDrawElementsInstanced(int mode, int count, int type, int offset, int instanceCount) {
+        flushAttribs();
+        mDelegate.glDrawElementsInstanced(mode, count, type, offset, instanceCount);
+    }
+
+    @Override
+    public void glClear(int mask) {
+        //上次清除之后没有绘制，也没有改变清除用到的状态，再清一次结果相同
+        if ((mask & ~mClearedMask) == 0 && skip()) {
+            return;
+        }
+        mClearedMask |= mask;
+        issued();
+        mDelegate.glClear(mask);
+    }
+
+    @Override
+    public void glClearColor(float red, float green, float blue, float alpha) {
+        if (red == mClearRed && green == mClearGreen && blue == mClearBlue && alpha == mClearAlpha && skip()) {
+            return;
+        }
+        mClearRed = red;
+        mClearGreen = green;
+        mClearBlue = blue;
+        mClearAlpha = alpha;
+        mClearedMask &= ~GLES20.GL_COLOR_BUFFER_BIT;
+        issued();
+        mDelegate.glClearColor(red, green, blue, alpha);
+    }
+
+    @Override
+    public void glEnable(int cap) {
+        int index = capIndex(cap);
+        if (index >= 0) {
+            if (mCaps[index] && skip()) {
+                return;
+            }
+            mCaps[index] = true;
+        }
+        //裁剪、模板等开关会影响 glClear 的结果
+        mClearedMask = 0;
+        issued();
+        mDelegate.glEnable(cap);
+    }
+
+    @Override
+    public void glDisable(int cap) {
+        int index = capIndex(cap);
+        if (index >= 0) {
+            if (!mCaps[index] && skip()) {
+                return;
+            }
+            mCaps[index] = false;
+        }
+        mClearedMask = 0;
+        issued();
+        mDelegate.glDisable(cap);
+    }
+
+    @Override
+    public void glViewport(int x, int y, int width, int height) {
+        if (mViewportValid && mViewport[0] == x && mViewport[1] == y
+                && mViewport[2] == width && mViewport[3] == height && skip()) {
+            return;
+        }
+        mViewport[0] = x;
+        mViewport[1] = y;
+        mViewport[2] = width;
+        mViewport[3] = height;
+        mViewportValid = true;
+        issued();
+        mDelegate.glViewport(x, y, width, height);
+    }
+
+    @Override
+    public void glBlendFunc(int sfactor, int dfactor) {
+        if (sfactor == mBlendSrc && dfactor == mBlendDst && skip()) {
+            return;
+        }
+        mBlendSrc = sfactor;
+        mBlendDst = dfactor;
+        issued();
+        mDelegate.glBlendFunc(sfactor, dfactor);
+    }
+
+    @Override
+    public void glDepthFunc(int func) {
+        if (func == mDepthFunc && skip()) {
+            return;
+        }
+        mDepthFunc = func;
+        issued();
+        mDelegate.glDepthFunc(func);
+    }
+
+    @Override
+    public void glDepthMask(boolean flag) {
+        if (flag == mDepthMask && skip()) {
+            return;
+        }
+        mDepthMask = flag;
+        mClearedMask &= ~GLES20.GL_DEPTH_BUFFER_BIT;
+        issued();
+        mDelegate.glDepthMask(flag);
+    }
+
+    @Override
+    public void glCullFace(int mode) {
+        if (mode == mCullFace && skip()) {
+            return;
+        }
+        mCullFace = mode;
+        issued();
+        mDelegate.glCullFace(mode);
+    }
+
+    @Override
+    public void glBindBuffer(int target, int buffer) {
+        if (target == GLES20.GL_ARRAY_BUFFER) {
+            if (buffer == mArrayBuffer && skip()) {
+                return;
+            }
+            mArrayBuffer = buffer;
+        } else if (target == GLES20.GL_ELEMENT_ARRAY_BUFFER) {
+            if (buffer == mElementArrayBuffer && skip()) {
+                return;
+            }
+            mElementArrayBuffer = buffer;
+        }
+        issued();
+        mDelegate.glBindBuffer(target, buffer);
+    }
+
+    @Override
+    public void glDeleteBuffers(int n, int[] buffers, int offset) {
+        //删除绑定中的对象后绑定回到0，名字之后可能被重新分配
+        for (int i = 0; i < n; i++) {
+            int buffer = buffers[offset + i];
+            if (buffer == mArrayBuffer) {
+                mArrayBuffer = 0;
+            }
+            if (buffer == mElementArrayBuffer) {
+                mElementArrayBuffer = 0;
+            }
+        }
+        mDelegate.glDeleteBuffers(n, buffers, offset);
+    }
+
+    @Override
+    public void glActiveTexture(int texture) {
+        int unit = texture - GLES20.GL_TEXTURE0;
+        if (unit == mActiveTexture && skip()) {
+            return;
+        }
+        if (unit >= 0 && unit < MAX_TEXTURE_UNITS) {
+            mActiveTexture = unit;
+        }
+        issued();
+        mDelegate.glActiveTexture(texture);
+    }
+
+    @Override
+    public void glBindTexture(int target, int texture) {
+        int[] bindings = target == GLES20.GL_TEXTURE_2D ? mTexture2D
+                : target == GLES20.GL_TEXTURE_CUBE_MAP ? mTextureCube : null;
+        if (bindings != null) {
+            if (bindings[mActiveTexture] == texture && skip()) {
+                return;
+            }
+            bindings[mActiveTexture] = texture;
+        }
+        issued();
+        mDelegate.glBindTexture(target, texture);
+    }
+
+    @Override
+    public void glDeleteTextures(int n, int[] textures, int offset) {
+        for (int i = 0; i < n; i++) {
+            int texture = textures[offset + i];
+            for (int unit = 0; unit < MAX_TEXTURE_UNITS; unit++) {
+                if (mTexture2D[unit] == texture) {
+                    mTexture2D[unit] = 0;
+                }
+                if (mTextureCube[unit] == texture) {
+                    mTextureCube[unit] = 0;
+                }
+            }
+        }
+        mDelegate.glDeleteTextures(n, textures, offset);
+    }
+}
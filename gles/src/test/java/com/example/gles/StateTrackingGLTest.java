@@ -0,0 +1,78 @@
+package com.example.gles;
+
+import android.opengl.GLES20;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 测试影子状态的计数，以及删除对象后名字被重新分配时绑定不会被错误地丢弃
+ */
+public class StateTrackingGLTest {
+
+    private RecordingGL recording;
+    private StateTrackingGL gl;
+
+    @Before
+    public void setUp() {
+        recording = new RecordingGL();
+        gl = new StateTrackingGL(recording);
+    }
+
+    @Test
+    public void deferredAttrib_countedAsIssuedInFrameOfDraw() {
+        gl.glEnableVertexAttribArray(0);
+        gl.beginFrame();
+        //还没有下发，也没有被丢弃
+        assertEquals(0, gl.getLastFrameSkippedCount());
+        assertEquals(0, gl.getLastFrameIssuedCount());
+
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+        assertEquals(1, gl.getIssuedCount());
+        assertEquals(0, gl.getSkippedCount());
+        assertEquals(1, recording.getCallCount("glEnableVertexAttribArray"));
+    }
+
+    @Test
+    public void attribAlreadyEnabled_isSkipped() {
+        gl.glEnableVertexAttribArray(0);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+        gl.beginFrame();
+
+        gl.glEnableVertexAttribArray(0);
+        gl.glEnableVertexAttribArray(1);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+        assertEquals(1, gl.getSkippedCount());
+        assertEquals(1, gl.getIssuedCount());
+
+        gl.glDisableVertexAttribArray(0);
+        gl.glDisableVertexAttribArray(2);
+        gl.glDrawArrays(GLES20.GL_TRIANGLES, 0, 3);
+        assertEquals(2, gl.getSkippedCount());
+        assertEquals(2, gl.getIssuedCount());
+    }
+
+    @Test
+    public void deleteProgram_nextUseIsIssued() {
+        gl.glUseProgram(5);
+        gl.glDeleteProgram(5);
+        //名字被重新分配给新的程序
+        gl.glUseProgram(5);
+        assertEquals(2, recording.getCallCount("glUseProgram"));
+    }
+
+    @Test
+    public void deleteTextureAndBuffer_nextBindIsIssued() {
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 3);
+        gl.glDeleteTextures(1, new int[]{3}, 0);
+        gl.glBindTexture(GLES20.GL_TEXTURE_2D, 3);
+        assertEquals(2, recording.getCallCount("glBindTexture"));
+
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+        gl.glDeleteBuffers(1, new int[]{4}, 0);
+        gl.glBindBuffer(GLES20.GL_ARRAY_BUFFER, 4);
+        assertEquals(2, recording.getCallCount("glBindBuffer"));
+    }
+}